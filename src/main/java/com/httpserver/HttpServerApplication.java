@@ -1,16 +1,40 @@
 package com.httpserver;
 
+import com.httpserver.config.CompressionConfiguration;
 import com.httpserver.config.ConfigurationManager;
+import com.httpserver.config.Http2Configuration;
 import com.httpserver.config.HttpServerConfiguration;
+import com.httpserver.config.RequestTimeoutConfiguration;
 import com.httpserver.config.SSLConfiguration;
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.core.Handler;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.http.HttpConnectionWorkerThread;
 import com.httpserver.core.http.HttpServerListenerThread;
+import com.httpserver.core.http.HttpsRedirector;
+import com.httpserver.core.https.HttpsConnectionWorkerThread;
 import com.httpserver.core.https.HttpsServerListenerThread;
+import com.httpserver.middleware.CompressionMiddleware;
+import com.httpserver.middleware.Middleware;
+import com.httpserver.middleware.SecurityHeadersMiddleware;
+import com.httpserver.routing.Router;
+import com.httpserver.staticfile.CacheWarmer;
+import com.httpserver.staticfile.Precompressor;
+import com.httpserver.staticfile.StaticBundle;
+import com.httpserver.staticfile.StaticBundleHandler;
+import com.httpserver.staticfile.StaticFileHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
  * Main application class for the HTTP server.
@@ -48,6 +72,8 @@ public class HttpServerApplication {
             return;
         }
 
+        applySessionTicketSetting();
+
         HttpServerConfiguration config = ConfigurationManager.getInstance().getConfiguration(HttpServerConfiguration.class);
 
         LOGGER.info("Using HTTP Port: {}", config.getHttpPort());
@@ -56,11 +82,27 @@ public class HttpServerApplication {
 
         try {
             LOGGER.info("Starting server listener threads...");
-            HttpsServerListenerThread serverListenerThread = new HttpsServerListenerThread(config.getHttpsPort(), config.getWebroot());
-            serverListenerThread.start();
+            StaticFileConfiguration staticFileConfig = ConfigurationManager.getInstance().getConfiguration(StaticFileConfiguration.class);
+            RequestProcessor requestProcessor = createRequestProcessor(config, staticFileConfig);
+            Http2Configuration http2Config = ConfigurationManager.getInstance().getConfiguration(Http2Configuration.class);
+            LOGGER.info("HTTP/2: {}", http2Config);
+
+            RequestProcessor plaintextProcessor = staticFileConfig.isEnabled() && staticFileConfig.isServeOverHttp() ? requestProcessor : null;
 
-            HttpServerListenerThread httpServerListenerThread = new HttpServerListenerThread(config.getHttpPort(), config.getWebroot());
-            httpServerListenerThread.start();
+            if (config.isSinglePort()) {
+                LOGGER.info("Serving HTTP and HTTPS on port {}", config.getHttpsPort());
+                HttpsServerListenerThread serverListenerThread = new HttpsServerListenerThread(config.getHttpsPort(), config.getWebroot(),
+                        requestProcessor, http2Config, createPlaintextHandler(config, plaintextProcessor, http2Config));
+                serverListenerThread.start();
+            } else {
+                HttpsServerListenerThread serverListenerThread = new HttpsServerListenerThread(config.getHttpsPort(), config.getWebroot(),
+                        requestProcessor, http2Config);
+                serverListenerThread.start();
+
+                HttpServerListenerThread httpServerListenerThread = new HttpServerListenerThread(config.getHttpPort(), config.getWebroot(),
+                        plaintextProcessor, http2Config, config.getHttpsPort());
+                httpServerListenerThread.start();
+            }
 
             LOGGER.info("Server listener threads started successfully.");
         } catch (Exception e) {
@@ -69,6 +111,124 @@ public class HttpServerApplication {
         }
     }
 
+    /**
+     * Enables or disables stateless TLS session tickets for the whole JVM. JSSE reads
+     * the property once, when TLS is first used, so it is set here, before any SSL
+     * context is created, and never again when the keystore is reloaded.
+     */
+    private static void applySessionTicketSetting() {
+        SSLConfiguration sslConfig = ConfigurationManager.getInstance().getConfiguration(SSLConfiguration.class);
+        System.setProperty("jdk.tls.server.enableSessionTicketExtension", String.valueOf(sslConfig.isSessionTicketsEnabled()));
+        LOGGER.debug("TLS session tickets enabled: {}", sslConfig.isSessionTicketsEnabled());
+    }
+
+    /**
+     * Creates the handler for plain HTTP connections arriving on the HTTPS port. They
+     * are served by the request processor if plain HTTP is enabled, and otherwise
+     * redirected to HTTPS on the same port.
+     *
+     * @param config             the server configuration
+     * @param plaintextProcessor answers plain HTTP requests, or null to redirect them
+     * @param http2Config        the HTTP/2 settings, for h2c
+     * @return the plaintext handler
+     */
+    private static BiConsumer<SocketChannel, byte[]> createPlaintextHandler(HttpServerConfiguration config,
+                                                                            RequestProcessor plaintextProcessor,
+                                                                            Http2Configuration http2Config) {
+        if (plaintextProcessor != null) {
+            Http2Configuration h2c = http2Config.isEnabled() ? http2Config : null;
+            return (channel, received) -> new HttpConnectionWorkerThread(channel.socket(), received, plaintextProcessor, h2c).start();
+        }
+        HttpsRedirector redirector = new HttpsRedirector(config.getHttpsPort());
+        return (channel, received) -> new HttpConnectionWorkerThread(channel.socket(), received, redirector).start();
+    }
+
+    /**
+     * Creates the request processor shared by all worker threads. Requests are answered
+     * from the packed bundle if one is configured, from the web root when static files
+     * are enabled, otherwise with the welcome page. Requests are given the configured
+     * deadline.
+     *
+     * @param config           the server configuration
+     * @param staticFileConfig the static file configuration
+     * @return the request processor
+     * @throws IOException if the web root cannot be resolved or the bundle cannot be mapped
+     */
+    private static RequestProcessor createRequestProcessor(HttpServerConfiguration config, StaticFileConfiguration staticFileConfig) throws IOException {
+        RequestTimeoutConfiguration timeoutConfig = ConfigurationManager.getInstance().getConfiguration(RequestTimeoutConfiguration.class);
+        LOGGER.info("Request deadlines: {}", timeoutConfig);
+        if (!staticFileConfig.isEnabled()) {
+            return new RequestProcessor(createRouter(HttpsConnectionWorkerThread::welcomePage), createMiddlewares(), timeoutConfig);
+        }
+        if (staticFileConfig.getBundleFile() != null) {
+            StaticBundleHandler bundleHandler = new StaticBundleHandler(StaticBundle.open(Path.of(staticFileConfig.getBundleFile())));
+            LOGGER.info("Static bundle serving enabled: {}", staticFileConfig);
+            return new RequestProcessor(createRouter(bundleHandler::handle), createMiddlewares(), timeoutConfig);
+        }
+        Precompressor precompressor = null;
+        if (staticFileConfig.isPrecompressOnStartup()) {
+            CompressionConfiguration compressionConfig = ConfigurationManager.getInstance().getConfiguration(CompressionConfiguration.class);
+            precompressor = new Precompressor(Path.of(config.getWebroot()).toRealPath(), compressionConfig);
+            precompressor.precompressAll();
+        }
+        StaticFileHandler staticFileHandler = new StaticFileHandler(config.getWebroot(), staticFileConfig, precompressor);
+        LOGGER.info("Static file serving enabled: {}", staticFileConfig);
+        if (staticFileConfig.isWarmupEnabled()) {
+            startCacheWarmer(staticFileHandler, staticFileConfig);
+        }
+        return new RequestProcessor(createRouter(staticFileHandler::handle), createMiddlewares(), timeoutConfig);
+    }
+
+    /**
+     * Creates the router for application endpoints. Routes registered here are matched
+     * first; every other path goes to the fallback, which serves the site.
+     *
+     * @param fallback answers requests no route matches
+     * @return the router
+     */
+    private static Router createRouter(Handler fallback) {
+        return new Router(fallback);
+    }
+
+    /**
+     * Warms the static file caches from the paths recorded by the previous run, then
+     * records the paths of this run. Called before the listeners start, so warm-up
+     * delays accepting connections by at most the configured budget.
+     *
+     * @param staticFileHandler the handler whose caches are warmed
+     * @param staticFileConfig  the static file configuration
+     */
+    private static void startCacheWarmer(StaticFileHandler staticFileHandler, StaticFileConfiguration staticFileConfig) {
+        CacheWarmer cacheWarmer = new CacheWarmer(staticFileHandler, Path.of(staticFileConfig.getWarmupFile()),
+                staticFileConfig.getWarmupTopN());
+        cacheWarmer.warm(Duration.ofMillis(staticFileConfig.getWarmupBudgetMillis()));
+        cacheWarmer.start(staticFileConfig.getWarmupRecordIntervalSeconds());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cacheWarmer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to save hot paths on shutdown: {}", e.getMessage());
+            }
+        }, "cache-warmup-shutdown"));
+    }
+
+    /**
+     * Creates the middlewares shared by all worker threads, in the order they are applied.
+     *
+     * @return the middlewares
+     */
+    private static List<Middleware> createMiddlewares() {
+        List<Middleware> middlewares = new ArrayList<>();
+
+        CompressionConfiguration compressionConfig = ConfigurationManager.getInstance().getConfiguration(CompressionConfiguration.class);
+        if (compressionConfig.isEnabled()) {
+            middlewares.add(new CompressionMiddleware(compressionConfig));
+            LOGGER.info("Response compression enabled: {}", compressionConfig);
+        }
+        middlewares.add(new SecurityHeadersMiddleware());
+        return middlewares;
+    }
+
     /**
      * Load configurations from JSON files.
      *
@@ -91,5 +251,33 @@ public class HttpServerApplication {
                 SSLConfiguration.class
         );
         LOGGER.debug("SSL Configuration file loaded from path: {}", sslConfigFilePath);
+
+        String compressionConfigFilePath = Objects.requireNonNull(HttpServerApplication.class.getClassLoader().getResource("compression.json")).getFile();
+        ConfigurationManager.getInstance().loadConfiguration(
+                compressionConfigFilePath,
+                CompressionConfiguration.class
+        );
+        LOGGER.debug("Compression Configuration file loaded from path: {}", compressionConfigFilePath);
+
+        String staticFileConfigFilePath = Objects.requireNonNull(HttpServerApplication.class.getClassLoader().getResource("static-files.json")).getFile();
+        ConfigurationManager.getInstance().loadConfiguration(
+                staticFileConfigFilePath,
+                StaticFileConfiguration.class
+        );
+        LOGGER.debug("Static File Configuration file loaded from path: {}", staticFileConfigFilePath);
+
+        String http2ConfigFilePath = Objects.requireNonNull(HttpServerApplication.class.getClassLoader().getResource("http2.json")).getFile();
+        ConfigurationManager.getInstance().loadConfiguration(
+                http2ConfigFilePath,
+                Http2Configuration.class
+        );
+        LOGGER.debug("HTTP/2 Configuration file loaded from path: {}", http2ConfigFilePath);
+
+        String requestTimeoutConfigFilePath = Objects.requireNonNull(HttpServerApplication.class.getClassLoader().getResource("request-timeout.json")).getFile();
+        ConfigurationManager.getInstance().loadConfiguration(
+                requestTimeoutConfigFilePath,
+                RequestTimeoutConfiguration.class
+        );
+        LOGGER.debug("Request Timeout Configuration file loaded from path: {}", requestTimeoutConfigFilePath);
     }
 }
@@ -0,0 +1,34 @@
+package com.httpserver.compression;
+
+import java.util.List;
+
+/**
+ * Matches content types against a list of compressible types, as configured in
+ * {@code compression.json}. An entry ending in '/' matches every subtype of that type.
+ */
+public final class CompressibleTypes {
+
+    private CompressibleTypes() {
+    }
+
+    /**
+     * Checks a Content-Type value against the compressible types.
+     *
+     * @param mimeTypes   the compressible types
+     * @param contentType the Content-Type header value, may be null
+     * @return true if the type is compressible
+     */
+    public static boolean matches(List<String> mimeTypes, String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase();
+        for (String mimeType : mimeTypes) {
+            if (mimeType.endsWith("/") ? mediaType.startsWith(mimeType) : mediaType.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
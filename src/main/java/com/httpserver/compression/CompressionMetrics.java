@@ -0,0 +1,139 @@
+package com.httpserver.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects compression statistics across all responses: how many bodies were
+ * compressed, the bytes before and after, and the CPU time spent compressing.
+ */
+public class CompressionMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionMetrics.class);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder skippedResponses = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder cpuTimeNanos = new LongAdder();
+
+    /**
+     * Records one compressed response.
+     *
+     * @param coding        the coding that was applied
+     * @param originalSize  the body size before compression
+     * @param encodedSize   the body size after compression
+     * @param cpuNanos      the CPU time spent compressing, in nanoseconds
+     */
+    public void recordCompressed(ContentCoding coding, long originalSize, long encodedSize, long cpuNanos) {
+        compressedResponses.increment();
+        uncompressedBytes.add(originalSize);
+        compressedBytes.add(encodedSize);
+        cpuTimeNanos.add(cpuNanos);
+        LOGGER.debug("Compressed response with {}: {} -> {} bytes (ratio {}), CPU time {} µs",
+                coding.TOKEN, originalSize, encodedSize,
+                String.format("%.3f", originalSize == 0 ? 1.0 : (double) encodedSize / originalSize), cpuNanos / 1_000);
+    }
+
+    /**
+     * Records a response that was eligible for compression but sent as is,
+     * because the client did not accept a coding or compression did not pay off.
+     */
+    public void recordSkipped() {
+        skippedResponses.increment();
+    }
+
+    /**
+     * Returns the number of compressed responses.
+     *
+     * @return the compressed response count
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    /**
+     * Returns the number of eligible responses that were sent uncompressed.
+     *
+     * @return the skipped response count
+     */
+    public long getSkippedResponses() {
+        return skippedResponses.sum();
+    }
+
+    /**
+     * Returns the total body bytes before compression.
+     *
+     * @return the uncompressed byte count
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    /**
+     * Returns the total body bytes after compression.
+     *
+     * @return the compressed byte count
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * Returns the overall compression ratio (compressed / uncompressed bytes).
+     *
+     * @return the ratio, 1.0 when nothing has been compressed yet
+     */
+    public double getCompressionRatio() {
+        long in = uncompressedBytes.sum();
+        return in == 0 ? 1.0 : (double) compressedBytes.sum() / in;
+    }
+
+    /**
+     * Returns the total CPU time spent compressing.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos.sum();
+    }
+
+    /**
+     * Returns the average CPU time spent per compressed response.
+     *
+     * @return the average CPU time in nanoseconds, 0 when nothing has been compressed yet
+     */
+    public long getAverageCpuTimeNanos() {
+        long count = compressedResponses.sum();
+        return count == 0 ? 0 : cpuTimeNanos.sum() / count;
+    }
+
+    /**
+     * Returns the CPU time of the current thread, falling back to wall-clock time
+     * when the JVM does not support thread CPU time measurement.
+     *
+     * @return a time in nanoseconds
+     */
+    public static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+                ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+                : System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionMetrics{" +
+                "compressedResponses=" + getCompressedResponses() +
+                ", skippedResponses=" + getSkippedResponses() +
+                ", uncompressedBytes=" + getUncompressedBytes() +
+                ", compressedBytes=" + getCompressedBytes() +
+                ", compressionRatio=" + String.format("%.3f", getCompressionRatio()) +
+                ", cpuTimeNanos=" + getCpuTimeNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.httpserver.compression;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses in-memory bodies into the GZIP or ZLIB ("deflate") formats using
+ * pooled {@link Deflater} instances.
+ */
+public class Compressor {
+
+    /**
+     * Fixed GZIP member header: magic, CM=deflate, no flags, no mtime, no XFL, OS=unknown.
+     */
+    static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * Size of the GZIP trailer (CRC32 and ISIZE).
+     */
+    static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final DeflaterPool rawPool;
+    private final DeflaterPool zlibPool;
+
+    /**
+     * Constructs a Compressor with its own deflater pools.
+     *
+     * @param level        the compression level (0-9)
+     * @param poolCapacity the maximum number of idle deflaters kept per format
+     */
+    public Compressor(int level, int poolCapacity) {
+        this.rawPool = new DeflaterPool(level, true, poolCapacity);
+        this.zlibPool = new DeflaterPool(level, false, poolCapacity);
+    }
+
+    /**
+     * Compresses the input with the given coding.
+     *
+     * @param coding the coding to apply, must not be {@link ContentCoding#IDENTITY}
+     * @param input  the bytes to compress
+     * @return the encoded bytes
+     */
+    public byte[] compress(ContentCoding coding, byte[] input) {
+        return switch (coding) {
+            case GZIP -> gzip(input);
+            case DEFLATE -> deflate(input);
+            case IDENTITY -> throw new IllegalArgumentException("Identity coding does not compress");
+        };
+    }
+
+    /**
+     * Compresses the input into a single GZIP member.
+     *
+     * @param input the bytes to compress
+     * @return the GZIP encoded bytes
+     */
+    public byte[] gzip(byte[] input) {
+        Deflater deflater = rawPool.borrow();
+        try {
+            byte[] output = new byte[GZIP_HEADER.length + deflateBound(input.length) + GZIP_TRAILER_LENGTH];
+            System.arraycopy(GZIP_HEADER, 0, output, 0, GZIP_HEADER.length);
+
+            deflater.setInput(input);
+            deflater.finish();
+            int position = GZIP_HEADER.length;
+            while (!deflater.finished()) {
+                if (position == output.length - GZIP_TRAILER_LENGTH) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                position += deflater.deflate(output, position, output.length - GZIP_TRAILER_LENGTH - position);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(input);
+            writeIntLE(output, position, (int) crc.getValue());
+            writeIntLE(output, position + 4, input.length);
+            return Arrays.copyOf(output, position + GZIP_TRAILER_LENGTH);
+        } finally {
+            rawPool.release(deflater);
+        }
+    }
+
+    /**
+     * Compresses the input into the ZLIB format used by the "deflate" content coding.
+     *
+     * @param input the bytes to compress
+     * @return the ZLIB encoded bytes
+     */
+    public byte[] deflate(byte[] input) {
+        Deflater deflater = zlibPool.borrow();
+        try {
+            byte[] output = new byte[deflateBound(input.length) + 6];
+            deflater.setInput(input);
+            deflater.finish();
+            int position = 0;
+            while (!deflater.finished()) {
+                if (position == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                position += deflater.deflate(output, position, output.length - position);
+            }
+            return Arrays.copyOf(output, position);
+        } finally {
+            zlibPool.release(deflater);
+        }
+    }
+
+    /**
+     * Returns the pool of raw (nowrap) deflaters, shared with other GZIP encoders.
+     *
+     * @return the raw deflater pool
+     */
+    public DeflaterPool getRawPool() {
+        return rawPool;
+    }
+
+    /**
+     * Upper bound of the raw DEFLATE output size for incompressible input, as computed by zlib's deflateBound().
+     *
+     * @param length the input length
+     * @return the maximum compressed length
+     */
+    static int deflateBound(int length) {
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    /**
+     * Writes an int in little-endian byte order, as required by the GZIP trailer.
+     *
+     * @param buffer the destination
+     * @param offset the position of the first byte
+     * @param value  the value to write
+     */
+    static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,113 @@
+package com.httpserver.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enum representing the content codings the server can apply to a response body.
+ */
+public enum ContentCoding {
+    /**
+     * GZIP file format (RFC 1952) wrapping a DEFLATE stream.
+     */
+    GZIP("gzip"),
+
+    /**
+     * ZLIB format (RFC 1950) wrapping a DEFLATE stream, as required for the "deflate" coding.
+     */
+    DEFLATE("deflate"),
+
+    /**
+     * No transformation of the body.
+     */
+    IDENTITY("identity");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentCoding.class);
+
+    /**
+     * The token used for this coding in Accept-Encoding and Content-Encoding headers.
+     */
+    public final String TOKEN;
+
+    /**
+     * Constructor to create an instance of ContentCoding with its header token.
+     *
+     * @param TOKEN the header token of the coding.
+     */
+    ContentCoding(String TOKEN) {
+        this.TOKEN = TOKEN;
+    }
+
+    /**
+     * Selects the best coding for an Accept-Encoding header value.
+     * <p>
+     * Quality values are honoured, a coding with {@code q=0} is never selected and
+     * {@code *} matches any coding not listed explicitly. When gzip and deflate are
+     * equally acceptable gzip is preferred, since some clients mishandle raw deflate.
+     * </p>
+     *
+     * @param acceptEncoding the Accept-Encoding header value, may be null.
+     * @return the negotiated coding, {@link #IDENTITY} if no compression is acceptable.
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+
+        float gzipQuality = -1;
+        float deflateQuality = -1;
+        float wildcardQuality = -1;
+
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String token = parts[0].trim().toLowerCase();
+            float quality = parseQuality(parts);
+
+            switch (token) {
+                case "gzip", "x-gzip" -> gzipQuality = Math.max(gzipQuality, quality);
+                case "deflate" -> deflateQuality = Math.max(deflateQuality, quality);
+                case "*" -> wildcardQuality = quality;
+                default -> {
+                    // Codings we do not implement (br, zstd, ...) are ignored.
+                }
+            }
+        }
+
+        if (gzipQuality < 0) {
+            gzipQuality = wildcardQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = wildcardQuality;
+        }
+
+        ContentCoding coding = IDENTITY;
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+            coding = GZIP;
+        } else if (deflateQuality > 0) {
+            coding = DEFLATE;
+        }
+        LOGGER.debug("Negotiated content coding {} for Accept-Encoding: {}", coding, acceptEncoding);
+        return coding;
+    }
+
+    /**
+     * Extracts the quality value from the parameters of an Accept-Encoding element.
+     *
+     * @param parts the element split on ';', the first part being the coding token.
+     * @return the quality value, 1 if absent, 0 if malformed.
+     */
+    private static float parseQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Invalid quality value in Accept-Encoding: {}", parameter);
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,90 @@
+package com.httpserver.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of {@link Deflater} instances sharing the same level and format.
+ * <p>
+ * Every Deflater owns a native zlib stream of a few hundred kilobytes, so creating
+ * one per response churns native memory and leans on the cleaner to release it.
+ * Connections are served by short-lived worker threads, which rules out keeping a
+ * Deflater per thread; instead workers borrow an instance for the duration of one
+ * response and return it afterwards. At most {@code capacity} idle instances are
+ * retained, extra ones are ended immediately.
+ * </p>
+ */
+public class DeflaterPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeflaterPool.class);
+
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> idle;
+
+    /**
+     * Constructs a DeflaterPool.
+     *
+     * @param level    the compression level (0-9) of pooled deflaters
+     * @param nowrap   true to produce raw DEFLATE data (used inside GZIP), false for ZLIB format
+     * @param capacity the maximum number of idle deflaters to retain
+     */
+    public DeflaterPool(int level, boolean nowrap, int capacity) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        LOGGER.debug("DeflaterPool created with level: {}, nowrap: {}, capacity: {}", level, nowrap, capacity);
+    }
+
+    /**
+     * Borrows a reset deflater from the pool, creating a new one if none is idle.
+     *
+     * @return a deflater ready for a new stream
+     */
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            LOGGER.trace("No idle deflater available, creating a new one.");
+            return new Deflater(level, nowrap);
+        }
+        return deflater;
+    }
+
+    /**
+     * Returns a deflater to the pool. The deflater is reset so that it can be
+     * reused; if the pool is full it is ended instead.
+     *
+     * @param deflater the deflater previously obtained from {@link #borrow()}
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        deflater.setLevel(level);
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the compression level of pooled deflaters.
+     *
+     * @return the compression level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of idle deflaters currently held by the pool.
+     *
+     * @return the idle count
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
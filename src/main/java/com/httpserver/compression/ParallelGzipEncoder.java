@@ -0,0 +1,183 @@
+package com.httpserver.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses large bodies into a single GZIP member using several threads, in the
+ * style of pigz.
+ * <p>
+ * The input is split into fixed-size blocks that are deflated concurrently on a
+ * {@link ForkJoinPool}. Each block is primed with the last 32 KiB of the block before
+ * it as a preset dictionary, so back-references across block boundaries are kept and
+ * the ratio stays close to single-threaded output. Every block except the last ends
+ * with a sync flush, which byte-aligns its output; the raw DEFLATE fragments can then
+ * simply be concatenated behind one GZIP header and followed by the CRC32 and size
+ * trailer of the whole input. Any standard GZIP decoder reads the result.
+ * </p>
+ */
+public class ParallelGzipEncoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelGzipEncoder.class);
+
+    /**
+     * Size of the DEFLATE sliding window, the largest useful preset dictionary.
+     */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final DeflaterPool deflaterPool;
+    private final ForkJoinPool forkJoinPool;
+    private final int blockSize;
+
+    /**
+     * Constructs a ParallelGzipEncoder.
+     *
+     * @param deflaterPool the pool of raw (nowrap) deflaters to compress blocks with
+     * @param forkJoinPool the pool running the block compression tasks
+     * @param blockSize    the number of input bytes per block, at least {@link #DICTIONARY_SIZE}
+     */
+    public ParallelGzipEncoder(DeflaterPool deflaterPool, ForkJoinPool forkJoinPool, int blockSize) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE + " bytes: " + blockSize);
+        }
+        this.deflaterPool = deflaterPool;
+        this.forkJoinPool = forkJoinPool;
+        this.blockSize = blockSize;
+        LOGGER.debug("ParallelGzipEncoder created with block size: {}, parallelism: {}", blockSize, forkJoinPool.getParallelism());
+    }
+
+    /**
+     * Compresses the input into a single GZIP member.
+     *
+     * @param input the bytes to compress
+     * @return the GZIP encoded bytes
+     */
+    public byte[] gzip(byte[] input) {
+        return gzip(input, null);
+    }
+
+    /**
+     * Compresses the input into a single GZIP member, adding the CPU time spent by
+     * all participating threads to the given accumulator.
+     *
+     * @param input   the bytes to compress
+     * @param cpuTime accumulator for CPU nanoseconds, may be null
+     * @return the GZIP encoded bytes
+     */
+    public byte[] gzip(byte[] input, LongAdder cpuTime) {
+        int blockCount = Math.max(1, (input.length + blockSize - 1) / blockSize);
+        List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, input.length - offset);
+            tasks.add(forkJoinPool.submit(new BlockTask(input, offset, length, i == blockCount - 1, cpuTime)));
+        }
+
+        // The checksum is sequential by nature; compute it while the blocks compress.
+        long cpuStart = CompressionMetrics.currentThreadCpuTime();
+        CRC32 crc = new CRC32();
+        crc.update(input);
+        if (cpuTime != null) {
+            cpuTime.add(CompressionMetrics.currentThreadCpuTime() - cpuStart);
+        }
+
+        List<byte[]> blocks = new ArrayList<>(blockCount);
+        int encodedLength = Compressor.GZIP_HEADER.length + Compressor.GZIP_TRAILER_LENGTH;
+        for (ForkJoinTask<byte[]> task : tasks) {
+            byte[] block = task.join();
+            blocks.add(block);
+            encodedLength += block.length;
+        }
+
+        byte[] output = new byte[encodedLength];
+        System.arraycopy(Compressor.GZIP_HEADER, 0, output, 0, Compressor.GZIP_HEADER.length);
+        int position = Compressor.GZIP_HEADER.length;
+        for (byte[] block : blocks) {
+            System.arraycopy(block, 0, output, position, block.length);
+            position += block.length;
+        }
+        Compressor.writeIntLE(output, position, (int) crc.getValue());
+        Compressor.writeIntLE(output, position + 4, input.length);
+
+        LOGGER.debug("Compressed {} bytes in {} blocks to {} bytes", input.length, blockCount, output.length);
+        return output;
+    }
+
+    /**
+     * Returns the number of input bytes per block.
+     *
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Compresses one block of the input into a byte-aligned raw DEFLATE fragment.
+     */
+    private final class BlockTask extends RecursiveTask<byte[]> {
+        private final byte[] input;
+        private final int offset;
+        private final int length;
+        private final boolean last;
+        private final LongAdder cpuTime;
+
+        BlockTask(byte[] input, int offset, int length, boolean last, LongAdder cpuTime) {
+            this.input = input;
+            this.offset = offset;
+            this.length = length;
+            this.last = last;
+            this.cpuTime = cpuTime;
+        }
+
+        @Override
+        protected byte[] compute() {
+            long cpuStart = CompressionMetrics.currentThreadCpuTime();
+            Deflater deflater = deflaterPool.borrow();
+            try {
+                if (offset > 0) {
+                    int dictionaryLength = Math.min(DICTIONARY_SIZE, offset);
+                    deflater.setDictionary(input, offset - dictionaryLength, dictionaryLength);
+                }
+                deflater.setInput(input, offset, length);
+
+                byte[] output = new byte[Compressor.deflateBound(length) + 16];
+                int position = 0;
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        if (position == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        position += deflater.deflate(output, position, output.length - position);
+                    }
+                } else {
+                    // A sync flush is complete once it leaves room in the output buffer.
+                    int written;
+                    do {
+                        if (position == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        written = deflater.deflate(output, position, output.length - position, Deflater.SYNC_FLUSH);
+                        position += written;
+                    } while (position == output.length || !deflater.needsInput());
+                }
+                return Arrays.copyOf(output, position);
+            } finally {
+                deflaterPool.release(deflater);
+                if (cpuTime != null) {
+                    cpuTime.add(CompressionMetrics.currentThreadCpuTime() - cpuStart);
+                }
+            }
+        }
+    }
+}
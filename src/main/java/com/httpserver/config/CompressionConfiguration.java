@@ -0,0 +1,229 @@
+package com.httpserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Represents the configuration settings for response compression.
+ * This class holds the size threshold, compression level and the content types
+ * considered compressible.
+ */
+public class CompressionConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionConfiguration.class); // SLF4J logger instance
+
+    /**
+     * Bodies smaller than this are not worth the CPU time and header overhead.
+     */
+    public static final int DEFAULT_MINIMUM_SIZE = 1024;
+
+    /**
+     * Level 6 is zlib's default trade-off between ratio and speed.
+     */
+    public static final int DEFAULT_LEVEL = 6;
+
+    /**
+     * Below a few megabytes a single deflater is fast enough that splitting does not pay off.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2 * 1024 * 1024;
+
+    /**
+     * Blocks of 128 KiB, as used by pigz, keep the per-block dictionary overhead small.
+     */
+    public static final int DEFAULT_PARALLEL_BLOCK_SIZE = 128 * 1024;
+
+    private static final List<String> DEFAULT_MIME_TYPES = List.of(
+            "text/",
+            "application/json",
+            "application/javascript",
+            "application/xml",
+            "application/xhtml+xml",
+            "image/svg+xml"
+    );
+
+    private boolean enabled = true;
+    private int minimumSize = DEFAULT_MINIMUM_SIZE;
+    private int level = DEFAULT_LEVEL;
+    private List<String> mimeTypes = DEFAULT_MIME_TYPES;
+    private boolean parallelEnabled = false;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private int parallelBlockSize = DEFAULT_PARALLEL_BLOCK_SIZE;
+
+    /**
+     * Default constructor for creating a CompressionConfiguration object with default values.
+     */
+    public CompressionConfiguration() {
+        logger.info("Created a new CompressionConfiguration object with default values.");
+        logger.trace("Default CompressionConfiguration constructor invoked.");
+    }
+
+    /**
+     * Returns whether response compression is enabled.
+     *
+     * @return true if compression is enabled
+     */
+    public boolean isEnabled() {
+        logger.debug("Retrieved compression enabled: {}", enabled);
+        return enabled;
+    }
+
+    /**
+     * Enables or disables response compression.
+     *
+     * @param enabled true to enable compression
+     */
+    public void setEnabled(boolean enabled) {
+        logger.info("Setting compression enabled to: {}", enabled);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the minimum body size, in bytes, for a response to be compressed.
+     *
+     * @return the minimum size
+     */
+    public int getMinimumSize() {
+        logger.debug("Retrieved compression minimum size: {}", minimumSize);
+        return minimumSize;
+    }
+
+    /**
+     * Sets the minimum body size, in bytes, for a response to be compressed.
+     *
+     * @param minimumSize the minimum size to set
+     * @throws IllegalArgumentException if the provided size is negative
+     */
+    public void setMinimumSize(int minimumSize) {
+        if (minimumSize < 0) {
+            logger.error("Attempted to set a negative compression minimum size: {}", minimumSize);
+            throw new IllegalArgumentException("Compression minimum size cannot be negative: " + minimumSize);
+        }
+        logger.info("Setting compression minimum size to: {}", minimumSize);
+        this.minimumSize = minimumSize;
+    }
+
+    /**
+     * Returns the compression level (1-9).
+     *
+     * @return the compression level
+     */
+    public int getLevel() {
+        logger.debug("Retrieved compression level: {}", level);
+        return level;
+    }
+
+    /**
+     * Sets the compression level.
+     *
+     * @param level the compression level to set, between 1 and 9
+     * @throws IllegalArgumentException if the level is out of range
+     */
+    public void setLevel(int level) {
+        if (level < 1 || level > 9) {
+            logger.error("Attempted to set an invalid compression level: {}", level);
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        logger.info("Setting compression level to: {}", level);
+        this.level = level;
+    }
+
+    /**
+     * Returns the compressible content types. An entry ending in '/' matches every
+     * subtype of that type.
+     *
+     * @return the compressible content types
+     */
+    public List<String> getMimeTypes() {
+        logger.debug("Retrieved compressible mime types: {}", mimeTypes);
+        return mimeTypes;
+    }
+
+    /**
+     * Sets the compressible content types.
+     *
+     * @param mimeTypes the content types to set
+     */
+    public void setMimeTypes(List<String> mimeTypes) {
+        logger.info("Setting compressible mime types to: {}", mimeTypes);
+        this.mimeTypes = mimeTypes == null ? List.of() : List.copyOf(mimeTypes);
+    }
+
+    /**
+     * Returns whether large gzip bodies are compressed on multiple threads.
+     *
+     * @return true if parallel compression is enabled
+     */
+    public boolean isParallelEnabled() {
+        logger.debug("Retrieved parallel compression enabled: {}", parallelEnabled);
+        return parallelEnabled;
+    }
+
+    /**
+     * Enables or disables parallel compression of large gzip bodies.
+     *
+     * @param parallelEnabled true to enable parallel compression
+     */
+    public void setParallelEnabled(boolean parallelEnabled) {
+        logger.info("Setting parallel compression enabled to: {}", parallelEnabled);
+        this.parallelEnabled = parallelEnabled;
+    }
+
+    /**
+     * Returns the minimum body size, in bytes, for parallel compression to be used.
+     *
+     * @return the parallel threshold
+     */
+    public int getParallelThreshold() {
+        logger.debug("Retrieved parallel compression threshold: {}", parallelThreshold);
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum body size, in bytes, for parallel compression to be used.
+     *
+     * @param parallelThreshold the parallel threshold to set
+     * @throws IllegalArgumentException if the provided threshold is negative
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            logger.error("Attempted to set a negative parallel compression threshold: {}", parallelThreshold);
+            throw new IllegalArgumentException("Parallel compression threshold cannot be negative: " + parallelThreshold);
+        }
+        logger.info("Setting parallel compression threshold to: {}", parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the number of input bytes compressed per parallel block.
+     *
+     * @return the parallel block size
+     */
+    public int getParallelBlockSize() {
+        logger.debug("Retrieved parallel compression block size: {}", parallelBlockSize);
+        return parallelBlockSize;
+    }
+
+    /**
+     * Sets the number of input bytes compressed per parallel block.
+     *
+     * @param parallelBlockSize the block size to set, at least 32 KiB
+     * @throws IllegalArgumentException if the block size is smaller than the DEFLATE window
+     */
+    public void setParallelBlockSize(int parallelBlockSize) {
+        if (parallelBlockSize < 32 * 1024) {
+            logger.error("Attempted to set a parallel compression block size below 32 KiB: {}", parallelBlockSize);
+            throw new IllegalArgumentException("Parallel compression block size must be at least 32768: " + parallelBlockSize);
+        }
+        logger.info("Setting parallel compression block size to: {}", parallelBlockSize);
+        this.parallelBlockSize = parallelBlockSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionConfiguration{" + "enabled=" + enabled + ", minimumSize=" + minimumSize
+                + ", level=" + level + ", mimeTypes=" + mimeTypes + ", parallelEnabled=" + parallelEnabled
+                + ", parallelThreshold=" + parallelThreshold + ", parallelBlockSize=" + parallelBlockSize + '}';
+    }
+}
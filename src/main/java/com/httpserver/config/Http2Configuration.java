@@ -0,0 +1,275 @@
+package com.httpserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Represents the configuration settings for HTTP/2.
+ * This class holds whether HTTP/2 is offered, the settings advertised to clients
+ * and the limits applied to each connection.
+ */
+public class Http2Configuration {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http2Configuration.class); // SLF4J logger instance
+
+    /**
+     * Each stream is answered on a thread of the connection's stream pool, so this also bounds the threads one connection uses.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    /**
+     * The protocol's initial window; request bodies are small and buffered whole anyway.
+     */
+    public static final int DEFAULT_INITIAL_WINDOW_SIZE = 65_535;
+
+    /**
+     * The protocol's initial frame size, which every peer must accept.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+
+    /**
+     * The protocol's initial HPACK table size, enough for the headers a browser repeats.
+     */
+    public static final int DEFAULT_HEADER_TABLE_SIZE = 4_096;
+
+    /**
+     * Matches the header size browsers send in practice, with room for large cookies.
+     */
+    public static final int DEFAULT_MAX_HEADER_LIST_SIZE = 16_384;
+
+    /**
+     * Request bodies are buffered in memory before the handler runs, so they are capped.
+     */
+    public static final int DEFAULT_MAX_REQUEST_BODY_SIZE = 1024 * 1024;
+
+    /**
+     * Long enough for a browser to reuse the connection between page loads, short enough to free its worker soon after.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private boolean enabled = true;
+    private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+    private int initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private int headerTableSize = DEFAULT_HEADER_TABLE_SIZE;
+    private int maxHeaderListSize = DEFAULT_MAX_HEADER_LIST_SIZE;
+    private int maxRequestBodySize = DEFAULT_MAX_REQUEST_BODY_SIZE;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    /**
+     * Default constructor for creating an Http2Configuration object with default values.
+     */
+    public Http2Configuration() {
+        logger.info("Created a new Http2Configuration object with default values.");
+        logger.trace("Default Http2Configuration constructor invoked.");
+    }
+
+    /**
+     * Returns whether HTTP/2 is offered, through ALPN on the HTTPS listener and through
+     * prior knowledge or an h2c upgrade on the HTTP listener.
+     *
+     * @return true if HTTP/2 is enabled
+     */
+    public boolean isEnabled() {
+        logger.debug("Retrieved HTTP/2 enabled: {}", enabled);
+        return enabled;
+    }
+
+    /**
+     * Enables or disables HTTP/2.
+     *
+     * @param enabled true to enable HTTP/2
+     */
+    public void setEnabled(boolean enabled) {
+        logger.info("Setting HTTP/2 enabled to: {}", enabled);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the number of streams a client may have open on one connection.
+     *
+     * @return the maximum concurrent streams
+     */
+    public int getMaxConcurrentStreams() {
+        logger.debug("Retrieved HTTP/2 max concurrent streams: {}", maxConcurrentStreams);
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * Sets the number of streams a client may have open on one connection.
+     *
+     * @param maxConcurrentStreams the maximum concurrent streams to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        if (maxConcurrentStreams <= 0) {
+            logger.error("Attempted to set a non-positive HTTP/2 max concurrent streams: {}", maxConcurrentStreams);
+            throw new IllegalArgumentException("HTTP/2 max concurrent streams must be positive: " + maxConcurrentStreams);
+        }
+        logger.info("Setting HTTP/2 max concurrent streams to: {}", maxConcurrentStreams);
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    /**
+     * Returns the flow-control window, in bytes, each stream starts with for request bodies.
+     *
+     * @return the initial window size
+     */
+    public int getInitialWindowSize() {
+        logger.debug("Retrieved HTTP/2 initial window size: {}", initialWindowSize);
+        return initialWindowSize;
+    }
+
+    /**
+     * Sets the flow-control window, in bytes, each stream starts with for request bodies.
+     *
+     * @param initialWindowSize the initial window size to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setInitialWindowSize(int initialWindowSize) {
+        if (initialWindowSize <= 0) {
+            logger.error("Attempted to set a non-positive HTTP/2 initial window size: {}", initialWindowSize);
+            throw new IllegalArgumentException("HTTP/2 initial window size must be positive: " + initialWindowSize);
+        }
+        logger.info("Setting HTTP/2 initial window size to: {}", initialWindowSize);
+        this.initialWindowSize = initialWindowSize;
+    }
+
+    /**
+     * Returns the largest frame payload, in bytes, the server accepts.
+     *
+     * @return the maximum frame size
+     */
+    public int getMaxFrameSize() {
+        logger.debug("Retrieved HTTP/2 max frame size: {}", maxFrameSize);
+        return maxFrameSize;
+    }
+
+    /**
+     * Sets the largest frame payload, in bytes, the server accepts.
+     *
+     * @param maxFrameSize the maximum frame size to set, between 16384 and 16777215
+     * @throws IllegalArgumentException if the value is outside the range the protocol allows
+     */
+    public void setMaxFrameSize(int maxFrameSize) {
+        if (maxFrameSize < 16_384 || maxFrameSize > 16_777_215) {
+            logger.error("Attempted to set an invalid HTTP/2 max frame size: {}", maxFrameSize);
+            throw new IllegalArgumentException("HTTP/2 max frame size must be between 16384 and 16777215: " + maxFrameSize);
+        }
+        logger.info("Setting HTTP/2 max frame size to: {}", maxFrameSize);
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Returns the size, in bytes, of the HPACK table used to decode request headers.
+     * Response headers use at most the same size.
+     *
+     * @return the header table size
+     */
+    public int getHeaderTableSize() {
+        logger.debug("Retrieved HTTP/2 header table size: {}", headerTableSize);
+        return headerTableSize;
+    }
+
+    /**
+     * Sets the size, in bytes, of the HPACK tables.
+     *
+     * @param headerTableSize the header table size to set
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setHeaderTableSize(int headerTableSize) {
+        if (headerTableSize < 0) {
+            logger.error("Attempted to set a negative HTTP/2 header table size: {}", headerTableSize);
+            throw new IllegalArgumentException("HTTP/2 header table size cannot be negative: " + headerTableSize);
+        }
+        logger.info("Setting HTTP/2 header table size to: {}", headerTableSize);
+        this.headerTableSize = headerTableSize;
+    }
+
+    /**
+     * Returns the largest request header list accepted, counted as the length of each
+     * name and value plus 32 bytes per field.
+     *
+     * @return the maximum header list size
+     */
+    public int getMaxHeaderListSize() {
+        logger.debug("Retrieved HTTP/2 max header list size: {}", maxHeaderListSize);
+        return maxHeaderListSize;
+    }
+
+    /**
+     * Sets the largest request header list accepted.
+     *
+     * @param maxHeaderListSize the maximum header list size to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setMaxHeaderListSize(int maxHeaderListSize) {
+        if (maxHeaderListSize <= 0) {
+            logger.error("Attempted to set a non-positive HTTP/2 max header list size: {}", maxHeaderListSize);
+            throw new IllegalArgumentException("HTTP/2 max header list size must be positive: " + maxHeaderListSize);
+        }
+        logger.info("Setting HTTP/2 max header list size to: {}", maxHeaderListSize);
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * Returns the largest request body, in bytes, buffered for a stream. Larger bodies
+     * are answered with 413.
+     *
+     * @return the maximum request body size
+     */
+    public int getMaxRequestBodySize() {
+        logger.debug("Retrieved HTTP/2 max request body size: {}", maxRequestBodySize);
+        return maxRequestBodySize;
+    }
+
+    /**
+     * Sets the largest request body, in bytes, buffered for a stream.
+     *
+     * @param maxRequestBodySize the maximum request body size to set
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setMaxRequestBodySize(int maxRequestBodySize) {
+        if (maxRequestBodySize < 0) {
+            logger.error("Attempted to set a negative HTTP/2 max request body size: {}", maxRequestBodySize);
+            throw new IllegalArgumentException("HTTP/2 max request body size cannot be negative: " + maxRequestBodySize);
+        }
+        logger.info("Setting HTTP/2 max request body size to: {}", maxRequestBodySize);
+        this.maxRequestBodySize = maxRequestBodySize;
+    }
+
+    /**
+     * Returns how long, in milliseconds, a connection may wait for the client's next
+     * frame, or for its preface, while no stream is open. An idle connection is closed
+     * with GOAWAY.
+     *
+     * @return the idle timeout
+     */
+    public long getIdleTimeoutMillis() {
+        logger.debug("Retrieved HTTP/2 idle timeout: {} ms", idleTimeoutMillis);
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long, in milliseconds, a connection may stay idle.
+     *
+     * @param idleTimeoutMillis the idle timeout to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis <= 0) {
+            logger.error("Attempted to set a non-positive HTTP/2 idle timeout: {}", idleTimeoutMillis);
+            throw new IllegalArgumentException("HTTP/2 idle timeout must be positive: " + idleTimeoutMillis);
+        }
+        logger.info("Setting HTTP/2 idle timeout to: {} ms", idleTimeoutMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Configuration{" + "enabled=" + enabled + ", maxConcurrentStreams=" + maxConcurrentStreams
+                + ", initialWindowSize=" + initialWindowSize + ", maxFrameSize=" + maxFrameSize
+                + ", headerTableSize=" + headerTableSize + ", maxHeaderListSize=" + maxHeaderListSize
+                + ", maxRequestBodySize=" + maxRequestBodySize + ", idleTimeoutMillis=" + idleTimeoutMillis + '}';
+    }
+}
@@ -14,6 +14,7 @@ public class HttpServerConfiguration {
     private int httpPort;
     private int httpsPort;
     private String webroot;
+    private boolean singlePort;
 
     /**
      * Default constructor for creating a Configuration object with default values.
@@ -117,9 +118,31 @@ public class HttpServerConfiguration {
         logger.trace("Webroot set to: {}", webroot);
     }
 
+    /**
+     * Returns whether HTTP and HTTPS share the HTTPS port. When true, the HTTP port is
+     * not opened and plain HTTP clients connecting to the HTTPS port are recognised by
+     * their first bytes and served or redirected on the same connection.
+     *
+     * @return true if both protocols are served on the HTTPS port
+     */
+    public boolean isSinglePort() {
+        logger.debug("Retrieved single port: {}", singlePort);
+        return singlePort;
+    }
+
+    /**
+     * Sets whether HTTP and HTTPS share the HTTPS port.
+     *
+     * @param singlePort true to serve both protocols on the HTTPS port
+     */
+    public void setSinglePort(boolean singlePort) {
+        logger.info("Setting single port to: {}", singlePort);
+        this.singlePort = singlePort;
+    }
+
     @Override
     public String toString() {
         return "HttpServerConfiguration{" + "httpPort=" + httpPort + ", httpsPort=" + httpsPort + ", webroot='"
-                + webroot + '\'' + '}';
+                + webroot + '\'' + ", singlePort=" + singlePort + '}';
     }
 }
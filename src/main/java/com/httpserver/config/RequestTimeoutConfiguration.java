@@ -0,0 +1,148 @@
+package com.httpserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Represents the configuration settings for request deadlines.
+ * This class holds how long the server allows for answering a request, the header
+ * through which a client may ask for a shorter deadline, and how long a client has
+ * to send the head of its request.
+ */
+public class RequestTimeoutConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTimeoutConfiguration.class);
+
+    /**
+     * Long enough for any page the server renders, short enough that a stuck handler gives its worker back.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Carries the client's budget in milliseconds; it can only shorten the server's deadline.
+     */
+    public static final String DEFAULT_CLIENT_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * Generous for any real client on a slow link; a client trickling its headers to hold a connection open is cut off.
+     */
+    public static final long DEFAULT_HEADER_TIMEOUT_MILLIS = 10_000;
+
+    private boolean enabled = true;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private String clientTimeoutHeader = DEFAULT_CLIENT_TIMEOUT_HEADER;
+    private long headerTimeoutMillis = DEFAULT_HEADER_TIMEOUT_MILLIS;
+
+    /**
+     * Default constructor for creating a RequestTimeoutConfiguration object with default values.
+     */
+    public RequestTimeoutConfiguration() {
+        logger.info("Created a new RequestTimeoutConfiguration object with default values.");
+        logger.trace("Default RequestTimeoutConfiguration constructor invoked.");
+    }
+
+    /**
+     * Returns whether requests are given a deadline.
+     *
+     * @return true if request deadlines are enabled
+     */
+    public boolean isEnabled() {
+        logger.debug("Retrieved request timeout enabled: {}", enabled);
+        return enabled;
+    }
+
+    /**
+     * Enables or disables request deadlines. Routes with their own timeout keep it either way.
+     *
+     * @param enabled true to enable request deadlines
+     */
+    public void setEnabled(boolean enabled) {
+        logger.info("Setting request timeout enabled to: {}", enabled);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the time, in milliseconds from when a request is read, the server allows
+     * for answering it.
+     *
+     * @return the request timeout in milliseconds
+     */
+    public long getTimeoutMillis() {
+        logger.debug("Retrieved request timeout: {} ms", timeoutMillis);
+        return timeoutMillis;
+    }
+
+    /**
+     * Sets the time, in milliseconds from when a request is read, the server allows
+     * for answering it.
+     *
+     * @param timeoutMillis the request timeout to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            logger.error("Attempted to set a non-positive request timeout: {}", timeoutMillis);
+            throw new IllegalArgumentException("Request timeout must be positive: " + timeoutMillis);
+        }
+        logger.info("Setting request timeout to: {} ms", timeoutMillis);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the request header in which a client states, in milliseconds, how long
+     * it will wait for the response.
+     *
+     * @return the header name, or null if clients cannot shorten the deadline
+     */
+    public String getClientTimeoutHeader() {
+        logger.debug("Retrieved client timeout header: {}", clientTimeoutHeader);
+        return clientTimeoutHeader;
+    }
+
+    /**
+     * Sets the request header in which a client states, in milliseconds, how long it
+     * will wait for the response.
+     *
+     * @param clientTimeoutHeader the header name, or null or empty to ignore client deadlines
+     */
+    public void setClientTimeoutHeader(String clientTimeoutHeader) {
+        logger.info("Setting client timeout header to: {}", clientTimeoutHeader);
+        this.clientTimeoutHeader = clientTimeoutHeader == null || clientTimeoutHeader.isBlank() ? null : clientTimeoutHeader;
+    }
+
+    /**
+     * Returns the time, in milliseconds from when a connection is handed to a worker,
+     * a client has to send the request line and headers before it is disconnected.
+     * Each read of the request body may also wait this long for the client.
+     *
+     * @return the request head timeout in milliseconds
+     */
+    public long getHeaderTimeoutMillis() {
+        logger.debug("Retrieved request head timeout: {} ms", headerTimeoutMillis);
+        return headerTimeoutMillis;
+    }
+
+    /**
+     * Sets the time, in milliseconds from when a connection is handed to a worker, a
+     * client has to send the request line and headers, and the longest each read of
+     * the request body may wait for the client. It applies whether or not request
+     * deadlines are enabled.
+     *
+     * @param headerTimeoutMillis the request head timeout to set
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setHeaderTimeoutMillis(long headerTimeoutMillis) {
+        if (headerTimeoutMillis <= 0) {
+            logger.error("Attempted to set a non-positive request head timeout: {}", headerTimeoutMillis);
+            throw new IllegalArgumentException("Request head timeout must be positive: " + headerTimeoutMillis);
+        }
+        logger.info("Setting request head timeout to: {} ms", headerTimeoutMillis);
+        this.headerTimeoutMillis = headerTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTimeoutConfiguration{" + "enabled=" + enabled + ", timeoutMillis=" + timeoutMillis
+                + ", clientTimeoutHeader='" + clientTimeoutHeader + '\'' + ", headerTimeoutMillis=" + headerTimeoutMillis + '}';
+    }
+}
@@ -3,18 +3,86 @@ package com.httpserver.config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Represents the configuration settings for the SSL (Secure Socket Layer) connection
  * in the HTTP server. This class holds the path to the keystore and the passwords
- * required for SSL certificate management.
+ * required for SSL certificate management, the enabled protocols and cipher suites
+ * in order of preference, how TLS sessions are cached for resumption, how the
+ * keystore is watched so a rotated certificate is picked up without a restart, and
+ * the deadline and admission limits that bound the cost of handshakes.
  */
 public class SSLConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(SSLConfiguration.class); // SLF4J logger instance
 
+    /**
+     * TLS 1.3 first; TLS 1.2 for older clients. Earlier versions are insecure.
+     */
+    public static final List<String> DEFAULT_PROTOCOLS = List.of("TLSv1.3", "TLSv1.2");
+
+    /**
+     * AEAD suites only, AES-GCM first because it is hardware accelerated on servers,
+     * ChaCha20-Poly1305 for clients without AES instructions, and forward secret
+     * ECDHE key exchange for TLS 1.2.
+     */
+    public static final List<String> DEFAULT_CIPHER_SUITES = List.of(
+            "TLS_AES_128_GCM_SHA256",
+            "TLS_AES_256_GCM_SHA384",
+            "TLS_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256"
+    );
+
+    /**
+     * Enough sessions for the clients of a busy day; each is about a kilobyte.
+     */
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 20_480;
+
+    /**
+     * Clients reconnecting within a day resume instead of repeating the full handshake.
+     */
+    public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 86_400;
+
+    /**
+     * Catches rotations the file system does not report, such as on network mounts.
+     */
+    public static final int DEFAULT_KEYSTORE_CHECK_INTERVAL_SECONDS = 60;
+
+    /**
+     * Ample for a client on a slow network; a client that takes longer is stalling.
+     */
+    public static final long DEFAULT_HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Enough to keep the handshake thread busy without holding buffers for thousands
+     * of idle handshakes.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_HANDSHAKES = 256;
+
+    /**
+     * Absorbs a reconnect storm; further connections are refused rather than left to time out.
+     */
+    public static final int DEFAULT_HANDSHAKE_QUEUE_SIZE = 4_096;
+
     private String keystorePath;
     private String keystorePassword;
     private String keyPassword;
+    private List<String> protocols = DEFAULT_PROTOCOLS;
+    private List<String> cipherSuites = DEFAULT_CIPHER_SUITES;
+    private int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    private int sessionTimeoutSeconds = DEFAULT_SESSION_TIMEOUT_SECONDS;
+    private boolean sessionTicketsEnabled = true;
+    private boolean keystoreWatchEnabled = true;
+    private int keystoreCheckIntervalSeconds = DEFAULT_KEYSTORE_CHECK_INTERVAL_SECONDS;
+    private long handshakeTimeoutMillis = DEFAULT_HANDSHAKE_TIMEOUT_MILLIS;
+    private int maxConcurrentHandshakes = DEFAULT_MAX_CONCURRENT_HANDSHAKES;
+    private int handshakeQueueSize = DEFAULT_HANDSHAKE_QUEUE_SIZE;
 
     /**
      * Default constructor for creating an SSLConfiguration object
@@ -107,12 +175,272 @@ public class SSLConfiguration {
         logger.trace("Key password set.");
     }
 
+    /**
+     * Returns the TLS protocol versions enabled for connections.
+     *
+     * @return the protocol names, such as TLSv1.3
+     */
+    public List<String> getProtocols() {
+        logger.debug("Retrieved protocols: {}", protocols);
+        return protocols;
+    }
+
+    /**
+     * Sets the TLS protocol versions enabled for connections. Versions the JVM does
+     * not support are ignored with a warning.
+     *
+     * @param protocols the protocol names, such as TLSv1.3
+     * @throws IllegalArgumentException if no protocol is given
+     */
+    public void setProtocols(List<String> protocols) {
+        if (protocols == null || protocols.isEmpty()) {
+            logger.error("Attempted to set an empty protocol list");
+            throw new IllegalArgumentException("At least one TLS protocol must be enabled");
+        }
+        logger.info("Setting protocols to: {}", protocols);
+        this.protocols = List.copyOf(protocols);
+    }
+
+    /**
+     * Returns the cipher suites enabled for connections, most preferred first.
+     *
+     * @return the cipher suite names
+     */
+    public List<String> getCipherSuites() {
+        logger.debug("Retrieved cipher suites: {}", cipherSuites);
+        return cipherSuites;
+    }
+
+    /**
+     * Sets the cipher suites enabled for connections. The server picks the first one
+     * the client also supports, rather than the client's favourite. Suites the JVM
+     * does not support are ignored with a warning.
+     *
+     * @param cipherSuites the cipher suite names, most preferred first
+     * @throws IllegalArgumentException if no cipher suite is given
+     */
+    public void setCipherSuites(List<String> cipherSuites) {
+        if (cipherSuites == null || cipherSuites.isEmpty()) {
+            logger.error("Attempted to set an empty cipher suite list");
+            throw new IllegalArgumentException("At least one cipher suite must be enabled");
+        }
+        logger.info("Setting cipher suites to: {}", cipherSuites);
+        this.cipherSuites = List.copyOf(cipherSuites);
+    }
+
+    /**
+     * Returns the maximum number of sessions cached for resumption.
+     *
+     * @return the session cache size, 0 for no limit
+     */
+    public int getSessionCacheSize() {
+        logger.debug("Retrieved session cache size: {}", sessionCacheSize);
+        return sessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of sessions cached for resumption.
+     *
+     * @param sessionCacheSize the session cache size, 0 for no limit
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        if (sessionCacheSize < 0) {
+            logger.error("Attempted to set a negative session cache size: {}", sessionCacheSize);
+            throw new IllegalArgumentException("Session cache size cannot be negative: " + sessionCacheSize);
+        }
+        logger.info("Setting session cache size to: {}", sessionCacheSize);
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * Returns how long a session can be resumed after it was created.
+     *
+     * @return the session timeout in seconds, 0 for no limit
+     */
+    public int getSessionTimeoutSeconds() {
+        logger.debug("Retrieved session timeout: {}", sessionTimeoutSeconds);
+        return sessionTimeoutSeconds;
+    }
+
+    /**
+     * Sets how long a session can be resumed after it was created. This bounds both
+     * cached sessions and session tickets.
+     *
+     * @param sessionTimeoutSeconds the session timeout in seconds, 0 for no limit
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public void setSessionTimeoutSeconds(int sessionTimeoutSeconds) {
+        if (sessionTimeoutSeconds < 0) {
+            logger.error("Attempted to set a negative session timeout: {}", sessionTimeoutSeconds);
+            throw new IllegalArgumentException("Session timeout cannot be negative: " + sessionTimeoutSeconds);
+        }
+        logger.info("Setting session timeout to: {}", sessionTimeoutSeconds);
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+    }
+
+    /**
+     * Returns whether sessions are resumed from stateless tickets held by the client,
+     * rather than only from the server's session cache.
+     *
+     * @return true if session tickets are enabled
+     */
+    public boolean isSessionTicketsEnabled() {
+        logger.debug("Retrieved session tickets enabled: {}", sessionTicketsEnabled);
+        return sessionTicketsEnabled;
+    }
+
+    /**
+     * Enables or disables stateless session tickets. The JVM reads this setting once,
+     * when TLS is first used, so it is applied at startup and applies to every SSL
+     * context in the process, including those created when the keystore is reloaded.
+     *
+     * @param sessionTicketsEnabled true to enable session tickets
+     */
+    public void setSessionTicketsEnabled(boolean sessionTicketsEnabled) {
+        logger.info("Setting session tickets enabled to: {}", sessionTicketsEnabled);
+        this.sessionTicketsEnabled = sessionTicketsEnabled;
+    }
+
+    /**
+     * Returns whether the keystore is reloaded when it changes on disk.
+     *
+     * @return true if the keystore is watched
+     */
+    public boolean isKeystoreWatchEnabled() {
+        logger.debug("Retrieved keystore watch enabled: {}", keystoreWatchEnabled);
+        return keystoreWatchEnabled;
+    }
+
+    /**
+     * Enables or disables reloading the keystore when it changes on disk.
+     *
+     * @param keystoreWatchEnabled true to watch the keystore
+     */
+    public void setKeystoreWatchEnabled(boolean keystoreWatchEnabled) {
+        logger.info("Setting keystore watch enabled to: {}", keystoreWatchEnabled);
+        this.keystoreWatchEnabled = keystoreWatchEnabled;
+    }
+
+    /**
+     * Returns the seconds between checks of the keystore for changes the file system
+     * did not report.
+     *
+     * @return the check interval in seconds, 0 if the keystore is only checked on file system events
+     */
+    public int getKeystoreCheckIntervalSeconds() {
+        logger.debug("Retrieved keystore check interval: {}", keystoreCheckIntervalSeconds);
+        return keystoreCheckIntervalSeconds;
+    }
+
+    /**
+     * Sets the seconds between checks of the keystore for changes the file system
+     * did not report.
+     *
+     * @param keystoreCheckIntervalSeconds the check interval in seconds, 0 to rely on file system events only
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public void setKeystoreCheckIntervalSeconds(int keystoreCheckIntervalSeconds) {
+        if (keystoreCheckIntervalSeconds < 0) {
+            logger.error("Attempted to set a negative keystore check interval: {}", keystoreCheckIntervalSeconds);
+            throw new IllegalArgumentException("Keystore check interval cannot be negative: " + keystoreCheckIntervalSeconds);
+        }
+        logger.info("Setting keystore check interval to: {}", keystoreCheckIntervalSeconds);
+        this.keystoreCheckIntervalSeconds = keystoreCheckIntervalSeconds;
+    }
+
+    /**
+     * Returns the time a connection has to complete its TLS handshake after it was accepted.
+     *
+     * @return the handshake timeout in milliseconds
+     */
+    public long getHandshakeTimeoutMillis() {
+        logger.debug("Retrieved handshake timeout: {}", handshakeTimeoutMillis);
+        return handshakeTimeoutMillis;
+    }
+
+    /**
+     * Sets the time a connection has to complete its TLS handshake after it was accepted.
+     *
+     * @param handshakeTimeoutMillis the handshake timeout in milliseconds
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public void setHandshakeTimeoutMillis(long handshakeTimeoutMillis) {
+        if (handshakeTimeoutMillis <= 0) {
+            logger.error("Attempted to set a non-positive handshake timeout: {}", handshakeTimeoutMillis);
+            throw new IllegalArgumentException("Handshake timeout must be positive: " + handshakeTimeoutMillis);
+        }
+        logger.info("Setting handshake timeout to: {}", handshakeTimeoutMillis);
+        this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+    }
+
+    /**
+     * Returns the maximum number of TLS handshakes in progress at once.
+     *
+     * @return the concurrent handshake limit
+     */
+    public int getMaxConcurrentHandshakes() {
+        logger.debug("Retrieved max concurrent handshakes: {}", maxConcurrentHandshakes);
+        return maxConcurrentHandshakes;
+    }
+
+    /**
+     * Sets the maximum number of TLS handshakes in progress at once.
+     *
+     * @param maxConcurrentHandshakes the concurrent handshake limit
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public void setMaxConcurrentHandshakes(int maxConcurrentHandshakes) {
+        if (maxConcurrentHandshakes <= 0) {
+            logger.error("Attempted to set a non-positive concurrent handshake limit: {}", maxConcurrentHandshakes);
+            throw new IllegalArgumentException("Concurrent handshake limit must be positive: " + maxConcurrentHandshakes);
+        }
+        logger.info("Setting max concurrent handshakes to: {}", maxConcurrentHandshakes);
+        this.maxConcurrentHandshakes = maxConcurrentHandshakes;
+    }
+
+    /**
+     * Returns the maximum number of connections waiting for a handshake slot.
+     *
+     * @return the handshake queue size
+     */
+    public int getHandshakeQueueSize() {
+        logger.debug("Retrieved handshake queue size: {}", handshakeQueueSize);
+        return handshakeQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of connections waiting for a handshake slot. Connections
+     * arriving to a full queue are closed at once.
+     *
+     * @param handshakeQueueSize the handshake queue size, 0 to refuse connections whenever all slots are taken
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public void setHandshakeQueueSize(int handshakeQueueSize) {
+        if (handshakeQueueSize < 0) {
+            logger.error("Attempted to set a negative handshake queue size: {}", handshakeQueueSize);
+            throw new IllegalArgumentException("Handshake queue size cannot be negative: " + handshakeQueueSize);
+        }
+        logger.info("Setting handshake queue size to: {}", handshakeQueueSize);
+        this.handshakeQueueSize = handshakeQueueSize;
+    }
+
     @Override
     public String toString() {
         return "SSLConfiguration{" +
                 "keystorePath='" + keystorePath + '\'' +
                 ", keystorePassword=[PROTECTED]" +
                 ", keyPassword=[PROTECTED]" +
+                ", protocols=" + protocols +
+                ", cipherSuites=" + cipherSuites +
+                ", sessionCacheSize=" + sessionCacheSize +
+                ", sessionTimeoutSeconds=" + sessionTimeoutSeconds +
+                ", sessionTicketsEnabled=" + sessionTicketsEnabled +
+                ", keystoreWatchEnabled=" + keystoreWatchEnabled +
+                ", keystoreCheckIntervalSeconds=" + keystoreCheckIntervalSeconds +
+                ", handshakeTimeoutMillis=" + handshakeTimeoutMillis +
+                ", maxConcurrentHandshakes=" + maxConcurrentHandshakes +
+                ", handshakeQueueSize=" + handshakeQueueSize +
                 '}';
     }
 }
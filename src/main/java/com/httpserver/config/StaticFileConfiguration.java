@@ -0,0 +1,616 @@
+package com.httpserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Represents the configuration settings for serving static files from the web root.
+ * This class holds whether files are served, whether plain HTTP serves them too
+ * instead of redirecting to HTTPS, the index file used for directories, the
+ * limits of the in-memory hot asset cache, the file metadata and negative lookup
+ * cache settings, how precompressed gzip sidecars are served and produced, asset
+ * fingerprinting, cache warm-up at startup and an optional packed bundle served instead of the web root.
+ */
+public class StaticFileConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticFileConfiguration.class); // SLF4J logger instance
+
+    /**
+     * 64 MiB holds the CSS, scripts and icons of a typical site several times over.
+     */
+    public static final long DEFAULT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Larger files gain little from caching and are better sent with sendfile.
+     */
+    public static final long DEFAULT_CACHE_MAX_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Enough paths for a large site; each entry is a few hundred bytes.
+     */
+    public static final int DEFAULT_METADATA_CACHE_MAX_ENTRIES = 10_000;
+
+    /**
+     * Watch events normally invalidate entries at once; this only bounds staleness
+     * on file systems that do not deliver them.
+     */
+    public static final long DEFAULT_METADATA_RECONCILE_INTERVAL_SECONDS = 30;
+
+    /**
+     * Misses that pass the Bloom filter are rare, so a small LRU covers the repeated ones.
+     */
+    public static final int DEFAULT_NEGATIVE_CACHE_MAX_ENTRIES = 1024;
+
+    /**
+     * Several hundred paths cover the pages and assets of most sites.
+     */
+    public static final int DEFAULT_WARMUP_TOP_N = 500;
+
+    /**
+     * Warming a typical site from a cold page cache takes well under this, and a
+     * restart is not delayed noticeably if it does not.
+     */
+    public static final long DEFAULT_WARMUP_BUDGET_MILLIS = 5000;
+
+    /**
+     * Scripts, styles, fonts and images: the assets pages reference by URL. HTML is
+     * left out because pages are what carry the fingerprinted URLs.
+     */
+    public static final List<String> DEFAULT_FINGERPRINT_EXTENSIONS = List.of(
+            "js", "mjs", "css", "map", "woff", "woff2", "ttf", "otf",
+            "png", "jpg", "jpeg", "gif", "svg", "webp", "avif", "ico"
+    );
+
+    private boolean enabled = true;
+    private boolean serveOverHttp = false;
+    private String indexFile = "index.html";
+    private boolean cacheEnabled = true;
+    private long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+    private long cacheMaxFileSize = DEFAULT_CACHE_MAX_FILE_SIZE;
+    private boolean metadataCacheEnabled = true;
+    private int metadataCacheMaxEntries = DEFAULT_METADATA_CACHE_MAX_ENTRIES;
+    private long metadataReconcileIntervalSeconds = DEFAULT_METADATA_RECONCILE_INTERVAL_SECONDS;
+    private boolean negativeCacheEnabled = true;
+    private int negativeCacheMaxEntries = DEFAULT_NEGATIVE_CACHE_MAX_ENTRIES;
+    private boolean precompressedEnabled = true;
+    private boolean precompressOnStartup = false;
+    private String bundleFile = null;
+    private boolean fingerprintingEnabled = false;
+    private String fingerprintManifestPath = "/asset-manifest.json";
+    private List<String> fingerprintExtensions = DEFAULT_FINGERPRINT_EXTENSIONS;
+    private boolean warmupEnabled = true;
+    private String warmupFile = "cache-warmup.txt";
+    private int warmupTopN = DEFAULT_WARMUP_TOP_N;
+    private long warmupRecordIntervalSeconds = 60;
+    private long warmupBudgetMillis = DEFAULT_WARMUP_BUDGET_MILLIS;
+
+    /**
+     * Default constructor for creating a StaticFileConfiguration object with default values.
+     */
+    public StaticFileConfiguration() {
+        logger.info("Created a new StaticFileConfiguration object with default values.");
+        logger.trace("Default StaticFileConfiguration constructor invoked.");
+    }
+
+    /**
+     * Returns whether static files are served from the web root.
+     *
+     * @return true if static file serving is enabled
+     */
+    public boolean isEnabled() {
+        logger.debug("Retrieved static files enabled: {}", enabled);
+        return enabled;
+    }
+
+    /**
+     * Enables or disables serving static files from the web root.
+     *
+     * @param enabled true to serve static files
+     */
+    public void setEnabled(boolean enabled) {
+        logger.info("Setting static files enabled to: {}", enabled);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the plain HTTP listener serves files instead of redirecting to HTTPS.
+     *
+     * @return true if files are served over plain HTTP
+     */
+    public boolean isServeOverHttp() {
+        logger.debug("Retrieved serve over http: {}", serveOverHttp);
+        return serveOverHttp;
+    }
+
+    /**
+     * Sets whether the plain HTTP listener serves files instead of redirecting to HTTPS.
+     *
+     * @param serveOverHttp true to serve files over plain HTTP
+     */
+    public void setServeOverHttp(boolean serveOverHttp) {
+        logger.info("Setting serve over http to: {}", serveOverHttp);
+        this.serveOverHttp = serveOverHttp;
+    }
+
+    /**
+     * Returns the file served when a directory is requested.
+     *
+     * @return the index file name
+     */
+    public String getIndexFile() {
+        logger.debug("Retrieved index file: {}", indexFile);
+        return indexFile;
+    }
+
+    /**
+     * Sets the file served when a directory is requested.
+     *
+     * @param indexFile the index file name to set
+     * @throws IllegalArgumentException if the name is empty or contains a path separator
+     */
+    public void setIndexFile(String indexFile) {
+        if (indexFile == null || indexFile.isEmpty() || indexFile.contains("/")) {
+            logger.error("Attempted to set an invalid index file: {}", indexFile);
+            throw new IllegalArgumentException("Index file must be a plain file name: " + indexFile);
+        }
+        logger.info("Setting index file to: {}", indexFile);
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Returns whether hot files are cached in memory.
+     *
+     * @return true if the hot asset cache is enabled
+     */
+    public boolean isCacheEnabled() {
+        logger.debug("Retrieved hot asset cache enabled: {}", cacheEnabled);
+        return cacheEnabled;
+    }
+
+    /**
+     * Enables or disables caching hot files in memory.
+     *
+     * @param cacheEnabled true to enable the hot asset cache
+     */
+    public void setCacheEnabled(boolean cacheEnabled) {
+        logger.info("Setting hot asset cache enabled to: {}", cacheEnabled);
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    /**
+     * Returns the maximum number of bytes held by the hot asset cache.
+     *
+     * @return the cache capacity in bytes
+     */
+    public long getCacheMaxBytes() {
+        logger.debug("Retrieved hot asset cache max bytes: {}", cacheMaxBytes);
+        return cacheMaxBytes;
+    }
+
+    /**
+     * Sets the maximum number of bytes held by the hot asset cache.
+     *
+     * @param cacheMaxBytes the cache capacity in bytes
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        if (cacheMaxBytes <= 0) {
+            logger.error("Attempted to set a non-positive hot asset cache max bytes: {}", cacheMaxBytes);
+            throw new IllegalArgumentException("Hot asset cache max bytes must be positive: " + cacheMaxBytes);
+        }
+        logger.info("Setting hot asset cache max bytes to: {}", cacheMaxBytes);
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    /**
+     * Returns the size of the largest file kept in the hot asset cache.
+     *
+     * @return the maximum cached file size in bytes
+     */
+    public long getCacheMaxFileSize() {
+        logger.debug("Retrieved hot asset cache max file size: {}", cacheMaxFileSize);
+        return cacheMaxFileSize;
+    }
+
+    /**
+     * Sets the size of the largest file kept in the hot asset cache.
+     *
+     * @param cacheMaxFileSize the maximum cached file size in bytes, at most {@link Integer#MAX_VALUE}
+     * @throws IllegalArgumentException if the size is not positive or too large for a buffer
+     */
+    public void setCacheMaxFileSize(long cacheMaxFileSize) {
+        if (cacheMaxFileSize <= 0 || cacheMaxFileSize > Integer.MAX_VALUE) {
+            logger.error("Attempted to set an invalid hot asset cache max file size: {}", cacheMaxFileSize);
+            throw new IllegalArgumentException("Hot asset cache max file size must be between 1 and " + Integer.MAX_VALUE + ": " + cacheMaxFileSize);
+        }
+        logger.info("Setting hot asset cache max file size to: {}", cacheMaxFileSize);
+        this.cacheMaxFileSize = cacheMaxFileSize;
+    }
+
+    /**
+     * Returns whether file metadata is cached and invalidated by watching the web root.
+     *
+     * @return true if the metadata cache is enabled
+     */
+    public boolean isMetadataCacheEnabled() {
+        logger.debug("Retrieved metadata cache enabled: {}", metadataCacheEnabled);
+        return metadataCacheEnabled;
+    }
+
+    /**
+     * Enables or disables the file metadata cache.
+     *
+     * @param metadataCacheEnabled true to enable the metadata cache
+     */
+    public void setMetadataCacheEnabled(boolean metadataCacheEnabled) {
+        logger.info("Setting metadata cache enabled to: {}", metadataCacheEnabled);
+        this.metadataCacheEnabled = metadataCacheEnabled;
+    }
+
+    /**
+     * Returns the maximum number of request paths whose metadata is cached.
+     *
+     * @return the maximum entry count
+     */
+    public int getMetadataCacheMaxEntries() {
+        logger.debug("Retrieved metadata cache max entries: {}", metadataCacheMaxEntries);
+        return metadataCacheMaxEntries;
+    }
+
+    /**
+     * Sets the maximum number of request paths whose metadata is cached.
+     *
+     * @param metadataCacheMaxEntries the maximum entry count
+     * @throws IllegalArgumentException if the count is not positive
+     */
+    public void setMetadataCacheMaxEntries(int metadataCacheMaxEntries) {
+        if (metadataCacheMaxEntries <= 0) {
+            logger.error("Attempted to set a non-positive metadata cache max entries: {}", metadataCacheMaxEntries);
+            throw new IllegalArgumentException("Metadata cache max entries must be positive: " + metadataCacheMaxEntries);
+        }
+        logger.info("Setting metadata cache max entries to: {}", metadataCacheMaxEntries);
+        this.metadataCacheMaxEntries = metadataCacheMaxEntries;
+    }
+
+    /**
+     * Returns the seconds between reconciliations of the metadata cache with the disk.
+     *
+     * @return the reconcile interval in seconds, 0 if disabled
+     */
+    public long getMetadataReconcileIntervalSeconds() {
+        logger.debug("Retrieved metadata reconcile interval: {}", metadataReconcileIntervalSeconds);
+        return metadataReconcileIntervalSeconds;
+    }
+
+    /**
+     * Sets the seconds between reconciliations of the metadata cache with the disk.
+     *
+     * @param metadataReconcileIntervalSeconds the interval in seconds, 0 to rely on watch events only
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public void setMetadataReconcileIntervalSeconds(long metadataReconcileIntervalSeconds) {
+        if (metadataReconcileIntervalSeconds < 0) {
+            logger.error("Attempted to set a negative metadata reconcile interval: {}", metadataReconcileIntervalSeconds);
+            throw new IllegalArgumentException("Metadata reconcile interval cannot be negative: " + metadataReconcileIntervalSeconds);
+        }
+        logger.info("Setting metadata reconcile interval to: {}", metadataReconcileIntervalSeconds);
+        this.metadataReconcileIntervalSeconds = metadataReconcileIntervalSeconds;
+    }
+
+    /**
+     * Returns whether requests for missing paths are answered from an index of the
+     * web root instead of the disk. Requires the metadata cache, whose watcher keeps
+     * the index current.
+     *
+     * @return true if the negative lookup cache is enabled
+     */
+    public boolean isNegativeCacheEnabled() {
+        logger.debug("Retrieved negative cache enabled: {}", negativeCacheEnabled);
+        return negativeCacheEnabled;
+    }
+
+    /**
+     * Enables or disables the negative lookup cache.
+     *
+     * @param negativeCacheEnabled true to enable the negative lookup cache
+     */
+    public void setNegativeCacheEnabled(boolean negativeCacheEnabled) {
+        logger.info("Setting negative cache enabled to: {}", negativeCacheEnabled);
+        this.negativeCacheEnabled = negativeCacheEnabled;
+    }
+
+    /**
+     * Returns the maximum number of recently missed paths remembered by the negative lookup cache.
+     *
+     * @return the maximum number of remembered misses
+     */
+    public int getNegativeCacheMaxEntries() {
+        logger.debug("Retrieved negative cache max entries: {}", negativeCacheMaxEntries);
+        return negativeCacheMaxEntries;
+    }
+
+    /**
+     * Sets the maximum number of recently missed paths remembered by the negative lookup cache.
+     *
+     * @param negativeCacheMaxEntries the maximum number of remembered misses
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    public void setNegativeCacheMaxEntries(int negativeCacheMaxEntries) {
+        if (negativeCacheMaxEntries <= 0) {
+            logger.error("Attempted to set a non-positive negative cache max entries: {}", negativeCacheMaxEntries);
+            throw new IllegalArgumentException("Negative cache max entries must be positive: " + negativeCacheMaxEntries);
+        }
+        logger.info("Setting negative cache max entries to: {}", negativeCacheMaxEntries);
+        this.negativeCacheMaxEntries = negativeCacheMaxEntries;
+    }
+
+    /**
+     * Returns whether up-to-date .gz sidecars are sent to clients that accept gzip.
+     *
+     * @return true if precompressed sidecars are served
+     */
+    public boolean isPrecompressedEnabled() {
+        logger.debug("Retrieved precompressed enabled: {}", precompressedEnabled);
+        return precompressedEnabled;
+    }
+
+    /**
+     * Enables or disables serving .gz sidecars to clients that accept gzip.
+     *
+     * @param precompressedEnabled true to serve precompressed sidecars
+     */
+    public void setPrecompressedEnabled(boolean precompressedEnabled) {
+        logger.info("Setting precompressed enabled to: {}", precompressedEnabled);
+        this.precompressedEnabled = precompressedEnabled;
+    }
+
+    /**
+     * Returns whether sidecars are written for the whole web root at startup and kept
+     * in sync while the server runs. This writes files into the web root.
+     *
+     * @return true if the web root is precompressed at startup
+     */
+    public boolean isPrecompressOnStartup() {
+        logger.debug("Retrieved precompress on startup: {}", precompressOnStartup);
+        return precompressOnStartup;
+    }
+
+    /**
+     * Sets whether sidecars are written for the whole web root at startup and kept in sync.
+     *
+     * @param precompressOnStartup true to precompress the web root at startup
+     */
+    public void setPrecompressOnStartup(boolean precompressOnStartup) {
+        logger.info("Setting precompress on startup to: {}", precompressOnStartup);
+        this.precompressOnStartup = precompressOnStartup;
+    }
+
+    /**
+     * Returns whether content-hashed URLs such as {@code /app.3f9a1c0b.js} are served
+     * with immutable caching headers, along with a manifest of current fingerprints.
+     *
+     * @return true if asset fingerprinting is enabled
+     */
+    public boolean isFingerprintingEnabled() {
+        logger.debug("Retrieved fingerprinting enabled: {}", fingerprintingEnabled);
+        return fingerprintingEnabled;
+    }
+
+    /**
+     * Enables or disables asset fingerprinting.
+     *
+     * @param fingerprintingEnabled true to serve fingerprinted URLs and the manifest
+     */
+    public void setFingerprintingEnabled(boolean fingerprintingEnabled) {
+        logger.info("Setting fingerprinting enabled to: {}", fingerprintingEnabled);
+        this.fingerprintingEnabled = fingerprintingEnabled;
+    }
+
+    /**
+     * Returns the request path of the manifest listing the current fingerprinted URLs.
+     *
+     * @return the manifest path
+     */
+    public String getFingerprintManifestPath() {
+        logger.debug("Retrieved fingerprint manifest path: {}", fingerprintManifestPath);
+        return fingerprintManifestPath;
+    }
+
+    /**
+     * Sets the request path of the fingerprint manifest.
+     *
+     * @param fingerprintManifestPath the manifest path, starting with '/'
+     * @throws IllegalArgumentException if the path does not start with '/'
+     */
+    public void setFingerprintManifestPath(String fingerprintManifestPath) {
+        if (fingerprintManifestPath == null || !fingerprintManifestPath.startsWith("/")) {
+            logger.error("Attempted to set an invalid fingerprint manifest path: {}", fingerprintManifestPath);
+            throw new IllegalArgumentException("Fingerprint manifest path must start with '/': " + fingerprintManifestPath);
+        }
+        logger.info("Setting fingerprint manifest path to: {}", fingerprintManifestPath);
+        this.fingerprintManifestPath = fingerprintManifestPath;
+    }
+
+    /**
+     * Returns the extensions, without the dot, of files served under fingerprinted URLs.
+     *
+     * @return the fingerprinted file extensions
+     */
+    public List<String> getFingerprintExtensions() {
+        logger.debug("Retrieved fingerprint extensions: {}", fingerprintExtensions);
+        return fingerprintExtensions;
+    }
+
+    /**
+     * Sets the extensions of files served under fingerprinted URLs.
+     *
+     * @param fingerprintExtensions the extensions, without the dot
+     */
+    public void setFingerprintExtensions(List<String> fingerprintExtensions) {
+        logger.info("Setting fingerprint extensions to: {}", fingerprintExtensions);
+        this.fingerprintExtensions = fingerprintExtensions == null ? List.of() : List.copyOf(fingerprintExtensions);
+    }
+
+    /**
+     * Returns whether the most requested paths are recorded and loaded into the
+     * caches at the next startup, before the listeners accept connections.
+     *
+     * @return true if cache warm-up is enabled
+     */
+    public boolean isWarmupEnabled() {
+        logger.debug("Retrieved warmup enabled: {}", warmupEnabled);
+        return warmupEnabled;
+    }
+
+    /**
+     * Enables or disables recording hot paths and warming the caches at startup.
+     *
+     * @param warmupEnabled true to enable cache warm-up
+     */
+    public void setWarmupEnabled(boolean warmupEnabled) {
+        logger.info("Setting warmup enabled to: {}", warmupEnabled);
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    /**
+     * Returns the file the most requested paths are saved to and warmed from.
+     *
+     * @return the hot path file, relative to the working directory unless absolute
+     */
+    public String getWarmupFile() {
+        logger.debug("Retrieved warmup file: {}", warmupFile);
+        return warmupFile;
+    }
+
+    /**
+     * Sets the file the most requested paths are saved to and warmed from.
+     *
+     * @param warmupFile the hot path file
+     * @throws IllegalArgumentException if the file name is empty
+     */
+    public void setWarmupFile(String warmupFile) {
+        if (warmupFile == null || warmupFile.isBlank()) {
+            logger.error("Attempted to set an empty warmup file");
+            throw new IllegalArgumentException("Warmup file cannot be empty");
+        }
+        logger.info("Setting warmup file to: {}", warmupFile);
+        this.warmupFile = warmupFile;
+    }
+
+    /**
+     * Returns the number of most requested paths saved for warm-up.
+     *
+     * @return the saved path count
+     */
+    public int getWarmupTopN() {
+        logger.debug("Retrieved warmup top N: {}", warmupTopN);
+        return warmupTopN;
+    }
+
+    /**
+     * Sets the number of most requested paths saved for warm-up.
+     *
+     * @param warmupTopN the saved path count
+     * @throws IllegalArgumentException if the count is not positive
+     */
+    public void setWarmupTopN(int warmupTopN) {
+        if (warmupTopN <= 0) {
+            logger.error("Attempted to set a non-positive warmup top N: {}", warmupTopN);
+            throw new IllegalArgumentException("Warmup top N must be positive: " + warmupTopN);
+        }
+        logger.info("Setting warmup top N to: {}", warmupTopN);
+        this.warmupTopN = warmupTopN;
+    }
+
+    /**
+     * Returns the seconds between saves of the most requested paths.
+     *
+     * @return the record interval in seconds
+     */
+    public long getWarmupRecordIntervalSeconds() {
+        logger.debug("Retrieved warmup record interval: {}", warmupRecordIntervalSeconds);
+        return warmupRecordIntervalSeconds;
+    }
+
+    /**
+     * Sets the seconds between saves of the most requested paths. The paths are also
+     * saved when the server shuts down.
+     *
+     * @param warmupRecordIntervalSeconds the record interval in seconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public void setWarmupRecordIntervalSeconds(long warmupRecordIntervalSeconds) {
+        if (warmupRecordIntervalSeconds <= 0) {
+            logger.error("Attempted to set a non-positive warmup record interval: {}", warmupRecordIntervalSeconds);
+            throw new IllegalArgumentException("Warmup record interval must be positive: " + warmupRecordIntervalSeconds);
+        }
+        logger.info("Setting warmup record interval to: {}", warmupRecordIntervalSeconds);
+        this.warmupRecordIntervalSeconds = warmupRecordIntervalSeconds;
+    }
+
+    /**
+     * Returns the longest time startup waits for the caches to warm.
+     *
+     * @return the warm-up budget in milliseconds
+     */
+    public long getWarmupBudgetMillis() {
+        logger.debug("Retrieved warmup budget: {}", warmupBudgetMillis);
+        return warmupBudgetMillis;
+    }
+
+    /**
+     * Sets the longest time startup waits for the caches to warm. Paths not reached
+     * within the budget are left cold.
+     *
+     * @param warmupBudgetMillis the warm-up budget in milliseconds
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public void setWarmupBudgetMillis(long warmupBudgetMillis) {
+        if (warmupBudgetMillis < 0) {
+            logger.error("Attempted to set a negative warmup budget: {}", warmupBudgetMillis);
+            throw new IllegalArgumentException("Warmup budget cannot be negative: " + warmupBudgetMillis);
+        }
+        logger.info("Setting warmup budget to: {}", warmupBudgetMillis);
+        this.warmupBudgetMillis = warmupBudgetMillis;
+    }
+
+    /**
+     * Returns the packed bundle served instead of the web root.
+     *
+     * @return the bundle file written by the StaticBundlePacker, or null to serve the web root
+     */
+    public String getBundleFile() {
+        logger.debug("Retrieved bundle file: {}", bundleFile);
+        return bundleFile;
+    }
+
+    /**
+     * Sets the packed bundle served instead of the web root.
+     *
+     * @param bundleFile the bundle file, or null or empty to serve the web root
+     */
+    public void setBundleFile(String bundleFile) {
+        logger.info("Setting bundle file to: {}", bundleFile);
+        this.bundleFile = bundleFile == null || bundleFile.isBlank() ? null : bundleFile;
+    }
+
+    @Override
+    public String toString() {
+        return "StaticFileConfiguration{" + "enabled=" + enabled + ", serveOverHttp=" + serveOverHttp
+                + ", indexFile='" + indexFile + '\'' + ", cacheEnabled=" + cacheEnabled
+                + ", cacheMaxBytes=" + cacheMaxBytes + ", cacheMaxFileSize=" + cacheMaxFileSize
+                + ", metadataCacheEnabled=" + metadataCacheEnabled + ", metadataCacheMaxEntries=" + metadataCacheMaxEntries
+                + ", metadataReconcileIntervalSeconds=" + metadataReconcileIntervalSeconds
+                + ", negativeCacheEnabled=" + negativeCacheEnabled + ", negativeCacheMaxEntries=" + negativeCacheMaxEntries
+                + ", precompressedEnabled=" + precompressedEnabled + ", precompressOnStartup=" + precompressOnStartup
+                + ", fingerprintingEnabled=" + fingerprintingEnabled
+                + ", fingerprintManifestPath='" + fingerprintManifestPath + '\''
+                + ", fingerprintExtensions=" + fingerprintExtensions
+                + ", warmupEnabled=" + warmupEnabled + ", warmupFile='" + warmupFile + '\''
+                + ", warmupTopN=" + warmupTopN + ", warmupRecordIntervalSeconds=" + warmupRecordIntervalSeconds
+                + ", warmupBudgetMillis=" + warmupBudgetMillis
+                + ", bundleFile=" + (bundleFile != null ? "'" + bundleFile + "'" : null) + '}';
+    }
+}
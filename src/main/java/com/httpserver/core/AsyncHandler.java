@@ -0,0 +1,33 @@
+package com.httpserver.core;
+
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Produces the response to a request asynchronously, for handlers that wait on slow
+ * backends. The worker thread that read the request is released as soon as the
+ * handler returns its future, and the response is written by the thread that
+ * completes it, so a few threads can serve many requests that are waiting on I/O.
+ * <p>
+ * A future that does not complete within the {@link RequestProcessor}'s timeout is
+ * answered with 504 Gateway Timeout and cancelled; handlers can observe the
+ * cancellation, for example with {@link CompletableFuture#whenComplete}, to abandon
+ * their backend calls. A future completed exceptionally with
+ * {@link com.httpserver.exception.HttpParsingException} is answered with an empty
+ * error response of its status, a cancelled one with 503 Service Unavailable and any
+ * other failure with 500 Internal Server Error.
+ * </p>
+ */
+@FunctionalInterface
+public interface AsyncHandler {
+
+    /**
+     * Starts producing the response to a request.
+     *
+     * @param request the parsed request
+     * @return a future completed with the response; its HTTP version defaults to HTTP/1.1 if unset
+     */
+    CompletableFuture<HttpResponse> handle(HttpRequest request);
+}
@@ -0,0 +1,25 @@
+package com.httpserver.core;
+
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+
+/**
+ * Produces the response to a request. Handlers are shared by all worker threads,
+ * so implementations must be safe for concurrent use.
+ * <p>
+ * A handler may throw {@link com.httpserver.exception.HttpParsingException} to answer
+ * with an empty error response of its status; any other exception is answered with
+ * 500 Internal Server Error by the {@link RequestProcessor}.
+ * </p>
+ */
+@FunctionalInterface
+public interface Handler {
+
+    /**
+     * Produces the response to a request.
+     *
+     * @param request the parsed request
+     * @return the response; its HTTP version defaults to HTTP/1.1 if unset
+     */
+    HttpResponse handle(HttpRequest request);
+}
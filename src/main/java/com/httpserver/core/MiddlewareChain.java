@@ -0,0 +1,148 @@
+package com.httpserver.core;
+
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.Middleware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Middleware assembled once, at startup, into a flat array and run around a
+ * handler. Running the chain walks the array twice and allocates nothing: first
+ * the {@link Middleware#before(HttpRequest) before} hooks in order, stopping at the
+ * first that answers the request, then the handler unless it was answered, then the
+ * {@link Middleware#apply(HttpRequest, HttpResponse) after} hooks, in reverse
+ * order, of every middleware whose before hook passed the request on, so the first
+ * middleware sees the request first and the response last.
+ * <p>
+ * A hook that throws is answered for with 500 Internal Server Error: a failed
+ * before hook stops the chain as if it had answered, and a failed after hook has its
+ * response replaced. Either way the after hooks of the middleware outside it still
+ * run, on the error response.
+ * </p>
+ */
+public final class MiddlewareChain {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MiddlewareChain.class);
+
+    /**
+     * A chain without middleware, which only invokes the handler.
+     */
+    public static final MiddlewareChain EMPTY = new MiddlewareChain(List.of());
+
+    private final Middleware[] middlewares;
+
+    /**
+     * Constructs a MiddlewareChain.
+     *
+     * @param middlewares the middlewares, in the order their hooks run
+     */
+    public MiddlewareChain(List<Middleware> middlewares) {
+        this.middlewares = middlewares.toArray(new Middleware[0]);
+    }
+
+    /**
+     * Answers a request with the handler, with the middleware run around it.
+     * Exceptions thrown by the handler are propagated without running the after
+     * hooks; those thrown by a hook are answered with 500 Internal Server Error.
+     *
+     * @param request the request
+     * @param handler produces the response unless a middleware answers first
+     * @return the response
+     */
+    public HttpResponse handle(HttpRequest request, Handler handler) {
+        Middleware[] middlewares = this.middlewares;
+        HttpResponse response = null;
+        int passed = 0;
+        while (passed < middlewares.length) {
+            response = before(middlewares[passed], request);
+            if (response != null) {
+                break;
+            }
+            passed++;
+        }
+        if (response == null) {
+            response = handler.handle(request);
+        }
+        return after(request, response, passed);
+    }
+
+    /**
+     * Answers a request with an asynchronous handler, with the middleware run around
+     * it. The before hooks run on the calling thread; the after hooks run on the
+     * thread that completes the handler's future.
+     *
+     * @param request the request
+     * @param handler produces the response unless a middleware answers first
+     * @return a future completed with the response
+     */
+    public CompletableFuture<HttpResponse> handleAsync(HttpRequest request, AsyncHandler handler) {
+        Middleware[] middlewares = this.middlewares;
+        int passed = 0;
+        while (passed < middlewares.length) {
+            HttpResponse response = before(middlewares[passed], request);
+            if (response != null) {
+                return CompletableFuture.completedFuture(after(request, response, passed));
+            }
+            passed++;
+        }
+        if (passed == 0) {
+            return handler.handle(request);
+        }
+        return handler.handle(request).thenApply(response -> after(request, response, middlewares.length));
+    }
+
+    /**
+     * Runs only the after hooks of every middleware, for responses produced outside
+     * the chain such as errors for requests that could not be read.
+     *
+     * @param request  the request, or null if it could not be parsed
+     * @param response the response
+     * @return the response to send: the one given, or an error response if a hook failed
+     */
+    public HttpResponse after(HttpRequest request, HttpResponse response) {
+        return after(request, response, middlewares.length);
+    }
+
+    private static HttpResponse before(Middleware middleware, HttpRequest request) {
+        try {
+            return middleware.before(request);
+        } catch (RuntimeException e) {
+            LOGGER.error("Middleware {} failed before request: {}", middleware.getClass().getName(), request, e);
+            return errorResponse();
+        }
+    }
+
+    private HttpResponse after(HttpRequest request, HttpResponse response, int passed) {
+        for (int i = passed - 1; i >= 0; i--) {
+            try {
+                middlewares[i].apply(request, response);
+            } catch (RuntimeException e) {
+                LOGGER.error("Middleware {} failed after request: {}", middlewares[i].getClass().getName(), request, e);
+                response = errorResponse();
+            }
+        }
+        return response;
+    }
+
+    private static HttpResponse errorResponse() {
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+        response.setStatusCode(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
+        response.addHeader("Content-Length", "0");
+        return response;
+    }
+
+    /**
+     * Returns the middlewares of the chain.
+     *
+     * @return the middlewares, in the order their hooks run
+     */
+    public List<Middleware> getMiddlewares() {
+        return List.of(middlewares);
+    }
+}
@@ -0,0 +1,666 @@
+package com.httpserver.core;
+
+import com.httpserver.config.RequestTimeoutConfiguration;
+import com.httpserver.exception.HttpParsingException;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.Middleware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes a request on a connection: parses it, asks the handler for a response
+ * through the middleware chain and writes the result. Shared by the HTTP and HTTPS
+ * worker threads so that both transports answer requests the same way.
+ * <p>
+ * With an {@link AsyncHandler}, {@link #processAsync} returns once the request is
+ * read and handed to the handler, and the response is written when the handler's
+ * future completes, so the worker thread does not wait for slow handlers.
+ * </p>
+ * <p>
+ * Requests are given a deadline: the server-wide timeout, replaced by the route's if
+ * it has one, and brought forward by the client's if it sends a shorter one. A
+ * request whose deadline passed before its handler started, for instance while
+ * waiting for a worker, is answered with 503 Service Unavailable without running the
+ * handler. A handler still running at the deadline is answered for with 504 Gateway
+ * Timeout: an asynchronous handler's future is cancelled, and a synchronous handler's
+ * thread is interrupted once the timeout response is written, so that blocking waits
+ * give up and the worker returns. Its response, if it still produces one, is discarded. Handlers see the deadline through
+ * {@link HttpRequest#getRemainingNanos()}.
+ * </p>
+ * <p>
+ * A client that has not sent the request line and headers within the head timeout
+ * is disconnected without a response, so trickling headers cannot hold a worker.
+ * </p>
+ * <p>
+ * Request bodies are left on the connection for the handler to read. Each read of
+ * the body may wait for the client no longer than the head timeout, after which the
+ * connection is closed and the read fails. Once the response is written, whatever
+ * the handler left unread, up to {@link #MAX_DISCARDED_BODY_SIZE} bytes, is read
+ * and thrown away within the head timeout, since closing a socket with unread data
+ * resets the connection and the client may lose the response. Responses to
+ * requests with more left unread carry {@code Connection: close}.
+ * </p>
+ * <p>
+ * Deadlines, head timeouts and body reads are timed by the shared {@link TimingWheel},
+ * where arming and cancelling a timer costs the same however many connections are open.
+ * </p>
+ */
+public class RequestProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestProcessor.class);
+
+    /**
+     * Suggested time an asynchronous handler has to produce its response.
+     */
+    public static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Most of an unread request body read and thrown away after the response; more is not worth the client's upload.
+     */
+    public static final long MAX_DISCARDED_BODY_SIZE = 64 * 1024;
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final HttpParser httpParser = new HttpParser();
+    private final Handler handler;
+    private final AsyncHandler asyncHandler;
+    private final Duration timeout;
+    private final String clientTimeoutHeader;
+    private final long headerTimeoutMillis;
+    private final MiddlewareChain middlewares;
+    private final Handler guardedHandler = this::handle;
+    private final AsyncHandler guardedAsyncHandler = this::handleAsync;
+
+    /**
+     * Constructs a RequestProcessor.
+     *
+     * @param handler     produces the response for a parsed request
+     * @param middlewares the middlewares run, in order, around the handler for every request
+     */
+    public RequestProcessor(Handler handler, List<Middleware> middlewares) {
+        this(handler, null, middlewares, null, null, RequestTimeoutConfiguration.DEFAULT_HEADER_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a RequestProcessor that gives every request a deadline.
+     *
+     * @param handler       produces the response for a parsed request
+     * @param middlewares   the middlewares run, in order, around the handler for every request
+     * @param timeoutConfig the server-wide timeout, the header clients may shorten it with and
+     *                      the request head timeout; if disabled, only routes with their own
+     *                      timeout have deadlines
+     */
+    public RequestProcessor(Handler handler, List<Middleware> middlewares, RequestTimeoutConfiguration timeoutConfig) {
+        this(handler, null, middlewares,
+                timeoutConfig.isEnabled() ? Duration.ofMillis(timeoutConfig.getTimeoutMillis()) : null,
+                timeoutConfig.isEnabled() ? timeoutConfig.getClientTimeoutHeader() : null,
+                timeoutConfig.getHeaderTimeoutMillis());
+    }
+
+    /**
+     * Constructs a RequestProcessor for an asynchronous handler.
+     *
+     * @param asyncHandler produces the response for a parsed request
+     * @param middlewares  the middlewares run, in order, around the handler for every request
+     * @param timeout      how long, from when a request is read, the handler has to produce a
+     *                     response before the request is answered with 504 Gateway Timeout and
+     *                     the handler's future cancelled
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public RequestProcessor(AsyncHandler asyncHandler, List<Middleware> middlewares, Duration timeout) {
+        this(null, asyncHandler, middlewares, validTimeout(timeout), null, RequestTimeoutConfiguration.DEFAULT_HEADER_TIMEOUT_MILLIS);
+    }
+
+    private RequestProcessor(Handler handler, AsyncHandler asyncHandler, List<Middleware> middlewares,
+                             Duration timeout, String clientTimeoutHeader, long headerTimeoutMillis) {
+        this.handler = handler;
+        this.asyncHandler = asyncHandler;
+        this.timeout = timeout;
+        this.clientTimeoutHeader = clientTimeoutHeader;
+        this.headerTimeoutMillis = headerTimeoutMillis;
+        this.middlewares = new MiddlewareChain(middlewares);
+    }
+
+    /**
+     * Reads one request from the connection and writes its response.
+     *
+     * @param inputStream  the input stream of the connection
+     * @param outputStream the output stream of the connection
+     * @param channel      the channel of the connection used for zero-copy bodies, or null if it has none
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public void process(InputStream inputStream, OutputStream outputStream, WritableByteChannel channel) throws IOException {
+        process(inputStream, outputStream, channel, null);
+    }
+
+    /**
+     * Reads one request from the connection and writes its response, unless the
+     * request switches the connection to another protocol.
+     *
+     * @param inputStream  the input stream of the connection
+     * @param outputStream the output stream of the connection
+     * @param channel      the channel of the connection used for zero-copy bodies, or null if it has none
+     * @param upgrade      offered each parsed request; returns true if it took over the connection
+     *                     and answered the request itself. May be null.
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public void process(InputStream inputStream, OutputStream outputStream, WritableByteChannel channel,
+                        Upgrade upgrade) throws IOException {
+        try {
+            processAsync(inputStream, outputStream, channel, upgrade).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads one request from the connection and starts answering it, unless the
+     * request switches the connection to another protocol. With a synchronous
+     * handler the response is written before this method returns, unless the
+     * handler overran its deadline and the timeout response is written by another
+     * thread; with an asynchronous one it is written by the thread that completes the
+     * handler's future. The connection must stay open until the returned future completes.
+     * A client too slow to send its request is cut off by closing the input stream, so
+     * closing it must not block.
+     *
+     * @param inputStream  the input stream of the connection
+     * @param outputStream the output stream of the connection
+     * @param channel      the channel of the connection used for zero-copy bodies, or null if it has none
+     * @param upgrade      offered each parsed request; returns true if it took over the connection
+     *                     and answered the request itself. May be null.
+     * @return a future completed once the response is written, or completed exceptionally with an
+     * {@link UncheckedIOException} if writing it failed
+     * @throws IOException if an I/O error occurs while writing a response on the calling thread
+     */
+    public CompletableFuture<Void> processAsync(InputStream inputStream, OutputStream outputStream, WritableByteChannel channel,
+                                               Upgrade upgrade) throws IOException {
+        return processAsync(inputStream, outputStream, channel, upgrade, inputStream);
+    }
+
+    /**
+     * Reads one request from the connection and starts answering it, as
+     * {@link #processAsync(InputStream, OutputStream, WritableByteChannel, Upgrade)} does,
+     * cutting off a client too slow to send its request by closing the given transport.
+     * The timers that close it run on the shared {@link TimingWheel}, so closing it must
+     * not block: over TLS, where closing the streams sends close_notify, it is the socket.
+     *
+     * @param inputStream  the input stream of the connection
+     * @param outputStream the output stream of the connection
+     * @param channel      the channel of the connection used for zero-copy bodies, or null if it has none
+     * @param upgrade      offered each parsed request; returns true if it took over the connection
+     *                     and answered the request itself. May be null.
+     * @param transport    closed, without blocking, to disconnect a slow client
+     * @return a future completed once the response is written, or completed exceptionally with an
+     * {@link UncheckedIOException} if writing it failed
+     * @throws IOException if an I/O error occurs while writing a response on the calling thread
+     */
+    public CompletableFuture<Void> processAsync(InputStream inputStream, OutputStream outputStream, WritableByteChannel channel,
+                                               Upgrade upgrade, Closeable transport) throws IOException {
+        HttpRequest httpRequest;
+        TimingWheel.Timeout headerTimeout = TimingWheel.shared().schedule(() -> closeQuietly(transport),
+                headerTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            httpRequest = httpParser.parseHttpRequest(inputStream);
+        } catch (HttpParsingException e) {
+            if (headerTimeout.isExpired()) {
+                LOGGER.debug("Request head not received within {} ms, connection closed", headerTimeoutMillis);
+                return DONE;
+            }
+            LOGGER.warn("Failed to parse request: {}", e.getMessage());
+            HttpResponse httpResponse = respond(e);
+            httpResponse.addHeader("Connection", "close");
+            httpResponse.writeTo(outputStream, channel);
+            return DONE;
+        } finally {
+            headerTimeout.cancel();
+        }
+        LOGGER.debug("Received request: {}", httpRequest);
+        httpRequest.wrapBodySource(source -> new TimedInputStream(source, headerTimeoutMillis, transport));
+
+        if (upgrade != null && upgrade.upgrade(httpRequest)) {
+            return DONE;
+        }
+        CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+        // Attached before the handler runs, so a timeout response is written as soon as it is made.
+        CompletableFuture<Void> written = response.thenAccept(httpResponse -> {
+            if (httpRequest.getUnreadBodyLength() > MAX_DISCARDED_BODY_SIZE) {
+                httpResponse.addHeader("Connection", "close");
+            }
+            try {
+                httpResponse.writeTo(outputStream, channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            discardUnreadBody(httpRequest, transport);
+        });
+        answer(httpRequest, response);
+        return written;
+    }
+
+    /**
+     * Produces the response to a request, with the middlewares applied. Used directly
+     * by transports that read requests themselves, such as HTTP/2 streams.
+     *
+     * @param httpRequest the request
+     * @return the response, without a body for HEAD requests
+     */
+    public HttpResponse respond(HttpRequest httpRequest) {
+        return respondAsync(httpRequest).join();
+    }
+
+    /**
+     * Produces the response to a request without waiting for an asynchronous handler.
+     *
+     * @param httpRequest the request
+     * @return a future completed with the response, without a body for HEAD requests
+     */
+    public CompletableFuture<HttpResponse> respondAsync(HttpRequest httpRequest) {
+        CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+        answer(httpRequest, response);
+        return response;
+    }
+
+    /**
+     * Returns whether the handler is asynchronous.
+     *
+     * @return true if responses are produced by an {@link AsyncHandler}
+     */
+    public boolean isAsync() {
+        return asyncHandler != null;
+    }
+
+    /**
+     * Produces the error response to a request that could not be read, with the
+     * middlewares applied.
+     *
+     * @param e the parsing failure
+     * @return the response
+     */
+    public HttpResponse respond(HttpParsingException e) {
+        return middlewares.after(null, errorResponse(e.getStatusCode()));
+    }
+
+    /**
+     * Gives a request its deadline and answers it by then. A synchronous handler runs
+     * on the calling thread, so the response is complete when this method returns
+     * unless the deadline passed, in which case the timeout response completes it
+     * from another thread.
+     *
+     * @param httpRequest the parsed request
+     * @param response    completed with the response, without a body for HEAD requests
+     */
+    private void answer(HttpRequest httpRequest, CompletableFuture<HttpResponse> response) {
+        applyDeadline(httpRequest);
+        if (httpRequest.isDeadlineExceeded()) {
+            LOGGER.warn("Deadline passed before the handler started, shedding request: {}", httpRequest);
+            response.complete(deadlineResponse(httpRequest, HttpStatusCode.SERVER_ERROR_503_SERVICE_UNAVAILABLE));
+            return;
+        }
+        if (asyncHandler != null) {
+            middlewares.handleAsync(httpRequest, guardedAsyncHandler).whenComplete((httpResponse, failure) -> {
+                if (failure != null) {
+                    response.completeExceptionally(failure);
+                } else {
+                    response.complete(finish(httpRequest, httpResponse));
+                }
+            });
+            return;
+        }
+
+        Watchdog watchdog = Watchdog.start(httpRequest, Thread.currentThread(), () -> {
+            if (response.complete(deadlineResponse(httpRequest, HttpStatusCode.SERVER_ERROR_504_GATEWAY_TIMEOUT))) {
+                LOGGER.warn("Handler did not respond by the deadline, interrupted request: {}", httpRequest);
+            }
+        });
+        HttpResponse httpResponse;
+        boolean inTime;
+        try {
+            httpResponse = middlewares.handle(httpRequest, guardedHandler);
+        } finally {
+            inTime = watchdog.finish();
+            if (!inTime) {
+                // The request has been answered for; the interrupt meant for the handler must not outlive it.
+                Thread.interrupted();
+            }
+        }
+        if (inTime) {
+            response.complete(finish(httpRequest, httpResponse));
+        }
+    }
+
+    /**
+     * Sets the server-wide timeout on a request, and the client's if it sent one.
+     * Client timeouts that are not a number of milliseconds are ignored.
+     *
+     * @param httpRequest the parsed request
+     */
+    private void applyDeadline(HttpRequest httpRequest) {
+        if (timeout != null) {
+            httpRequest.setTimeout(timeout);
+        }
+        String clientTimeout = clientTimeoutHeader == null ? null : httpRequest.getHeader(clientTimeoutHeader);
+        if (clientTimeout != null) {
+            try {
+                long millis = Long.parseLong(clientTimeout.trim());
+                if (millis >= 0) {
+                    httpRequest.setClientTimeout(Duration.ofMillis(millis));
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the log below.
+            }
+            LOGGER.debug("Ignoring invalid {} header: {}", clientTimeoutHeader, clientTimeout);
+        }
+    }
+
+    /**
+     * Builds the response to a request that ran out of time, with the middlewares applied.
+     *
+     * @param httpRequest the request
+     * @param statusCode  503 if the handler never started, 504 if it overran
+     * @return the response
+     */
+    private HttpResponse deadlineResponse(HttpRequest httpRequest, HttpStatusCode statusCode) {
+        HttpResponse httpResponse = errorResponse(statusCode);
+        httpResponse.addHeader("Connection", "close");
+        return finish(httpRequest, middlewares.after(httpRequest, httpResponse));
+    }
+
+    /**
+     * Invokes the handler, turning failures into error responses.
+     *
+     * @param httpRequest the parsed request
+     * @return the response
+     */
+    private HttpResponse handle(HttpRequest httpRequest) {
+        try {
+            return handler.handle(httpRequest);
+        } catch (HttpParsingException e) {
+            return errorResponse(e.getStatusCode());
+        } catch (RuntimeException e) {
+            LOGGER.error("Handler failed for request: {}", httpRequest, e);
+            return errorResponse(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Invokes the asynchronous handler, bounding it by the request's deadline and
+     * turning failures into error responses. A handler that overruns has its future
+     * cancelled and is answered with 504 Gateway Timeout. The returned future never
+     * completes exceptionally.
+     *
+     * @param httpRequest the parsed request
+     * @return a future completed with the response
+     */
+    private CompletableFuture<HttpResponse> handleAsync(HttpRequest httpRequest) {
+        CompletableFuture<HttpResponse> pending;
+        try {
+            pending = asyncHandler.handle(httpRequest);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(failureResponse(httpRequest, e));
+        }
+        if (pending == null) {
+            LOGGER.error("Handler returned no future for request: {}", httpRequest);
+            return CompletableFuture.completedFuture(errorResponse(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR));
+        }
+
+        Watchdog watchdog = Watchdog.start(httpRequest, null, () -> {
+            if (pending.cancel(true)) {
+                LOGGER.warn("Handler did not respond by the deadline, cancelled request: {}", httpRequest);
+            }
+        });
+        return pending.handle((httpResponse, failure) -> {
+            boolean timedOut = !watchdog.finish();
+            if (failure == null) {
+                return httpResponse;
+            }
+            return timedOut ? errorResponse(HttpStatusCode.SERVER_ERROR_504_GATEWAY_TIMEOUT) : failureResponse(httpRequest, failure);
+        });
+    }
+
+    /**
+     * Builds the error response for a handler failure.
+     *
+     * @param httpRequest the request the handler failed to answer
+     * @param failure     the exception the handler threw or completed its future with
+     * @return the response
+     */
+    private static HttpResponse failureResponse(HttpRequest httpRequest, Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof HttpParsingException) {
+            return errorResponse(((HttpParsingException) failure).getStatusCode());
+        }
+        if (failure instanceof CancellationException) {
+            LOGGER.debug("Handler cancelled request: {}", httpRequest);
+            return errorResponse(HttpStatusCode.SERVER_ERROR_503_SERVICE_UNAVAILABLE);
+        }
+        LOGGER.error("Handler failed for request: {}", httpRequest, failure);
+        return errorResponse(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Completes a response: defaults its HTTP version and drops the body of
+     * responses to HEAD requests.
+     *
+     * @param httpRequest  the request
+     * @param httpResponse the response
+     * @return the response
+     */
+    private static HttpResponse finish(HttpRequest httpRequest, HttpResponse httpResponse) {
+        if (httpResponse.getHttpVersion() == null) {
+            httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        }
+
+        if (httpRequest.getMethod() == HttpMethod.HEAD) {
+            // Keep Content-Length and the other headers, but never send a body for HEAD.
+            httpResponse.setBody((String) null);
+        }
+        return httpResponse;
+    }
+
+    private static Duration validTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Asynchronous handler timeout must be positive: " + timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Reads and throws away the part of the request body the handler left on the
+     * connection, giving the client the head timeout to send it.
+     *
+     * @param httpRequest the answered request
+     * @param transport   closed if the client is too slow
+     */
+    private void discardUnreadBody(HttpRequest httpRequest, Closeable transport) {
+        long unread = httpRequest.getUnreadBodyLength();
+        if (unread == 0) {
+            return;
+        }
+        TimingWheel.Timeout timeout = TimingWheel.shared().schedule(() -> closeQuietly(transport),
+                headerTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            if (!httpRequest.discardUnreadBody(MAX_DISCARDED_BODY_SIZE)) {
+                LOGGER.debug("Closing connection with up to {} request body bytes unread", unread);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to discard unread request body: {}", e.getMessage());
+        } finally {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Closes the connection of a client that is too slow to send its request head or
+     * the rest of its body. The thread blocked reading it gets an exception and gives up.
+     * Runs on the ticker of the {@link TimingWheel}.
+     *
+     * @param transport the connection, closed without blocking
+     */
+    static void closeQuietly(Closeable transport) {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close connection after timeout: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds an empty error response.
+     *
+     * @param statusCode the error status
+     * @return the response
+     */
+    private static HttpResponse errorResponse(HttpStatusCode statusCode) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(statusCode);
+        httpResponse.addHeader("Content-Length", "0");
+        return httpResponse;
+    }
+
+    /**
+     * Enforces the deadline of one request. The timer is armed for the deadline the
+     * request has when its handler starts and re-armed whenever the deadline moves,
+     * such as when the router sets a route's timeout; a timer that fires for a
+     * deadline since moved later only re-arms. The wheel's ticker hands the expiry to
+     * a pool of its own, since the timeout response is written to the client by the
+     * thread that completes it and a slow client must not hold up the ticker or a
+     * shared pool such as the common pool.
+     */
+    private static final class Watchdog implements Runnable {
+        private static final AtomicInteger EXPIRY_THREADS = new AtomicInteger();
+        private static final ExecutorService EXPIRY_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "request-timeout-" + EXPIRY_THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final HttpRequest httpRequest;
+        private final Thread worker;
+        private final Runnable onExpiry;
+        private TimingWheel.Timeout timer;
+        private boolean expired;
+        private boolean finished;
+
+        private Watchdog(HttpRequest httpRequest, Thread worker, Runnable onExpiry) {
+            this.httpRequest = httpRequest;
+            this.worker = worker;
+            this.onExpiry = onExpiry;
+        }
+
+        /**
+         * Starts watching a request.
+         *
+         * @param httpRequest the request
+         * @param worker      the thread running a synchronous handler, interrupted once the request
+         *                    has been answered for on expiry, or null
+         * @param onExpiry    answers the request once the deadline has passed
+         * @return the watchdog, to be finished when the handler has answered
+         */
+        private static Watchdog start(HttpRequest httpRequest, Thread worker, Runnable onExpiry) {
+            Watchdog watchdog = new Watchdog(httpRequest, worker, onExpiry);
+            httpRequest.setDeadlineListener(watchdog::arm);
+            watchdog.arm();
+            return watchdog;
+        }
+
+        private synchronized void arm() {
+            if (expired || finished) {
+                return;
+            }
+            if (timer != null) {
+                timer.cancel();
+            }
+            long remaining = httpRequest.getRemainingNanos();
+            timer = remaining == Long.MAX_VALUE ? null : TimingWheel.shared().schedule(this, remaining, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (expired || finished) {
+                    return;
+                }
+                if (!httpRequest.isDeadlineExceeded()) {
+                    arm();
+                    return;
+                }
+                expired = true;
+            }
+            EXPIRY_EXECUTOR.execute(this::expire);
+        }
+
+        /**
+         * Answers the request, then interrupts the handler. The response goes first:
+         * interrupting a thread blocked reading the connection closes the channel, and
+         * the client would get a reset instead of the timeout response.
+         */
+        private void expire() {
+            try {
+                onExpiry.run();
+            } finally {
+                synchronized (this) {
+                    if (worker != null && !finished) {
+                        worker.interrupt();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stops watching once the handler has answered.
+         *
+         * @return true if the handler answered before the deadline
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            if (timer != null) {
+                timer.cancel();
+            }
+            return !expired;
+        }
+    }
+
+    /**
+     * Takes over a connection whose request asks to switch protocols, such as an
+     * HTTP/2 upgrade.
+     */
+    @FunctionalInterface
+    public interface Upgrade {
+
+        /**
+         * Switches the connection to another protocol if the request asks for it.
+         *
+         * @param httpRequest the parsed request
+         * @return true if the connection was taken over and the request answered
+         * @throws IOException if an I/O error occurs on the connection
+         */
+        boolean upgrade(HttpRequest httpRequest) throws IOException;
+    }
+}
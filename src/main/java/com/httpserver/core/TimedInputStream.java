@@ -0,0 +1,95 @@
+package com.httpserver.core;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every read from a connection a time limit on the shared {@link TimingWheel}.
+ * A read still blocked when its timer fires has the connection closed under it, which
+ * makes it fail, and is reported as a {@link SocketTimeoutException}. The timer closes
+ * the transport given, such as the socket under a TLS stream, since closing the stream
+ * itself could block the wheel's ticker. The connection is closed for good, so a
+ * client that stops sending part way cannot hold the reading thread for longer than
+ * the limit.
+ */
+final class TimedInputStream extends FilterInputStream {
+    private final long timeoutMillis;
+    private final Closeable transport;
+
+    /**
+     * Constructs a TimedInputStream.
+     *
+     * @param in            the connection input
+     * @param timeoutMillis the time, in milliseconds, each read may wait for data
+     * @param transport     closed, without blocking, when a read runs out of time
+     */
+    TimedInputStream(InputStream in, long timeoutMillis, Closeable transport) {
+        super(in);
+        this.timeoutMillis = timeoutMillis;
+        this.transport = transport;
+    }
+
+    @Override
+    public int read() throws IOException {
+        TimingWheel.Timeout timeout = arm();
+        try {
+            return ended(timeout, in.read());
+        } catch (IOException e) {
+            throw timedOut(timeout, e);
+        } finally {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        TimingWheel.Timeout timeout = arm();
+        try {
+            return ended(timeout, in.read(b, off, len));
+        } catch (IOException e) {
+            throw timedOut(timeout, e);
+        } finally {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        TimingWheel.Timeout timeout = arm();
+        try {
+            return in.skip(n);
+        } catch (IOException e) {
+            throw timedOut(timeout, e);
+        } finally {
+            timeout.cancel();
+        }
+    }
+
+    private TimingWheel.Timeout arm() {
+        return TimingWheel.shared().schedule(() -> RequestProcessor.closeQuietly(transport), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Passes the result of a read through, unless the stream was closed by its timer
+     * and the read ran into the end of it.
+     */
+    private int ended(TimingWheel.Timeout timeout, int result) throws SocketTimeoutException {
+        if (result < 0 && timeout.isExpired()) {
+            throw new SocketTimeoutException("No data received within " + timeoutMillis + " ms");
+        }
+        return result;
+    }
+
+    private IOException timedOut(TimingWheel.Timeout timeout, IOException e) {
+        if (!timeout.isExpired() || e instanceof SocketTimeoutException) {
+            return e;
+        }
+        SocketTimeoutException timedOut = new SocketTimeoutException("No data received within " + timeoutMillis + " ms");
+        timedOut.initCause(e);
+        return timedOut;
+    }
+}
@@ -0,0 +1,382 @@
+package com.httpserver.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules timeouts in a hierarchical hashed timing wheel, for timers that are
+ * almost always cancelled before they fire, such as request deadlines and idle
+ * timeouts. Scheduling and cancelling take constant time whatever the number of
+ * pending timeouts, where a {@link java.util.concurrent.ScheduledThreadPoolExecutor}
+ * pays a heap operation under a lock for each, and one ticker thread serves them all.
+ * <p>
+ * Time advances in ticks. Each of the {@link #LEVELS} wheels has the same number of
+ * slots; a slot of the first wheel holds the timeouts expiring in one tick, and a slot
+ * of each further wheel spans a whole rotation of the wheel below it. A timeout is
+ * placed in the lowest wheel whose rotation reaches its expiry and, when the wheel
+ * below completes a rotation, is moved down into the slot it now falls in, until it
+ * expires from the first wheel. Timeouts further away than the top wheel reaches wait
+ * in its last slot and are placed again on each rotation. Timeouts fire on the tick
+ * after their delay has passed, never before it, and at most one tick late while the
+ * ticker keeps up.
+ * </p>
+ * <p>
+ * New and cancelled timeouts are handed to the ticker through lock-free queues, so
+ * the threads that schedule and cancel never wait for each other or for the ticker.
+ * Tasks run on the ticker thread and must be short; anything that blocks or writes
+ * to a connection should be handed to another executor.
+ * </p>
+ */
+public final class TimingWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    /**
+     * Fine enough for timeouts of tens of milliseconds and up, coarse enough that the ticker is mostly asleep.
+     */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+
+    /**
+     * Slots per wheel; four wheels of 256 cover 2^32 ticks, over a year at the default tick.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 256;
+
+    /**
+     * Number of wheels in the hierarchy.
+     */
+    static final int LEVELS = 4;
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final long range;
+    private final Bucket[][] wheels;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread ticker;
+    private final long startNanos;
+    private volatile boolean stopped;
+
+    /**
+     * The tick the ticker processes next; only read and written by the ticker.
+     */
+    private long currentTick;
+
+    /**
+     * Constructs a TimingWheel with the default tick and wheel size and starts its ticker.
+     *
+     * @param name the name of the ticker thread
+     */
+    public TimingWheel(String name) {
+        this(name, DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Constructs a TimingWheel and starts its ticker.
+     *
+     * @param name      the name of the ticker thread
+     * @param tick      the resolution of the wheel
+     * @param wheelSize the number of slots per wheel, a power of two
+     * @throws IllegalArgumentException if the tick is not positive or the wheel size not a power of two
+     */
+    public TimingWheel(String name, Duration tick, int wheelSize) {
+        if (tick == null || tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("Timing wheel tick must be positive: " + tick);
+        }
+        if (wheelSize < 2 || wheelSize > 1 << 16 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Timing wheel size must be a power of two between 2 and 65536: " + wheelSize);
+        }
+        this.name = Objects.requireNonNull(name, "name");
+        this.tickNanos = tick.toNanos();
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.range = 1L << (bits * LEVELS);
+        this.wheels = new Bucket[LEVELS][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::run, name);
+        ticker.setDaemon(true);
+        ticker.start();
+        LOGGER.debug("Timing wheel {} started with a tick of {} and {} slots per wheel", name, tick, wheelSize);
+    }
+
+    /**
+     * Returns the wheel shared by the server's timeouts: request deadlines, request
+     * head deadlines and idle connections.
+     *
+     * @return the shared wheel
+     */
+    public static TimingWheel shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Schedules a task to run once the delay has passed.
+     *
+     * @param task  the task, run on the ticker thread
+     * @param delay the time to wait; zero or negative runs the task on the next tick
+     * @param unit  the unit of the delay
+     * @return the timeout, to cancel the task
+     * @throws IllegalStateException if the wheel has been stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        if (stopped) {
+            throw new IllegalStateException("Timing wheel " + name + " has been stopped");
+        }
+        long now = System.nanoTime();
+        long delayNanos = Math.min(Math.max(0, unit.toNanos(delay)), Long.MAX_VALUE / 2);
+        // Rounded up, so the task never runs before its delay has passed.
+        long deadlineTick = (now - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of timeouts scheduled that have neither fired nor been cancelled.
+     *
+     * @return the pending timeouts
+     */
+    public int pendingTimeouts() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the ticker. Pending timeouts never fire.
+     */
+    public void stop() {
+        stopped = true;
+        ticker.interrupt();
+        LOGGER.debug("Timing wheel {} stopped with {} pending timeouts", name, pending.get());
+    }
+
+    private void run() {
+        while (!stopped) {
+            long wait = startNanos + currentTick * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            transferAdded();
+            removeCancelled();
+            tick();
+        }
+    }
+
+    /**
+     * Places the timeouts scheduled since the last tick.
+     */
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() == INIT) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * Unlinks the timeouts cancelled since the last tick, so they do not hold on to
+     * their tasks until their slot comes round.
+     */
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Processes the current tick: moves the timeouts of the higher wheels whose slot
+     * starts now down the hierarchy, then fires the first wheel's slot.
+     */
+    private void tick() {
+        long tick = currentTick;
+        for (int level = 1; level < LEVELS && (tick >>> (bits * (level - 1)) & mask) == 0; level++) {
+            Bucket bucket = wheels[level][(int) (tick >>> (bits * level) & mask)];
+            Timeout timeout = bucket.clear();
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                timeout.bucket = null;
+                if (timeout.state.get() == INIT) {
+                    place(timeout);
+                }
+                timeout = next;
+            }
+        }
+
+        Timeout timeout = wheels[0][(int) (tick & mask)].clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            timeout.expire();
+            timeout = next;
+        }
+        currentTick = tick + 1;
+    }
+
+    /**
+     * Puts a timeout in the lowest wheel whose rotation reaches its expiry, counted
+     * from the tick being processed. Timeouts already due go in the current slot.
+     */
+    private void place(Timeout timeout) {
+        long tick = currentTick;
+        long expiry = Math.max(timeout.deadlineTick, tick);
+        long delta = expiry - tick;
+        if (delta >= range) {
+            expiry = tick + range - 1;
+            delta = range - 1;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        wheels[level][(int) (expiry >>> (bits * level) & mask)].add(timeout);
+    }
+
+    /**
+     * A scheduled task, which can be cancelled until it runs.
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+
+        // Only touched by the ticker.
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the task unless it has already run.
+         *
+         * @return true if the task was cancelled and will not run, false if it has
+         * already run, is running or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Returns whether the task has been handed to the ticker to run.
+         *
+         * @return true if the timeout fired
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        /**
+         * Returns whether the timeout was cancelled before it fired.
+         *
+         * @return true if the timeout was cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            wheel.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                LOGGER.error("Timeout task failed on timing wheel {}", wheel.name, e);
+            }
+        }
+    }
+
+    /**
+     * The timeouts of one slot, in a doubly linked list so cancelled ones are
+     * unlinked in constant time.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Empties the slot.
+         *
+         * @return the first timeout of the detached list, or null
+         */
+        private Timeout clear() {
+            Timeout first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    /**
+     * Holds the shared wheel, created when first used.
+     */
+    private static final class Shared {
+        private static final TimingWheel INSTANCE = new TimingWheel("timing-wheel");
+    }
+}
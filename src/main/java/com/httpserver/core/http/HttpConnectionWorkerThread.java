@@ -1,94 +1,276 @@
 package com.httpserver.core.http;
 
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.TimingWheel;
+import com.httpserver.http.HttpRequest;
 import com.httpserver.http.HttpResponse;
 import com.httpserver.http.HttpStatusCode;
 import com.httpserver.http.HttpVersion;
-import com.httpserver.middleware.Middleware;
-import com.httpserver.middleware.SecurityHeadersMiddleware;
+import com.httpserver.http2.Http2Connection;
+import com.httpserver.http2.Http2Exception;
+import com.httpserver.http2.Http2Settings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.InetAddress;
+import java.io.SequenceInputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a worker thread for handling HTTP connections. This class extends
  * Thread to manage communication between the server and a client over a given
  * socket, and it is responsible for handling the HTTP request and providing an
- * appropriate response, such as redirecting the client from HTTP to HTTPS.
+ * appropriate response, such as redirecting the client from HTTP to HTTPS with an
+ * {@link HttpsRedirector}, or serving it through a {@link RequestProcessor} when
+ * plain HTTP is enabled.
  */
 public class HttpConnectionWorkerThread extends Thread {
     private final static Logger LOGGER = LoggerFactory.getLogger(HttpConnectionWorkerThread.class);
 
     private final Socket socket;
+    private final RequestProcessor requestProcessor;
+    private final Http2Configuration http2Config;
+    private final HttpsRedirector redirector;
+    private final byte[] received;
 
     /**
-     * Constructs an HttpConnectionWorkerThread with the specified socket.
+     * Constructs an HttpConnectionWorkerThread with the specified socket that
+     * redirects the client to HTTPS on the default port.
      *
      * @param socket the socket connected to the client
      */
     public HttpConnectionWorkerThread(Socket socket) {
+        this(socket, new HttpsRedirector(HttpsRedirector.DEFAULT_HTTPS_PORT));
+    }
+
+    /**
+     * Constructs an HttpConnectionWorkerThread with the specified socket that
+     * redirects the client to HTTPS with the given redirector.
+     *
+     * @param socket     the socket connected to the client
+     * @param redirector builds the redirects
+     */
+    public HttpConnectionWorkerThread(Socket socket, HttpsRedirector redirector) {
+        this(socket, new byte[0], null, null, redirector);
+    }
+
+    /**
+     * Constructs an HttpConnectionWorkerThread that redirects the client to HTTPS,
+     * for a connection whose first bytes were already read, such as one accepted on a
+     * port shared with HTTPS.
+     *
+     * @param socket     the socket connected to the client
+     * @param received   the bytes already read from the socket
+     * @param redirector builds the redirects
+     */
+    public HttpConnectionWorkerThread(Socket socket, byte[] received, HttpsRedirector redirector) {
+        this(socket, received, null, null, redirector);
+    }
+
+    /**
+     * Constructs an HttpConnectionWorkerThread with the specified socket that
+     * answers requests with the given processor.
+     *
+     * @param socket           the socket connected to the client
+     * @param requestProcessor answers the request
+     */
+    public HttpConnectionWorkerThread(Socket socket, RequestProcessor requestProcessor) {
+        this(socket, requestProcessor, null);
+    }
+
+    /**
+     * Constructs an HttpConnectionWorkerThread with the specified socket that
+     * answers requests with the given processor, over HTTP/2 if the client sends the
+     * HTTP/2 preface or asks for an h2c upgrade.
+     *
+     * @param socket           the socket connected to the client
+     * @param requestProcessor answers the request
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     */
+    public HttpConnectionWorkerThread(Socket socket, RequestProcessor requestProcessor, Http2Configuration http2Config) {
+        this(socket, new byte[0], requestProcessor, http2Config, null);
+    }
+
+    /**
+     * Constructs an HttpConnectionWorkerThread that answers requests with the given
+     * processor, for a connection whose first bytes were already read, such as one
+     * accepted on a port shared with HTTPS.
+     *
+     * @param socket           the socket connected to the client
+     * @param received         the bytes already read from the socket
+     * @param requestProcessor answers the request
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     */
+    public HttpConnectionWorkerThread(Socket socket, byte[] received, RequestProcessor requestProcessor,
+                                      Http2Configuration http2Config) {
+        this(socket, received, requestProcessor, http2Config, null);
+    }
+
+    private HttpConnectionWorkerThread(Socket socket, byte[] received, RequestProcessor requestProcessor,
+                                       Http2Configuration http2Config, HttpsRedirector redirector) {
         this.socket = socket;
+        this.received = received;
+        this.requestProcessor = requestProcessor;
+        this.http2Config = http2Config;
+        this.redirector = redirector;
         LOGGER.debug("HttpConnectionWorkerThread created for socket: {}", socket);
     }
 
     /**
-     * Runs the worker thread, handling the incoming HTTP request and sending a
-     * redirection response to the client.
-     * <p>
-     * The worker thread constructs an HTTP redirection response (301 Moved Permanently)
-     * to redirect the client to the HTTPS version of the server. The response includes
-     * the server's IP address and the default HTTPS port (8043). Additionally, security
-     * headers are applied to the response through the use of middleware, enhancing the
-     * security of the connection. It logs the successful completion of the connection
-     * and handles any IOExceptions that may occur during communication.
-     * </p>
-     *
-     * @throws IOException if an I/O error occurs while writing to the socket
+     * Runs the worker thread, answering the client's requests with the request
+     * processor, or with redirects (301 Moved Permanently) to the same host and path
+     * over HTTPS when the worker was created with a redirector.
      */
     @Override
     public void run() {
         LOGGER.debug("Handling connection from client: {}", socket.getInetAddress());
 
-        try (OutputStream outputStream = socket.getOutputStream()) {
+        if (redirector != null) {
+            redirector.serve(socket, received);
+        } else {
+            serve();
+        }
+    }
 
-            // Log that output stream have been successfully obtained
-            LOGGER.debug("Output stream obtained for socket: {}", socket);
+    /**
+     * Answers the request with the request processor. Bodies backed by files are
+     * transferred straight to the socket channel (sendfile) when the socket has one.
+     * When the processor's handler is asynchronous the thread returns as soon as the
+     * request is handed over, and the socket is closed once the response is written.
+     */
+    private void serve() {
+        CompletableFuture<Void> served;
+        try {
+            InputStream inputStream = received.length == 0 ? socket.getInputStream()
+                    : new SequenceInputStream(new ByteArrayInputStream(received), socket.getInputStream());
+            OutputStream outputStream = socket.getOutputStream();
+            if (http2Config == null) {
+                served = requestProcessor.processAsync(inputStream, outputStream, socket.getChannel(), null);
+            } else {
+                served = serveWithHttp2(new BufferedInputStream(inputStream), outputStream);
+            }
+        } catch (SocketTimeoutException e) {
+            LOGGER.debug("Closing idle connection from client {}: {}", socket.getInetAddress(), e.getMessage());
+            served = CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            served = CompletableFuture.failedFuture(e);
+        }
+        served.whenComplete((ignored, failure) -> close(failure));
+    }
 
-            final int httpsPort = 8043;
+    private CompletableFuture<Void> serveWithHttp2(BufferedInputStream inputStream, OutputStream outputStream) throws IOException {
+        if (startsWithPreface(inputStream)) {
+            LOGGER.debug("HTTP/2 with prior knowledge from client: {}", socket.getInetAddress());
+            new Http2Connection(inputStream, outputStream, requestProcessor, http2Config).serve();
+            return CompletableFuture.completedFuture(null);
+        }
+        return requestProcessor.processAsync(inputStream, outputStream, socket.getChannel(),
+                httpRequest -> upgradeToHttp2(httpRequest, inputStream, outputStream));
+    }
 
-            HttpResponse httpResponse = new HttpResponse();
+    /**
+     * Checks whether the client sends the HTTP/2 preface, closing the socket if it
+     * sends nothing within the HTTP/2 idle timeout.
+     *
+     * @return true if the connection starts with the preface
+     * @throws SocketTimeoutException if the idle timeout closed the connection
+     * @throws IOException            if reading fails
+     */
+    private boolean startsWithPreface(BufferedInputStream inputStream) throws IOException {
+        TimingWheel.Timeout idle = TimingWheel.shared().schedule(this::closeIdle,
+                http2Config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+        try {
+            return Http2Connection.startsWithPreface(inputStream);
+        } catch (IOException e) {
+            if (idle.isExpired()) {
+                throw new SocketTimeoutException("Nothing received within " + http2Config.getIdleTimeoutMillis() + " ms");
+            }
+            throw e;
+        } finally {
+            idle.cancel();
+        }
+    }
 
-            httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
-            httpResponse.setStatusCode(HttpStatusCode.REDIRECTION_301_MOVED_PERMANENTLY);
+    private void closeIdle() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close idle connection: {}", e.getMessage());
+        }
+    }
 
-            String redirectLocation = "https://" + InetAddress.getLocalHost().getHostAddress() + ":" + httpsPort + "/";
-            httpResponse.addHeader("Location", redirectLocation);
+    /**
+     * Closes the socket once the connection has been served, which also closes its streams.
+     *
+     * @param failure the exception that ended the connection, or null if it completed
+     */
+    private void close(Throwable failure) {
+        if (failure == null) {
+            LOGGER.info("Connection completed with client: {}", socket.getInetAddress());
+        } else {
+            LOGGER.error("Error occurred while handling connection with client: {}", socket.getInetAddress(),
+                    failure instanceof CompletionException ? failure.getCause() : failure);
+        }
+        try {
+            socket.close();
+            LOGGER.debug("Socket closed for client: {}", socket.getInetAddress());
+        } catch (IOException e) {
+            LOGGER.error("Failed to close socket for client: {}", socket.getInetAddress(), e);
+        }
+    }
 
-            Middleware middleware = new SecurityHeadersMiddleware();
-            middleware.apply(httpResponse);
+    /**
+     * Switches the connection to HTTP/2 if the request carries "Upgrade: h2c" and a
+     * valid HTTP2-Settings header (RFC 7540, Section 3.2). The request is then answered
+     * on stream 1.
+     *
+     * @return true if the connection was switched
+     */
+    private boolean upgradeToHttp2(HttpRequest httpRequest, InputStream inputStream, OutputStream outputStream) throws IOException {
+        String upgrade = httpRequest.getHeader("Upgrade");
+        String settings = httpRequest.getHeader("HTTP2-Settings");
+        if (upgrade == null || settings == null || !hasToken(upgrade, "h2c")) {
+            return false;
+        }
+        byte[] clientSettings;
+        try {
+            clientSettings = Http2Settings.decodeUpgradeHeader(settings);
+        } catch (Http2Exception e) {
+            LOGGER.debug("Ignoring h2c upgrade with invalid settings: {}", e.getMessage());
+            return false;
+        }
 
-            httpResponse.addHeader("Connection", "close");
+        // The request body precedes the client's HTTP/2 frames on the connection.
+        httpRequest.getBody();
 
-            // Build the HTTP response
-            String response = httpResponse.buildResponse();
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(HttpStatusCode.INFORMATIONAL_101_SWITCHING_PROTOCOLS);
+        httpResponse.addHeader("Connection", "Upgrade");
+        httpResponse.addHeader("Upgrade", "h2c");
+        outputStream.write(httpResponse.buildHead());
+        outputStream.flush();
 
-            // Sending the response to the client
-            outputStream.write(response.getBytes());
+        LOGGER.debug("Upgraded to HTTP/2 for client: {}", socket.getInetAddress());
+        new Http2Connection(inputStream, outputStream, requestProcessor, http2Config).serveUpgrade(httpRequest, clientSettings);
+        return true;
+    }
 
-            LOGGER.debug("Sent response to client: {}", socket.getInetAddress());
-            LOGGER.info("Connection completed with client: {}", socket.getInetAddress());
-        } catch (IOException e) {
-            LOGGER.error("IOException occurred while handling connection with client: {}", socket.getInetAddress(), e);
-        } finally {
-            try {
-                socket.close();
-                LOGGER.debug("Socket closed for client: {}", socket.getInetAddress());
-            } catch (IOException e) {
-                LOGGER.error("Failed to close socket for client: {}", socket.getInetAddress(), e);
+    private static boolean hasToken(String header, String token) {
+        for (String value : header.split(",")) {
+            if (value.trim().equalsIgnoreCase(token)) {
+                return true;
             }
         }
+        return false;
     }
 }
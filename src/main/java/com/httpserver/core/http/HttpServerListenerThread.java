@@ -1,11 +1,18 @@
 package com.httpserver.core.http;
 
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.core.RequestProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a server listener thread that accepts incoming HTTP connections.
@@ -18,9 +25,13 @@ public class HttpServerListenerThread extends Thread {
     private final int port;
     private final ServerSocket serverSocket;
     private final String webroot;
+    private final RequestProcessor requestProcessor;
+    private final Http2Configuration http2Config;
+    private final HttpsRedirector redirector;
 
     /**
-     * Constructs a HttpServerListenerThread with the specified port and web root.
+     * Constructs a HttpServerListenerThread with the specified port and web root
+     * that redirects every request to HTTPS.
      *
      * @param port    the port on which the server will listen for incoming
      *                connections
@@ -28,9 +39,72 @@ public class HttpServerListenerThread extends Thread {
      * @throws IOException if an I/O error occurs when opening the server socket
      */
     public HttpServerListenerThread(int port, String webroot) throws IOException {
+        this(port, webroot, null);
+    }
+
+    /**
+     * Constructs a HttpServerListenerThread with the specified port and web root.
+     * <p>
+     * The server socket is opened through a {@link ServerSocketChannel}, so accepted
+     * sockets have a channel that file bodies can be transferred to without copying.
+     * </p>
+     *
+     * @param port             the port on which the server will listen for incoming
+     *                         connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers requests over plain HTTP, or null to redirect
+     *                         every request to HTTPS
+     * @throws IOException if an I/O error occurs when opening the server socket
+     */
+    public HttpServerListenerThread(int port, String webroot, RequestProcessor requestProcessor) throws IOException {
+        this(port, webroot, requestProcessor, null);
+    }
+
+    /**
+     * Constructs a HttpServerListenerThread with the specified port, web root and
+     * HTTP/2 settings. When HTTP/2 is enabled and requests are answered over plain
+     * HTTP, clients may use it with prior knowledge or an h2c upgrade.
+     *
+     * @param port             the port on which the server will listen for incoming
+     *                         connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers requests over plain HTTP, or null to redirect
+     *                         every request to HTTPS
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     * @throws IOException if an I/O error occurs when opening the server socket
+     */
+    public HttpServerListenerThread(int port, String webroot, RequestProcessor requestProcessor,
+                                    Http2Configuration http2Config) throws IOException {
+        this(port, webroot, requestProcessor, http2Config, HttpsRedirector.DEFAULT_HTTPS_PORT);
+    }
+
+    /**
+     * Constructs a HttpServerListenerThread with the specified port, web root,
+     * HTTP/2 settings and the HTTPS port that redirects point to.
+     * <p>
+     * In redirect mode connections are answered by one shared {@link HttpsRedirector}
+     * on a pool of reusable threads, instead of a new worker thread per connection.
+     * </p>
+     *
+     * @param port             the port on which the server will listen for incoming
+     *                         connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers requests over plain HTTP, or null to redirect
+     *                         every request to HTTPS
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     * @param httpsPort        the port of the HTTPS listener, used in redirects
+     * @throws IOException if an I/O error occurs when opening the server socket
+     */
+    public HttpServerListenerThread(int port, String webroot, RequestProcessor requestProcessor,
+                                    Http2Configuration http2Config, int httpsPort) throws IOException {
         this.port = port;
         this.webroot = webroot;
-        this.serverSocket = new ServerSocket(this.port);
+        this.requestProcessor = requestProcessor;
+        this.http2Config = http2Config != null && http2Config.isEnabled() ? http2Config : null;
+        this.redirector = requestProcessor == null ? new HttpsRedirector(httpsPort) : null;
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(this.port));
+        this.serverSocket = serverSocketChannel.socket();
         LOGGER.debug("HTTP - Server initialized on port: {} with webroot: {}", this.port, this.webroot);
     }
 
@@ -52,13 +126,24 @@ public class HttpServerListenerThread extends Thread {
         return webroot;
     }
 
+    /**
+     * Returns the redirector answering connections, or null if requests are served
+     * over plain HTTP.
+     *
+     * @return the redirector
+     */
+    public HttpsRedirector getRedirector() {
+        return redirector;
+    }
+
     /**
      * Runs the server listener thread, accepting incoming connections and spawning
      * worker threads to handle them.
      * <p>
      * This method loops indefinitely until the server socket is closed, accepting
      * client connections and creating an instance of
-     * {@link HttpConnectionWorkerThread} for each accepted socket connection. It
+     * {@link HttpConnectionWorkerThread} for each accepted socket connection, or
+     * handing it to the {@link HttpsRedirector} in redirect mode. It
      * logs connection information, including the port and the client's IP address,
      * and handles any IOExceptions that may occur during socket operations.
      * </p>
@@ -67,6 +152,12 @@ public class HttpServerListenerThread extends Thread {
      */
     @Override
     public void run() {
+        AtomicInteger redirectThreads = new AtomicInteger();
+        ExecutorService redirectExecutor = redirector != null ? Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "https-redirect-" + redirectThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
         try {
             while (serverSocket.isBound() && !serverSocket.isClosed()) {
                 LOGGER.debug("Waiting for a new connection...");
@@ -75,13 +166,19 @@ public class HttpServerListenerThread extends Thread {
                 LOGGER.info("* Connection accepted on port {}", this.port);
                 LOGGER.info("* Connection accepted from IP: {}", socket.getInetAddress());
 
-                HttpConnectionWorkerThread workerThread = new HttpConnectionWorkerThread(socket);
-                workerThread.start();
+                if (redirectExecutor != null) {
+                    redirectExecutor.execute(() -> redirector.serve(socket));
+                } else {
+                    new HttpConnectionWorkerThread(socket, requestProcessor, http2Config).start();
+                }
             }
         } catch (IOException e) {
             LOGGER.error("Problem with setting socket: {}", e.getMessage());
             LOGGER.debug("Full stack trace:", e); // Log the stack trace for debugging
         } finally {
+            if (redirectExecutor != null) {
+                redirectExecutor.shutdown();
+            }
             try {
                 serverSocket.close();
                 LOGGER.debug("Server socket closed successfully.");
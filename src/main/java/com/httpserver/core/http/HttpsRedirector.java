@@ -0,0 +1,515 @@
+package com.httpserver.core.http;
+
+import com.httpserver.core.TimingWheel;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.SecurityHeadersMiddleware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.InetAddress;
+import java.net.Inet6Address;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers plain HTTP requests with a redirect to the same host and path over HTTPS.
+ * <p>
+ * The response is encoded once, at construction, around the Location header; per
+ * request only the host and path are copied in between. Requests are read byte by
+ * byte up to the end of their headers, keeping just the request target and the
+ * {@code Host} header, and connections are kept alive for further requests until the
+ * client closes them, stays idle or has sent {@link #MAX_KEEP_ALIVE_REQUESTS}.
+ * </p>
+ * <p>
+ * Each request must arrive in full within the idle timeout of the previous response,
+ * or of the connection being opened. The timeout is a {@link TimingWheel} timer that
+ * closes the socket, so a client trickling bytes cannot reset it the way it resets a
+ * per-read socket timeout.
+ * </p>
+ */
+public final class HttpsRedirector {
+    private final static Logger LOGGER = LoggerFactory.getLogger(HttpsRedirector.class);
+
+    /**
+     * The HTTPS port redirects point to when none is configured; matches the shipped http.json.
+     */
+    public static final int DEFAULT_HTTPS_PORT = 8043;
+
+    /**
+     * How long an idle keep-alive connection is kept open; redirects are one round trip, so it is short.
+     */
+    public static final int IDLE_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Requests served on one connection before it is closed, so a client cannot hold a thread forever.
+     */
+    public static final int MAX_KEEP_ALIVE_REQUESTS = 100;
+
+    /**
+     * The longest request or header line accepted; longer lines are answered with 400.
+     */
+    static final int MAX_LINE_LENGTH = 8_192;
+
+    private static final int MAX_HEADERS = 100;
+
+    private final int httpsPort;
+    private final long idleTimeoutMillis;
+    private final byte[] prefix;
+    private final byte[] portSuffix;
+    private final byte[] keepAliveSuffix;
+    private final byte[] closeSuffix;
+    private final byte[] badRequest;
+    private final LongAdder redirects = new LongAdder();
+
+    /**
+     * Creates a redirector that points clients to the given HTTPS port.
+     *
+     * @param httpsPort the port the HTTPS listener accepts on
+     * @throws IllegalArgumentException if the port is out of range
+     */
+    public HttpsRedirector(int httpsPort) {
+        this(httpsPort, IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a redirector with a custom idle timeout.
+     *
+     * @param httpsPort         the port the HTTPS listener accepts on
+     * @param idleTimeoutMillis the time a client has to send each request
+     * @throws IllegalArgumentException if the port is out of range or the timeout not positive
+     */
+    HttpsRedirector(int httpsPort, long idleTimeoutMillis) {
+        if (httpsPort <= 0 || httpsPort > 65_535) {
+            throw new IllegalArgumentException("HTTPS port must be between 1 and 65535: " + httpsPort);
+        }
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeoutMillis);
+        }
+        this.httpsPort = httpsPort;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        byte[] keepAliveHead = redirectHead("keep-alive");
+        int statusLineEnd = indexOfCrlf(keepAliveHead) + 2;
+        this.prefix = concat(Arrays.copyOf(keepAliveHead, statusLineEnd), ascii("Location: https://"));
+        this.portSuffix = httpsPort == 443 ? new byte[0] : ascii(":" + httpsPort);
+        // The suffix ends the Location line and carries the remaining pre-encoded headers.
+        this.keepAliveSuffix = concat(ascii("\r\n"), Arrays.copyOfRange(keepAliveHead, statusLineEnd, keepAliveHead.length));
+        byte[] closeHead = redirectHead("close");
+        this.closeSuffix = concat(ascii("\r\n"), Arrays.copyOfRange(closeHead, indexOfCrlf(closeHead) + 2, closeHead.length));
+
+        HttpResponse badRequestResponse = new HttpResponse();
+        badRequestResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        badRequestResponse.setStatusCode(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        badRequestResponse.addHeader("Content-Length", "0");
+        badRequestResponse.addHeader("Connection", "close");
+        this.badRequest = badRequestResponse.buildHead();
+        LOGGER.debug("HTTPS redirector created for port: {}", httpsPort);
+    }
+
+    /**
+     * Returns the HTTPS port clients are redirected to.
+     *
+     * @return the HTTPS port
+     */
+    public int getHttpsPort() {
+        return httpsPort;
+    }
+
+    /**
+     * Returns the number of redirects sent since the redirector was created.
+     *
+     * @return the redirect count
+     */
+    public long getRedirects() {
+        return redirects.sum();
+    }
+
+    /**
+     * Answers every request on the connection with a redirect, then closes the socket.
+     *
+     * @param socket the socket connected to the client
+     */
+    public void serve(Socket socket) {
+        serve(socket, new byte[0]);
+    }
+
+    /**
+     * Answers every request on the connection with a redirect, then closes the socket.
+     *
+     * @param socket   the socket connected to the client
+     * @param received bytes already read from the socket, such as the ones a shared port
+     *                 peeked at to recognise plain HTTP; they are read before the socket
+     */
+    public void serve(Socket socket, byte[] received) {
+        try (socket) {
+            InputStream inputStream = new BufferedInputStream(received.length == 0 ? socket.getInputStream()
+                    : new SequenceInputStream(new ByteArrayInputStream(received), socket.getInputStream()), 2_048);
+            OutputStream outputStream = socket.getOutputStream();
+            RequestReader reader = new RequestReader(inputStream);
+            byte[] response = new byte[512];
+
+            for (int served = 1; nextRequest(socket, reader); served++) {
+                if (!reader.valid) {
+                    outputStream.write(badRequest);
+                    outputStream.flush();
+                    LOGGER.debug("Bad request from client: {}", socket.getInetAddress());
+                    return;
+                }
+                boolean keepAlive = reader.keepAlive && served < MAX_KEEP_ALIVE_REQUESTS;
+                byte[] host = reader.host != null ? reader.host : localHost(socket);
+                byte[] suffix = keepAlive ? keepAliveSuffix : closeSuffix;
+
+                int length = prefix.length + host.length + portSuffix.length + reader.pathLength + suffix.length;
+                if (length > response.length) {
+                    response = new byte[length];
+                }
+                int position = put(response, 0, prefix, prefix.length);
+                position = put(response, position, host, host.length);
+                position = put(response, position, portSuffix, portSuffix.length);
+                position = put(response, position, reader.path, reader.pathLength);
+                position = put(response, position, suffix, suffix.length);
+                outputStream.write(response, 0, position);
+                outputStream.flush();
+                redirects.increment();
+
+                if (!keepAlive) {
+                    break;
+                }
+            }
+            LOGGER.info("Connection completed with client: {}", socket.getInetAddress());
+        } catch (SocketTimeoutException e) {
+            LOGGER.debug("Idle connection closed for client: {}", socket.getInetAddress());
+        } catch (IOException e) {
+            LOGGER.error("IOException occurred while handling connection with client: {}", socket.getInetAddress(), e);
+        }
+    }
+
+    /**
+     * Reads the next request, closing the socket if it does not arrive within the idle timeout.
+     *
+     * @return true if a request was read, false if the client closed the connection
+     * @throws SocketTimeoutException if the idle timeout closed the connection
+     * @throws IOException            if reading fails
+     */
+    private boolean nextRequest(Socket socket, RequestReader reader) throws IOException {
+        TimingWheel.Timeout idle = TimingWheel.shared().schedule(() -> closeQuietly(socket),
+                idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            if (idle.isExpired()) {
+                throw new SocketTimeoutException("No request within " + idleTimeoutMillis + " ms");
+            }
+            throw e;
+        } finally {
+            idle.cancel();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close idle connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the address the client connected to, for requests without a Host header.
+     */
+    private static byte[] localHost(Socket socket) {
+        InetAddress address = socket.getLocalAddress();
+        if (address == null || address.isAnyLocalAddress()) {
+            return ascii("localhost");
+        }
+        String host = address.getHostAddress();
+        return ascii(address instanceof Inet6Address ? "[" + host + "]" : host);
+    }
+
+    private static byte[] redirectHead(String connection) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(HttpStatusCode.REDIRECTION_301_MOVED_PERMANENTLY);
+        new SecurityHeadersMiddleware().apply(httpResponse);
+        httpResponse.addHeader("Content-Length", "0");
+        httpResponse.addHeader("Connection", connection);
+        return httpResponse.buildHead();
+    }
+
+    private static int indexOfCrlf(byte[] bytes) {
+        for (int i = 0; i < bytes.length - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Response head has no line end");
+    }
+
+    private static int put(byte[] target, int position, byte[] source, int length) {
+        System.arraycopy(source, 0, target, position, length);
+        return position + length;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static byte[] ascii(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads one request head at a time, keeping the path and the host without
+     * creating strings. Fields are reset by {@link #next()}.
+     */
+    private static final class RequestReader {
+        private static final byte[] HOST = ascii("host");
+        private static final byte[] CONNECTION = ascii("connection");
+        private static final byte[] CONTENT_LENGTH = ascii("content-length");
+        private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+        private static final byte[] HTTP_1_1 = ascii("HTTP/1.1");
+        private static final byte[] ROOT = ascii("/");
+
+        private final InputStream inputStream;
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private int lineLength;
+
+        byte[] path = new byte[256];
+        int pathLength;
+        byte[] host;
+        boolean keepAlive;
+        boolean valid;
+        private boolean http11;
+
+        RequestReader(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        /**
+         * Reads the next request head.
+         *
+         * @return false if the client closed the connection before sending another request
+         */
+        boolean next() throws IOException {
+            host = null;
+            valid = false;
+            keepAlive = false;
+
+            // Tolerate empty lines before a request line (RFC 9112, Section 2.2).
+            int read;
+            do {
+                read = readLine();
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            if (read > MAX_LINE_LENGTH || !parseRequestLine()) {
+                return true;
+            }
+
+            boolean hasBody = false;
+            boolean close = false;
+            boolean keepAliveToken = false;
+            for (int headers = 0; ; headers++) {
+                read = readLine();
+                if (read < 0) {
+                    return true;
+                }
+                if (read == 0) {
+                    break;
+                }
+                if (read > MAX_LINE_LENGTH || headers == MAX_HEADERS) {
+                    return true;
+                }
+                int colon = indexOf((byte) ':', 0, lineLength);
+                if (colon <= 0) {
+                    return true;
+                }
+                int valueStart = skipSpaces(colon + 1);
+                int valueEnd = trimSpaces(valueStart, lineLength);
+                if (nameEquals(HOST, colon)) {
+                    if (host != null || (host = parseHost(valueStart, valueEnd)) == null) {
+                        return true;
+                    }
+                } else if (nameEquals(CONNECTION, colon)) {
+                    close |= containsToken("close", valueStart, valueEnd);
+                    keepAliveToken |= containsToken("keep-alive", valueStart, valueEnd);
+                } else if (nameEquals(TRANSFER_ENCODING, colon)) {
+                    hasBody = true;
+                } else if (nameEquals(CONTENT_LENGTH, colon)) {
+                    hasBody |= !(valueEnd - valueStart == 1 && line[valueStart] == '0');
+                }
+            }
+            // The body is not read, so a connection with one cannot be reused.
+            keepAlive = !close && !hasBody && (http11 || keepAliveToken);
+            valid = true;
+            return true;
+        }
+
+        /**
+         * Parses "method SP target SP version", keeping the target if it is in origin
+         * form and falling back to "/" otherwise.
+         */
+        private boolean parseRequestLine() {
+            int firstSpace = indexOf((byte) ' ', 0, lineLength);
+            int secondSpace = firstSpace < 0 ? -1 : indexOf((byte) ' ', firstSpace + 1, lineLength);
+            if (firstSpace <= 0 || secondSpace < 0 || secondSpace == firstSpace + 1
+                    || indexOf((byte) ' ', secondSpace + 1, lineLength) >= 0) {
+                return false;
+            }
+            http11 = lineLength - secondSpace - 1 == HTTP_1_1.length
+                    && Arrays.equals(line, secondSpace + 1, lineLength, HTTP_1_1, 0, HTTP_1_1.length);
+
+            int targetStart = firstSpace + 1;
+            for (int i = targetStart; i < secondSpace; i++) {
+                if (line[i] < 0x21 || line[i] > 0x7e) {
+                    return false;
+                }
+            }
+            if (line[targetStart] == '/' && (secondSpace - targetStart < 2 || line[targetStart + 1] != '/')) {
+                setPath(line, targetStart, secondSpace - targetStart);
+            } else {
+                setPath(ROOT, 0, 1);
+            }
+            return true;
+        }
+
+        private void setPath(byte[] source, int offset, int length) {
+            if (length > path.length) {
+                path = new byte[Math.max(length, path.length * 2)];
+            }
+            System.arraycopy(source, offset, path, 0, length);
+            pathLength = length;
+        }
+
+        /**
+         * Returns the host without its port, or null if it is not a registered name,
+         * an IPv4 address or a bracketed IPv6 address.
+         */
+        private byte[] parseHost(int start, int end) {
+            if (start == end) {
+                return null;
+            }
+            int hostEnd;
+            if (line[start] == '[') {
+                hostEnd = indexOf((byte) ']', start, end) + 1;
+                if (hostEnd <= 0) {
+                    return null;
+                }
+                for (int i = start + 1; i < hostEnd - 1; i++) {
+                    byte b = line[i];
+                    if (!(b == ':' || b == '.' || Character.digit(b, 16) >= 0)) {
+                        return null;
+                    }
+                }
+            } else {
+                hostEnd = start;
+                while (hostEnd < end && line[hostEnd] != ':') {
+                    byte b = line[hostEnd];
+                    if (!(b == '-' || b == '.' || (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z'))) {
+                        return null;
+                    }
+                    hostEnd++;
+                }
+                if (hostEnd == start) {
+                    return null;
+                }
+            }
+            if (hostEnd < end) {
+                if (line[hostEnd] != ':') {
+                    return null;
+                }
+                for (int i = hostEnd + 1; i < end; i++) {
+                    if (line[i] < '0' || line[i] > '9') {
+                        return null;
+                    }
+                }
+            }
+            return Arrays.copyOfRange(line, start, hostEnd);
+        }
+
+        private boolean nameEquals(byte[] lowerCaseName, int nameEnd) {
+            if (nameEnd != lowerCaseName.length) {
+                return false;
+            }
+            for (int i = 0; i < nameEnd; i++) {
+                if ((line[i] | 0x20) != lowerCaseName[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean containsToken(String token, int start, int end) {
+            String value = new String(line, start, end - start, StandardCharsets.US_ASCII);
+            for (String element : value.split(",")) {
+                if (element.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int indexOf(byte value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int skipSpaces(int position) {
+            while (position < lineLength && (line[position] == ' ' || line[position] == '\t')) {
+                position++;
+            }
+            return position;
+        }
+
+        private int trimSpaces(int start, int end) {
+            while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t')) {
+                end--;
+            }
+            return end;
+        }
+
+        /**
+         * Reads a line ending in LF, dropping the line end.
+         *
+         * @return the line length, more than {@link #MAX_LINE_LENGTH} if the line was too
+         * long, or -1 at the end of the stream
+         */
+        private int readLine() throws IOException {
+            lineLength = 0;
+            int length = 0;
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                if (b == '\n') {
+                    if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                        lineLength--;
+                    }
+                    return length > MAX_LINE_LENGTH ? length : lineLength;
+                }
+                if (lineLength < MAX_LINE_LENGTH) {
+                    line[lineLength++] = (byte) b;
+                }
+                length++;
+            }
+            return length > MAX_LINE_LENGTH ? length : -1;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.httpserver.core.https;
 
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
 import com.httpserver.http.HttpResponse;
 import com.httpserver.http.HttpStatusCode;
 import com.httpserver.http.HttpVersion;
+import com.httpserver.http2.Http2Connection;
 import com.httpserver.middleware.Middleware;
 import com.httpserver.middleware.SecurityHeadersMiddleware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Represents a worker thread for handling HTTPS connections. This class extends
@@ -21,91 +31,169 @@ import java.net.Socket;
 public class HttpsConnectionWorkerThread extends Thread {
     private final static Logger LOGGER = LoggerFactory.getLogger(HttpsConnectionWorkerThread.class);
 
+    /**
+     * Answers with the welcome page and security headers; stateless, so shared by
+     * every worker created without a processor of its own.
+     */
+    private static final RequestProcessor WELCOME_PROCESSOR =
+            new RequestProcessor(HttpsConnectionWorkerThread::welcomePage, List.of(new SecurityHeadersMiddleware()));
+
     private final Socket socket;
+    private final TlsChannel tlsChannel;
+    private final RequestProcessor requestProcessor;
+    private final Http2Configuration http2Config;
 
     /**
-     * Constructs an HttpsConnectionWorkerThread with the specified socket.
+     * Constructs an HttpsConnectionWorkerThread with the specified socket,
+     * applying only the security headers middleware to responses.
      *
      * @param socket the socket connected to the client
      */
     public HttpsConnectionWorkerThread(Socket socket) {
+        this(socket, WELCOME_PROCESSOR);
+    }
+
+    /**
+     * Constructs an HttpsConnectionWorkerThread with the specified socket and the
+     * middlewares to apply, in order, to every response. Requests are answered
+     * with the built-in welcome page.
+     *
+     * @param socket      the socket connected to the client
+     * @param middlewares the middlewares shared by all workers of the listener
+     */
+    public HttpsConnectionWorkerThread(Socket socket, List<Middleware> middlewares) {
+        this(socket, new RequestProcessor(HttpsConnectionWorkerThread::welcomePage, middlewares));
+    }
+
+    /**
+     * Constructs an HttpsConnectionWorkerThread with the specified socket and the
+     * request processor shared by all workers of the listener.
+     *
+     * @param socket           the socket connected to the client
+     * @param requestProcessor answers the requests read from the socket
+     */
+    public HttpsConnectionWorkerThread(Socket socket, RequestProcessor requestProcessor) {
         this.socket = socket;
+        this.tlsChannel = null;
+        this.requestProcessor = requestProcessor;
+        this.http2Config = null;
         LOGGER.debug("HttpsConnectionWorkerThread created for socket: {}", socket);
     }
 
+    /**
+     * Constructs an HttpsConnectionWorkerThread for a connection encrypted by a
+     * {@link TlsChannel} in blocking mode, with the request processor shared by all
+     * workers of the listener. The handshake completes on first I/O if it has not yet.
+     *
+     * @param tlsChannel       the TLS connection to the client
+     * @param requestProcessor answers the requests read from the connection
+     */
+    public HttpsConnectionWorkerThread(TlsChannel tlsChannel, RequestProcessor requestProcessor) {
+        this(tlsChannel, requestProcessor, null);
+    }
+
+    /**
+     * Constructs an HttpsConnectionWorkerThread for a connection encrypted by a
+     * {@link TlsChannel} in blocking mode. If the client chose HTTP/2 through ALPN,
+     * the connection is served by an {@link Http2Connection}.
+     *
+     * @param tlsChannel       the TLS connection to the client
+     * @param requestProcessor answers the requests read from the connection
+     * @param http2Config      the HTTP/2 settings, or null if HTTP/2 was not offered
+     */
+    public HttpsConnectionWorkerThread(TlsChannel tlsChannel, RequestProcessor requestProcessor, Http2Configuration http2Config) {
+        this.socket = tlsChannel.getSocketChannel().socket();
+        this.tlsChannel = tlsChannel;
+        this.requestProcessor = requestProcessor;
+        this.http2Config = http2Config;
+        LOGGER.debug("HttpsConnectionWorkerThread created for TLS connection: {}", socket);
+    }
+
     /**
      * Runs the worker thread, handling incoming HTTPS requests and sending
      * responses.
      * <p>
      * This method performs the following steps:
-     * 1. Reads data from the input stream of the socket.
-     * 2. Creates an {@link HttpResponse} object representing the HTTP response.
-     * 3. Sets the HTTP version, status code, headers, and body content for the response.
-     * 4. Applies security headers using a middleware implementation (e.g., {@link SecurityHeadersMiddleware}).
-     * 5. Builds the full HTTP response (including status line, headers, and body).
-     * 6. Writes the constructed HTTP response to the output stream, sending it back to the client.
-     * 7. Logs the completion of the connection, and closes the socket.
+     * 1. Obtains the input and output streams of the socket, or of the TLS channel.
+     * 2. Hands them to the {@link RequestProcessor}, which parses the request with
+     *    {@link HttpParser}, builds the {@link HttpResponse}, applies the configured
+     *    middlewares (e.g., {@link SecurityHeadersMiddleware}) and writes the response.
+     *    A connection that negotiated HTTP/2 is served by an {@link Http2Connection}
+     *    instead, which answers each of its streams through the same processor.
+     * 3. Logs the completion of the connection, and closes the socket. With an
+     *    asynchronous handler this happens on the thread that completes the
+     *    response, and the worker thread returns as soon as the request is handed over.
      * </p>
      * <p>
      * This method also handles and logs any {@link IOException} that may occur during
      * communication, such as reading from or writing to the socket, or closing the socket.
      * </p>
-     *
-     * @throws IOException if an I/O error occurs while reading from or writing to the socket
      */
     @Override
     public void run() {
         LOGGER.debug("Handling connection from client: {}", socket.getInetAddress());
 
-        try (InputStream inputStream = socket.getInputStream();
-             OutputStream outputStream = socket.getOutputStream()) {
+        CompletableFuture<Void> served;
+        try {
+            InputStream inputStream = tlsChannel != null ? Channels.newInputStream(tlsChannel) : socket.getInputStream();
+            OutputStream outputStream = tlsChannel != null ? Channels.newOutputStream(tlsChannel) : socket.getOutputStream();
 
             // Log that the input and output streams have been successfully obtained
             LOGGER.debug("Input and output streams obtained for socket: {}", socket);
 
-            // Reading the request (not fully implemented)
-
-//			StringBuilder requestBuilder = new StringBuilder();
-//			int byteRead;
-//			while ((byteRead = inputStream.read()) != -1) {
-//				requestBuilder.append((char) byteRead);
-//			}
-//
-//			String request = requestBuilder.toString();
-//			LOGGER.debug("Received request: {}", request);
-
-            // Create a HTML response
-
-            HttpResponse httpResponse = new HttpResponse();
-
-            httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
-            httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
-            httpResponse.setBody("<html><head><title>Simple Java HTTPS Server</title></head><body>This page was served using Java</body></html>");
-
-            httpResponse.addHeader("Content-Type", "text/html");
-            httpResponse.addHeader("Content-Length", String.valueOf(httpResponse.getBody().getBytes().length));
-
-            Middleware middleware = new SecurityHeadersMiddleware();
-            middleware.apply(httpResponse);
-
-            // Build the HTTP response
-            String response = httpResponse.buildResponse();
-
-            // Write the response to the output stream
-            outputStream.write(response.getBytes());
+            if (http2Config != null && "h2".equals(tlsChannel.getApplicationProtocol())) {
+                // Closing the TLS streams sends close_notify, which can block; an idle timeout that must not closes the socket.
+                new Http2Connection(inputStream, outputStream, requestProcessor, http2Config, socket).serve();
+                served = CompletableFuture.completedFuture(null);
+            } else {
+                // TLS records have to be encrypted in the JVM, so there is no zero-copy transfer, but
+                // writing bodies to the TLS channel encrypts them straight from their buffers.
+                // Timeouts close the socket rather than the TLS stream, whose close_notify can block the timing wheel.
+                served = requestProcessor.processAsync(inputStream, outputStream, tlsChannel, null, socket);
+            }
+        } catch (IOException | RuntimeException e) {
+            served = CompletableFuture.failedFuture(e);
+        }
+        served.whenComplete((ignored, failure) -> close(failure));
+    }
 
+    /**
+     * Closes the connection once it has been served, which also closes its streams.
+     *
+     * @param failure the exception that ended the connection, or null if it completed
+     */
+    private void close(Throwable failure) {
+        if (failure == null) {
             LOGGER.debug("Sent response to client: {}", socket.getInetAddress());
-
             LOGGER.info("Connection completed with client: {}", socket.getInetAddress());
+        } else {
+            LOGGER.error("Error occurred while handling connection with client: {}", socket.getInetAddress(),
+                    failure instanceof CompletionException ? failure.getCause() : failure);
+        }
+        try {
+            Closeable connection = tlsChannel != null ? tlsChannel : socket;
+            connection.close();
+            LOGGER.debug("Socket closed for client: {}", socket.getInetAddress());
         } catch (IOException e) {
-            LOGGER.error("IOException occurred while handling connection with client: {}", socket.getInetAddress(), e);
-        } finally {
-            try {
-                socket.close();
-                LOGGER.debug("Socket closed for client: {}", socket.getInetAddress());
-            } catch (IOException e) {
-                LOGGER.error("Failed to close socket for client: {}", socket.getInetAddress(), e);
-            }
+            LOGGER.error("Failed to close socket for client: {}", socket.getInetAddress(), e);
         }
     }
+
+    /**
+     * Builds the built-in welcome page, used when no web root handler is configured.
+     *
+     * @param httpRequest the parsed request
+     * @return the welcome page response
+     */
+    public static HttpResponse welcomePage(HttpRequest httpRequest) {
+        HttpResponse httpResponse = new HttpResponse();
+
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        httpResponse.setBody("<html><head><title>Simple Java HTTPS Server</title></head><body>This page was served using Java</body></html>");
+
+        httpResponse.addHeader("Content-Type", "text/html");
+        httpResponse.addHeader("Content-Length", String.valueOf(httpResponse.getBodyBytes().length));
+        return httpResponse;
+    }
 }
@@ -1,31 +1,67 @@
 package com.httpserver.core.https;
 
 import com.httpserver.config.ConfigurationManager;
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.config.HttpConfigurationException;
 import com.httpserver.config.SSLConfiguration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.middleware.Middleware;
+import com.httpserver.middleware.SecurityHeadersMiddleware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLServerSocket;
-import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
 import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 /**
  * Represents a server listener thread that accepts incoming HTTPS connections.
- * This class extends Thread to manage the lifecycle of the SSL server socket
- * and handle client requests by spawning worker threads for secure
- * communication.
+ * This class extends Thread to manage the lifecycle of the server socket channel.
+ * Accepted connections are encrypted with an {@link SSLEngine} and handshake on
+ * the {@link TlsHandshaker} thread; only connections that complete the handshake
+ * get a worker thread for secure communication.
+ * <p>
+ * When the keystore changes on disk a new context is built in the background and
+ * swapped in for new connections; connections already open keep the context they
+ * were accepted with. A keystore that cannot be loaded leaves the current context in
+ * place, so the listener always has a valid one.
+ * </p>
  */
-public class HttpsServerListenerThread extends Thread {
+public class HttpsServerListenerThread extends Thread implements Closeable {
     private final static Logger LOGGER = LoggerFactory.getLogger(HttpsServerListenerThread.class);
 
     private final int port;
-    private final SSLServerSocket serverSocket;
+    private final ServerSocketChannel serverSocketChannel;
     private final String webroot;
+    private final RequestProcessor requestProcessor;
+    private final SSLConfiguration sslConfig;
+    private final Http2Configuration http2Config;
+    private final TlsHandshaker handshaker;
+    private final KeystoreWatcher keystoreWatcher;
+    private final LongAdder keystoreReloads = new LongAdder();
+    private final LongAdder failedKeystoreReloads = new LongAdder();
+
+    /**
+     * The context and engine parameters for new connections, replaced as one.
+     */
+    private volatile TlsSettings tlsSettings;
 
     /**
      * Constructs an HttpsServerListenerThread with the specified port and web root.
@@ -37,9 +73,89 @@ public class HttpsServerListenerThread extends Thread {
      *                   loading the keystore
      */
     public HttpsServerListenerThread(int port, String webroot) throws Exception {
+        this(port, webroot, List.of(new SecurityHeadersMiddleware()));
+    }
+
+    /**
+     * Constructs an HttpsServerListenerThread with the specified port, web root and
+     * the middlewares applied to every response. Requests are answered with the
+     * built-in welcome page.
+     *
+     * @param port        the port on which the server will listen for incoming HTTPS
+     *                    connections
+     * @param webroot     the root directory for serving web content
+     * @param middlewares the middlewares shared by all worker threads, applied in order
+     * @throws Exception if an error occurs while initializing the server socket or
+     *                   loading the keystore
+     */
+    public HttpsServerListenerThread(int port, String webroot, List<Middleware> middlewares) throws Exception {
+        this(port, webroot, new RequestProcessor(HttpsConnectionWorkerThread::welcomePage, middlewares));
+    }
+
+    /**
+     * Constructs an HttpsServerListenerThread with the specified port, web root and
+     * the request processor shared by all worker threads.
+     *
+     * @param port             the port on which the server will listen for incoming HTTPS
+     *                         connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers the requests of every connection
+     * @throws Exception if an error occurs while initializing the server socket or
+     *                   loading the keystore
+     */
+    public HttpsServerListenerThread(int port, String webroot, RequestProcessor requestProcessor) throws Exception {
+        this(port, webroot, requestProcessor, null);
+    }
+
+    /**
+     * Constructs an HttpsServerListenerThread with the specified port, web root, the
+     * request processor shared by all worker threads and the HTTP/2 settings. When
+     * HTTP/2 is enabled it is offered through ALPN, ahead of HTTP/1.1.
+     *
+     * @param port             the port on which the server will listen for incoming HTTPS
+     *                         connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers the requests of every connection
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     * @throws Exception if an error occurs while initializing the server socket or
+     *                   loading the keystore
+     */
+    public HttpsServerListenerThread(int port, String webroot, RequestProcessor requestProcessor,
+                                     Http2Configuration http2Config) throws Exception {
+        this(port, webroot, requestProcessor, http2Config, null);
+    }
+
+    /**
+     * Constructs an HttpsServerListenerThread that can share its port with plain
+     * HTTP. With a plaintext handler, the first byte of each connection is read
+     * before the handshake: connections that start with a TLS handshake record are
+     * served over HTTPS, and any other connection is handed to the plaintext handler.
+     *
+     * @param port             the port on which the server will listen for incoming connections
+     * @param webroot          the root directory for serving web content
+     * @param requestProcessor answers the requests of every connection
+     * @param http2Config      the HTTP/2 settings, or null to serve HTTP/1.1 only
+     * @param plaintextHandler serves connections that do not speak TLS, given the socket in
+     *                         blocking mode and the bytes already read; null to serve TLS only
+     * @throws Exception if an error occurs while setting up the server, such as
+     *                   loading the keystore
+     */
+    public HttpsServerListenerThread(int port, String webroot, RequestProcessor requestProcessor,
+                                     Http2Configuration http2Config,
+                                     BiConsumer<SocketChannel, byte[]> plaintextHandler) throws Exception {
         this.port = port;
         this.webroot = webroot;
-        this.serverSocket = createSSLServerSocket();
+        this.requestProcessor = requestProcessor;
+        this.http2Config = http2Config != null && http2Config.isEnabled() ? http2Config : null;
+        this.sslConfig = ConfigurationManager.getInstance().getConfiguration(SSLConfiguration.class);
+        SSLContext sslContext = createSSLContext();
+        this.tlsSettings = new TlsSettings(sslContext, createSSLParameters(sslContext));
+        this.handshaker = new TlsHandshaker(this::startWorker, plaintextHandler, sslConfig.getHandshakeTimeoutMillis(),
+                sslConfig.getMaxConcurrentHandshakes(), sslConfig.getHandshakeQueueSize());
+        this.serverSocketChannel = ServerSocketChannel.open();
+        this.serverSocketChannel.bind(new InetSocketAddress(this.port));
+        this.keystoreWatcher = createKeystoreWatcher();
+        LOGGER.info("HTTPS server socket channel bound on port: {}", this.port);
         LOGGER.debug("HTTPS - Server initialized on port: {} with webroot: {}", this.port, this.webroot);
     }
 
@@ -62,16 +178,100 @@ public class HttpsServerListenerThread extends Thread {
     }
 
     /**
-     * Creates and initializes the SSLServerSocket based on the SSL configuration.
+     * Returns the handshaker driving the TLS handshakes of new connections.
      *
-     * @return an initialized SSLServerSocket
-     * @throws Exception if an error occurs while loading the keystore or
-     *                   initializing the socket
+     * @return the handshaker
+     */
+    public TlsHandshaker getHandshaker() {
+        return handshaker;
+    }
+
+    /**
+     * Returns the context new connections are encrypted with.
+     *
+     * @return the current SSL context
+     */
+    public SSLContext getSSLContext() {
+        return tlsSettings.context;
+    }
+
+    /**
+     * Returns the number of times a changed keystore was loaded and swapped in.
+     *
+     * @return the reload count
+     */
+    public long getKeystoreReloads() {
+        return keystoreReloads.sum();
+    }
+
+    /**
+     * Returns the number of reloads that kept the current context because the new
+     * keystore could not be used.
+     *
+     * @return the failed reload count
+     */
+    public long getFailedKeystoreReloads() {
+        return failedKeystoreReloads.sum();
+    }
+
+    /**
+     * Builds a new SSL context from the keystore and swaps it in for new connections.
+     * If the keystore cannot be loaded the current context stays in use.
+     *
+     * @return true if the new context was swapped in
+     */
+    public synchronized boolean reloadSSLContext() {
+        try {
+            SSLContext sslContext = createSSLContext();
+            tlsSettings = new TlsSettings(sslContext, createSSLParameters(sslContext));
+            keystoreReloads.increment();
+            LOGGER.info("Keystore reloaded; new connections use the new certificate.");
+            return true;
+        } catch (Exception e) {
+            failedKeystoreReloads.increment();
+            LOGGER.error("Keystore reload failed, keeping the current certificate: {}", e.getMessage());
+            LOGGER.debug("Full stack trace:", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the connections still handshaking.
+     *
+     * @throws IOException if the server socket channel cannot be closed
      */
-    SSLServerSocket createSSLServerSocket() throws Exception {
-        LOGGER.info("Initializing SSL server socket...");
+    @Override
+    public void close() throws IOException {
+        handshaker.close();
+        if (keystoreWatcher != null) {
+            keystoreWatcher.close();
+        }
+        serverSocketChannel.close();
+    }
 
-        SSLConfiguration sslConfig = ConfigurationManager.getInstance().getConfiguration(SSLConfiguration.class);
+    /**
+     * Starts watching the keystore if the configuration asks for it.
+     *
+     * @return the watcher, or null if the keystore is not watched
+     * @throws IOException if the keystore directory cannot be watched
+     */
+    private KeystoreWatcher createKeystoreWatcher() throws IOException {
+        if (!sslConfig.isKeystoreWatchEnabled()) {
+            return null;
+        }
+        return new KeystoreWatcher(Paths.get(sslConfig.getKeystorePath()), this::reloadSSLContext,
+                sslConfig.getKeystoreCheckIntervalSeconds());
+    }
+
+    /**
+     * Creates and initializes the SSLContext based on the SSL configuration.
+     *
+     * @return an initialized SSLContext
+     * @throws Exception if an error occurs while loading the keystore or
+     *                   initializing the context
+     */
+    SSLContext createSSLContext() throws Exception {
+        LOGGER.info("Initializing SSL context...");
         LOGGER.info("SSL configuration loaded: {}", sslConfig);
 
         String keyStorePath = sslConfig.getKeystorePath();
@@ -87,6 +287,10 @@ public class HttpsServerListenerThread extends Thread {
             LOGGER.error("Error loading keystore from path: {}", keyStorePath, e);
             throw e;
         }
+        if (!hasKeyEntry(keyStore)) {
+            // The context would initialize, but every handshake would fail.
+            throw new KeyStoreException("Keystore " + keyStorePath + " contains no private key");
+        }
 
         KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
         keyManagerFactory.init(keyStore, keyPassword.toCharArray());
@@ -96,45 +300,129 @@ public class HttpsServerListenerThread extends Thread {
         sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
         LOGGER.info("SSLContext initialized with TLS protocol.");
 
-        SSLServerSocketFactory factory = sslContext.getServerSocketFactory();
+        SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+        sessionContext.setSessionCacheSize(sslConfig.getSessionCacheSize());
+        sessionContext.setSessionTimeout(sslConfig.getSessionTimeoutSeconds());
+        LOGGER.info("TLS session cache size set to {} with a timeout of {} seconds.", sslConfig.getSessionCacheSize(),
+                sslConfig.getSessionTimeoutSeconds());
 
-        SSLServerSocket sslServerSocket = (SSLServerSocket) factory.createServerSocket(this.port);
-        LOGGER.info("SSLServerSocket created on port: {}", this.port);
+        return sslContext;
+    }
 
-        return sslServerSocket;
+    private static boolean hasKeyEntry(KeyStore keyStore) throws KeyStoreException {
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (keyStore.isKeyEntry(alias)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the parameters applied to every engine: the configured protocols and
+     * cipher suites that the JVM supports, with the server's cipher suite order
+     * taking precedence over the client's, and the application protocols offered
+     * through ALPN.
+     *
+     * @param sslContext the context the engines are created from
+     * @return the engine parameters
+     * @throws HttpConfigurationException if none of the configured protocols or cipher suites is supported
+     */
+    SSLParameters createSSLParameters(SSLContext sslContext) {
+        SSLParameters supported = sslContext.getSupportedSSLParameters();
+
+        SSLParameters sslParameters = sslContext.getDefaultSSLParameters();
+        sslParameters.setProtocols(supportedSubset("protocol", sslConfig.getProtocols(), supported.getProtocols()));
+        sslParameters.setCipherSuites(supportedSubset("cipher suite", sslConfig.getCipherSuites(), supported.getCipherSuites()));
+        sslParameters.setUseCipherSuitesOrder(true);
+        if (http2Config != null) {
+            sslParameters.setApplicationProtocols(new String[]{"h2", "http/1.1"});
+        }
+        LOGGER.info("TLS protocols enabled: {}", List.of(sslParameters.getProtocols()));
+        LOGGER.info("TLS cipher suites enabled, in order of preference: {}", List.of(sslParameters.getCipherSuites()));
+        return sslParameters;
+    }
+
+    /**
+     * Keeps the configured names the JVM supports, in configured order.
+     */
+    private static String[] supportedSubset(String kind, List<String> configured, String[] supported) {
+        Set<String> available = Set.of(supported);
+        List<String> enabled = new ArrayList<>(configured.size());
+        for (String name : configured) {
+            if (available.contains(name)) {
+                enabled.add(name);
+            } else {
+                LOGGER.warn("Ignoring unsupported TLS {}: {}", kind, name);
+            }
+        }
+        if (enabled.isEmpty()) {
+            throw new HttpConfigurationException("None of the configured TLS " + kind + "s is supported: " + configured);
+        }
+        return enabled.toArray(new String[0]);
+    }
+
+    /**
+     * Creates the engine encrypting one server-side connection, from the current
+     * context.
+     *
+     * @return a new SSLEngine in server mode
+     */
+    SSLEngine createSSLEngine() {
+        TlsSettings settings = tlsSettings;
+        SSLEngine engine = settings.context.createSSLEngine();
+        engine.setUseClientMode(false);
+        engine.setSSLParameters(settings.parameters);
+        return engine;
+    }
+
+    /**
+     * Starts the worker for a connection whose handshake completed.
+     *
+     * @param channel the connection, in blocking mode
+     */
+    private void startWorker(TlsChannel channel) {
+        HttpsConnectionWorkerThread workerThread = new HttpsConnectionWorkerThread(channel, requestProcessor, http2Config);
+        workerThread.start();
     }
 
     /**
      * Runs the server listener thread, accepting incoming HTTPS connections and
-     * spawning worker threads to handle them.
+     * registering them with the handshaker.
      * <p>
-     * This method loops indefinitely until the server socket is closed, accepting
-     * client connections and creating an instance of
-     * {@link HttpsConnectionWorkerThread} for each accepted socket connection. It
-     * logs connection information, including the port and the client's IP address,
-     * and handles any IOExceptions that may occur during socket operations.
+     * This method loops indefinitely until the server socket channel is closed,
+     * accepting client connections and wrapping each in a {@link TlsChannel}. Once
+     * the handshake completes, an {@link HttpsConnectionWorkerThread} handles the
+     * connection. It logs connection information, including the port and the
+     * client's IP address, and handles any IOExceptions that may occur during
+     * socket operations.
+     * </p>
      *
      * @throws IOException if an I/O error occurs while waiting for a connection
      */
     @Override
     public void run() {
+        handshaker.start();
         try {
-            while (serverSocket.isBound() && !serverSocket.isClosed()) {
+            while (serverSocketChannel.isOpen()) {
                 LOGGER.debug("Waiting for a new connection...");
-                Socket socket = serverSocket.accept(); // Code waits here until the connection is accepted.
+                SocketChannel channel = serverSocketChannel.accept(); // Code waits here until the connection is accepted.
 
                 LOGGER.info("* Connection accepted on port {}", this.port);
-                LOGGER.info("* Connection accepted from IP: {}", socket.getInetAddress());
+                LOGGER.info("* Connection accepted from IP: {}", channel.socket().getInetAddress());
 
-                HttpsConnectionWorkerThread workerThread = new HttpsConnectionWorkerThread(socket);
-                workerThread.start();
+                handshaker.register(new TlsChannel(channel, createSSLEngine()));
             }
         } catch (IOException e) {
             LOGGER.error("Problem with setting socket: {}", e.getMessage());
             LOGGER.debug("Full stack trace:", e); // Log the stack trace for debugging
         } finally {
+            handshaker.close();
             try {
-                serverSocket.close();
+                if (keystoreWatcher != null) {
+                    keystoreWatcher.close();
+                }
+                serverSocketChannel.close();
                 LOGGER.debug("Server socket closed successfully.");
             } catch (IOException e) {
                 LOGGER.error("Error in closing ServerSocket in HttpsServerListenerThread: {}", e.getMessage());
@@ -142,4 +430,17 @@ public class HttpsServerListenerThread extends Thread {
             }
         }
     }
+
+    /**
+     * An SSL context with the parameters its engines are created with.
+     */
+    private static final class TlsSettings {
+        private final SSLContext context;
+        private final SSLParameters parameters;
+
+        private TlsSettings(SSLContext context, SSLParameters parameters) {
+            this.context = context;
+            this.parameters = parameters;
+        }
+    }
 }
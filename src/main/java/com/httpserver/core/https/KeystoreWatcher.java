@@ -0,0 +1,159 @@
+package com.httpserver.core.https;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Watches a keystore file and asks for a reload when its content changes.
+ * <p>
+ * The directory holding the keystore is watched with a {@link WatchService}, so
+ * replacing the file, renaming a new one over it or swapping a symbolic link are all
+ * noticed. Events are only a hint: after the directory has been quiet for a moment the
+ * file's digest is compared with the last one loaded, and only a different digest
+ * triggers a reload. Because watch events are not delivered on every file system, the
+ * file is also checked periodically.
+ * </p>
+ * <p>
+ * A reload that fails, for example because the file was read halfway through being
+ * written, is retried on the next change. The same broken content is not retried.
+ * </p>
+ */
+public class KeystoreWatcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeystoreWatcher.class);
+
+    /**
+     * How long the directory must be quiet before the keystore is read, so a file
+     * written in several steps is read once it is complete.
+     */
+    static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final Path keystore;
+    private final BooleanSupplier reload;
+    private final WatchService watchService;
+    private final Thread watcherThread;
+    private final ScheduledExecutorService checker;
+    private byte[] loadedDigest;
+    private byte[] failedDigest;
+
+    /**
+     * Constructs a KeystoreWatcher and starts watching the keystore.
+     *
+     * @param keystore             the keystore file, already loaded
+     * @param reload               reloads the keystore, returning false if the new one could not be used
+     * @param checkIntervalSeconds the seconds between periodic checks, or 0 to disable them
+     * @throws IOException if the keystore cannot be read or its directory cannot be watched
+     */
+    public KeystoreWatcher(Path keystore, BooleanSupplier reload, long checkIntervalSeconds) throws IOException {
+        this.keystore = keystore.toAbsolutePath();
+        this.reload = reload;
+        this.loadedDigest = digest(this.keystore);
+        this.watchService = this.keystore.getFileSystem().newWatchService();
+        this.keystore.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.watcherThread = new Thread(this::watch, "keystore-watcher");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+
+        if (checkIntervalSeconds > 0) {
+            this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "keystore-checker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.checker.scheduleWithFixedDelay(this::check, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.checker = null;
+        }
+        LOGGER.info("Watching keystore {} for changes", this.keystore);
+    }
+
+    /**
+     * Reloads the keystore if its content differs from the last content loaded.
+     *
+     * @return true if the keystore was reloaded
+     */
+    synchronized boolean check() {
+        byte[] current;
+        try {
+            current = digest(keystore);
+        } catch (IOException e) {
+            // Missing while it is being replaced; the next event or check retries.
+            LOGGER.debug("Keystore {} is not readable: {}", keystore, e.getMessage());
+            return false;
+        }
+        if (Arrays.equals(current, loadedDigest) || Arrays.equals(current, failedDigest)) {
+            return false;
+        }
+        LOGGER.info("Keystore {} changed, reloading", keystore);
+        if (reload.getAsBoolean()) {
+            loadedDigest = current;
+            failedDigest = null;
+            return true;
+        }
+        failedDigest = current;
+        return false;
+    }
+
+    /**
+     * Processes watch events until the watch service is closed, checking the keystore
+     * once each burst of events is over.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                do {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        LOGGER.warn("Keystore directory {} is no longer watched", keystore.getParent());
+                        return;
+                    }
+                } while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                check();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Keystore watcher stopped");
+        }
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Stops watching the keystore.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        watchService.close();
+        watcherThread.interrupt();
+    }
+}
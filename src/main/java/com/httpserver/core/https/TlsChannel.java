@@ -0,0 +1,479 @@
+package com.httpserver.core.https;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A TLS connection over a {@link SocketChannel}, encrypted by an {@link SSLEngine}.
+ * <p>
+ * The channel works in blocking and non-blocking mode. In blocking mode it behaves
+ * like any byte channel: the handshake happens on the first read or write, and
+ * {@link java.nio.channels.Channels} can wrap it in streams. In non-blocking mode
+ * {@link #handshake()}, {@link #read(ByteBuffer)} and {@link #write(ByteBuffer)}
+ * return without progress when the socket is not ready, and {@link #interestOps()}
+ * tells a selector what to wait for, so one thread can drive many handshakes.
+ * </p>
+ * <p>
+ * Network data is kept in direct buffers sized from the session, which grow when
+ * the engine reports an overflow or a record larger than the buffer. Renegotiation
+ * is refused by closing the connection, since it lets a client make the server
+ * repeat the expensive part of the handshake at will. A close_notify from the peer
+ * is answered with one of our own and reported as end of stream.
+ * </p>
+ * <p>
+ * One thread may read from a TlsChannel while another writes to it, such as a timeout
+ * response written while the handler is still reading the request body: everything
+ * that goes out, including the replies a read has to send, is written under one lock.
+ * It is not safe for concurrent reads, or concurrent writes, by several threads.
+ * </p>
+ */
+public class TlsChannel implements ByteChannel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TlsChannel.class);
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * The content type of a TLS handshake record, the first byte a TLS client sends.
+     */
+    public static final int HANDSHAKE_RECORD = 22;
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+
+    /**
+     * Records read from the socket and not yet unwrapped, in write mode.
+     */
+    private ByteBuffer netIn;
+
+    /**
+     * Records wrapped and not yet written to the socket, in read mode.
+     */
+    private ByteBuffer netOut;
+
+    /**
+     * Plaintext unwrapped and not yet read by the caller, in read mode.
+     */
+    private ByteBuffer appIn;
+
+    /**
+     * Guards {@link #netOut} and the engine's outbound side.
+     */
+    private final Object writeLock = new Object();
+
+    private boolean handshakeStarted;
+    private long handshakeStartMillis;
+    private boolean handshakeComplete;
+    private boolean sessionResumed;
+    private boolean inboundDone;
+
+    /**
+     * Constructs a TlsChannel. The engine must be in server or client mode already.
+     *
+     * @param channel the connected socket channel
+     * @param engine  the engine encrypting the connection
+     */
+    public TlsChannel(SocketChannel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocateDirect(session.getPacketBufferSize()).flip();
+        this.appIn = ByteBuffer.allocateDirect(session.getApplicationBufferSize()).flip();
+    }
+
+    /**
+     * Returns the underlying socket channel.
+     *
+     * @return the socket channel
+     */
+    public SocketChannel getSocketChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the TLS session, complete once the handshake is.
+     *
+     * @return the session
+     */
+    public SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    /**
+     * Returns whether the handshake has completed.
+     *
+     * @return true if application data can be exchanged
+     */
+    public boolean isHandshakeComplete() {
+        return handshakeComplete;
+    }
+
+    /**
+     * Returns whether the handshake resumed an earlier session, from the session cache
+     * or a session ticket, instead of performing a full key exchange.
+     *
+     * @return true if the session was resumed; false until the handshake completes
+     */
+    public boolean isSessionResumed() {
+        return sessionResumed;
+    }
+
+    /**
+     * Returns the application protocol agreed through ALPN.
+     *
+     * @return the protocol, such as "h2", or an empty string if none was agreed;
+     * null until the handshake completes
+     */
+    public String getApplicationProtocol() {
+        return engine.getApplicationProtocol();
+    }
+
+    /**
+     * Returns the first byte the peer sent, reading from the socket if none was
+     * received yet, without starting the handshake. The byte stays buffered for the
+     * handshake, so a port shared by TLS and plaintext clients can tell them apart
+     * before choosing a path.
+     *
+     * @return the first byte, or -1 if none is available without blocking
+     * @throws IOException if the peer closed the connection without sending anything
+     */
+    public int peekFirstByte() throws IOException {
+        if (netIn.position() == 0 && channel.read(netIn) < 0) {
+            throw new EOFException("Connection closed before any data was received");
+        }
+        return netIn.position() > 0 ? netIn.get(0) & 0xff : -1;
+    }
+
+    /**
+     * Removes and returns the bytes received but not yet unwrapped, for a connection
+     * that turned out not to speak TLS.
+     *
+     * @return the bytes received so far
+     */
+    public byte[] takeReceived() {
+        byte[] received = new byte[netIn.position()];
+        netIn.flip().get(received);
+        netIn.clear();
+        return received;
+    }
+
+    /**
+     * Advances the handshake as far as the socket allows.
+     *
+     * @return true if the handshake is complete, false if it waits for the socket;
+     * see {@link #interestOps()}
+     * @throws IOException if the handshake fails or the peer disconnects
+     */
+    public boolean handshake() throws IOException {
+        if (handshakeComplete) {
+            return true;
+        }
+        if (!handshakeStarted) {
+            handshakeStartMillis = System.currentTimeMillis();
+            engine.beginHandshake();
+            handshakeStarted = true;
+        }
+        while (flush()) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (inboundDone) {
+                        throw new EOFException("Connection closed during TLS handshake");
+                    }
+                    if (!unwrap()) {
+                        return false;
+                    }
+                    break;
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    break;
+                default:
+                    handshakeComplete = true;
+                    // A resumed session was created by an earlier handshake.
+                    sessionResumed = engine.getSession().getCreationTime() < handshakeStartMillis;
+                    LOGGER.debug("TLS handshake completed with {} using {}{}", engine.getSession().getProtocol(),
+                            engine.getSession().getCipherSuite(), sessionResumed ? ", resumed" : "");
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the selection operations the channel waits for to make progress.
+     *
+     * @return {@link SelectionKey#OP_WRITE} while wrapped records are pending, otherwise {@link SelectionKey#OP_READ}
+     */
+    public int interestOps() {
+        return netOut.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+    }
+
+    /**
+     * Reads decrypted application data, completing the handshake first if needed.
+     *
+     * @param dst the buffer to read into
+     * @return the number of bytes read, 0 if none are available without blocking,
+     * or -1 once the peer has closed the connection
+     * @throws IOException if the connection fails or the peer tries to renegotiate
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!handshake()) {
+            return 0;
+        }
+        while (!appIn.hasRemaining()) {
+            if (inboundDone) {
+                return -1;
+            }
+            if (!unwrap()) {
+                return 0;
+            }
+        }
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        dst.put(dst.position(), appIn, appIn.position(), count);
+        dst.position(dst.position() + count);
+        appIn.position(appIn.position() + count);
+        return count;
+    }
+
+    /**
+     * Encrypts and writes application data, completing the handshake first if needed.
+     * In non-blocking mode records that the socket does not accept stay pending until
+     * the next write or {@link #flush()}.
+     *
+     * @param src the buffer to write from
+     * @return the number of bytes consumed from the buffer
+     * @throws IOException if the connection fails or has been closed
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!handshake()) {
+            return 0;
+        }
+        synchronized (writeLock) {
+            if (!flush()) {
+                return 0;
+            }
+            int consumed = 0;
+            while (src.hasRemaining()) {
+                SSLEngineResult result = wrap(src);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new ClosedChannelException();
+                }
+                consumed += result.bytesConsumed();
+                if (!flush()) {
+                    break;
+                }
+            }
+            return consumed;
+        }
+    }
+
+    /**
+     * Writes pending records to the socket.
+     *
+     * @return true if nothing is left pending
+     * @throws IOException if the socket cannot be written
+     */
+    public boolean flush() throws IOException {
+        synchronized (writeLock) {
+            while (netOut.hasRemaining()) {
+                if (channel.write(netOut) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Sends close_notify, as far as the socket accepts it without blocking, and closes
+     * the socket.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel.isOpen() && handshakeStarted && !engine.isOutboundDone()) {
+                sendCloseNotify();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to send close_notify: {}", e.getMessage());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Unwraps one record into {@link #appIn}, reading from the socket when no whole
+     * record is buffered.
+     *
+     * @return false if a record is incomplete and the socket has nothing more to read
+     */
+    private boolean unwrap() throws IOException {
+        while (true) {
+            netIn.flip();
+            appIn.compact();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                appIn.flip();
+                netIn.compact();
+            }
+            switch (result.getStatus()) {
+                case OK:
+                    onRecord(result.getHandshakeStatus());
+                    return true;
+                case CLOSED:
+                    inboundDone = true;
+                    // Answer the peer's close_notify with ours, unless the peer is already gone.
+                    try {
+                        sendCloseNotify();
+                    } catch (IOException e) {
+                        LOGGER.debug("Failed to answer close_notify: {}", e.getMessage());
+                    }
+                    return true;
+                case BUFFER_OVERFLOW:
+                    appIn = enlarge(appIn, appIn.remaining() + engine.getSession().getApplicationBufferSize());
+                    break;
+                case BUFFER_UNDERFLOW:
+                    int packetSize = engine.getSession().getPacketBufferSize();
+                    if (netIn.capacity() < packetSize || !netIn.hasRemaining()) {
+                        netIn = enlarge(netIn.flip(), Math.max(packetSize, 2 * netIn.capacity())).compact();
+                    }
+                    int read = channel.read(netIn);
+                    if (read < 0) {
+                        inboundDone = true;
+                        try {
+                            engine.closeInbound();
+                        } catch (SSLException e) {
+                            LOGGER.debug("Peer closed the connection without close_notify: {}", e.getMessage());
+                        }
+                        if (!handshakeComplete) {
+                            throw new EOFException("Connection closed during TLS handshake");
+                        }
+                        return true;
+                    }
+                    if (read == 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected unwrap status: " + result.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Handles handshake messages that arrive after the handshake. TLS 1.3 post-handshake
+     * messages such as KeyUpdate are answered; anything else is a renegotiation attempt
+     * and closes the connection.
+     */
+    private void onRecord(HandshakeStatus status) throws IOException {
+        if (!handshakeComplete || status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED) {
+            return;
+        }
+        if (!"TLSv1.3".equals(engine.getSession().getProtocol())) {
+            LOGGER.warn("Rejected TLS renegotiation from {}", channel.getRemoteAddress());
+            sendCloseNotify();
+            throw new SSLException("TLS renegotiation is not supported");
+        }
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    break;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                default:
+                    flush();
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Wraps application data, or a handshake or closure message, into {@link #netOut}.
+     */
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        synchronized (writeLock) {
+            while (true) {
+                netOut.compact();
+                SSLEngineResult result;
+                try {
+                    result = engine.wrap(src, netOut);
+                } finally {
+                    netOut.flip();
+                }
+                switch (result.getStatus()) {
+                    case OK:
+                    case CLOSED:
+                        return result;
+                    case BUFFER_OVERFLOW:
+                        // Make room by writing what is pending; grow if the socket does not take it.
+                        if (!flush() || netOut.capacity() < engine.getSession().getPacketBufferSize()) {
+                            netOut = enlarge(netOut, netOut.remaining() + engine.getSession().getPacketBufferSize());
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected wrap status: " + result.getStatus());
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps and writes close_notify, as far as the socket accepts it.
+     */
+    private void sendCloseNotify() throws IOException {
+        synchronized (writeLock) {
+            engine.closeOutbound();
+            while (!engine.isOutboundDone() && wrap(EMPTY).bytesProduced() > 0) {
+                // Keep wrapping until the closure alert is complete.
+            }
+            flush();
+        }
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer in read mode into a larger direct buffer.
+     *
+     * @return the new buffer, in read mode
+     */
+    private static ByteBuffer enlarge(ByteBuffer buffer, int capacity) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(capacity, buffer.remaining()));
+        larger.put(buffer).flip();
+        return larger;
+    }
+}
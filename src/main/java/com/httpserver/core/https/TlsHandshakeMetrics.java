@@ -0,0 +1,160 @@
+package com.httpserver.core.https;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects handshake statistics for one {@link TlsHandshaker}: how handshakes ended
+ * and how long the completed ones took, from accept to hand-off, including the time
+ * spent waiting for admission.
+ */
+public class TlsHandshakeMetrics {
+
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+    private final LongAdder failedHandshakes = new LongAdder();
+    private final LongAdder timedOutHandshakes = new LongAdder();
+    private final LongAdder rejectedHandshakes = new LongAdder();
+    private final LongAdder plaintextConnections = new LongAdder();
+    private final LongAdder handshakeNanos = new LongAdder();
+    private final LongAccumulator maxHandshakeNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a handshake that completed.
+     *
+     * @param resumed      whether an earlier session was resumed
+     * @param elapsedNanos the time from accept to completion, in nanoseconds
+     */
+    void recordCompleted(boolean resumed, long elapsedNanos) {
+        (resumed ? resumedHandshakes : fullHandshakes).increment();
+        handshakeNanos.add(elapsedNanos);
+        maxHandshakeNanos.accumulate(elapsedNanos);
+    }
+
+    /**
+     * Records a handshake that failed with an error or a disconnect.
+     */
+    void recordFailed() {
+        failedHandshakes.increment();
+    }
+
+    /**
+     * Records a handshake that did not complete before its deadline.
+     */
+    void recordTimedOut() {
+        timedOutHandshakes.increment();
+    }
+
+    /**
+     * Records a connection closed on arrival because the admission queue was full.
+     */
+    void recordRejected() {
+        rejectedHandshakes.increment();
+    }
+
+    /**
+     * Records a connection that started with plaintext instead of a TLS handshake
+     * and was handed to the plaintext handler.
+     */
+    void recordPlaintext() {
+        plaintextConnections.increment();
+    }
+
+    /**
+     * Returns the number of handshakes completed and handed off.
+     *
+     * @return the completed handshake count
+     */
+    public long getCompletedHandshakes() {
+        return fullHandshakes.sum() + resumedHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of completed handshakes that performed a full key exchange.
+     *
+     * @return the full handshake count
+     */
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of completed handshakes that resumed an earlier session.
+     *
+     * @return the resumed handshake count
+     */
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of connections closed because their handshake failed.
+     *
+     * @return the failed handshake count
+     */
+    public long getFailedHandshakes() {
+        return failedHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of connections closed because their handshake passed its deadline.
+     *
+     * @return the timed out handshake count
+     */
+    public long getTimedOutHandshakes() {
+        return timedOutHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of connections closed on arrival because too many were
+     * already waiting to handshake.
+     *
+     * @return the rejected connection count
+     */
+    public long getRejectedHandshakes() {
+        return rejectedHandshakes.sum();
+    }
+
+    /**
+     * Returns the number of connections on a shared port that spoke plaintext and
+     * were handed to the plaintext handler instead of handshaking.
+     *
+     * @return the plaintext connection count
+     */
+    public long getPlaintextConnections() {
+        return plaintextConnections.sum();
+    }
+
+    /**
+     * Returns the mean time completed handshakes took.
+     *
+     * @return the mean handshake time in milliseconds, 0 if none completed
+     */
+    public double getAverageHandshakeMillis() {
+        long completed = getCompletedHandshakes();
+        return completed == 0 ? 0 : handshakeNanos.sum() / 1_000_000.0 / completed;
+    }
+
+    /**
+     * Returns the longest time a completed handshake took.
+     *
+     * @return the maximum handshake time in milliseconds
+     */
+    public double getMaxHandshakeMillis() {
+        return maxHandshakeNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "TlsHandshakeMetrics{" +
+                "full=" + getFullHandshakes() +
+                ", resumed=" + getResumedHandshakes() +
+                ", failed=" + getFailedHandshakes() +
+                ", timedOut=" + getTimedOutHandshakes() +
+                ", rejected=" + getRejectedHandshakes() +
+                ", plaintext=" + getPlaintextConnections() +
+                ", averageMillis=" + String.format("%.3f", getAverageHandshakeMillis()) +
+                ", maxMillis=" + String.format("%.3f", getMaxHandshakeMillis()) +
+                '}';
+    }
+}
@@ -0,0 +1,423 @@
+package com.httpserver.core.https;
+
+import com.httpserver.config.SSLConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Drives TLS handshakes for many connections on one thread with a {@link Selector}.
+ * <p>
+ * Accepted connections are registered here instead of getting a worker thread at
+ * once, so a client that opens a connection and sends its handshake slowly, or never,
+ * costs a selector key rather than a thread. When a handshake completes the socket is
+ * switched back to blocking mode and handed to the callback, which starts the worker.
+ * </p>
+ * <p>
+ * Handshake cost is bounded three ways. Every handshake has a deadline counted from
+ * its registration, and connections that miss it are closed. At most a fixed number
+ * of handshakes are in progress; later connections wait in a bounded queue, and
+ * connections arriving to a full queue are closed at once. The key exchange itself runs
+ * on this thread, so a reconnect storm occupies one core rather than the workers'.
+ * </p>
+ * <p>
+ * When constructed with a plaintext handler, the handshaker first waits for the
+ * connection's first byte. Connections that do not start with a TLS handshake record,
+ * such as plain HTTP clients on a port shared with HTTPS, are handed to the plaintext
+ * handler with the bytes already received. Waiting for that byte counts against the
+ * same deadline and admission limits as the handshake.
+ * </p>
+ */
+public class TlsHandshaker extends Thread implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TlsHandshaker.class);
+
+    private final Selector selector;
+    private final Consumer<TlsChannel> onHandshake;
+    private final BiConsumer<SocketChannel, byte[]> onPlaintext;
+    private final long timeoutNanos;
+    private final int maxConcurrent;
+    private final int queueSize;
+    private final Queue<Handshake> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final TlsHandshakeMetrics metrics = new TlsHandshakeMetrics();
+    private volatile boolean running = true;
+
+    /**
+     * Admitted handshakes in registration order, which is also deadline order since
+     * every handshake gets the same timeout. Completed and failed entries are dropped
+     * when they reach the head. Only touched by this thread.
+     */
+    private final ArrayDeque<Handshake> deadlines = new ArrayDeque<>();
+
+    /**
+     * Constructs a TlsHandshaker with the default timeout and admission limits. Call
+     * {@link #start()} to begin handshaking.
+     *
+     * @param onHandshake receives each connection whose handshake completed, in blocking mode
+     * @throws IOException if the selector cannot be opened
+     */
+    public TlsHandshaker(Consumer<TlsChannel> onHandshake) throws IOException {
+        this(onHandshake, SSLConfiguration.DEFAULT_HANDSHAKE_TIMEOUT_MILLIS, SSLConfiguration.DEFAULT_MAX_CONCURRENT_HANDSHAKES,
+                SSLConfiguration.DEFAULT_HANDSHAKE_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructs a TlsHandshaker. Call {@link #start()} to begin handshaking.
+     *
+     * @param onHandshake   receives each connection whose handshake completed, in blocking mode
+     * @param timeoutMillis the time a connection has to complete its handshake, from registration
+     * @param maxConcurrent the maximum number of handshakes in progress at once
+     * @param queueSize     the maximum number of connections waiting for admission
+     * @throws IOException              if the selector cannot be opened
+     * @throws IllegalArgumentException if the timeout or concurrency limit is not positive, or the queue size is negative
+     */
+    public TlsHandshaker(Consumer<TlsChannel> onHandshake, long timeoutMillis, int maxConcurrent, int queueSize) throws IOException {
+        this(onHandshake, null, timeoutMillis, maxConcurrent, queueSize);
+    }
+
+    /**
+     * Constructs a TlsHandshaker that also accepts plaintext connections. Call
+     * {@link #start()} to begin handshaking.
+     *
+     * @param onHandshake   receives each connection whose handshake completed, in blocking mode
+     * @param onPlaintext   receives each connection that did not start with a TLS handshake record,
+     *                      in blocking mode, with the bytes already received; null to treat every
+     *                      connection as TLS
+     * @param timeoutMillis the time a connection has to complete its handshake, from registration
+     * @param maxConcurrent the maximum number of handshakes in progress at once
+     * @param queueSize     the maximum number of connections waiting for admission
+     * @throws IOException              if the selector cannot be opened
+     * @throws IllegalArgumentException if the timeout or concurrency limit is not positive, or the queue size is negative
+     */
+    public TlsHandshaker(Consumer<TlsChannel> onHandshake, BiConsumer<SocketChannel, byte[]> onPlaintext,
+                         long timeoutMillis, int maxConcurrent, int queueSize) throws IOException {
+        super("tls-handshaker");
+        if (timeoutMillis <= 0 || maxConcurrent <= 0 || queueSize < 0) {
+            throw new IllegalArgumentException("Invalid handshake limits: timeout " + timeoutMillis
+                    + " ms, " + maxConcurrent + " concurrent, queue of " + queueSize);
+        }
+        setDaemon(true);
+        this.selector = Selector.open();
+        this.onHandshake = onHandshake;
+        this.onPlaintext = onPlaintext;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxConcurrent = maxConcurrent;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Queues a connection for its handshake, or closes it at once if the admission
+     * queue is full.
+     *
+     * @param channel a new connection
+     * @return false if the connection was rejected
+     */
+    public boolean register(TlsChannel channel) {
+        // Connections that will be admitted at once do not count against the queue.
+        if (queuedCount.incrementAndGet() > queueSize + Math.max(0, maxConcurrent - activeCount.get())) {
+            queuedCount.decrementAndGet();
+            metrics.recordRejected();
+            LOGGER.warn("Rejected TLS connection: {} handshakes in progress and {} queued", activeCount.get(), queuedCount.get());
+            try {
+                // Nothing was sent yet, so there is no close_notify to send.
+                channel.getSocketChannel().close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close rejected TLS connection: {}", e.getMessage());
+            }
+            return false;
+        }
+        queued.add(new Handshake(channel, System.nanoTime() + timeoutNanos, onPlaintext != null));
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Returns the handshake statistics.
+     *
+     * @return the metrics
+     */
+    public TlsHandshakeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of connections handshaking or waiting to.
+     *
+     * @return the pending handshake count
+     */
+    public int getPendingHandshakes() {
+        return activeCount.get() + queuedCount.get();
+    }
+
+    /**
+     * Returns the number of connections waiting for a handshake slot.
+     *
+     * @return the queued connection count
+     */
+    public int getQueuedHandshakes() {
+        return queuedCount.get();
+    }
+
+    @Override
+    public void run() {
+        List<Handshake> completed = new ArrayList<>();
+        try {
+            while (running) {
+                if (selector.selectedKeys().isEmpty()) {
+                    selector.select(selectTimeoutMillis());
+                }
+                expire(System.nanoTime());
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Handshake handshake = (Handshake) key.attachment();
+                    if (key.isValid() && advance(handshake, key)) {
+                        key.cancel();
+                        completed.add(handshake);
+                    }
+                }
+                // After the keys, so slots freed by completions and failures are reused at once.
+                admitQueued(completed);
+
+                if (!completed.isEmpty()) {
+                    // Deregister the cancelled keys so the sockets can block again.
+                    selector.selectNow();
+                    for (Handshake handshake : completed) {
+                        handOff(handshake);
+                    }
+                    completed.clear();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                LOGGER.error("TLS handshaker stopped: {}", e.getMessage());
+                LOGGER.debug("Full stack trace:", e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Returns how long to select for: until the earliest deadline, or indefinitely
+     * when nothing is handshaking.
+     */
+    private long selectTimeoutMillis() {
+        dropFinished();
+        Handshake first = deadlines.peekFirst();
+        if (first == null) {
+            return 0;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(first.deadlineNanos - System.nanoTime());
+        return Math.max(1, remaining + 1);
+    }
+
+    /**
+     * Closes the handshakes whose deadline has passed.
+     */
+    private void expire(long now) {
+        dropFinished();
+        Handshake first;
+        while ((first = deadlines.peekFirst()) != null && first.deadlineNanos - now <= 0) {
+            deadlines.pollFirst();
+            if (first.key != null) {
+                first.key.cancel();
+            }
+            timeOut(first);
+            dropFinished();
+        }
+    }
+
+    private void dropFinished() {
+        while (!deadlines.isEmpty() && deadlines.peekFirst().finished) {
+            deadlines.pollFirst();
+        }
+    }
+
+    /**
+     * Admits queued connections while there are free slots, advancing each once so a
+     * client that already sent its hello is not delayed by a selection. Connections
+     * that expired while queued are closed without being started.
+     */
+    private void admitQueued(List<Handshake> completed) {
+        long now = System.nanoTime();
+        while (activeCount.get() < maxConcurrent) {
+            Handshake handshake = queued.poll();
+            if (handshake == null) {
+                return;
+            }
+            queuedCount.decrementAndGet();
+            activeCount.incrementAndGet();
+            if (handshake.deadlineNanos - now <= 0) {
+                timeOut(handshake);
+                continue;
+            }
+            deadlines.addLast(handshake);
+
+            TlsChannel channel = handshake.channel;
+            try {
+                channel.getSocketChannel().configureBlocking(false);
+            } catch (IOException e) {
+                fail(handshake, e);
+                continue;
+            }
+            if (advance(handshake, null)) {
+                completed.add(handshake);
+                continue;
+            }
+            if (handshake.finished) {
+                // The handshake failed.
+                continue;
+            }
+            try {
+                handshake.key = channel.getSocketChannel().register(selector, channel.interestOps(), handshake);
+            } catch (IOException e) {
+                fail(handshake, e);
+            }
+        }
+    }
+
+    /**
+     * Advances a handshake and updates what its key waits for. While the first byte
+     * is awaited, only reads are waited for.
+     *
+     * @return true if the handshake completed, or the connection turned out to be plaintext
+     */
+    private boolean advance(Handshake handshake, SelectionKey key) {
+        try {
+            if (handshake.sniffing) {
+                int first = handshake.channel.peekFirstByte();
+                if (first < 0) {
+                    return false;
+                }
+                handshake.sniffing = false;
+                if (first != TlsChannel.HANDSHAKE_RECORD) {
+                    handshake.plaintext = true;
+                    return true;
+                }
+            }
+            if (handshake.channel.handshake()) {
+                return true;
+            }
+            if (key != null) {
+                key.interestOps(handshake.channel.interestOps());
+            }
+        } catch (IOException e) {
+            if (key != null) {
+                key.cancel();
+            }
+            fail(handshake, e);
+        }
+        return false;
+    }
+
+    private void handOff(Handshake handshake) {
+        finish(handshake);
+        TlsChannel channel = handshake.channel;
+        try {
+            channel.getSocketChannel().configureBlocking(true);
+            if (handshake.plaintext) {
+                metrics.recordPlaintext();
+                onPlaintext.accept(channel.getSocketChannel(), channel.takeReceived());
+                return;
+            }
+            metrics.recordCompleted(channel.isSessionResumed(), System.nanoTime() - handshake.startNanos);
+            onHandshake.accept(channel);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to hand off TLS connection: {}", e.getMessage());
+            closeQuietly(channel);
+        }
+    }
+
+    private void fail(Handshake handshake, IOException e) {
+        finish(handshake);
+        metrics.recordFailed();
+        LOGGER.debug("TLS handshake failed: {}", e.getMessage());
+        closeQuietly(handshake.channel);
+    }
+
+    private void timeOut(Handshake handshake) {
+        finish(handshake);
+        metrics.recordTimedOut();
+        LOGGER.debug("TLS handshake timed out after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - handshake.startNanos));
+        closeQuietly(handshake.channel);
+    }
+
+    /**
+     * Frees the handshake's slot. Runs once per admitted handshake.
+     */
+    private void finish(Handshake handshake) {
+        handshake.finished = true;
+        activeCount.decrementAndGet();
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(((Handshake) key.attachment()).channel);
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.debug("Failed to close TLS handshaker selector: {}", e.getMessage());
+        }
+        Handshake handshake;
+        while ((handshake = queued.poll()) != null) {
+            closeQuietly(handshake.channel);
+        }
+    }
+
+    private static void closeQuietly(TlsChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close TLS connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stops handshaking and closes the connections still handshaking.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * A connection's handshake state on this thread.
+     */
+    private static final class Handshake {
+        private final TlsChannel channel;
+        private final long startNanos = System.nanoTime();
+        private final long deadlineNanos;
+        private SelectionKey key;
+        private boolean finished;
+        private boolean sniffing;
+        private boolean plaintext;
+
+        private Handshake(TlsChannel channel, long deadlineNanos, boolean sniffing) {
+            this.channel = channel;
+            this.deadlineNanos = deadlineNanos;
+            this.sniffing = sniffing;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.httpserver.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response body backed by a {@link ByteBuffer}, typically an off-heap buffer shared
+ * between responses. Each write works on a duplicate, so the shared buffer's position
+ * and limit are never touched and concurrent responses can send the same buffer.
+ */
+public class ByteBufferBody implements ResponseBody {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs a ByteBufferBody sending the remaining bytes of the given buffer.
+     *
+     * @param buffer the buffer to send; its position and limit must not change afterwards
+     */
+    public ByteBufferBody(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public long length() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer view = buffer.duplicate();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+}
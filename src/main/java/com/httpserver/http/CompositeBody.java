@@ -0,0 +1,51 @@
+package com.httpserver.http;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * A response body made of several bodies written one after the other, such as the
+ * parts and delimiters of a {@code multipart/byteranges} response. Each part keeps
+ * its own transfer strategy, so file regions are still sent with zero-copy transfers.
+ */
+public class CompositeBody implements ResponseBody {
+
+    private final List<ResponseBody> parts;
+    private final long length;
+
+    /**
+     * Constructs a CompositeBody.
+     *
+     * @param parts the bodies to write, in order
+     */
+    public CompositeBody(List<ResponseBody> parts) {
+        this.parts = List.copyOf(parts);
+        long total = 0;
+        for (ResponseBody part : this.parts) {
+            total += part.length();
+        }
+        this.length = total;
+    }
+
+    /**
+     * Returns the bodies this body is made of.
+     *
+     * @return the parts, in order
+     */
+    public List<ResponseBody> getParts() {
+        return parts;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for (ResponseBody part : parts) {
+            part.writeTo(channel);
+        }
+    }
+}
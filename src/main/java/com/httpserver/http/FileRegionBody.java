@@ -0,0 +1,119 @@
+package com.httpserver.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A response body backed by a region of a file.
+ * <p>
+ * The region is sent with {@link FileChannel#transferTo}, so when the target is a
+ * socket channel the kernel copies the file pages straight to the socket (sendfile)
+ * and the bytes never enter the JVM heap. For other channels, such as a TLS stream,
+ * the JDK falls back to an internal copy. When a transfer makes no progress, as it can
+ * on a non-blocking channel whose buffer is full, a chunk is copied through the heap
+ * instead; if the channel accepts none of that either, sending fails rather than
+ * spinning.
+ * </p>
+ */
+public class FileRegionBody implements ResponseBody {
+
+    private static final int FALLBACK_CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final long position;
+    private final long count;
+
+    /**
+     * Constructs a FileRegionBody covering a whole file.
+     *
+     * @param path the file to send
+     * @param size the size of the file
+     */
+    public FileRegionBody(Path path, long size) {
+        this(path, 0, size);
+    }
+
+    /**
+     * Constructs a FileRegionBody covering part of a file.
+     *
+     * @param path     the file to send
+     * @param position the offset of the first byte to send
+     * @param count    the number of bytes to send
+     */
+    public FileRegionBody(Path path, long position, long count) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid file region: position=" + position + ", count=" + count);
+        }
+        this.path = path;
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * Returns the file this body is read from.
+     *
+     * @return the file path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the offset of the first byte of the region.
+     *
+     * @return the region offset
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long length() {
+        return count;
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long written = 0;
+            while (written < count) {
+                long transferred = fileChannel.transferTo(position + written, count - written, channel);
+                if (transferred <= 0) {
+                    if (position + written >= fileChannel.size()) {
+                        throw new EOFException("File " + path + " shrank while being sent");
+                    }
+                    transferred = copyChunk(fileChannel, position + written, count - written, channel);
+                    if (transferred == 0) {
+                        throw new IOException("Channel accepted no bytes while sending " + path);
+                    }
+                }
+                written += transferred;
+            }
+        }
+    }
+
+    /**
+     * Copies up to one chunk of the file through a heap buffer, stopping as soon as the
+     * channel accepts no more bytes.
+     *
+     * @return the number of bytes the channel accepted
+     */
+    private long copyChunk(FileChannel fileChannel, long from, long remaining, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(remaining, FALLBACK_CHUNK_SIZE));
+        if (fileChannel.read(buffer, from) < 0) {
+            throw new EOFException("File " + path + " shrank while being sent");
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+}
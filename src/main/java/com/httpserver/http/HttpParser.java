@@ -4,11 +4,10 @@ import com.httpserver.exception.HttpParsingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 /**
  * Parses HTTP requests from an InputStream.
@@ -22,20 +21,23 @@ public class HttpParser {
     private static final int LF = 0x0A; // Line feed
 
     /**
-     * Parses an HTTP request from the provided InputStream.
+     * Parses an HTTP request from the provided InputStream. The request line and
+     * headers are read byte by byte from a buffered stream, without reading ahead
+     * into the body, which is left on the stream until the handler reads it with
+     * {@link HttpRequest#getBody()} or streams it with {@link HttpRequest#getBodyPublisher()}.
      *
      * @param inputStream the InputStream containing the HTTP request data
      * @return the parsed HttpRequest object
      * @throws HttpParsingException if there is an error during parsing
      */
     public HttpRequest parseHttpRequest(InputStream inputStream) throws HttpParsingException {
-        InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.US_ASCII);
+        InputStream input = inputStream instanceof BufferedInputStream ? inputStream : new BufferedInputStream(inputStream);
         HttpRequest httpRequest = new HttpRequest();
 
         try {
-            parseRequestLine(reader, httpRequest);
-            parseHeaders(reader, httpRequest);
-            parseBody(reader, httpRequest);
+            parseRequestLine(input, httpRequest);
+            parseHeaders(input, httpRequest);
+            parseBody(input, httpRequest);
         } catch (IOException e) {
             LOGGER.error("I/O error during parsing: {}", e.getMessage());
             throw new HttpParsingException(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
@@ -44,23 +46,84 @@ public class HttpParser {
         return httpRequest;
     }
 
+    /**
+     * Builds an HTTP request from fields that were not read from a text request, such
+     * as the decoded header block of an HTTP/2 stream. The method and target go through
+     * the same checks as a parsed request line.
+     *
+     * @param method      the request method
+     * @param target      the request target
+     * @param httpVersion the version the request arrived with
+     * @param headers     the request headers
+     * @param body        the request body, empty if there is none
+     * @return the built HttpRequest object
+     * @throws HttpParsingException if the method is not supported or the target is empty
+     */
+    public HttpRequest buildHttpRequest(String method, String target, HttpVersion httpVersion,
+                                        Map<String, String> headers, String body) throws HttpParsingException {
+        HttpRequest httpRequest = buildHttpRequest(method, target, httpVersion, headers);
+        httpRequest.setBody(body);
+        return httpRequest;
+    }
+
+    /**
+     * Builds an HTTP request whose body arrived as bytes, such as the DATA frames of an
+     * HTTP/2 stream. {@link HttpRequest#getBodyPublisher()} publishes the bytes as they
+     * arrived, whatever their encoding.
+     *
+     * @param method      the request method
+     * @param target      the request target
+     * @param httpVersion the version the request arrived with
+     * @param headers     the request headers
+     * @param body        the request body bytes, empty if there is none
+     * @return the built HttpRequest object
+     * @throws HttpParsingException if the method is not supported or the target is empty
+     */
+    public HttpRequest buildHttpRequest(String method, String target, HttpVersion httpVersion,
+                                        Map<String, String> headers, byte[] body) throws HttpParsingException {
+        HttpRequest httpRequest = buildHttpRequest(method, target, httpVersion, headers);
+        httpRequest.setBodyBytes(body);
+        return httpRequest;
+    }
+
+    private HttpRequest buildHttpRequest(String method, String target, HttpVersion httpVersion,
+                                         Map<String, String> headers) throws HttpParsingException {
+        HttpRequest httpRequest = new HttpRequest();
+        try {
+            httpRequest.setMethod(HttpMethod.valueOf(method));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported HTTP Method: {}", method);
+            throw new HttpParsingException(HttpStatusCode.SERVER_ERROR_501_NOT_IMPLEMENTED);
+        }
+        if (target == null || target.isEmpty()) {
+            LOGGER.error("Empty Request Target found.");
+            throw new HttpParsingException(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        }
+        httpRequest.setRequestTarget(target);
+        httpRequest.setHttpVersion(httpVersion);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            httpRequest.addHeader(header.getKey(), header.getValue());
+        }
+        return httpRequest;
+    }
+
     /**
      * Parses the request line of the HTTP request.
      *
-     * @param reader  the InputStreamReader to read the request line
+     * @param input   the stream to read the request line from
      * @param request the HttpRequest object to populate
      * @throws IOException          if an I/O error occurs
      * @throws HttpParsingException if the request line is invalid
      */
-    private void parseRequestLine(InputStreamReader reader, HttpRequest request) throws IOException, HttpParsingException {
+    private void parseRequestLine(InputStream input, HttpRequest request) throws IOException, HttpParsingException {
         StringBuilder processingDataBuffer = new StringBuilder();
         boolean methodParsed = false;
         boolean requestTargetParsed = false;
 
         int _byte;
-        while ((_byte = reader.read()) >= 0) {
+        while ((_byte = input.read()) >= 0) {
             if (_byte == CR) {
-                _byte = reader.read();
+                _byte = input.read();
                 if (_byte == LF) {
                     if (!methodParsed || !requestTargetParsed) {
                         LOGGER.error("Method or Request Target not parsed properly. MethodParsed: {}, RequestTargetParsed: {}", methodParsed, requestTargetParsed);
@@ -113,16 +176,15 @@ public class HttpParser {
     /**
      * Parses the headers of the HTTP request.
      *
-     * @param reader      the InputStreamReader to read the headers
+     * @param input       the stream to read the headers from
      * @param httpRequest the HttpRequest object to populate with headers
      * @throws IOException          if an I/O error occurs
      * @throws HttpParsingException if a header is invalid
      */
-    private void parseHeaders(InputStreamReader reader, HttpRequest httpRequest) throws IOException, HttpParsingException {
-        BufferedReader bufferedReader = new BufferedReader(reader);
+    private void parseHeaders(InputStream input, HttpRequest httpRequest) throws IOException, HttpParsingException {
         String line;
 
-        while ((line = bufferedReader.readLine()) != null && !line.isEmpty()) {
+        while ((line = readLine(input)) != null && !line.isEmpty()) {
             String[] header = line.split(": ", 2);
             if (header.length != 2) {
                 LOGGER.error("Invalid header format: {}", line);
@@ -137,14 +199,37 @@ public class HttpParser {
     }
 
     /**
-     * Parses the body of the HTTP request based on the Content-Length header.
+     * Reads one header line, ended by LF or CRLF, without reading past it.
+     *
+     * @param input the stream to read from
+     * @return the line without its terminator, or null at the end of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int _byte;
+        while ((_byte = input.read()) >= 0) {
+            if (_byte == LF) {
+                int end = line.length();
+                if (end > 0 && line.charAt(end - 1) == CR) {
+                    line.setLength(end - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) _byte);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    /**
+     * Checks the Content-Length header and leaves the body of that length on the
+     * stream, to be read when the handler asks for it.
      *
-     * @param reader      the InputStreamReader to read the body
+     * @param input       the stream positioned at the first byte of the body
      * @param httpRequest the HttpRequest object to populate with the body
-     * @throws IOException          if an I/O error occurs
-     * @throws HttpParsingException if the body cannot be parsed correctly
+     * @throws HttpParsingException if the Content-Length header is invalid
      */
-    private void parseBody(InputStreamReader reader, HttpRequest httpRequest) throws IOException, HttpParsingException {
+    private void parseBody(InputStream input, HttpRequest httpRequest) throws HttpParsingException {
         String contentLengthHeader = httpRequest.getHeaders().get("Content-Length");
 
         if (contentLengthHeader == null || contentLengthHeader.isEmpty()) {
@@ -168,24 +253,6 @@ public class HttpParser {
             return;
         }
 
-        char[] buffer = new char[1024];
-        StringBuilder bodyBuilder = new StringBuilder(contentLength);
-        int totalBytesRead = 0;
-        int bytesRead;
-
-        LOGGER.debug("Starting to read request body.");
-        while (totalBytesRead < contentLength && (bytesRead = reader.read(buffer, 0, Math.min(buffer.length, contentLength - totalBytesRead))) != -1) {
-            bodyBuilder.append(buffer, 0, bytesRead);
-            totalBytesRead += bytesRead;
-            LOGGER.debug("Read {} bytes. Total bytes read so far: {}", bytesRead, totalBytesRead);
-        }
-
-        if (totalBytesRead < contentLength) {
-            LOGGER.error("Body size does not match Content-Length header. Expected: {}, but read: {}", contentLength, totalBytesRead);
-            throw new HttpParsingException(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
-        }
-
-        httpRequest.setBody(bodyBuilder.toString());
-        LOGGER.info("Body successfully parsed. Total bytes read: {}", totalBytesRead);
+        httpRequest.setBodySource(input, contentLength);
     }
 }
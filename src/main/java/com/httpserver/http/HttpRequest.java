@@ -4,11 +4,21 @@ import com.httpserver.exception.HttpParsingException;
 import com.httpserver.utils.RateLimiterConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents an HTTP request message, including the method, target, HTTP version, headers, and body.
@@ -19,22 +29,32 @@ public class HttpRequest extends HttpMessage {
 
     private static final int MAX_REQUESTS = RateLimiterConfig.getMaxRequests(); // Read from env
     private static final long TIME_WINDOW_MS = RateLimiterConfig.getTimeWindowMs(); // Read from env
+    private static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE / 2); // Keeps deadline arithmetic from overflowing
+    private static final Charset BODY_CHARSET = StandardCharsets.UTF_8; // Decodes the body and encodes bodies set as text, as HTTP/2 does
 
     // Rate limiter properties
     private static final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>(); // Store rate limiters for clients
     private final Map<String, String> headers = new HashMap<>(); // To store headers
     private final String traceId; // To store the trace ID
     private final String requestId; // To store the request ID
+    private final long receivedNanos; // System.nanoTime() when the request was read
     private HttpMethod method;
     private String requestTarget;
     private String originalHttpVersion; // literal from the request
     private HttpVersion bestCompatibleHttpVersion;
     private String body; // To store the body of the request
+    private byte[] bodyBytes; // The bytes the body was read as, published unchanged; null for bodies set as text
+    private RequestBodyPublisher bodyPublisher; // Streams a body not yet read from the connection
+    private Map<String, String> pathParameters = Map.of(); // Set by the router that matched the request
+    private volatile long timeoutNanos = -1; // Allowed by the server or the route, from receivedNanos; -1 for none
+    private volatile long clientTimeoutNanos = -1; // Asked for by the client, from receivedNanos; -1 for none
+    private volatile Runnable deadlineListener; // Re-arms the request processor's timer when the deadline moves
 
     /**
      * Default constructor for HttpRequest.
      */
     HttpRequest() {
+        this.receivedNanos = System.nanoTime();
         this.traceId = UUID.randomUUID().toString(); // Generate a unique trace ID
         this.requestId = UUID.randomUUID().toString(); // Generate a unique request ID
         logger.debug("HttpRequest object created with trace ID: {} and request ID: {}", traceId, requestId);
@@ -95,16 +115,165 @@ public class HttpRequest extends HttpMessage {
         return headers;
     }
 
+    /**
+     * Gets the value of a header, matching the name case-insensitively as
+     * required by RFC 9110.
+     *
+     * @param name the header name.
+     * @return the header value, or null if the header is not present.
+     */
+    public String getHeader(String name) {
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the body of the request, reading it from the connection on first use if
+     * it has not been read yet. The bytes are decoded as UTF-8.
+     *
+     * @return the body, empty if there is none.
+     * @throws HttpParsingException  if the connection ends before the body does or reading it fails.
+     * @throws IllegalStateException if the body is being streamed through {@link #getBodyPublisher()}.
+     */
     public String getBody() {
+        if (body == null && bodyPublisher != null) {
+            bodyBytes = bodyPublisher.readAll();
+            body = new String(bodyBytes, BODY_CHARSET);
+            bodyPublisher = null;
+        }
         return body;
     }
 
     public void setBody(String body) {
         logger.trace("Attempting to set body for trace ID {} and request ID {}", traceId, requestId);
         this.body = body;
+        this.bodyBytes = null;
+        this.bodyPublisher = null;
         logger.debug("Request body set for trace ID {} and request ID {}", traceId, requestId);
     }
 
+    /**
+     * Sets a body that arrived as bytes. {@link #getBody()} decodes them as UTF-8 and
+     * {@link #getBodyPublisher()} publishes them unchanged.
+     *
+     * @param bodyBytes the body bytes.
+     */
+    void setBodyBytes(byte[] bodyBytes) {
+        this.body = new String(bodyBytes, BODY_CHARSET);
+        this.bodyBytes = bodyBytes;
+        this.bodyPublisher = null;
+        logger.debug("Request body of {} bytes set for trace ID {} and request ID {}", bodyBytes.length, traceId, requestId);
+    }
+
+    /**
+     * Gets the body of the request as a stream of buffers. A body that has not been
+     * read yet is read from the connection only as fast as the subscriber requests
+     * it, so a slow consumer slows the client down instead of the body piling up in
+     * memory. The body can be consumed once, either here or through {@link #getBody()}.
+     * A body already read by {@link #getBody()} is published as the bytes that arrived;
+     * one set as text is encoded as UTF-8.
+     *
+     * @return a publisher of the body bytes; it completes at once if there is no body.
+     */
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        if (bodyPublisher != null) {
+            return bodyPublisher;
+        }
+        byte[] bytes = bodyBytes != null ? bodyBytes : body == null ? new byte[0] : body.getBytes(BODY_CHARSET);
+        return new RequestBodyPublisher(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    /**
+     * Gets the number of body bytes still on the connection, which neither
+     * {@link #getBody()} nor a subscriber to {@link #getBodyPublisher()} has read.
+     *
+     * @return the unread bytes, 0 if the body has been read or was never on the connection.
+     */
+    public long getUnreadBodyLength() {
+        RequestBodyPublisher publisher = bodyPublisher;
+        return publisher == null ? 0 : publisher.unread();
+    }
+
+    /**
+     * Reads and throws away the part of the body the handler did not consume, so that
+     * closing the connection does not reset it while the client is still sending and
+     * the response is not lost. A larger remainder is left on the connection.
+     *
+     * @param limit the most bytes to read and throw away.
+     * @return true if no byte of the body is left on the connection.
+     * @throws IOException if reading the connection fails.
+     */
+    public boolean discardUnreadBody(long limit) throws IOException {
+        RequestBodyPublisher publisher = bodyPublisher;
+        return publisher == null || publisher.discard(limit);
+    }
+
+    /**
+     * Wraps the connection input the unread body will be read from, for instance to
+     * give each read a time limit. Has no effect once the body is being consumed or
+     * if it is not on the connection.
+     *
+     * @param wrapper wraps the connection's input, positioned at the first byte of the body.
+     */
+    public void wrapBodySource(UnaryOperator<InputStream> wrapper) {
+        RequestBodyPublisher publisher = bodyPublisher;
+        if (publisher != null) {
+            bodyPublisher = publisher.wrapSource(wrapper);
+        }
+    }
+
+    /**
+     * Leaves the body on the connection, to be read when the handler asks for it.
+     *
+     * @param source the connection's input, positioned at the first byte of the body.
+     * @param length the number of body bytes.
+     */
+    void setBodySource(InputStream source, long length) {
+        this.body = null;
+        this.bodyBytes = null;
+        this.bodyPublisher = new RequestBodyPublisher(source, length);
+        logger.trace("Request body of {} bytes left on the connection for trace ID {}", length, traceId);
+    }
+
+    /**
+     * Gets the parameters captured from the path by the route that matched the
+     * request, such as {@code id} for the pattern {@code /users/:id}.
+     *
+     * @return the path parameters by name, empty if the request was not routed.
+     */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * Gets one parameter captured from the path by the route that matched the request.
+     *
+     * @param name the parameter name, without the leading ':' or '*'.
+     * @return the decoded value, or null if the route has no such parameter.
+     */
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    /**
+     * Sets the parameters captured from the path. Called by the router before the
+     * route's handler runs.
+     *
+     * @param pathParameters the path parameters by name.
+     */
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+        logger.trace("Path parameters set to {} for trace ID {} and request ID {}", pathParameters, traceId, requestId);
+    }
+
     /**
      * Gets the trace ID for the request.
      *
@@ -123,6 +292,114 @@ public class HttpRequest extends HttpMessage {
         return requestId;
     }
 
+    /**
+     * Gets the time the request was read, for measuring how long it takes to answer.
+     *
+     * @return the value of {@link System#nanoTime()} when the request was created.
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    /**
+     * Sets how long the server allows for answering the request, measured from when
+     * it was read. Replaces the timeout set before, so a route can shorten or extend
+     * the server-wide one; a deadline asked for by the client still applies.
+     *
+     * @param timeout the time allowed, or null to remove the server's timeout.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeoutNanos = toNanos(timeout);
+        logger.trace("Timeout set to {} for trace ID {} and request ID {}", timeout, traceId, requestId);
+        deadlineChanged();
+    }
+
+    /**
+     * Sets how long the client is prepared to wait for the response, measured from
+     * when the request was read. It can only bring the deadline forward: the server's
+     * timeout still applies if it is shorter.
+     *
+     * @param timeout the time the client waits, or null if it did not say.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public void setClientTimeout(Duration timeout) {
+        this.clientTimeoutNanos = toNanos(timeout);
+        logger.trace("Client timeout set to {} for trace ID {} and request ID {}", timeout, traceId, requestId);
+        deadlineChanged();
+    }
+
+    /**
+     * Returns whether the request must be answered by a deadline.
+     *
+     * @return true if the server, the route or the client set a timeout.
+     */
+    public boolean hasDeadline() {
+        return effectiveTimeoutNanos() >= 0;
+    }
+
+    /**
+     * Returns the time left to answer the request. Handlers pass it on to the calls
+     * they make, so work the client will not wait for is not started.
+     *
+     * @return the nanoseconds until the deadline, 0 once it has passed, or
+     * {@link Long#MAX_VALUE} if the request has no deadline.
+     */
+    public long getRemainingNanos() {
+        long timeout = effectiveTimeoutNanos();
+        if (timeout < 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, timeout - (System.nanoTime() - receivedNanos));
+    }
+
+    /**
+     * Returns whether the deadline has passed. Long-running handlers check it between
+     * steps and stop early, since their response would be discarded.
+     *
+     * @return true if the request has a deadline and it has passed.
+     */
+    public boolean isDeadlineExceeded() {
+        return getRemainingNanos() == 0;
+    }
+
+    /**
+     * Registers the code told when the deadline moves. Set by the request processor,
+     * which re-arms the timer enforcing the deadline.
+     *
+     * @param deadlineListener run after each change of the deadline, or null.
+     */
+    public void setDeadlineListener(Runnable deadlineListener) {
+        this.deadlineListener = deadlineListener;
+    }
+
+    private long effectiveTimeoutNanos() {
+        long server = timeoutNanos;
+        long client = clientTimeoutNanos;
+        if (server < 0 || client < 0) {
+            return Math.max(server, client);
+        }
+        return Math.min(server, client);
+    }
+
+    private void deadlineChanged() {
+        Runnable listener = deadlineListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private static long toNanos(Duration timeout) {
+        if (timeout == null) {
+            return -1;
+        }
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must not be negative: " + timeout);
+        }
+        // Saturate rather than overflow: a timeout of centuries is no timeout at all.
+        return timeout.compareTo(MAX_TIMEOUT) >= 0 ? Long.MAX_VALUE / 2 : timeout.toNanos();
+    }
+
     public void setHttpVersion(String originalHttpVersion) throws BadHttpVersionException, HttpParsingException {
         logger.trace("Attempting to set HTTP version for trace ID {} and request ID {}", traceId, requestId);
         this.originalHttpVersion = originalHttpVersion;
@@ -134,6 +411,18 @@ public class HttpRequest extends HttpMessage {
         logger.debug("Original HTTP version set to '{}', best compatible version: '{}' for trace ID {} and request ID {}", originalHttpVersion, bestCompatibleHttpVersion, traceId, requestId);
     }
 
+    /**
+     * Sets the version of a request that was not read from a request line, such as
+     * one received on an HTTP/2 stream.
+     *
+     * @param httpVersion the version the request arrived with.
+     */
+    void setHttpVersion(HttpVersion httpVersion) {
+        this.originalHttpVersion = httpVersion.LITERAL;
+        this.bestCompatibleHttpVersion = httpVersion;
+        logger.debug("HTTP version set to '{}' for trace ID {} and request ID {}", httpVersion, traceId, requestId);
+    }
+
     public void addHeader(String name, String value) {
         logger.trace("Attempting to add header for trace ID {} and request ID {}", traceId, requestId);
         if (name == null || name.isEmpty() || value == null) {
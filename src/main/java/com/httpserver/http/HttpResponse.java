@@ -1,5 +1,11 @@
 package com.httpserver.http;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -12,6 +18,8 @@ public class HttpResponse {
     private HttpStatusCode statusCode;
     private HttpVersion httpVersion;
     private String body;
+    private byte[] bodyBytes;
+    private ResponseBody responseBody;
 
     /**
      * Constructs an empty HttpResponse with default settings.
@@ -73,6 +81,54 @@ public class HttpResponse {
      */
     public void setBody(String body) {
         this.body = body;
+        this.bodyBytes = null;
+        this.responseBody = null;
+    }
+
+    /**
+     * Sets the body content of the response as raw bytes, e.g. an already
+     * encoded or compressed payload. Replaces any string body.
+     *
+     * @param bodyBytes The body content to be set.
+     */
+    public void setBody(byte[] bodyBytes) {
+        this.bodyBytes = bodyBytes;
+        this.body = null;
+        this.responseBody = null;
+    }
+
+    /**
+     * Sets a body that writes itself to the connection, such as a file region.
+     * Replaces any string or byte body.
+     *
+     * @param responseBody The body to be set.
+     */
+    public void setBody(ResponseBody responseBody) {
+        this.responseBody = responseBody;
+        this.body = null;
+        this.bodyBytes = null;
+    }
+
+    /**
+     * Retrieves the body set with {@link #setBody(ResponseBody)}.
+     *
+     * @return The response body, or null if the body is held in memory or absent.
+     */
+    public ResponseBody getResponseBody() {
+        return responseBody;
+    }
+
+    /**
+     * Retrieves the body content of the response as bytes. A string body is
+     * encoded as UTF-8.
+     *
+     * @return The body content as bytes, or null if the response has no in-memory body.
+     */
+    public byte[] getBodyBytes() {
+        if (bodyBytes != null) {
+            return bodyBytes;
+        }
+        return body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
     }
 
     /**
@@ -85,6 +141,39 @@ public class HttpResponse {
         headers.put(key, value);
     }
 
+    /**
+     * Retrieves the value of a header, matching the name case-insensitively.
+     *
+     * @param name The header name.
+     * @return The header value, or null if the header is not present.
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a header, matching the name case-insensitively.
+     *
+     * @param name The header name.
+     */
+    public void removeHeader(String name) {
+        headers.keySet().removeIf(key -> key.equalsIgnoreCase(name));
+    }
+
+    /**
+     * Retrieves all headers of the response in insertion order.
+     *
+     * @return An unmodifiable view of the headers.
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
     /**
      * Builds the HTTP response by constructing the status line, headers, and body.
      *
@@ -117,4 +206,61 @@ public class HttpResponse {
 
         return response.toString();
     }
+
+    /**
+     * Builds the status line and headers of the response, terminated by the
+     * empty line that separates them from the body.
+     *
+     * @return The encoded response head.
+     */
+    public byte[] buildHead() {
+        String CRLF = "\r\n";
+
+        StringBuilder head = new StringBuilder();
+        head.append(httpVersion.LITERAL).append(" ")
+                .append(statusCode.STATUS_CODE).append(" ")
+                .append(statusCode.MESSAGE).append(CRLF);
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append(CRLF);
+        }
+        head.append(CRLF);
+
+        return head.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the response head and body to the given stream. Unlike
+     * {@link #buildResponse()}, the body is written byte-exact so that it
+     * matches the Content-Length header.
+     *
+     * @param outputStream The stream to write to.
+     * @throws IOException if an I/O error occurs while writing.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(outputStream, null);
+    }
+
+    /**
+     * Writes the response head and body. A {@link ResponseBody} is written to the
+     * given channel when one is available, so that file bodies can be transferred
+     * without copying them through the heap; otherwise it is written to the stream.
+     *
+     * @param outputStream The stream to write to.
+     * @param channel      The channel of the same connection, or null if the connection has none.
+     * @throws IOException if an I/O error occurs while writing.
+     */
+    public void writeTo(OutputStream outputStream, WritableByteChannel channel) throws IOException {
+        outputStream.write(buildHead());
+        if (responseBody != null) {
+            outputStream.flush();
+            responseBody.writeTo(channel != null ? channel : Channels.newChannel(outputStream));
+        } else {
+            byte[] bytes = getBodyBytes();
+            if (bytes != null && bytes.length > 0) {
+                outputStream.write(bytes);
+            }
+        }
+        outputStream.flush();
+    }
 }
@@ -13,7 +13,12 @@ public enum HttpVersion {
     /**
      * HTTP version 1.1
      */
-    HTTP_1_1("HTTP/1.1", 1, 1);
+    HTTP_1_1("HTTP/1.1", 1, 1),
+    /**
+     * HTTP version 2, used for requests received over HTTP/2 streams. HTTP/2 has no
+     * textual request line, so it is never the compatible version of a parsed literal.
+     */
+    HTTP_2_0("HTTP/2.0", 2, 0);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpVersion.class);
     /**
@@ -68,6 +73,9 @@ public enum HttpVersion {
 
         HttpVersion tempBestCompatible = null;
         for (HttpVersion version : HttpVersion.values()) {
+            if (version.MAJOR >= 2) {
+                continue;
+            }
             if (version.LITERAL.equals(literalVersion)) {
                 LOGGER.info("Exact match found for version: {}", version.LITERAL);
                 return version;
@@ -0,0 +1,155 @@
+package com.httpserver.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response body produced by a {@link Flow.Publisher}, for proxied or generated
+ * bodies that should not be held in memory. Demand follows the connection: the
+ * publisher is asked for a few buffers up front and then for one more each time a
+ * buffer has been written, so a client that reads slowly blocks the writes and, in
+ * turn, stops the requests to the producer.
+ * <p>
+ * The handler sets {@code Content-Length} when the length is known. Without it an
+ * HTTP/1.1 response ends when the connection closes, and an HTTP/2 response with
+ * the end of its stream. The publisher is subscribed once, when the body is written.
+ * </p>
+ */
+public class PublisherBody implements ResponseBody {
+
+    /**
+     * Number of buffers requested before the first write, so the producer can work
+     * ahead of the connection by that much.
+     */
+    static final int PREFETCH = 4;
+
+    /**
+     * Queued by the subscriber when the publisher completes.
+     */
+    private static final Object COMPLETE = new Object();
+
+    private final Flow.Publisher<ByteBuffer> publisher;
+    private final long length;
+    private final AtomicBoolean written = new AtomicBoolean();
+
+    /**
+     * Constructs a PublisherBody of unknown length.
+     *
+     * @param publisher produces the body
+     */
+    public PublisherBody(Flow.Publisher<ByteBuffer> publisher) {
+        this(publisher, -1);
+    }
+
+    /**
+     * Constructs a PublisherBody.
+     *
+     * @param publisher produces the body
+     * @param length    the number of bytes the publisher produces, or -1 if unknown
+     */
+    public PublisherBody(Flow.Publisher<ByteBuffer> publisher, long length) {
+        this.publisher = Objects.requireNonNull(publisher, "publisher");
+        this.length = length;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Subscribes to the publisher and writes each buffer to the channel as it
+     * arrives, blocking until the publisher completes.
+     *
+     * @param channel the channel of the connection
+     * @throws IOException if the publisher fails, produces a length other than the declared
+     *                     one or writing fails; the subscription is cancelled first
+     */
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        if (!written.compareAndSet(false, true)) {
+            throw new IOException("Response body publisher has already been written");
+        }
+        QueueingSubscriber subscriber = new QueueingSubscriber();
+        publisher.subscribe(subscriber);
+        long total = 0;
+        try {
+            while (true) {
+                Object signal = subscriber.signals.take();
+                if (signal == COMPLETE) {
+                    break;
+                }
+                if (signal instanceof Throwable) {
+                    throw new IOException("Response body publisher failed", (Throwable) signal);
+                }
+                ByteBuffer buffer = (ByteBuffer) signal;
+                total += buffer.remaining();
+                if (length >= 0 && total > length) {
+                    throw new IOException("Response body publisher produced more than " + length + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                subscriber.subscription.request(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscriber.cancel();
+            throw new InterruptedIOException("Interrupted while waiting for the response body publisher");
+        } catch (IOException | RuntimeException e) {
+            subscriber.cancel();
+            throw e;
+        }
+        if (length >= 0 && total != length) {
+            throw new IOException("Response body publisher produced " + total + " bytes instead of " + length);
+        }
+    }
+
+    /**
+     * Hands the publisher's signals to the writing thread. The queue never holds more
+     * than the outstanding demand plus the terminal signal.
+     */
+    private static final class QueueingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final BlockingQueue<Object> signals = new ArrayBlockingQueue<>(PREFETCH + 1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(PREFETCH);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            if (!signals.offer(item)) {
+                subscription.cancel();
+                signals.clear();
+                signals.offer(new IllegalStateException("Publisher sent more buffers than were requested"));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.offer(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.offer(COMPLETE);
+        }
+
+        private void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.httpserver.http;
+
+import com.httpserver.exception.HttpParsingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes a request body of known length as it is read from the connection. A
+ * chunk is read only when the subscriber has demand for it, on the thread that
+ * signalled the demand, so a subscriber that stops requesting stops the reads, the
+ * socket's receive buffer fills and TCP flow control slows the client down.
+ * <p>
+ * The body can be consumed once: by one subscriber, or buffered whole by
+ * {@link #readAll()}. Whatever the consumer left unread can then be thrown away with
+ * {@link #discard(long)}, so the connection can be closed without resetting it.
+ * </p>
+ */
+final class RequestBodyPublisher implements Flow.Publisher<ByteBuffer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestBodyPublisher.class);
+
+    /**
+     * Largest chunk handed to the subscriber.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    private final InputStream source;
+    private final long length;
+    private final AtomicBoolean consumed = new AtomicBoolean();
+    private volatile BodySubscription subscription;
+
+    /**
+     * Constructs a RequestBodyPublisher.
+     *
+     * @param source the connection's input, positioned at the first byte of the body
+     * @param length the number of body bytes, from Content-Length
+     */
+    RequestBodyPublisher(InputStream source, long length) {
+        this.source = source;
+        this.length = length;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!consumed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Request body has already been consumed"));
+            return;
+        }
+        BodySubscription subscription = new BodySubscription(subscriber);
+        this.subscription = subscription;
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    /**
+     * Returns a publisher of the same body read through a wrapper around the source,
+     * as long as nothing has consumed it yet.
+     *
+     * @param wrapper wraps the connection's input
+     * @return the new publisher, or this one if the body is already being consumed
+     */
+    RequestBodyPublisher wrapSource(UnaryOperator<InputStream> wrapper) {
+        return consumed.get() ? this : new RequestBodyPublisher(wrapper.apply(source), length);
+    }
+
+    /**
+     * Returns the number of body bytes.
+     *
+     * @return the body length
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of body bytes nobody has read from the connection yet.
+     *
+     * @return the unread bytes; 0 once the body has been read whole
+     */
+    long unread() {
+        if (!consumed.get()) {
+            return length;
+        }
+        BodySubscription current = subscription;
+        return current == null ? 0 : current.remaining;
+    }
+
+    /**
+     * Reads and throws away the bytes of the body nobody consumed, if there are no
+     * more than the limit. A subscriber that has not finished is cancelled first; if it
+     * is reading at that moment the body is left alone.
+     *
+     * @param limit the most bytes to read and throw away
+     * @return true if no byte of the body is left on the connection
+     * @throws IOException if reading fails
+     */
+    boolean discard(long limit) throws IOException {
+        long unread;
+        if (consumed.compareAndSet(false, true)) {
+            unread = length;
+        } else {
+            BodySubscription current = subscription;
+            if (current == null) {
+                // Read whole by readAll().
+                return true;
+            }
+            if (!current.takeOver()) {
+                return false;
+            }
+            unread = current.remaining;
+        }
+        if (unread == 0) {
+            return true;
+        }
+        if (unread > limit) {
+            return false;
+        }
+        try {
+            source.skipNBytes(unread);
+        } catch (EOFException e) {
+            LOGGER.debug("Request body ended before its Content-Length while discarding it");
+            return false;
+        }
+        LOGGER.debug("Discarded {} request body bytes the handler did not read", unread);
+        return true;
+    }
+
+    /**
+     * Reads the whole body, for callers that want it in memory.
+     *
+     * @return the body bytes
+     * @throws HttpParsingException  400 Bad Request if the connection ends before the body does,
+     *                               408 Request Timeout if the client stops sending it,
+     *                               or 500 Internal Server Error if reading fails
+     * @throws IllegalStateException if the body has already been consumed
+     */
+    byte[] readAll() throws HttpParsingException {
+        if (!consumed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Request body has already been consumed");
+        }
+        byte[] body;
+        try {
+            body = source.readNBytes((int) length);
+        } catch (SocketTimeoutException e) {
+            LOGGER.warn("Request body not received in time: {}", e.getMessage());
+            throw new HttpParsingException(HttpStatusCode.CLIENT_ERROR_408_REQUEST_TIMEOUT);
+        } catch (IOException e) {
+            LOGGER.error("I/O error while reading request body: {}", e.getMessage());
+            throw new HttpParsingException(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
+        }
+        if (body.length < length) {
+            LOGGER.error("Body size does not match Content-Length header. Expected: {}, but read: {}", length, body.length);
+            throw new HttpParsingException(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        }
+        LOGGER.debug("Body successfully read. Total bytes read: {}", body.length);
+        return body;
+    }
+
+    /**
+     * Delivers chunks as demand arrives. Signals are serialized by a work-in-progress
+     * counter: whichever thread finds it at zero drains, and signals arriving meanwhile,
+     * including requests made from inside {@code onNext}, are picked up by that thread
+     * before it leaves.
+     */
+    private final class BodySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private volatile long remaining = length;
+        private boolean done;
+
+        private BodySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Cancels the subscription and keeps any thread from draining it again.
+         *
+         * @return true if no thread was delivering a chunk, so the source is the caller's to read
+         */
+        private boolean takeOver() {
+            cancelled = true;
+            // Never released: with the counter above zero, later signals return at once.
+            return wip.compareAndSet(0, 1);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!done) {
+                    if (cancelled) {
+                        done = true;
+                    } else if (invalidRequest != null) {
+                        done = true;
+                        subscriber.onError(invalidRequest);
+                    } else if (remaining == 0) {
+                        done = true;
+                        subscriber.onComplete();
+                    } else if (demand.get() == 0) {
+                        break;
+                    } else {
+                        emitChunk();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emitChunk() {
+            byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, remaining)];
+            int read;
+            try {
+                read = source.read(chunk, 0, chunk.length);
+            } catch (IOException e) {
+                done = true;
+                subscriber.onError(e);
+                return;
+            }
+            if (read < 0) {
+                done = true;
+                subscriber.onError(new EOFException("Request body ended " + remaining + " bytes short of its Content-Length"));
+                return;
+            }
+            remaining -= read;
+            demand.decrementAndGet();
+            subscriber.onNext(ByteBuffer.wrap(chunk, 0, read));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.httpserver.http;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response body that is not held in memory as a string or byte array, such as a
+ * region of a file. The body writes itself to the connection's channel, which lets
+ * implementations use zero-copy transfers where the channel supports them.
+ */
+public interface ResponseBody {
+
+    /**
+     * Returns the number of bytes this body writes.
+     *
+     * @return the body length in bytes, or -1 if it is only known once the body has been written
+     */
+    long length();
+
+    /**
+     * Writes the whole body to the given channel.
+     *
+     * @param channel the channel of the connection
+     * @throws IOException if an I/O error occurs while reading the source or writing
+     */
+    void writeTo(WritableByteChannel channel) throws IOException;
+}
@@ -0,0 +1,245 @@
+package com.httpserver.http2;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The HPACK header table (RFC 7541, Section 2.3): the 61 entries of the static
+ * table followed by a dynamic table whose newest entry has the lowest index.
+ * <p>
+ * The dynamic table is bounded by size, counted as the length of name and value
+ * plus 32 bytes per entry; adding an entry evicts the oldest ones until it fits.
+ * Names and values are held as ISO-8859-1 strings, so one char is one byte.
+ * </p>
+ */
+final class HeaderTable {
+
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    static final int STATIC_LENGTH = STATIC_TABLE.length;
+
+    /**
+     * Dynamic entries, newest first.
+     */
+    private final ArrayDeque<Map.Entry<String, String>> dynamic = new ArrayDeque<>();
+    private int size;
+    private int maxSize;
+
+    /**
+     * Constructs a HeaderTable.
+     *
+     * @param maxSize the maximum size of the dynamic table
+     */
+    HeaderTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the entry at an index of the combined table.
+     *
+     * @param index the index, starting at 1
+     * @return the entry
+     * @throws Http2Exception if no entry has the index
+     */
+    Map.Entry<String, String> get(int index) throws Http2Exception {
+        if (index >= 1 && index <= STATIC_LENGTH) {
+            String[] entry = STATIC_TABLE[index - 1];
+            return Map.entry(entry[0], entry[1]);
+        }
+        int dynamicIndex = index - STATIC_LENGTH - 1;
+        if (dynamicIndex < 0 || dynamicIndex >= dynamic.size()) {
+            throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Invalid header table index: " + index);
+        }
+        Iterator<Map.Entry<String, String>> entries = dynamic.iterator();
+        for (int i = 0; i < dynamicIndex; i++) {
+            entries.next();
+        }
+        return entries.next();
+    }
+
+    /**
+     * Finds an entry for a header field.
+     *
+     * @param name  the header name
+     * @param value the header value
+     * @return the index of an entry matching name and value, the negated index of an
+     * entry matching only the name, or 0 if there is neither
+     */
+    int find(String name, String value) {
+        int nameIndex = 0;
+        for (int i = 0; i < STATIC_LENGTH; i++) {
+            if (STATIC_TABLE[i][0].equals(name)) {
+                if (STATIC_TABLE[i][1].equals(value)) {
+                    return i + 1;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = -(i + 1);
+                }
+            }
+        }
+        int index = STATIC_LENGTH + 1;
+        for (Map.Entry<String, String> entry : dynamic) {
+            if (entry.getKey().equals(name)) {
+                if (entry.getValue().equals(value)) {
+                    return index;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = -index;
+                }
+            }
+            index++;
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Finds an entry with a header name, whatever its value.
+     *
+     * @param name the header name
+     * @return the index of the first entry with the name, or 0 if there is none
+     */
+    int findName(String name) {
+        for (int i = 0; i < STATIC_LENGTH; i++) {
+            if (STATIC_TABLE[i][0].equals(name)) {
+                return i + 1;
+            }
+        }
+        int index = STATIC_LENGTH + 1;
+        for (Map.Entry<String, String> entry : dynamic) {
+            if (entry.getKey().equals(name)) {
+                return index;
+            }
+            index++;
+        }
+        return 0;
+    }
+
+    /**
+     * Adds an entry to the dynamic table, evicting the oldest entries to make room.
+     * An entry larger than the table empties it and is not added.
+     *
+     * @param name  the header name
+     * @param value the header value
+     */
+    void add(String name, String value) {
+        int entrySize = sizeOf(name, value);
+        evictTo(maxSize - entrySize);
+        if (entrySize <= maxSize) {
+            dynamic.addFirst(Map.entry(name, value));
+            size += entrySize;
+        }
+    }
+
+    /**
+     * Changes the maximum size of the dynamic table, evicting entries that no longer fit.
+     *
+     * @param maxSize the new maximum size
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evictTo(maxSize);
+    }
+
+    /**
+     * Returns the maximum size of the dynamic table.
+     *
+     * @return the maximum size
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the current size of the dynamic table.
+     *
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries in the dynamic table.
+     *
+     * @return the entry count
+     */
+    int dynamicLength() {
+        return dynamic.size();
+    }
+
+    static int sizeOf(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    private void evictTo(int targetSize) {
+        while (size > Math.max(0, targetSize) && !dynamic.isEmpty()) {
+            Map.Entry<String, String> oldest = dynamic.removeLast();
+            size -= sizeOf(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
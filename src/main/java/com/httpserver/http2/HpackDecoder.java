@@ -0,0 +1,147 @@
+package com.httpserver.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541) received from the peer.
+ * <p>
+ * The decoder's dynamic table mirrors the peer's encoder, so every block of the
+ * connection must be decoded in order, including blocks of streams that are then
+ * refused. Any error leaves the table out of step and is a connection error.
+ * </p>
+ */
+public final class HpackDecoder {
+
+    private final HeaderTable table;
+    private final int maxTableSize;
+    private final int maxHeaderListSize;
+
+    /**
+     * Constructs an HpackDecoder.
+     *
+     * @param maxTableSize      the dynamic table size advertised in SETTINGS_HEADER_TABLE_SIZE
+     * @param maxHeaderListSize the largest header list accepted, counted as for SETTINGS_MAX_HEADER_LIST_SIZE
+     */
+    public HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+        this.table = new HeaderTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * Decodes one complete header block.
+     *
+     * @param block the concatenated fragments of a HEADERS frame and its CONTINUATION frames
+     * @return the header fields in order; names are lowercase for a conforming peer
+     * @throws Http2Exception if the block is malformed, or the header list is too large
+     */
+    public List<Map.Entry<String, String>> decode(byte[] block) throws Http2Exception {
+        List<Map.Entry<String, String>> fields = new ArrayList<>();
+        int[] position = {0};
+        int listSize = 0;
+        boolean fieldSeen = false;
+        while (position[0] < block.length) {
+            int b = block[position[0]] & 0xFF;
+            Map.Entry<String, String> field;
+            if ((b & 0x80) != 0) {
+                // Indexed header field.
+                int index = decodeInteger(block, position, 7);
+                if (index == 0) {
+                    throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Header table index 0");
+                }
+                field = table.get(index);
+            } else if ((b & 0x40) != 0) {
+                // Literal with incremental indexing.
+                field = decodeLiteral(block, position, 6);
+                table.add(field.getKey(), field.getValue());
+            } else if ((b & 0x20) != 0) {
+                if (fieldSeen) {
+                    throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Table size update after a header field");
+                }
+                int size = decodeInteger(block, position, 5);
+                if (size > maxTableSize) {
+                    throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR,
+                            "Table size update to " + size + " exceeds " + maxTableSize);
+                }
+                table.setMaxSize(size);
+                continue;
+            } else {
+                // Literal without indexing, or never indexed.
+                field = decodeLiteral(block, position, 4);
+            }
+            fieldSeen = true;
+            listSize += HeaderTable.sizeOf(field.getKey(), field.getValue());
+            fields.add(field);
+        }
+        if (listSize > maxHeaderListSize) {
+            // Checked after the whole block so the table stays in step with the peer.
+            throw Http2Exception.connectionError(Http2ErrorCode.ENHANCE_YOUR_CALM,
+                    "Header list of " + listSize + " bytes exceeds " + maxHeaderListSize);
+        }
+        return fields;
+    }
+
+    private Map.Entry<String, String> decodeLiteral(byte[] block, int[] position, int prefixBits) throws Http2Exception {
+        int nameIndex = decodeInteger(block, position, prefixBits);
+        String name = nameIndex == 0 ? decodeString(block, position) : table.get(nameIndex).getKey();
+        String value = decodeString(block, position);
+        return Map.entry(name, value);
+    }
+
+    private static String decodeString(byte[] block, int[] position) throws Http2Exception {
+        if (position[0] >= block.length) {
+            throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Truncated header block");
+        }
+        boolean huffman = (block[position[0]] & 0x80) != 0;
+        int length = decodeInteger(block, position, 7);
+        if (length > block.length - position[0]) {
+            throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Truncated header string");
+        }
+        byte[] bytes = huffman
+                ? Huffman.decode(block, position[0], length)
+                : java.util.Arrays.copyOfRange(block, position[0], position[0] + length);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes an integer with an N-bit prefix (RFC 7541, Section 5.1), advancing the position.
+     */
+    static int decodeInteger(byte[] block, int[] position, int prefixBits) throws Http2Exception {
+        int mask = (1 << prefixBits) - 1;
+        int value = block[position[0]++] & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (position[0] >= block.length) {
+                throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Truncated integer");
+            }
+            int b = block[position[0]++] & 0xFF;
+            if (shift > 28 || (shift == 28 && (b & 0x7F) > 7)) {
+                throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Integer overflow");
+            }
+            value += (b & 0x7F) << shift;
+            if (value < 0) {
+                throw Http2Exception.connectionError(Http2ErrorCode.COMPRESSION_ERROR, "Integer overflow");
+            }
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * Returns the header table, for tests.
+     *
+     * @return the table
+     */
+    HeaderTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,145 @@
+package com.httpserver.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes header lists into HPACK header blocks (RFC 7541) sent to the peer.
+ * <p>
+ * Fields that repeat across responses are added to the dynamic table so later
+ * responses send them as a one-byte index. Fields whose value changes with every
+ * response are sent literally without indexing, so they do not evict the useful
+ * entries, and credentials are sent as never-indexed so intermediaries do not
+ * index them either. Strings are Huffman coded when that is shorter.
+ * </p>
+ * <p>
+ * The encoder's table must stay in step with the peer's decoder, so blocks are
+ * encoded and written in the same order, under the connection's write lock.
+ * </p>
+ */
+public final class HpackEncoder {
+
+    private static final Set<String> NEVER_INDEXED = Set.of(
+            "authorization", "proxy-authorization", "cookie", "set-cookie");
+
+    private static final Set<String> NOT_INDEXED = Set.of(
+            ":path", "content-length", "content-range", "date", "etag", "expires",
+            "last-modified", "age", "location", "retry-after");
+
+    private final HeaderTable table;
+    private int pendingTableSize = -1;
+    private int smallestPendingTableSize = Integer.MAX_VALUE;
+
+    /**
+     * Constructs an HpackEncoder with the table size both peers start with.
+     *
+     * @param maxTableSize the initial dynamic table size, 4096 unless the peer said otherwise
+     */
+    public HpackEncoder(int maxTableSize) {
+        this.table = new HeaderTable(maxTableSize);
+    }
+
+    /**
+     * Applies the peer's SETTINGS_HEADER_TABLE_SIZE. The change is signalled at the
+     * start of the next block, as the decoder requires.
+     *
+     * @param maxTableSize the table size the peer's decoder allows
+     */
+    public void setMaxTableSize(int maxTableSize) {
+        pendingTableSize = maxTableSize;
+        smallestPendingTableSize = Math.min(smallestPendingTableSize, maxTableSize);
+    }
+
+    /**
+     * Encodes a header list into one header block.
+     *
+     * @param fields the header fields in order; names must be lowercase
+     * @return the header block
+     */
+    public byte[] encode(List<Map.Entry<String, String>> fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (pendingTableSize >= 0) {
+            // When the size shrank and grew again, the decoder must see the smallest first.
+            if (smallestPendingTableSize < pendingTableSize) {
+                encodeInteger(out, 0x20, 5, smallestPendingTableSize);
+            }
+            encodeInteger(out, 0x20, 5, pendingTableSize);
+            table.setMaxSize(pendingTableSize);
+            pendingTableSize = -1;
+            smallestPendingTableSize = Integer.MAX_VALUE;
+        }
+        for (Map.Entry<String, String> field : fields) {
+            encodeField(out, field.getKey(), field.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    private void encodeField(ByteArrayOutputStream out, String name, String value) {
+        boolean neverIndexed = NEVER_INDEXED.contains(name);
+        int index = neverIndexed ? 0 : table.find(name, value);
+        if (index > 0) {
+            encodeInteger(out, 0x80, 7, index);
+            return;
+        }
+        int nameIndex = neverIndexed ? table.findName(name) : -index;
+        if (neverIndexed) {
+            encodeInteger(out, 0x10, 4, nameIndex);
+        } else if (NOT_INDEXED.contains(name)) {
+            encodeInteger(out, 0x00, 4, nameIndex);
+        } else {
+            encodeInteger(out, 0x40, 6, nameIndex);
+            table.add(name, value);
+        }
+        if (nameIndex == 0) {
+            encodeString(out, name);
+        }
+        encodeString(out, value);
+    }
+
+    private static void encodeString(ByteArrayOutputStream out, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.ISO_8859_1);
+        int huffmanLength = Huffman.encodedLength(bytes);
+        if (huffmanLength < bytes.length) {
+            encodeInteger(out, 0x80, 7, huffmanLength);
+            Huffman.encode(bytes, out);
+        } else {
+            encodeInteger(out, 0x00, 7, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Encodes an integer with an N-bit prefix (RFC 7541, Section 5.1).
+     *
+     * @param out        the block being built
+     * @param pattern    the bits above the prefix in the first byte
+     * @param prefixBits the prefix size
+     * @param value      the non-negative value
+     */
+    static void encodeInteger(ByteArrayOutputStream out, int pattern, int prefixBits, int value) {
+        int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            out.write(pattern | value);
+            return;
+        }
+        out.write(pattern | mask);
+        value -= mask;
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Returns the header table, for tests.
+     *
+     * @return the table
+     */
+    HeaderTable getTable() {
+        return table;
+    }
+}
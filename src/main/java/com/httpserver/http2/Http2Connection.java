@@ -0,0 +1,1070 @@
+package com.httpserver.http2;
+
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.TimingWheel;
+import com.httpserver.exception.HttpParsingException;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.http.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves one HTTP/2 connection (RFC 7540): reads frames, decodes requests and
+ * answers each stream through the shared {@link RequestProcessor}.
+ * <p>
+ * Frames are read on the thread that calls {@link #serve()} or
+ * {@link #serveUpgrade(HttpRequest, byte[])}. Each request runs on a thread of
+ * the connection's stream pool once its headers and body have arrived, so a slow
+ * handler does not hold up the other streams of the connection; at most
+ * SETTINGS_MAX_CONCURRENT_STREAMS streams are open at once, further streams are
+ * refused, and the pool never has more threads than that.
+ * </p>
+ * <p>
+ * Frames are written under a single write lock, which also keeps HPACK encoding in
+ * wire order. Response bodies are sent as DATA frames within the peer's flow-control
+ * windows; a stream thread waits for window on a separate monitor and never holds both,
+ * so a stream that is out of window does not block writes for the others. The
+ * client's settings are replaced as a whole when a SETTINGS frame arrives, so a
+ * stream thread always sees one consistent version of them.
+ * </p>
+ * <p>
+ * The preface and each frame must arrive within the idle timeout, timed on the shared
+ * {@link TimingWheel}. While streams are open the client is waiting for responses and
+ * the timer is only re-armed; otherwise the connection is ended with GOAWAY(NO_ERROR),
+ * written from the stream pool since the wheel's ticker must not block on a socket,
+ * and closed. If the client does not take the GOAWAY within another idle timeout, the
+ * transport is closed without it.
+ * </p>
+ */
+public class Http2Connection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2Connection.class);
+
+    /**
+     * The client connection preface (RFC 7540, Section 3.5).
+     */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DEFAULT_WINDOW_SIZE = 65_535;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final long STREAM_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger STREAM_THREADS = new AtomicInteger();
+
+    /**
+     * Header fields that are only meaningful for a single HTTP/1.1 connection and must
+     * not appear in HTTP/2 messages.
+     */
+    private static final Set<String> CONNECTION_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+
+    private final InputStream inputStream;
+    private final Closeable transport;
+    private final OutputStream outputStream;
+    private final RequestProcessor requestProcessor;
+    private final Http2Configuration config;
+    private final HttpParser httpParser = new HttpParser();
+    private final Http2Settings localSettings = new Http2Settings();
+    private final ThreadPoolExecutor streamExecutor;
+    private final HpackDecoder decoder;
+    private final HpackEncoder encoder = new HpackEncoder(Http2Configuration.DEFAULT_HEADER_TABLE_SIZE);
+    private final Map<Integer, Stream> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    /**
+     * Guards the output stream and the HPACK encoder.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Guards the send windows of the connection and its streams; stream threads wait on it
+     * for WINDOW_UPDATE.
+     */
+    private final Object flowLock = new Object();
+    private int connectionSendWindow = DEFAULT_WINDOW_SIZE;
+    private volatile boolean closed;
+
+    /**
+     * Written only by the reading thread, which replaces it rather than changing it.
+     */
+    private volatile Http2Settings remoteSettings = new Http2Settings();
+
+    /**
+     * Guards the idle timer. Each read arms a new generation, so a timer that fires
+     * after its read completed does nothing.
+     */
+    private final Object idleLock = new Object();
+    private TimingWheel.Timeout idleTimer;
+    private long idleGeneration;
+    private volatile boolean idle;
+
+    // Only touched by the reading thread.
+    private int connectionReceiveWindow = DEFAULT_WINDOW_SIZE;
+    private int connectionUnacknowledged;
+    private int lastStreamId;
+    private boolean settingsReceived;
+    private int continuationStreamId;
+    private boolean continuationEndStream;
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+
+    /**
+     * Constructs an Http2Connection.
+     *
+     * @param inputStream      the input stream of the connection, positioned at the client preface
+     * @param outputStream     the output stream of the connection
+     * @param requestProcessor answers the requests of all streams
+     * @param config           the HTTP/2 settings and limits
+     */
+    public Http2Connection(InputStream inputStream, OutputStream outputStream, RequestProcessor requestProcessor,
+                           Http2Configuration config) {
+        this(inputStream, outputStream, requestProcessor, config, inputStream);
+    }
+
+    /**
+     * Constructs an Http2Connection whose input stream may block when closed, such as
+     * one that sends a TLS close_notify.
+     *
+     * @param inputStream      the input stream of the connection, positioned at the client preface
+     * @param outputStream     the output stream of the connection
+     * @param requestProcessor answers the requests of all streams
+     * @param config           the HTTP/2 settings and limits
+     * @param transport        closed without blocking to end an idle connection whose client
+     *                         does not take the GOAWAY, such as the underlying socket
+     */
+    public Http2Connection(InputStream inputStream, OutputStream outputStream, RequestProcessor requestProcessor,
+                           Http2Configuration config, Closeable transport) {
+        this.inputStream = inputStream;
+        this.transport = transport;
+        this.outputStream = new BufferedOutputStream(outputStream, config.getMaxFrameSize() + Http2Frame.HEADER_LENGTH);
+        this.requestProcessor = requestProcessor;
+        this.config = config;
+        this.decoder = new HpackDecoder(config.getHeaderTableSize(), config.getMaxHeaderListSize());
+        localSettings.set(Http2Settings.ENABLE_PUSH, 0)
+                .set(Http2Settings.MAX_CONCURRENT_STREAMS, config.getMaxConcurrentStreams())
+                .set(Http2Settings.INITIAL_WINDOW_SIZE, config.getInitialWindowSize())
+                .set(Http2Settings.MAX_FRAME_SIZE, config.getMaxFrameSize())
+                .set(Http2Settings.MAX_HEADER_LIST_SIZE, config.getMaxHeaderListSize());
+        if (config.getHeaderTableSize() != Http2Configuration.DEFAULT_HEADER_TABLE_SIZE) {
+            localSettings.set(Http2Settings.HEADER_TABLE_SIZE, config.getHeaderTableSize());
+        }
+        this.streamExecutor = new ThreadPoolExecutor(config.getMaxConcurrentStreams(), config.getMaxConcurrentStreams(),
+                STREAM_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "h2-stream-" + STREAM_THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        streamExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns whether the input starts with the client connection preface, which a
+     * client that knows the server speaks HTTP/2 sends instead of an HTTP/1.1 request.
+     * The input is reset to where it was, so an HTTP/1.1 request can still be parsed.
+     *
+     * @param inputStream the input stream of a new connection
+     * @return true if the connection starts with the preface
+     * @throws IOException if the connection cannot be read
+     */
+    public static boolean startsWithPreface(BufferedInputStream inputStream) throws IOException {
+        inputStream.mark(PREFACE.length);
+        try {
+            for (byte expected : PREFACE) {
+                // Stop at the first difference, so an HTTP/1.1 request shorter than the preface does not block.
+                if (inputStream.read() != (expected & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    /**
+     * Serves a connection that starts with the client preface, as negotiated through
+     * ALPN or sent with prior knowledge. Returns when the connection ends.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void serve() throws IOException {
+        writeSettings();
+        run();
+    }
+
+    /**
+     * Serves a connection upgraded from HTTP/1.1 (RFC 7540, Section 3.2). The
+     * 101 response must have been written. The upgrade request becomes stream 1,
+     * which is answered over HTTP/2 while the client preface is read.
+     *
+     * @param httpRequest    the request that asked for the upgrade
+     * @param clientSettings the SETTINGS payload from the request's HTTP2-Settings header
+     * @throws IOException if the connection fails
+     */
+    public void serveUpgrade(HttpRequest httpRequest, byte[] clientSettings) throws IOException {
+        applyRemoteSettings(clientSettings);
+        writeSettings();
+        lastStreamId = 1;
+        Stream stream = openStream(1);
+        stream.remoteClosed = true;
+        dispatch(stream, httpRequest);
+        run();
+    }
+
+    private void run() throws IOException {
+        try {
+            armIdleTimer();
+            try {
+                readPreface();
+            } finally {
+                disarmIdleTimer();
+            }
+            Http2Frame frame;
+            while ((frame = readFrame()) != null) {
+                if (idle) {
+                    // The GOAWAY is on its way; frames that crossed it are not answered.
+                    return;
+                }
+                try {
+                    handleFrame(frame);
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError()) {
+                        throw e;
+                    }
+                    LOGGER.debug("Resetting stream {}: {}", e.getStreamId(), e.getMessage());
+                    closeStream(e.getStreamId());
+                    writeRstStream(e.getStreamId(), e.getErrorCode());
+                }
+            }
+            LOGGER.debug("HTTP/2 connection closed by client");
+        } catch (IOException e) {
+            if (idle) {
+                LOGGER.debug("HTTP/2 connection closed after {} ms idle", config.getIdleTimeoutMillis());
+            } else if (e instanceof Http2Exception) {
+                Http2Exception error = (Http2Exception) e;
+                LOGGER.warn("HTTP/2 connection error {}: {}", error.getErrorCode(), error.getMessage());
+                writeGoAway(error.getErrorCode(), error.getMessage());
+            } else {
+                throw e;
+            }
+        } finally {
+            closed = true;
+            synchronized (flowLock) {
+                flowLock.notifyAll();
+            }
+            // Streams still running finish their responses, or fail once the connection closes.
+            streamExecutor.shutdown();
+        }
+    }
+
+    private Http2Frame readFrame() throws IOException {
+        armIdleTimer();
+        try {
+            return Http2Frame.read(inputStream, config.getMaxFrameSize());
+        } finally {
+            disarmIdleTimer();
+        }
+    }
+
+    private void armIdleTimer() {
+        synchronized (idleLock) {
+            long generation = ++idleGeneration;
+            idleTimer = TimingWheel.shared().schedule(() -> onIdle(generation), config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void disarmIdleTimer() {
+        synchronized (idleLock) {
+            idleGeneration++;
+            idleTimer.cancel();
+        }
+    }
+
+    /**
+     * Runs on the wheel's ticker when a read has waited for the idle timeout.
+     */
+    private void onIdle(long generation) {
+        synchronized (idleLock) {
+            if (generation != idleGeneration || closed) {
+                return;
+            }
+            if (openStreams.get() > 0) {
+                idleTimer = TimingWheel.shared().schedule(() -> onIdle(generation), config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+            idle = true;
+        }
+        LOGGER.debug("No frame from client within {} ms, closing HTTP/2 connection", config.getIdleTimeoutMillis());
+        try {
+            streamExecutor.execute(() -> {
+                writeGoAway(Http2ErrorCode.NO_ERROR, "Idle timeout");
+                closeQuietly(inputStream);
+            });
+        } catch (RejectedExecutionException e) {
+            closeQuietly(transport);
+            return;
+        }
+        TimingWheel.shared().schedule(() -> closeQuietly(transport), config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close idle HTTP/2 connection: {}", e.getMessage());
+        }
+    }
+
+    private void readPreface() throws IOException {
+        byte[] preface = inputStream.readNBytes(PREFACE.length);
+        if (!Arrays.equals(preface, PREFACE)) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Invalid connection preface");
+        }
+    }
+
+    private void handleFrame(Http2Frame frame) throws IOException {
+        LOGGER.trace("Received {}", frame);
+        if (continuationStreamId != 0 && (frame.getType() != Http2Frame.CONTINUATION || frame.getStreamId() != continuationStreamId)) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Expected CONTINUATION for stream " + continuationStreamId);
+        }
+        if (!settingsReceived && frame.getType() != Http2Frame.SETTINGS) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "First frame is not SETTINGS");
+        }
+        switch (frame.getType()) {
+            case Http2Frame.DATA:
+                handleData(frame);
+                break;
+            case Http2Frame.HEADERS:
+                handleHeaders(frame);
+                break;
+            case Http2Frame.PRIORITY:
+                // Priorities are advisory; streams are answered as their handlers finish.
+                requireStream(frame);
+                if (frame.getPayload().length != 5) {
+                    throw Http2Exception.streamError(Http2ErrorCode.FRAME_SIZE_ERROR, frame.getStreamId(), "PRIORITY of wrong length");
+                }
+                break;
+            case Http2Frame.RST_STREAM:
+                handleRstStream(frame);
+                break;
+            case Http2Frame.SETTINGS:
+                handleSettings(frame);
+                break;
+            case Http2Frame.PUSH_PROMISE:
+                throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Clients cannot push");
+            case Http2Frame.PING:
+                handlePing(frame);
+                break;
+            case Http2Frame.GOAWAY:
+                requireConnection(frame);
+                LOGGER.debug("Client sent GOAWAY with error {}", Http2ErrorCode.of(payloadInt(frame, 4)));
+                break;
+            case Http2Frame.WINDOW_UPDATE:
+                handleWindowUpdate(frame);
+                break;
+            case Http2Frame.CONTINUATION:
+                handleContinuation(frame);
+                break;
+            default:
+                // Unknown frame types are ignored (RFC 7540, Section 4.1).
+                break;
+        }
+    }
+
+    private void handleData(Http2Frame frame) throws IOException {
+        requireStream(frame);
+        byte[] payload = frame.getPayload();
+        int streamId = frame.getStreamId();
+
+        // The whole payload, padding included, counts against flow control.
+        connectionReceiveWindow -= payload.length;
+        if (connectionReceiveWindow < 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FLOW_CONTROL_ERROR, "Connection window exceeded");
+        }
+        acknowledgeConnectionData(payload.length);
+
+        int offset = 0;
+        int length = payload.length;
+        if (frame.hasFlag(Http2Frame.FLAG_PADDED)) {
+            int padding = padding(payload);
+            offset = 1;
+            length -= padding + 1;
+        }
+
+        Stream stream = streams.get(streamId);
+        if (stream == null || stream.remoteClosed) {
+            if (streamId > lastStreamId) {
+                throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "DATA on idle stream " + streamId);
+            }
+            if (stream != null) {
+                throw Http2Exception.streamError(Http2ErrorCode.STREAM_CLOSED, streamId, "DATA after END_STREAM");
+            }
+            // A stream this server reset; its data was already in flight.
+            return;
+        }
+        stream.receiveWindow -= payload.length;
+        if (stream.receiveWindow < 0) {
+            throw Http2Exception.streamError(Http2ErrorCode.FLOW_CONTROL_ERROR, streamId, "Stream window exceeded");
+        }
+
+        if (stream.body.size() + length > config.getMaxRequestBodySize()) {
+            LOGGER.debug("Request body of stream {} exceeds {} bytes", streamId, config.getMaxRequestBodySize());
+            closeStream(streamId);
+            HttpResponse httpResponse = requestProcessor.respond(new HttpParsingException(HttpStatusCode.CLIENT_ERROR_413_PAYLOAD_TOO_LARGE));
+            writeHeaders(streamId, responseFields(httpResponse), true);
+            // The response is complete; NO_ERROR tells the client to stop sending the body.
+            writeRstStream(streamId, Http2ErrorCode.NO_ERROR);
+            return;
+        }
+        stream.body.write(payload, offset, length);
+
+        if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+            stream.remoteClosed = true;
+            dispatch(stream);
+        } else {
+            stream.unacknowledged += payload.length;
+            if (stream.unacknowledged >= config.getInitialWindowSize() / 2) {
+                stream.receiveWindow += stream.unacknowledged;
+                writeWindowUpdate(streamId, stream.unacknowledged);
+                stream.unacknowledged = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the window taken by received DATA to the client once half the window is
+     * used, which keeps WINDOW_UPDATE frames few without stalling the sender.
+     */
+    private void acknowledgeConnectionData(int length) throws IOException {
+        connectionUnacknowledged += length;
+        if (connectionUnacknowledged >= DEFAULT_WINDOW_SIZE / 2) {
+            connectionReceiveWindow += connectionUnacknowledged;
+            writeWindowUpdate(0, connectionUnacknowledged);
+            connectionUnacknowledged = 0;
+        }
+    }
+
+    private void handleHeaders(Http2Frame frame) throws IOException {
+        requireStream(frame);
+        byte[] payload = frame.getPayload();
+        int offset = 0;
+        int length = payload.length;
+        if (frame.hasFlag(Http2Frame.FLAG_PADDED)) {
+            int padding = padding(payload);
+            offset = 1;
+            length -= padding + 1;
+        }
+        if (frame.hasFlag(Http2Frame.FLAG_PRIORITY)) {
+            if (length < 5) {
+                throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "HEADERS too short for priority");
+            }
+            offset += 5;
+            length -= 5;
+        }
+        headerBlock.reset();
+        headerBlock.write(payload, offset, length);
+        if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+            handleHeaderBlock(frame.getStreamId(), frame.hasFlag(Http2Frame.FLAG_END_STREAM));
+        } else {
+            continuationStreamId = frame.getStreamId();
+            continuationEndStream = frame.hasFlag(Http2Frame.FLAG_END_STREAM);
+        }
+    }
+
+    private void handleContinuation(Http2Frame frame) throws IOException {
+        if (continuationStreamId == 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Unexpected CONTINUATION");
+        }
+        if (headerBlock.size() + frame.getPayload().length > config.getMaxHeaderListSize() * 2) {
+            // Encoded fields are never much larger than decoded ones, so this stops an endless block early.
+            throw Http2Exception.connectionError(Http2ErrorCode.ENHANCE_YOUR_CALM, "Header block too large");
+        }
+        headerBlock.write(frame.getPayload(), 0, frame.getPayload().length);
+        if (frame.hasFlag(Http2Frame.FLAG_END_HEADERS)) {
+            int streamId = continuationStreamId;
+            continuationStreamId = 0;
+            handleHeaderBlock(streamId, continuationEndStream);
+        }
+    }
+
+    private void handleHeaderBlock(int streamId, boolean endStream) throws IOException {
+        // Decoded even for streams that are refused, to keep the table in step with the client.
+        List<Map.Entry<String, String>> fields = decoder.decode(headerBlock.toByteArray());
+
+        Stream stream = streams.get(streamId);
+        if (stream != null) {
+            // Trailers, which end the request and are not passed on.
+            if (stream.remoteClosed) {
+                throw Http2Exception.streamError(Http2ErrorCode.STREAM_CLOSED, streamId, "HEADERS after END_STREAM");
+            }
+            if (!endStream) {
+                throw Http2Exception.streamError(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Trailers without END_STREAM");
+            }
+            stream.remoteClosed = true;
+            dispatch(stream);
+            return;
+        }
+        if (streamId <= lastStreamId) {
+            if (streamId % 2 == 1) {
+                // Trailers of a stream this server already reset.
+                return;
+            }
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Stream " + streamId + " reused");
+        }
+        if (streamId % 2 == 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Even stream " + streamId + " opened by client");
+        }
+        lastStreamId = streamId;
+        if (openStreams.get() >= config.getMaxConcurrentStreams()) {
+            throw Http2Exception.streamError(Http2ErrorCode.REFUSED_STREAM, streamId, "Too many concurrent streams");
+        }
+        stream = openStream(streamId);
+        stream.fields = fields;
+        if (endStream) {
+            stream.remoteClosed = true;
+            dispatch(stream);
+        }
+    }
+
+    private void handleRstStream(Http2Frame frame) throws Http2Exception {
+        requireStream(frame);
+        if (frame.getPayload().length != 4) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "RST_STREAM of wrong length");
+        }
+        if (frame.getStreamId() > lastStreamId) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "RST_STREAM on idle stream " + frame.getStreamId());
+        }
+        LOGGER.debug("Client reset stream {} with {}", frame.getStreamId(), Http2ErrorCode.of(payloadInt(frame, 0)));
+        closeStream(frame.getStreamId());
+    }
+
+    private void handleSettings(Http2Frame frame) throws IOException {
+        requireConnection(frame);
+        if (frame.hasFlag(Http2Frame.FLAG_ACK)) {
+            if (frame.getPayload().length != 0) {
+                throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "SETTINGS ACK with payload");
+            }
+            return;
+        }
+        settingsReceived = true;
+        applyRemoteSettings(frame.getPayload());
+        writeFrame(Http2Frame.SETTINGS, Http2Frame.FLAG_ACK, 0, new byte[0], 0, 0);
+    }
+
+    /**
+     * Applies the client's settings to a copy of the current ones and publishes the
+     * copy, so stream threads never see a partly applied SETTINGS frame.
+     */
+    private void applyRemoteSettings(byte[] payload) throws Http2Exception {
+        Http2Settings current = remoteSettings;
+        Http2Settings updated = current.copy();
+        updated.apply(payload);
+        int delta = updated.get(Http2Settings.INITIAL_WINDOW_SIZE) - current.get(Http2Settings.INITIAL_WINDOW_SIZE);
+        synchronized (flowLock) {
+            if (delta != 0) {
+                for (Stream stream : streams.values()) {
+                    if ((long) stream.sendWindow + delta > Http2Settings.MAX_WINDOW_SIZE) {
+                        throw Http2Exception.connectionError(Http2ErrorCode.FLOW_CONTROL_ERROR, "Stream window overflow");
+                    }
+                }
+                for (Stream stream : streams.values()) {
+                    stream.sendWindow += delta;
+                }
+            }
+            // Published with the windows it sized, so a stream never takes a frame size and window from different frames.
+            remoteSettings = updated;
+            flowLock.notifyAll();
+        }
+        synchronized (writeLock) {
+            // The client's decoder allows the table size; response headers use no more than the configured size.
+            encoder.setMaxTableSize(Math.min(updated.get(Http2Settings.HEADER_TABLE_SIZE), config.getHeaderTableSize()));
+        }
+    }
+
+    private void handlePing(Http2Frame frame) throws IOException {
+        requireConnection(frame);
+        if (frame.getPayload().length != 8) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "PING of wrong length");
+        }
+        if (!frame.hasFlag(Http2Frame.FLAG_ACK)) {
+            writeFrame(Http2Frame.PING, Http2Frame.FLAG_ACK, 0, frame.getPayload(), 0, 8);
+        }
+    }
+
+    private void handleWindowUpdate(Http2Frame frame) throws Http2Exception {
+        if (frame.getPayload().length != 4) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "WINDOW_UPDATE of wrong length");
+        }
+        int streamId = frame.getStreamId();
+        int increment = payloadInt(frame, 0) & Integer.MAX_VALUE;
+        if (increment == 0) {
+            if (streamId == 0) {
+                throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Zero WINDOW_UPDATE");
+            }
+            throw Http2Exception.streamError(Http2ErrorCode.PROTOCOL_ERROR, streamId, "Zero WINDOW_UPDATE");
+        }
+        synchronized (flowLock) {
+            if (streamId == 0) {
+                if ((long) connectionSendWindow + increment > Http2Settings.MAX_WINDOW_SIZE) {
+                    throw Http2Exception.connectionError(Http2ErrorCode.FLOW_CONTROL_ERROR, "Connection window overflow");
+                }
+                connectionSendWindow += increment;
+            } else {
+                Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    if (streamId > lastStreamId) {
+                        throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "WINDOW_UPDATE on idle stream " + streamId);
+                    }
+                    return;
+                }
+                if ((long) stream.sendWindow + increment > Http2Settings.MAX_WINDOW_SIZE) {
+                    throw Http2Exception.streamError(Http2ErrorCode.FLOW_CONTROL_ERROR, streamId, "Stream window overflow");
+                }
+                stream.sendWindow += increment;
+            }
+            flowLock.notifyAll();
+        }
+    }
+
+    private Stream openStream(int streamId) {
+        Stream stream = new Stream(streamId, remoteSettings.get(Http2Settings.INITIAL_WINDOW_SIZE), config.getInitialWindowSize());
+        streams.put(streamId, stream);
+        openStreams.incrementAndGet();
+        return stream;
+    }
+
+    /**
+     * Removes a stream and wakes its thread if it waits for window. Runs once per stream.
+     */
+    private void closeStream(int streamId) {
+        Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            openStreams.decrementAndGet();
+            synchronized (flowLock) {
+                stream.reset = true;
+                flowLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Builds the request of a stream whose request has fully arrived and answers it on
+     * a thread of the stream pool.
+     */
+    private void dispatch(Stream stream) throws Http2Exception {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = buildRequest(stream);
+        } catch (HttpParsingException e) {
+            LOGGER.warn("Failed to build request of stream {}: {}", stream.id, e.getMessage());
+            HttpResponse httpResponse = requestProcessor.respond(e);
+            submitStream(stream, () -> writeResponse(stream, httpResponse));
+            return;
+        }
+        dispatch(stream, httpRequest);
+    }
+
+    private void dispatch(Stream stream, HttpRequest httpRequest) {
+        LOGGER.debug("Received request on stream {}: {}", stream.id, httpRequest);
+        submitStream(stream, () -> writeResponse(stream, requestProcessor.respond(httpRequest)));
+    }
+
+    /**
+     * Runs the work of a stream on the stream pool. The pool has a thread for every
+     * stream the client may have open, so the task never waits behind another stream.
+     */
+    private void submitStream(Stream stream, StreamTask task) {
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to answer stream {}: {}", stream.id, e.getMessage());
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to answer stream {}", stream.id, e);
+                    resetQuietly(stream.id, Http2ErrorCode.INTERNAL_ERROR);
+                } finally {
+                    closeStream(stream.id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Connection closed before stream {} could be answered", stream.id);
+            closeStream(stream.id);
+        }
+    }
+
+    /**
+     * Turns the decoded header fields and body of a stream into a request, checking the
+     * rules HTTP/2 adds to HTTP messages (RFC 7540, Section 8.1.2).
+     */
+    private HttpRequest buildRequest(Stream stream) throws Http2Exception, HttpParsingException {
+        String method = null;
+        String path = null;
+        String scheme = null;
+        String authority = null;
+        Map<String, String> headers = new LinkedHashMap<>();
+        boolean regularSeen = false;
+        for (Map.Entry<String, String> field : stream.fields) {
+            String name = field.getKey();
+            String value = field.getValue();
+            if (!name.equals(name.toLowerCase(Locale.ROOT))) {
+                throw malformed(stream, "uppercase header name " + name);
+            }
+            if (name.startsWith(":")) {
+                if (regularSeen) {
+                    throw malformed(stream, "pseudo-header after regular header");
+                }
+                switch (name) {
+                    case ":method":
+                        method = unique(stream, method, value, name);
+                        break;
+                    case ":path":
+                        path = unique(stream, path, value, name);
+                        break;
+                    case ":scheme":
+                        scheme = unique(stream, scheme, value, name);
+                        break;
+                    case ":authority":
+                        authority = unique(stream, authority, value, name);
+                        break;
+                    default:
+                        throw malformed(stream, "unknown pseudo-header " + name);
+                }
+                continue;
+            }
+            regularSeen = true;
+            if (CONNECTION_HEADERS.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+                throw malformed(stream, "connection-specific header " + name);
+            }
+            // Repeated fields are combined as HTTP/1.1 would; cookies are split per pair in HTTP/2.
+            headers.merge(name, value, (first, second) -> first + (name.equals("cookie") ? "; " : ", ") + second);
+        }
+        if (method == null || path == null || scheme == null) {
+            throw malformed(stream, "missing :method, :path or :scheme");
+        }
+        if (authority != null && !headers.containsKey("host")) {
+            headers.put("host", authority);
+        }
+        String contentLength = headers.get("content-length");
+        if (contentLength != null && !contentLength.equals(String.valueOf(stream.body.size()))) {
+            throw malformed(stream, "content-length does not match the body");
+        }
+        return httpParser.buildHttpRequest(method, path, HttpVersion.HTTP_2_0, headers, stream.body.toByteArray());
+    }
+
+    private static String unique(Stream stream, String current, String value, String name) throws Http2Exception {
+        if (current != null) {
+            throw malformed(stream, "repeated " + name);
+        }
+        return value;
+    }
+
+    private static Http2Exception malformed(Stream stream, String reason) {
+        return Http2Exception.streamError(Http2ErrorCode.PROTOCOL_ERROR, stream.id, "Malformed request: " + reason);
+    }
+
+    /**
+     * Writes a response on its stream: HEADERS, then the body as DATA frames.
+     */
+    private void writeResponse(Stream stream, HttpResponse httpResponse) throws IOException {
+        ResponseBody responseBody = httpResponse.getResponseBody();
+        byte[] bodyBytes = responseBody == null ? httpResponse.getBodyBytes() : null;
+        boolean hasBody = responseBody != null ? responseBody.length() != 0 : bodyBytes != null && bodyBytes.length > 0;
+
+        if (stream.reset) {
+            return;
+        }
+        writeHeaders(stream.id, responseFields(httpResponse), !hasBody);
+        if (!hasBody) {
+            return;
+        }
+        if (responseBody != null && responseBody.length() < 0) {
+            // A streamed body of unknown length ends with an empty DATA frame.
+            responseBody.writeTo(new DataChannel(stream, Long.MAX_VALUE));
+            writeFrame(Http2Frame.DATA, Http2Frame.FLAG_END_STREAM, stream.id, new byte[0], 0, 0);
+        } else if (responseBody != null) {
+            DataChannel channel = new DataChannel(stream, responseBody.length());
+            responseBody.writeTo(channel);
+            if (channel.remaining > 0) {
+                LOGGER.error("Response body of stream {} ended {} bytes short", stream.id, channel.remaining);
+                resetQuietly(stream.id, Http2ErrorCode.INTERNAL_ERROR);
+            }
+        } else {
+            writeData(stream, bodyBytes, 0, bodyBytes.length, true);
+        }
+    }
+
+    /**
+     * Converts a response's status and headers into HTTP/2 header fields: lowercase
+     * names, :status first, without the HTTP/1.1 connection headers.
+     */
+    private static List<Map.Entry<String, String>> responseFields(HttpResponse httpResponse) {
+        List<Map.Entry<String, String>> fields = new ArrayList<>(httpResponse.getHeaders().size() + 1);
+        fields.add(Map.entry(":status", String.valueOf(httpResponse.getStatusCode().STATUS_CODE)));
+        for (Map.Entry<String, String> header : httpResponse.getHeaders().entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            if (!CONNECTION_HEADERS.contains(name)) {
+                fields.add(Map.entry(name, header.getValue()));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Sends as much of a body as the flow-control windows allow, waiting for
+     * WINDOW_UPDATE frames for the rest.
+     */
+    private void writeData(Stream stream, byte[] bytes, int offset, int length, boolean endStream) throws IOException {
+        while (length > 0) {
+            int chunk = reserveWindow(stream, length);
+            boolean last = chunk == length;
+            writeFrame(Http2Frame.DATA, last && endStream ? Http2Frame.FLAG_END_STREAM : 0, stream.id, bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Waits until both the stream and the connection have window, then takes as much
+     * as one frame can carry.
+     *
+     * @return the number of bytes that may be sent, at least 1
+     */
+    private int reserveWindow(Stream stream, int wanted) throws IOException {
+        synchronized (flowLock) {
+            while (true) {
+                if (closed || stream.reset) {
+                    throw new ClosedChannelException();
+                }
+                int available = Math.min(stream.sendWindow, connectionSendWindow);
+                if (available > 0) {
+                    int chunk = Math.min(Math.min(wanted, available), remoteSettings.get(Http2Settings.MAX_FRAME_SIZE));
+                    stream.sendWindow -= chunk;
+                    connectionSendWindow -= chunk;
+                    return chunk;
+                }
+                try {
+                    flowLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClosedChannelException();
+                }
+            }
+        }
+    }
+
+    private void writeHeaders(int streamId, List<Map.Entry<String, String>> fields, boolean endStream) throws IOException {
+        synchronized (writeLock) {
+            // Encoded under the write lock, so blocks reach the client in the order the table changed.
+            byte[] block = encoder.encode(fields);
+            int maxFrameSize = remoteSettings.get(Http2Settings.MAX_FRAME_SIZE);
+            int length = Math.min(block.length, maxFrameSize);
+            int flags = (endStream ? Http2Frame.FLAG_END_STREAM : 0) | (length == block.length ? Http2Frame.FLAG_END_HEADERS : 0);
+            writeFrameLocked(Http2Frame.HEADERS, flags, streamId, block, 0, length);
+            for (int offset = length; offset < block.length; offset += length) {
+                length = Math.min(block.length - offset, maxFrameSize);
+                int continuationFlags = offset + length == block.length ? Http2Frame.FLAG_END_HEADERS : 0;
+                writeFrameLocked(Http2Frame.CONTINUATION, continuationFlags, streamId, block, offset, length);
+            }
+            outputStream.flush();
+        }
+    }
+
+    private void writeSettings() throws IOException {
+        byte[] payload = localSettings.encode();
+        writeFrame(Http2Frame.SETTINGS, 0, 0, payload, 0, payload.length);
+        int increase = config.getInitialWindowSize() - DEFAULT_WINDOW_SIZE;
+        if (increase > 0) {
+            // SETTINGS only changes stream windows; the connection window grows by WINDOW_UPDATE.
+            connectionReceiveWindow += increase;
+            writeWindowUpdate(0, increase);
+        }
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, increment);
+        writeFrame(Http2Frame.WINDOW_UPDATE, 0, streamId, payload, 0, 4);
+    }
+
+    private void writeRstStream(int streamId, Http2ErrorCode errorCode) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, errorCode.CODE);
+        writeFrame(Http2Frame.RST_STREAM, 0, streamId, payload, 0, 4);
+    }
+
+    private void resetQuietly(int streamId, Http2ErrorCode errorCode) {
+        try {
+            writeRstStream(streamId, errorCode);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to reset stream {}: {}", streamId, e.getMessage());
+        }
+    }
+
+    private void writeGoAway(Http2ErrorCode errorCode, String message) {
+        byte[] debugData = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[8 + debugData.length];
+        putInt(payload, 0, lastStreamId);
+        putInt(payload, 4, errorCode.CODE);
+        System.arraycopy(debugData, 0, payload, 8, debugData.length);
+        try {
+            writeFrame(Http2Frame.GOAWAY, 0, 0, payload, 0, payload.length);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to send GOAWAY: {}", e.getMessage());
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length) throws IOException {
+        synchronized (writeLock) {
+            writeFrameLocked(type, flags, streamId, payload, offset, length);
+            outputStream.flush();
+        }
+    }
+
+    private void writeFrameLocked(int type, int flags, int streamId, byte[] payload, int offset, int length) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        outputStream.write(Http2Frame.header(length, type, flags, streamId));
+        outputStream.write(payload, offset, length);
+    }
+
+    private static void requireStream(Http2Frame frame) throws Http2Exception {
+        if (frame.getStreamId() == 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Frame type " + frame.getType() + " on stream 0");
+        }
+    }
+
+    private static void requireConnection(Http2Frame frame) throws Http2Exception {
+        if (frame.getStreamId() != 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Frame type " + frame.getType() + " on a stream");
+        }
+    }
+
+    private static int padding(byte[] payload) throws Http2Exception {
+        if (payload.length == 0 || (payload[0] & 0xFF) >= payload.length) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Padding exceeds payload");
+        }
+        return payload[0] & 0xFF;
+    }
+
+    private static int payloadInt(Http2Frame frame, int offset) {
+        return Http2Frame.readInt(frame.getPayload(), offset);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Work done for a stream on the stream pool.
+     */
+    @FunctionalInterface
+    private interface StreamTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * The state of one stream.
+     */
+    private static final class Stream {
+        private final int id;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private List<Map.Entry<String, String>> fields = List.of();
+
+        /**
+         * Guarded by the flow lock.
+         */
+        private int sendWindow;
+        private volatile boolean reset;
+
+        // Only touched by the reading thread.
+        private int receiveWindow;
+        private int unacknowledged;
+        private boolean remoteClosed;
+
+        private Stream(int id, int sendWindow, int receiveWindow) {
+            this.id = id;
+            this.sendWindow = sendWindow;
+            this.receiveWindow = receiveWindow;
+        }
+    }
+
+    /**
+     * Lets a {@link ResponseBody} write itself as DATA frames of a stream, ending the
+     * stream with its last byte.
+     */
+    private final class DataChannel implements WritableByteChannel {
+        private final Stream stream;
+        private long remaining;
+        private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        private DataChannel(Stream stream, long length) {
+            this.stream = stream;
+            this.remaining = length;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            if (length > remaining) {
+                throw new IOException("Response body of stream " + stream.id + " longer than its length");
+            }
+            remaining -= length;
+            if (src.hasArray()) {
+                writeData(stream, src.array(), src.arrayOffset() + src.position(), length, remaining == 0);
+                src.position(src.limit());
+                return length;
+            }
+            // Direct and mapped buffers are copied a bounded chunk at a time.
+            while (src.hasRemaining()) {
+                int chunk = Math.min(src.remaining(), buffer.length);
+                src.get(buffer, 0, chunk);
+                writeData(stream, buffer, 0, chunk, remaining == 0 && !src.hasRemaining());
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed && !stream.reset;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.httpserver.http2;
+
+/**
+ * Enum representing the HTTP/2 error codes (RFC 7540, Section 7) carried by
+ * RST_STREAM and GOAWAY frames.
+ */
+public enum Http2ErrorCode {
+    NO_ERROR(0x0),
+    PROTOCOL_ERROR(0x1),
+    INTERNAL_ERROR(0x2),
+    FLOW_CONTROL_ERROR(0x3),
+    SETTINGS_TIMEOUT(0x4),
+    STREAM_CLOSED(0x5),
+    FRAME_SIZE_ERROR(0x6),
+    REFUSED_STREAM(0x7),
+    CANCEL(0x8),
+    COMPRESSION_ERROR(0x9),
+    CONNECT_ERROR(0xa),
+    ENHANCE_YOUR_CALM(0xb),
+    INADEQUATE_SECURITY(0xc),
+    HTTP_1_1_REQUIRED(0xd);
+
+    /**
+     * The code sent on the wire.
+     */
+    public final int CODE;
+
+    /**
+     * Constructor to create an instance of Http2ErrorCode with its wire value.
+     *
+     * @param CODE the code sent on the wire.
+     */
+    Http2ErrorCode(int CODE) {
+        this.CODE = CODE;
+    }
+
+    /**
+     * Returns the error code for a wire value. Unknown codes are treated as
+     * INTERNAL_ERROR, as the specification requires.
+     *
+     * @param code the code received
+     * @return the error code
+     */
+    public static Http2ErrorCode of(int code) {
+        for (Http2ErrorCode errorCode : values()) {
+            if (errorCode.CODE == code) {
+                return errorCode;
+            }
+        }
+        return INTERNAL_ERROR;
+    }
+}
@@ -0,0 +1,69 @@
+package com.httpserver.http2;
+
+import java.io.IOException;
+
+/**
+ * Signals a violation of the HTTP/2 protocol. A connection error ends the whole
+ * connection with GOAWAY; a stream error only resets the stream it names.
+ */
+public class Http2Exception extends IOException {
+
+    private final Http2ErrorCode errorCode;
+    private final int streamId;
+
+    private Http2Exception(Http2ErrorCode errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    /**
+     * Creates an error that ends the connection.
+     *
+     * @param errorCode the code sent in GOAWAY
+     * @param message   the reason, also sent as GOAWAY debug data
+     * @return the exception
+     */
+    public static Http2Exception connectionError(Http2ErrorCode errorCode, String message) {
+        return new Http2Exception(errorCode, 0, message);
+    }
+
+    /**
+     * Creates an error that resets one stream.
+     *
+     * @param errorCode the code sent in RST_STREAM
+     * @param streamId  the stream to reset
+     * @param message   the reason, logged
+     * @return the exception
+     */
+    public static Http2Exception streamError(Http2ErrorCode errorCode, int streamId, String message) {
+        return new Http2Exception(errorCode, streamId, message);
+    }
+
+    /**
+     * Returns the error code sent to the peer.
+     *
+     * @return the error code
+     */
+    public Http2ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Returns the stream the error applies to.
+     *
+     * @return the stream identifier, 0 for a connection error
+     */
+    public int getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Returns whether the error ends the connection rather than a single stream.
+     *
+     * @return true for a connection error
+     */
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
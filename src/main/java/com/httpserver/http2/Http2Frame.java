@@ -0,0 +1,149 @@
+package com.httpserver.http2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An HTTP/2 frame (RFC 7540, Section 4): a 9-byte header of payload length, type,
+ * flags and stream identifier, followed by the payload.
+ */
+public final class Http2Frame {
+
+    public static final int HEADER_LENGTH = 9;
+
+    public static final int DATA = 0x0;
+    public static final int HEADERS = 0x1;
+    public static final int PRIORITY = 0x2;
+    public static final int RST_STREAM = 0x3;
+    public static final int SETTINGS = 0x4;
+    public static final int PUSH_PROMISE = 0x5;
+    public static final int PING = 0x6;
+    public static final int GOAWAY = 0x7;
+    public static final int WINDOW_UPDATE = 0x8;
+    public static final int CONTINUATION = 0x9;
+
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    private final int type;
+    private final int flags;
+    private final int streamId;
+    private final byte[] payload;
+
+    /**
+     * Constructs an Http2Frame.
+     *
+     * @param type     the frame type
+     * @param flags    the frame flags
+     * @param streamId the stream identifier, 0 for connection frames
+     * @param payload  the payload
+     */
+    public Http2Frame(int type, int flags, int streamId, byte[] payload) {
+        this.type = type;
+        this.flags = flags;
+        this.streamId = streamId;
+        this.payload = payload;
+    }
+
+    /**
+     * Reads one frame.
+     *
+     * @param in           the connection's input
+     * @param maxFrameSize the SETTINGS_MAX_FRAME_SIZE this side advertised
+     * @return the frame, or null if the peer closed the connection between frames
+     * @throws Http2Exception if the frame is larger than advertised
+     * @throws IOException    if the connection fails or ends within a frame
+     */
+    public static Http2Frame read(InputStream in, int maxFrameSize) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = in.readNBytes(header, 0, HEADER_LENGTH);
+        if (read == 0) {
+            return null;
+        }
+        if (read < HEADER_LENGTH) {
+            throw new EOFException("Connection closed within a frame header");
+        }
+        int length = ((header[0] & 0xFF) << 16) | ((header[1] & 0xFF) << 8) | (header[2] & 0xFF);
+        int type = header[3] & 0xFF;
+        int flags = header[4] & 0xFF;
+        int streamId = readInt(header, 5) & Integer.MAX_VALUE;
+        if (length > maxFrameSize) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR,
+                    "Frame of " + length + " bytes exceeds " + maxFrameSize);
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length < length) {
+            throw new EOFException("Connection closed within a frame payload");
+        }
+        return new Http2Frame(type, flags, streamId, payload);
+    }
+
+    /**
+     * Encodes a frame header.
+     *
+     * @param length   the payload length
+     * @param type     the frame type
+     * @param flags    the frame flags
+     * @param streamId the stream identifier
+     * @return the 9-byte header
+     */
+    public static byte[] header(int length, int type, int flags, int streamId) {
+        return new byte[]{
+                (byte) (length >>> 16), (byte) (length >>> 8), (byte) length,
+                (byte) type, (byte) flags,
+                (byte) (streamId >>> 24), (byte) (streamId >>> 16), (byte) (streamId >>> 8), (byte) streamId
+        };
+    }
+
+    /**
+     * Reads a big-endian 32-bit integer.
+     *
+     * @param bytes  the source
+     * @param offset the offset of the first byte
+     * @return the integer
+     */
+    public static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Returns whether a flag is set.
+     *
+     * @param flag the flag
+     * @return true if set
+     */
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Frame{" +
+                "type=" + type +
+                ", flags=" + flags +
+                ", streamId=" + streamId +
+                ", length=" + payload.length +
+                '}';
+    }
+}
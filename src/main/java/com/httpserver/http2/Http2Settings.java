@@ -0,0 +1,167 @@
+package com.httpserver.http2;
+
+import java.util.Base64;
+
+/**
+ * One side's HTTP/2 settings (RFC 7540, Section 6.5.2). Settings start at the
+ * protocol defaults and change as SETTINGS frames are applied; only the settings
+ * that were set explicitly are sent.
+ */
+public final class Http2Settings {
+
+    public static final int HEADER_TABLE_SIZE = 0x1;
+    public static final int ENABLE_PUSH = 0x2;
+    public static final int MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int INITIAL_WINDOW_SIZE = 0x4;
+    public static final int MAX_FRAME_SIZE = 0x5;
+    public static final int MAX_HEADER_LIST_SIZE = 0x6;
+
+    /**
+     * The largest flow-control window, 2^31 - 1.
+     */
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * The smallest SETTINGS_MAX_FRAME_SIZE, which is also its initial value.
+     */
+    public static final int MIN_FRAME_SIZE = 16_384;
+
+    /**
+     * The largest SETTINGS_MAX_FRAME_SIZE, 2^24 - 1.
+     */
+    public static final int MAX_FRAME_SIZE_LIMIT = 16_777_215;
+
+    private static final int SETTING_LENGTH = 6;
+
+    /**
+     * Values indexed by identifier; index 0 is unused. Settings without a limit hold
+     * Integer.MAX_VALUE.
+     */
+    private final int[] values = {0, 4_096, 1, Integer.MAX_VALUE, 65_535, MIN_FRAME_SIZE, Integer.MAX_VALUE};
+    private int explicit;
+
+    /**
+     * Returns a setting.
+     *
+     * @param id the setting identifier, 1 to 6
+     * @return the current value
+     */
+    public int get(int id) {
+        return values[id];
+    }
+
+    /**
+     * Sets a setting, to be sent by {@link #encode()}.
+     *
+     * @param id    the setting identifier, 1 to 6
+     * @param value the value
+     * @return this
+     * @throws IllegalArgumentException if the identifier is unknown or the value invalid
+     */
+    public Http2Settings set(int id, int value) {
+        if (id < HEADER_TABLE_SIZE || id > MAX_HEADER_LIST_SIZE) {
+            throw new IllegalArgumentException("Unknown HTTP/2 setting: " + id);
+        }
+        if (invalid(id, value)) {
+            throw new IllegalArgumentException("Invalid value for HTTP/2 setting " + id + ": " + Integer.toUnsignedString(value));
+        }
+        values[id] = value;
+        explicit |= 1 << id;
+        return this;
+    }
+
+    /**
+     * Returns a copy of these settings, which can be changed without affecting them.
+     *
+     * @return the copy
+     */
+    public Http2Settings copy() {
+        Http2Settings copy = new Http2Settings();
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        copy.explicit = explicit;
+        return copy;
+    }
+
+    /**
+     * Applies the payload of a SETTINGS frame from the peer. Unknown settings are
+     * ignored, as the specification requires.
+     *
+     * @param payload the frame payload
+     * @throws Http2Exception if the payload is malformed or a value is invalid
+     */
+    public void apply(byte[] payload) throws Http2Exception {
+        if (payload.length % SETTING_LENGTH != 0) {
+            throw Http2Exception.connectionError(Http2ErrorCode.FRAME_SIZE_ERROR, "SETTINGS payload of " + payload.length + " bytes");
+        }
+        for (int i = 0; i < payload.length; i += SETTING_LENGTH) {
+            int id = ((payload[i] & 0xFF) << 8) | (payload[i + 1] & 0xFF);
+            int value = ((payload[i + 2] & 0xFF) << 24) | ((payload[i + 3] & 0xFF) << 16)
+                    | ((payload[i + 4] & 0xFF) << 8) | (payload[i + 5] & 0xFF);
+            if (id < HEADER_TABLE_SIZE || id > MAX_HEADER_LIST_SIZE) {
+                continue;
+            }
+            if (invalid(id, value)) {
+                Http2ErrorCode code = id == INITIAL_WINDOW_SIZE ? Http2ErrorCode.FLOW_CONTROL_ERROR : Http2ErrorCode.PROTOCOL_ERROR;
+                throw Http2Exception.connectionError(code, "Invalid value for setting " + id + ": " + Integer.toUnsignedString(value));
+            }
+            // Limits above 2^31 - 1 are as good as none.
+            values[id] = value < 0 ? Integer.MAX_VALUE : value;
+        }
+    }
+
+    /**
+     * Encodes the explicitly set settings as a SETTINGS frame payload.
+     *
+     * @return the payload
+     */
+    public byte[] encode() {
+        byte[] payload = new byte[Integer.bitCount(explicit) * SETTING_LENGTH];
+        int offset = 0;
+        for (int id = HEADER_TABLE_SIZE; id <= MAX_HEADER_LIST_SIZE; id++) {
+            if ((explicit & (1 << id)) == 0) {
+                continue;
+            }
+            payload[offset] = (byte) (id >>> 8);
+            payload[offset + 1] = (byte) id;
+            payload[offset + 2] = (byte) (values[id] >>> 24);
+            payload[offset + 3] = (byte) (values[id] >>> 16);
+            payload[offset + 4] = (byte) (values[id] >>> 8);
+            payload[offset + 5] = (byte) values[id];
+            offset += SETTING_LENGTH;
+        }
+        return payload;
+    }
+
+    /**
+     * Decodes the HTTP2-Settings header of an h2c upgrade request, the base64url
+     * encoded payload of a SETTINGS frame (RFC 7540, Section 3.2.1), and checks the
+     * settings it carries.
+     *
+     * @param header the header value
+     * @return the SETTINGS payload
+     * @throws Http2Exception if the header is not valid base64url or carries invalid settings
+     */
+    public static byte[] decodeUpgradeHeader(String header) throws Http2Exception {
+        byte[] payload;
+        try {
+            payload = Base64.getUrlDecoder().decode(header.trim());
+        } catch (IllegalArgumentException e) {
+            throw Http2Exception.connectionError(Http2ErrorCode.PROTOCOL_ERROR, "Malformed HTTP2-Settings header");
+        }
+        new Http2Settings().apply(payload);
+        return payload;
+    }
+
+    private static boolean invalid(int id, int value) {
+        switch (id) {
+            case ENABLE_PUSH:
+                return value != 0 && value != 1;
+            case INITIAL_WINDOW_SIZE:
+                return value < 0;
+            case MAX_FRAME_SIZE:
+                return value < MIN_FRAME_SIZE || value > MAX_FRAME_SIZE_LIMIT;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.httpserver.middleware;
+
+import com.httpserver.compression.CompressibleTypes;
+import com.httpserver.compression.CompressionMetrics;
+import com.httpserver.compression.Compressor;
+import com.httpserver.compression.ContentCoding;
+import com.httpserver.compression.ParallelGzipEncoder;
+import com.httpserver.config.CompressionConfiguration;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Middleware that compresses response bodies with gzip or deflate, depending on
+ * the coding negotiated from the request's Accept-Encoding header.
+ * <p>
+ * Only bodies at least {@link CompressionConfiguration#getMinimumSize()} bytes long
+ * and of a compressible content type are considered. Such responses always carry
+ * {@code Vary: Accept-Encoding}, whether or not they end up compressed, so caches
+ * keep the variants apart. A single instance is meant to be shared by all workers:
+ * it owns the pooled deflaters and the {@link CompressionMetrics}. When parallel
+ * compression is enabled, gzip bodies above the parallel threshold are compressed
+ * by a {@link ParallelGzipEncoder} on the common fork/join pool.
+ * </p>
+ */
+public class CompressionMiddleware implements Middleware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionMiddleware.class);
+
+    private final int minimumSize;
+    private final List<String> mimeTypes;
+    private final Compressor compressor;
+    private final ParallelGzipEncoder parallelGzipEncoder;
+    private final int parallelThreshold;
+    private final CompressionMetrics metrics = new CompressionMetrics();
+
+    /**
+     * Constructs a CompressionMiddleware with default settings.
+     */
+    public CompressionMiddleware() {
+        this(new CompressionConfiguration());
+    }
+
+    /**
+     * Constructs a CompressionMiddleware from the given configuration.
+     *
+     * @param configuration the compression configuration
+     */
+    public CompressionMiddleware(CompressionConfiguration configuration) {
+        this.minimumSize = configuration.getMinimumSize();
+        this.mimeTypes = configuration.getMimeTypes();
+        this.compressor = new Compressor(configuration.getLevel(), Runtime.getRuntime().availableProcessors() * 2);
+        this.parallelThreshold = configuration.getParallelThreshold();
+        this.parallelGzipEncoder = configuration.isParallelEnabled()
+                ? new ParallelGzipEncoder(compressor.getRawPool(), ForkJoinPool.commonPool(), configuration.getParallelBlockSize())
+                : null;
+        LOGGER.debug("CompressionMiddleware created with {}", configuration);
+    }
+
+    /**
+     * Without the request no coding can be negotiated, so the response is left as is.
+     *
+     * @param response The HttpResponse to leave unchanged.
+     */
+    @Override
+    public void apply(HttpResponse response) {
+        LOGGER.trace("No request available for content negotiation, response left uncompressed.");
+    }
+
+    /**
+     * Compresses the response body if it is eligible and the client accepts gzip or deflate.
+     *
+     * @param request  The HttpRequest being answered.
+     * @param response The HttpResponse whose body may be compressed.
+     */
+    @Override
+    public void apply(HttpRequest request, HttpResponse response) {
+        if (request == null || !isEligible(request, response)) {
+            return;
+        }
+
+        byte[] body = response.getBodyBytes();
+        addVary(response);
+
+        ContentCoding coding = ContentCoding.negotiate(request.getHeader("Accept-Encoding"));
+        if (coding == ContentCoding.IDENTITY) {
+            metrics.recordSkipped();
+            return;
+        }
+
+        byte[] encoded;
+        long cpuNanos;
+        if (coding == ContentCoding.GZIP && parallelGzipEncoder != null && body.length >= parallelThreshold) {
+            LongAdder cpuTime = new LongAdder();
+            encoded = parallelGzipEncoder.gzip(body, cpuTime);
+            cpuNanos = cpuTime.sum();
+        } else {
+            long cpuStart = CompressionMetrics.currentThreadCpuTime();
+            encoded = compressor.compress(coding, body);
+            cpuNanos = CompressionMetrics.currentThreadCpuTime() - cpuStart;
+        }
+
+        if (encoded.length >= body.length) {
+            LOGGER.debug("Compression did not reduce body size ({} -> {} bytes), sending identity.", body.length, encoded.length);
+            metrics.recordSkipped();
+            return;
+        }
+
+        response.setBody(encoded);
+        response.addHeader("Content-Encoding", coding.TOKEN);
+        response.addHeader("Content-Length", String.valueOf(encoded.length));
+        String etag = response.getHeader("ETag");
+        if (etag != null) {
+            // A strong validator must differ between representations.
+            response.addHeader("ETag", etag.endsWith("\"")
+                    ? etag.substring(0, etag.length() - 1) + "-" + coding.TOKEN + "\""
+                    : etag);
+        }
+        metrics.recordCompressed(coding, body.length, encoded.length, cpuNanos);
+    }
+
+    /**
+     * Returns the compression metrics collected by this middleware.
+     *
+     * @return the compression metrics
+     */
+    public CompressionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks whether the response may be compressed at all, independent of what the client accepts.
+     *
+     * @param request  the request being answered
+     * @param response the response to check
+     * @return true if the body is large enough, compressible and not already encoded
+     */
+    private boolean isEligible(HttpRequest request, HttpResponse response) {
+        if (request.getMethod() == HttpMethod.HEAD) {
+            return false;
+        }
+        HttpStatusCode statusCode = response.getStatusCode();
+        if (statusCode == HttpStatusCode.SUCCESS_204_NO_CONTENT
+                || statusCode == HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT
+                || statusCode == HttpStatusCode.REDIRECTION_304_NOT_MODIFIED) {
+            return false;
+        }
+        if (response.getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        byte[] body = response.getBodyBytes();
+        if (body == null || body.length < minimumSize) {
+            return false;
+        }
+        return isCompressibleType(response.getHeader("Content-Type"));
+    }
+
+    /**
+     * Checks a Content-Type value against the configured compressible types.
+     *
+     * @param contentType the Content-Type header value, may be null
+     * @return true if the type is compressible
+     */
+    boolean isCompressibleType(String contentType) {
+        return CompressibleTypes.matches(mimeTypes, contentType);
+    }
+
+    /**
+     * Adds Accept-Encoding to the Vary header, preserving any existing entries.
+     *
+     * @param response the response to update
+     */
+    private static void addVary(HttpResponse response) {
+        String vary = response.getHeader("Vary");
+        if (vary == null || vary.isBlank()) {
+            response.addHeader("Vary", "Accept-Encoding");
+        } else if (!vary.toLowerCase().contains("accept-encoding") && !vary.trim().equals("*")) {
+            response.removeHeader("Vary");
+            response.addHeader("Vary", vary + ", Accept-Encoding");
+        }
+    }
+}
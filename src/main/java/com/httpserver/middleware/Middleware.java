@@ -1,10 +1,12 @@
 package com.httpserver.middleware;
 
+import com.httpserver.http.HttpRequest;
 import com.httpserver.http.HttpResponse;
 
 /**
  * Interface for middleware components.
- * Middleware components can modify or inspect HTTP responses.
+ * Middleware components can inspect requests before the handler runs, answer them
+ * in its place, and modify or inspect HTTP responses.
  */
 public interface Middleware {
     /**
@@ -13,4 +15,30 @@ public interface Middleware {
      * @param response The HttpResponse object that will be modified by this middleware.
      */
     void apply(HttpResponse response);
+
+    /**
+     * Applies the middleware logic with access to the request the response answers,
+     * for middleware that depends on request headers such as content negotiation.
+     * By default the request is ignored.
+     *
+     * @param request  The HttpRequest being answered, or null if it could not be parsed.
+     * @param response The HttpResponse object that will be modified by this middleware.
+     */
+    default void apply(HttpRequest request, HttpResponse response) {
+        apply(response);
+    }
+
+    /**
+     * Inspects the request before the handler runs, for middleware such as
+     * authentication or caching that may answer it instead. Returning a response
+     * short-circuits the chain: neither the handler nor later middleware see the
+     * request, and only the middleware that ran before this one apply to the
+     * response. By default every request is passed on.
+     *
+     * @param request The HttpRequest being answered.
+     * @return the response answering the request, or null to pass it on.
+     */
+    default HttpResponse before(HttpRequest request) {
+        return null;
+    }
 }
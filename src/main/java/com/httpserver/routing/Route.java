@@ -0,0 +1,105 @@
+package com.httpserver.routing;
+
+import com.httpserver.core.Handler;
+import com.httpserver.core.MiddlewareChain;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.middleware.Middleware;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A handler registered with a {@link Router} for one method and path pattern.
+ */
+public final class Route {
+
+    private final HttpMethod method;
+    private final String pattern;
+    private final Handler handler;
+    private final String[] parameterNames;
+    private MiddlewareChain chain = MiddlewareChain.EMPTY;
+    private Duration timeout;
+
+    Route(HttpMethod method, String pattern, Handler handler, String[] parameterNames) {
+        this.method = method;
+        this.pattern = pattern;
+        this.handler = handler;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * Returns the method the route answers.
+     *
+     * @return the method
+     */
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the path pattern the route was registered with, such as {@code /users/:id}.
+     *
+     * @return the pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the handler answering requests that match the route.
+     *
+     * @return the handler
+     */
+    public Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Returns the names of the pattern's parameters, in path order.
+     *
+     * @return the parameter names
+     */
+    public List<String> getParameterNames() {
+        return List.of(parameterNames);
+    }
+
+    /**
+     * Returns the middleware that runs around the route's handler.
+     *
+     * @return the middlewares, in the order their hooks run
+     */
+    public List<Middleware> getMiddlewares() {
+        return chain.getMiddlewares();
+    }
+
+    /**
+     * Returns the time the route allows for answering a request, in place of the
+     * server-wide request timeout.
+     *
+     * @return the timeout, or null if the route uses the server's
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    String[] parameterNames() {
+        return parameterNames;
+    }
+
+    MiddlewareChain chain() {
+        return chain;
+    }
+
+    void setChain(MiddlewareChain chain) {
+        this.chain = chain;
+    }
+
+    void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + pattern;
+    }
+}
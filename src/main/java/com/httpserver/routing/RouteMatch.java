@@ -0,0 +1,61 @@
+package com.httpserver.routing;
+
+import com.httpserver.http.HttpMethod;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of looking up a path in a {@link Router}: the route for the request
+ * method, or the methods the path does allow, and the values of the path parameters.
+ */
+public final class RouteMatch {
+
+    private final Route route;
+    private final Set<HttpMethod> allowedMethods;
+    private final Map<String, String> parameters;
+
+    RouteMatch(Route route, Set<HttpMethod> allowedMethods, String[] names, String[] values) {
+        this.route = route;
+        this.allowedMethods = allowedMethods;
+        if (names.length == 0) {
+            this.parameters = Map.of();
+        } else {
+            Map<String, String> parameters = new LinkedHashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                parameters.put(names[i], values[i]);
+            }
+            this.parameters = Collections.unmodifiableMap(parameters);
+        }
+    }
+
+    /**
+     * Returns the route answering the request method.
+     *
+     * @return the route, or null if the path matched but not for this method
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Returns the methods with a route for the matched path, for the Allow header of
+     * a 405 response.
+     *
+     * @return the allowed methods
+     */
+    public Set<HttpMethod> getAllowedMethods() {
+        return allowedMethods;
+    }
+
+    /**
+     * Returns the decoded values of the path parameters by name.
+     *
+     * @return the path parameters
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+}
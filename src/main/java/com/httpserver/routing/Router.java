@@ -0,0 +1,571 @@
+package com.httpserver.routing;
+
+import com.httpserver.core.Handler;
+import com.httpserver.core.MiddlewareChain;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.Middleware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+
+/**
+ * Dispatches requests to handlers by method and path.
+ * <p>
+ * Patterns are paths whose segments may be parameters, {@code /users/:id}, which
+ * match one non-empty segment, or end in a wildcard, {@code /assets/*path}, which
+ * matches the rest of the path, slashes included. Routes are kept in a compressed
+ * radix tree: static text shared by several patterns is stored, and compared, once,
+ * and each node finds the child for the next character among at most a few dozen
+ * distinct characters. A lookup therefore walks the path once, and its cost depends
+ * on the path length rather than on the number of routes. At each node static
+ * children are tried first, then the parameter, then the wildcard, so
+ * {@code /users/new} takes precedence over {@code /users/:id}.
+ * </p>
+ * <p>
+ * HEAD requests are answered by the GET route when no HEAD route is registered.
+ * Paths that match no route go to the fallback handler, or get 404 Not Found; paths
+ * that match a route for other methods only get 405 Method Not Allowed with an
+ * {@code Allow} header. Routes are registered at startup, before the router serves
+ * requests; lookups are then safe for concurrent use.
+ * </p>
+ * <p>
+ * Middleware registered with {@link #use(Predicate, Middleware)} runs around the
+ * handlers of the routes it selects. Each route's chain is assembled into a flat
+ * array when the route or the middleware is registered, so a request pays only for
+ * the middleware of the route it matched, and nothing is decided per request.
+ * Requests that go to the fallback handler run no route middleware.
+ * </p>
+ * <p>
+ * A timeout registered with {@link #timeout(Predicate, Duration)} replaces the
+ * server-wide request timeout for the routes it selects, and is set on the request
+ * before the route's middleware runs. A request whose new deadline has already
+ * passed is answered with 503 Service Unavailable without running the handler.
+ * </p>
+ */
+public class Router implements Handler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Router.class);
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final Node root = new Node("");
+    private final Handler fallback;
+    private final List<Route> routes = new ArrayList<>();
+    private final List<Scoped> middlewares = new ArrayList<>();
+    private final List<ScopedTimeout> timeouts = new ArrayList<>();
+    private int maxParameters;
+
+    /**
+     * Constructs a Router that answers unmatched paths with 404 Not Found.
+     */
+    public Router() {
+        this(null);
+    }
+
+    /**
+     * Constructs a Router that hands unmatched paths to a fallback handler, such as
+     * the static file handler.
+     *
+     * @param fallback answers requests no route matches, or null to answer them with 404
+     */
+    public Router(Handler fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Registers a GET route.
+     *
+     * @param pattern the path pattern
+     * @param handler answers matching requests
+     * @return this router
+     * @throws IllegalArgumentException if the pattern is invalid or conflicts with a registered one
+     */
+    public Router get(String pattern, Handler handler) {
+        return add(HttpMethod.GET, pattern, handler);
+    }
+
+    /**
+     * Registers a POST route.
+     *
+     * @param pattern the path pattern
+     * @param handler answers matching requests
+     * @return this router
+     * @throws IllegalArgumentException if the pattern is invalid or conflicts with a registered one
+     */
+    public Router post(String pattern, Handler handler) {
+        return add(HttpMethod.POST, pattern, handler);
+    }
+
+    /**
+     * Registers a route.
+     *
+     * @param method  the method the route answers
+     * @param pattern the path pattern, starting with '/'
+     * @param handler answers matching requests
+     * @return this router
+     * @throws IllegalArgumentException if the pattern is invalid, a parameter at the same
+     *                                  position is named differently by another pattern, or
+     *                                  the method and pattern are already registered
+     */
+    public Router add(HttpMethod method, String pattern, Handler handler) {
+        if (method == null || handler == null) {
+            throw new IllegalArgumentException("Route method and handler are required: " + method + " " + pattern);
+        }
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+        }
+        List<String> names = new ArrayList<>();
+        Node node = insert(root, pattern, 1, names);
+        if (node.routes[method.ordinal()] != null) {
+            throw new IllegalArgumentException("Route already registered: " + method + " " + pattern);
+        }
+        Route route = new Route(method, pattern, handler, names.toArray(new String[0]));
+        compile(route);
+        node.addRoute(route);
+        routes.add(route);
+        maxParameters = Math.max(maxParameters, names.size());
+        LOGGER.debug("Route registered: {}", route);
+        return this;
+    }
+
+    /**
+     * Registers middleware for every route.
+     *
+     * @param middleware runs around the handlers of all routes
+     * @return this router
+     * @throws IllegalArgumentException if the middleware is null
+     */
+    public Router use(Middleware middleware) {
+        return use(route -> true, middleware);
+    }
+
+    /**
+     * Registers middleware for the routes a predicate selects, such as authentication
+     * for routes under {@code /admin}. The predicate is evaluated once per route, for
+     * routes registered before and after this call, and never per request. Middleware
+     * runs in registration order.
+     *
+     * @param routes     selects the routes the middleware applies to
+     * @param middleware runs around the handlers of the selected routes
+     * @return this router
+     * @throws IllegalArgumentException if the predicate or the middleware is null
+     */
+    public Router use(Predicate<Route> routes, Middleware middleware) {
+        if (routes == null || middleware == null) {
+            throw new IllegalArgumentException("Middleware and its route predicate are required");
+        }
+        middlewares.add(new Scoped(routes, middleware));
+        for (Route route : this.routes) {
+            compile(route);
+        }
+        LOGGER.debug("Middleware registered: {}", middleware.getClass().getName());
+        return this;
+    }
+
+    /**
+     * Sets the timeout of the routes a predicate selects, such as a longer one for
+     * report exports or a shorter one for health checks. The predicate is evaluated
+     * once per route, for routes registered before and after this call; when several
+     * select a route, the last registered wins.
+     *
+     * @param routes  selects the routes the timeout applies to
+     * @param timeout the time allowed for answering a request, from when it was read
+     * @return this router
+     * @throws IllegalArgumentException if the predicate is null or the timeout is not positive
+     */
+    public Router timeout(Predicate<Route> routes, Duration timeout) {
+        if (routes == null || timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("A route predicate and a positive timeout are required: " + timeout);
+        }
+        timeouts.add(new ScopedTimeout(routes, timeout));
+        for (Route route : this.routes) {
+            compile(route);
+        }
+        LOGGER.debug("Route timeout registered: {}", timeout);
+        return this;
+    }
+
+    /**
+     * Returns the registered routes, in registration order.
+     *
+     * @return the routes
+     */
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * Finds the route for a method and path.
+     *
+     * @param method the request method
+     * @param path   the request path, without the query string
+     * @return the match, whose route is null if the path only has routes for other
+     * methods, or null if no pattern matches the path
+     * @throws IllegalArgumentException if a parameter value is not correctly percent-encoded
+     */
+    public RouteMatch match(HttpMethod method, String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        Lookup lookup = new Lookup(maxParameters == 0 ? NO_VALUES : new String[maxParameters]);
+        Node node = find(root, path, 1, lookup);
+        if (node == null) {
+            return null;
+        }
+        Route route = node.routes[method.ordinal()];
+        if (route == null && method == HttpMethod.HEAD) {
+            route = node.routes[HttpMethod.GET.ordinal()];
+        }
+        String[] names = node.anyRoute.parameterNames();
+        String[] values = names.length == lookup.values.length ? lookup.values : Arrays.copyOf(lookup.values, names.length);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decode(values[i]);
+        }
+        return new RouteMatch(route, node.allowedMethods, names, values);
+    }
+
+    /**
+     * Answers the request with the handler of the matching route, after setting the
+     * path parameters on the request.
+     *
+     * @param request the parsed request
+     * @return the response
+     */
+    @Override
+    public HttpResponse handle(HttpRequest request) {
+        String target = request.getRequestTarget();
+        int query = target.indexOf('?');
+        String path = query < 0 ? target : target.substring(0, query);
+
+        RouteMatch match;
+        try {
+            match = match(request.getMethod(), path);
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Invalid path parameter encoding in: {}", path);
+            return emptyResponse(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        }
+        if (match == null) {
+            return fallback != null ? fallback.handle(request) : emptyResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+        }
+        if (match.getRoute() == null) {
+            HttpResponse httpResponse = emptyResponse(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED);
+            StringJoiner allow = new StringJoiner(", ");
+            for (HttpMethod allowed : match.getAllowedMethods()) {
+                allow.add(allowed.name());
+            }
+            httpResponse.addHeader("Allow", allow.toString());
+            return httpResponse;
+        }
+        Route route = match.getRoute();
+        request.setPathParameters(match.getParameters());
+        if (route.getTimeout() != null) {
+            request.setTimeout(route.getTimeout());
+            if (request.isDeadlineExceeded()) {
+                LOGGER.debug("Deadline of {} passed before its handler ran", route);
+                return emptyResponse(HttpStatusCode.SERVER_ERROR_503_SERVICE_UNAVAILABLE);
+            }
+        }
+        return route.chain().handle(request, route.getHandler());
+    }
+
+    /**
+     * Assembles the middleware chain of a route from the middleware that selects it,
+     * and settles its timeout.
+     *
+     * @param route the route
+     */
+    private void compile(Route route) {
+        List<Middleware> selected = new ArrayList<>();
+        for (Scoped scoped : middlewares) {
+            if (scoped.routes.test(route)) {
+                selected.add(scoped.middleware);
+            }
+        }
+        route.setChain(selected.isEmpty() ? MiddlewareChain.EMPTY : new MiddlewareChain(selected));
+        Duration timeout = null;
+        for (ScopedTimeout scoped : timeouts) {
+            if (scoped.routes.test(route)) {
+                timeout = scoped.timeout;
+            }
+        }
+        route.setTimeout(timeout);
+    }
+
+    /**
+     * Inserts the rest of a pattern below a node.
+     *
+     * @param node     the node the pattern matched up to
+     * @param pattern  the pattern
+     * @param position the index of the first character not yet inserted
+     * @param names    collects the parameter names
+     * @return the node the pattern ends at
+     */
+    private static Node insert(Node node, String pattern, int position, List<String> names) {
+        while (position < pattern.length()) {
+            char c = pattern.charAt(position);
+            if (c == ':' || c == '*') {
+                if (pattern.charAt(position - 1) != '/') {
+                    throw new IllegalArgumentException("Parameters must start a path segment: " + pattern);
+                }
+                int end = c == '*' ? pattern.length() : indexOf(pattern, '/', position);
+                String name = pattern.substring(position + 1, end);
+                if (name.isEmpty() || name.indexOf(':') >= 0 || name.indexOf('*') >= 0 || name.indexOf('/') >= 0) {
+                    throw new IllegalArgumentException("Invalid parameter name '" + name + "' in: " + pattern);
+                }
+                if (names.contains(name)) {
+                    throw new IllegalArgumentException("Duplicate parameter name '" + name + "' in: " + pattern);
+                }
+                names.add(name);
+                Node child = c == ':' ? node.parameter : node.wildcard;
+                if (child == null) {
+                    child = new Node(name);
+                    if (c == ':') {
+                        node.parameter = child;
+                    } else {
+                        node.wildcard = child;
+                    }
+                } else if (!child.label.equals(name)) {
+                    throw new IllegalArgumentException("Parameter '" + name + "' in " + pattern
+                            + " conflicts with '" + child.label + "' at the same position");
+                }
+                node = child;
+                position = end;
+                continue;
+            }
+
+            int end = position;
+            while (end < pattern.length() && pattern.charAt(end) != ':' && pattern.charAt(end) != '*') {
+                end++;
+            }
+            Node child = node.staticChild(c);
+            if (child == null) {
+                child = new Node(pattern.substring(position, end));
+                node.addStaticChild(child);
+                node = child;
+                position = end;
+                continue;
+            }
+            int common = 0;
+            int max = Math.min(child.label.length(), end - position);
+            while (common < max && child.label.charAt(common) == pattern.charAt(position + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                child = node.split(child, common);
+            }
+            node = child;
+            position += common;
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node matching the rest of a path, backtracking to parameters and
+     * wildcards when a static branch does not lead to a route.
+     *
+     * @param node     the node the path matched up to
+     * @param path     the path
+     * @param position the index of the first character not yet matched
+     * @param lookup   collects the parameter values
+     * @return the node with routes the path ends at, or null
+     */
+    private static Node find(Node node, String path, int position, Lookup lookup) {
+        if (position == path.length()) {
+            if (node.hasRoutes()) {
+                return node;
+            }
+            // "/assets/*path" also matches "/assets/".
+            if (node.wildcard != null && node.wildcard.hasRoutes()) {
+                lookup.values[lookup.count++] = "";
+                return node.wildcard;
+            }
+            return null;
+        }
+
+        Node child = node.staticChild(path.charAt(position));
+        if (child != null && path.startsWith(child.label, position)) {
+            Node found = find(child, path, position + child.label.length(), lookup);
+            if (found != null) {
+                return found;
+            }
+        }
+        if (node.parameter != null) {
+            int end = indexOf(path, '/', position);
+            if (end > position) {
+                int count = lookup.count;
+                lookup.values[lookup.count++] = path.substring(position, end);
+                Node found = find(node.parameter, path, end, lookup);
+                if (found != null) {
+                    return found;
+                }
+                lookup.count = count;
+            }
+        }
+        if (node.wildcard != null && node.wildcard.hasRoutes()) {
+            lookup.values[lookup.count++] = path.substring(position);
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    private static int indexOf(String string, char c, int from) {
+        int index = string.indexOf(c, from);
+        return index < 0 ? string.length() : index;
+    }
+
+    /**
+     * Decodes percent-encoded characters in a parameter value. Unlike form data, a
+     * '+' in a path is a plus sign.
+     */
+    private static String decode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static HttpResponse emptyResponse(HttpStatusCode statusCode) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(statusCode);
+        httpResponse.addHeader("Content-Length", "0");
+        return httpResponse;
+    }
+
+    /**
+     * Middleware and the routes it applies to.
+     */
+    private static final class Scoped {
+        private final Predicate<Route> routes;
+        private final Middleware middleware;
+
+        private Scoped(Predicate<Route> routes, Middleware middleware) {
+            this.routes = routes;
+            this.middleware = middleware;
+        }
+    }
+
+    /**
+     * A timeout and the routes it applies to.
+     */
+    private static final class ScopedTimeout {
+        private final Predicate<Route> routes;
+        private final Duration timeout;
+
+        private ScopedTimeout(Predicate<Route> routes, Duration timeout) {
+            this.routes = routes;
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * The parameter values collected while matching one path.
+     */
+    private static final class Lookup {
+        private final String[] values;
+        private int count;
+
+        private Lookup(String[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * A node of the radix tree. Static nodes match their label; parameter and
+     * wildcard nodes, held in {@link #parameter} and {@link #wildcard} of their parent,
+     * are labelled with the parameter name.
+     */
+    private static final class Node {
+        private String label;
+
+        /**
+         * The first character of each static child's label, parallel to {@link #children}.
+         */
+        private char[] indices = new char[0];
+        private Node[] children = new Node[0];
+        private Node parameter;
+        private Node wildcard;
+        private final Route[] routes = new Route[HttpMethod.values().length];
+
+        private Route anyRoute;
+        private Set<HttpMethod> allowedMethods = Set.of();
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node staticChild(char c) {
+            char[] indices = this.indices;
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addStaticChild(Node child) {
+            indices = Arrays.copyOf(indices, indices.length + 1);
+            indices[indices.length - 1] = child.label.charAt(0);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        /**
+         * Splits a static child after the first characters of its label, which become
+         * a new child holding the old one.
+         *
+         * @return the new child
+         */
+        private Node split(Node child, int length) {
+            Node prefix = new Node(child.label.substring(0, length));
+            child.label = child.label.substring(length);
+            prefix.addStaticChild(child);
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = prefix;
+                }
+            }
+            return prefix;
+        }
+
+        private boolean hasRoutes() {
+            return anyRoute != null;
+        }
+
+        /**
+         * Adds a route ending at this node and updates the methods the node allows,
+         * so 405 responses need no work per request.
+         */
+        private void addRoute(Route route) {
+            routes[route.getMethod().ordinal()] = route;
+            if (anyRoute == null) {
+                anyRoute = route;
+            }
+            Set<HttpMethod> allowed = EnumSet.noneOf(HttpMethod.class);
+            for (Route registered : routes) {
+                if (registered != null) {
+                    allowed.add(registered.getMethod());
+                }
+            }
+            if (allowed.contains(HttpMethod.GET)) {
+                allowed.add(HttpMethod.HEAD);
+            }
+            allowedMethods = Collections.unmodifiableSet(allowed);
+        }
+    }
+}
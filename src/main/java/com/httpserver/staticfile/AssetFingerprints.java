@@ -0,0 +1,285 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.utils.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps content-hashed asset URLs such as {@code /app.3f9a1c0b.js} to webroot files
+ * such as {@code /app.js}, and lists the current URL of every asset in a manifest.
+ * <p>
+ * The fingerprint is the CRC32C of the file contents as eight hex digits, taken from
+ * the file's ETag, so it costs nothing beyond what conditional requests already
+ * compute. Files too large to hash take the low eight digits of their modification
+ * time instead. A URL whose fingerprint matches the current contents can be cached by
+ * clients forever, because any change to the file changes its URL.
+ * </p>
+ * <p>
+ * The manifest is built once and kept. When the web root is watched, it is rebuilt
+ * after {@link #invalidate()}; otherwise it is rebuilt when a directory or a listed
+ * file has a different modification time than when it was built, which costs a few
+ * attribute reads rather than a walk of the web root.
+ * </p>
+ */
+public class AssetFingerprints {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetFingerprints.class);
+
+    /**
+     * Cache-Control for fingerprinted URLs: one year, without revalidation.
+     */
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final int FINGERPRINT_LENGTH = 8;
+
+    private final Path webroot;
+    private final Set<String> extensions;
+    private final boolean watched;
+    private volatile Manifest manifest;
+
+    /**
+     * Bumped on every change, so a manifest built during a change is not kept.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Looks up the metadata for a request path, like the static file handler does.
+     */
+    @FunctionalInterface
+    interface MetadataLookup {
+        FileMetadata lookup(String normalizedPath) throws IOException;
+    }
+
+    /**
+     * Constructs an AssetFingerprints.
+     *
+     * @param webroot    the real path of the web root
+     * @param extensions the file extensions, without the dot, of files that get fingerprinted URLs
+     * @param watched    true if {@link #invalidate()} is called on every change under the web root, false to
+     *                   check modification times before reusing the manifest
+     */
+    public AssetFingerprints(Path webroot, List<String> extensions, boolean watched) {
+        this.webroot = webroot;
+        this.extensions = new HashSet<>();
+        for (String extension : extensions) {
+            this.extensions.add(extension.toLowerCase(Locale.ROOT));
+        }
+        this.watched = watched;
+    }
+
+    /**
+     * Returns the fingerprint of a file version.
+     *
+     * @param metadata the file
+     * @return eight lowercase hex digits
+     * @throws IOException if the file cannot be read to compute its ETag
+     */
+    public static String of(FileMetadata metadata) throws IOException {
+        String etag = metadata.getETag();
+        String validator = etag.substring(etag.indexOf('-') + 1, etag.length() - 1);
+        if (validator.length() > FINGERPRINT_LENGTH) {
+            return validator.substring(validator.length() - FINGERPRINT_LENGTH);
+        }
+        return "0".repeat(FINGERPRINT_LENGTH - validator.length()) + validator;
+    }
+
+    /**
+     * Checks whether files with the extension of a path get fingerprinted URLs.
+     *
+     * @param path a request path
+     * @return true if the extension is configured for fingerprinting
+     */
+    public boolean isFingerprintable(String path) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot > slash + 1 && extensions.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Inserts a fingerprint before the extension of a path.
+     *
+     * @param path        the request path of a fingerprintable file, e.g. {@code /js/app.js}
+     * @param fingerprint the fingerprint
+     * @return the fingerprinted path, e.g. {@code /js/app.3f9a1c0b.js}
+     */
+    public static String fingerprintedPath(String path, String fingerprint) {
+        int dot = path.lastIndexOf('.');
+        return path.substring(0, dot + 1) + fingerprint + path.substring(dot);
+    }
+
+    /**
+     * Splits a fingerprinted request path into the file path and the fingerprint.
+     *
+     * @param path the normalized request path
+     * @return the file path and fingerprint, or null if the path has no fingerprint
+     * or a non-fingerprintable extension
+     */
+    Fingerprinted parse(String path) {
+        int slash = path.lastIndexOf('/');
+        int extensionDot = path.lastIndexOf('.');
+        int fingerprintDot = extensionDot - FINGERPRINT_LENGTH - 1;
+        if (fingerprintDot <= slash + 1 || path.charAt(fingerprintDot) != '.') {
+            return null;
+        }
+        for (int i = fingerprintDot + 1; i < extensionDot; i++) {
+            if (Character.digit(path.charAt(i), 16) < 0 || Character.isUpperCase(path.charAt(i))) {
+                return null;
+            }
+        }
+        String filePath = path.substring(0, fingerprintDot) + path.substring(extensionDot);
+        if (!isFingerprintable(filePath)) {
+            return null;
+        }
+        return new Fingerprinted(filePath, path.substring(fingerprintDot + 1, extensionDot));
+    }
+
+    /**
+     * Drops the cached manifest after a change under the web root.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        manifest = null;
+    }
+
+    /**
+     * Returns the manifest: a JSON object mapping the request path of every
+     * fingerprintable file to its current fingerprinted path.
+     *
+     * @param lookup resolves request paths to file metadata
+     * @return the manifest as UTF-8 JSON
+     * @throws IOException if the web root cannot be walked
+     */
+    byte[] manifest(MetadataLookup lookup) throws IOException {
+        Manifest current = manifest;
+        if (current != null && (watched || current.isUnchanged())) {
+            return current.json;
+        }
+        long buildGeneration = generation.get();
+        long start = System.nanoTime();
+        Map<String, String> entries = new TreeMap<>();
+        Map<Path, FileTime> modificationTimes = new HashMap<>();
+        Files.walkFileTree(webroot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(webroot) && isHidden(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                modificationTimes.put(dir, attrs.lastModifiedTime());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (isHidden(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                StringBuilder path = new StringBuilder();
+                for (Path segment : webroot.relativize(file)) {
+                    path.append('/').append(segment);
+                }
+                String requestPath = path.toString();
+                if (isFingerprintable(requestPath)) {
+                    try {
+                        FileMetadata metadata = lookup.lookup(requestPath);
+                        if (metadata != null) {
+                            entries.put(requestPath, fingerprintedPath(requestPath, of(metadata)));
+                            modificationTimes.put(metadata.getFile(), metadata.getLastModified());
+                        }
+                    } catch (NoSuchFileException e) {
+                        // Deleted while being hashed.
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Deleted while being walked.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        current = new Manifest(Json.toJson(entries).toString().getBytes(StandardCharsets.UTF_8), modificationTimes);
+        manifest = current;
+        if (generation.get() != buildGeneration) {
+            // The web root changed while the manifest was built.
+            manifest = null;
+        }
+        LOGGER.debug("Built asset manifest with {} entries in {} ms", entries.size(), (System.nanoTime() - start) / 1_000_000);
+        return current.json;
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * A built manifest, with the modification times of the directories walked and the
+     * files listed when it was built.
+     */
+    private static final class Manifest {
+        private final byte[] json;
+        private final Map<Path, FileTime> modificationTimes;
+
+        private Manifest(byte[] json, Map<Path, FileTime> modificationTimes) {
+            this.json = json;
+            this.modificationTimes = modificationTimes;
+        }
+
+        /**
+         * Checks that no directory had a file added, removed or renamed, and no listed
+         * file was modified, since the manifest was built.
+         *
+         * @return true if every modification time is unchanged
+         */
+        private boolean isUnchanged() {
+            for (Map.Entry<Path, FileTime> recorded : modificationTimes.entrySet()) {
+                try {
+                    if (!Files.getLastModifiedTime(recorded.getKey()).equals(recorded.getValue())) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A fingerprinted request path split into the file it names and the fingerprint.
+     */
+    static final class Fingerprinted {
+        private final String path;
+        private final String fingerprint;
+
+        private Fingerprinted(String path, String fingerprint) {
+            this.path = path;
+            this.fingerprint = fingerprint;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        String getFingerprint() {
+            return fingerprint;
+        }
+    }
+}
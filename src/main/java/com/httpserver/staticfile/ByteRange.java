@@ -0,0 +1,176 @@
+package com.httpserver.staticfile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An inclusive range of byte positions within a representation, as requested by a
+ * {@code Range: bytes=...} header.
+ */
+public final class ByteRange {
+
+    /**
+     * More ranges than this in one request are treated as abuse and the header is ignored.
+     */
+    static final int MAX_RANGES = 32;
+
+    private final long first;
+    private final long last;
+
+    /**
+     * Constructs a ByteRange.
+     *
+     * @param first the position of the first byte
+     * @param last  the position of the last byte, inclusive
+     */
+    public ByteRange(long first, long last) {
+        if (first < 0 || last < first) {
+            throw new IllegalArgumentException("Invalid byte range: " + first + "-" + last);
+        }
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parses a Range header against a representation of the given length.
+     * <p>
+     * Unsatisfiable specs are dropped, satisfiable ones are clamped to the length,
+     * sorted and merged when they overlap or touch, so a client cannot make the server
+     * send the same bytes several times.
+     * </p>
+     *
+     * @param header the Range header value
+     * @param length the length of the representation
+     * @return the ranges to send, an empty list if none of them is satisfiable, or null
+     * if the header is malformed, not in bytes, or asks for too many ranges and must be ignored
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                    continue;
+                }
+                long first = Long.parseLong(spec.substring(0, dash));
+                String lastPart = spec.substring(dash + 1);
+                long last = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+                if (first < 0 || last < first) {
+                    return null;
+                }
+                if (first < length) {
+                    ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    /**
+     * Sorts ranges and merges those that overlap or are adjacent.
+     *
+     * @param ranges the ranges
+     * @return the merged ranges in ascending order
+     */
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::getFirst));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.first <= current.last + 1) {
+                current = new ByteRange(current.first, Math.max(current.last, next.last));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * Returns the position of the first byte.
+     *
+     * @return the first byte position
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the position of the last byte, inclusive.
+     *
+     * @return the last byte position
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     *
+     * @return the range length
+     */
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * Formats the range as a Content-Range value.
+     *
+     * @param completeLength the length of the whole representation
+     * @return the Content-Range value, e.g. {@code bytes 0-499/1234}
+     */
+    public String toContentRange(long completeLength) {
+        return "bytes " + first + "-" + last + "/" + completeLength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteRange)) {
+            return false;
+        }
+        ByteRange other = (ByteRange) o;
+        return first == other.first && last == other.last;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(first) * 31 + Long.hashCode(last);
+    }
+
+    @Override
+    public String toString() {
+        return first + "-" + last;
+    }
+}
@@ -0,0 +1,272 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the static file caches warm across restarts. While the server runs it counts
+ * the paths the {@link StaticFileHandler} serves and periodically writes the most
+ * requested ones to a small file, one path per line, most popular first. At the next
+ * startup {@link #warm(Duration)} loads those paths into the caches before the
+ * listeners accept connections, so the first requests after a deploy are not served
+ * cold from disk.
+ * <p>
+ * Counts are halved after every save, so the list follows what is popular now
+ * rather than what was popular since the server started.
+ * </p>
+ */
+public class CacheWarmer implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final StaticFileHandler handler;
+    private final Path file;
+    private final int topN;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService recorder;
+
+    /**
+     * Constructs a CacheWarmer and starts counting the paths the handler serves.
+     *
+     * @param handler the handler whose caches are warmed
+     * @param file    the file the hot paths are saved to and read from
+     * @param topN    the number of paths saved
+     */
+    public CacheWarmer(StaticFileHandler handler, Path file, int topN) {
+        this.handler = handler;
+        this.file = file;
+        this.topN = topN;
+        handler.addAccessListener(this::record);
+    }
+
+    /**
+     * Counts a request for a path.
+     *
+     * @param path the normalized request path of a served file
+     */
+    void record(String path) {
+        counts.computeIfAbsent(path, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Saves the hot paths every interval on a background thread.
+     *
+     * @param intervalSeconds the seconds between saves
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (recorder != null) {
+            return;
+        }
+        recorder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        recorder.scheduleWithFixedDelay(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to save hot paths to {}", file, e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes the most requested paths to the file, replacing it atomically, then
+     * halves all counts. Nothing is written before any path has been served, so a
+     * restart that sees no traffic keeps the previous list.
+     *
+     * @return the number of paths written
+     * @throws IOException if the file cannot be written
+     */
+    public int save() throws IOException {
+        List<Map.Entry<String, Long>> snapshot = new ArrayList<>(counts.size());
+        for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+            long value = count.getValue().sumThenReset();
+            if (value > 0) {
+                snapshot.add(Map.entry(count.getKey(), value));
+                count.getValue().add(value / 2);
+            }
+        }
+        counts.values().removeIf(count -> count.sum() == 0);
+        if (snapshot.isEmpty()) {
+            return 0;
+        }
+        snapshot.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        StringBuilder content = new StringBuilder();
+        int written = Math.min(topN, snapshot.size());
+        for (int i = 0; i < written; i++) {
+            content.append(snapshot.get(i).getKey()).append('\n');
+        }
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling("." + absolute.getFileName() + ".tmp");
+        try {
+            Files.writeString(temporary, content, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        LOGGER.debug("Saved {} hot paths to {}", written, file);
+        return written;
+    }
+
+    /**
+     * Loads the saved hot paths into the handler's caches, most popular first, until
+     * all are loaded or the budget is spent. Paths that no longer exist are skipped,
+     * and nothing is loaded when the handler has no cache to keep it.
+     *
+     * @param budget the longest time to spend warming
+     * @return what was warmed
+     */
+    public Report warm(Duration budget) {
+        if (!handler.hasCaches()) {
+            LOGGER.info("Static file caches are disabled, skipping cache warm-up");
+            return new Report(0, 0, 0, 0, false);
+        }
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        List<String> paths;
+        try {
+            paths = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No hot paths recorded in {} yet, skipping cache warm-up", file);
+            return new Report(0, 0, 0, 0, false);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read hot paths from {}, skipping cache warm-up", file, e);
+            return new Report(0, 0, 0, 0, false);
+        }
+
+        int warmed = 0;
+        long bytes = 0;
+        boolean exhausted = false;
+        for (String line : paths) {
+            if (System.nanoTime() - deadline >= 0) {
+                exhausted = true;
+                break;
+            }
+            String path = line.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            try {
+                String normalized = StaticFileHandler.normalizePath(path);
+                long loaded = normalized != null ? handler.warm(normalized) : -1;
+                if (loaded >= 0) {
+                    warmed++;
+                    bytes += loaded;
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                LOGGER.debug("Skipped warming {}: {}", path, e.getMessage());
+            }
+        }
+        Report report = new Report(paths.size(), warmed, bytes, (System.nanoTime() - start) / 1_000_000, exhausted);
+        LOGGER.info("Cache warm-up: {}", report);
+        return report;
+    }
+
+    /**
+     * Stops the periodic saves and saves the hot paths one last time.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (recorder != null) {
+            recorder.shutdownNow();
+            recorder = null;
+        }
+        save();
+    }
+
+    /**
+     * The outcome of a warm-up.
+     */
+    public static final class Report {
+        private final int recorded;
+        private final int warmed;
+        private final long bytes;
+        private final long elapsedMillis;
+        private final boolean budgetExhausted;
+
+        private Report(int recorded, int warmed, long bytes, long elapsedMillis, boolean budgetExhausted) {
+            this.recorded = recorded;
+            this.warmed = warmed;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+            this.budgetExhausted = budgetExhausted;
+        }
+
+        /**
+         * Returns the number of paths in the hot path file.
+         *
+         * @return the recorded path count
+         */
+        public int getRecorded() {
+            return recorded;
+        }
+
+        /**
+         * Returns the number of paths whose metadata, and contents if they fit, were loaded.
+         *
+         * @return the warmed path count
+         */
+        public int getWarmed() {
+            return warmed;
+        }
+
+        /**
+         * Returns the number of file bytes loaded into the hot asset cache.
+         *
+         * @return the loaded bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns how long the warm-up took.
+         *
+         * @return the elapsed milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Returns whether the warm-up stopped because the time budget ran out.
+         *
+         * @return true if paths were left cold
+         */
+        public boolean isBudgetExhausted() {
+            return budgetExhausted;
+        }
+
+        @Override
+        public String toString() {
+            return "warmed " + warmed + " of " + recorded + " hot paths (" + bytes + " bytes in memory) in "
+                    + elapsedMillis + " ms" + (budgetExhausted ? ", time budget exhausted" : "");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.httpserver.staticfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes and compares entity tags for static files.
+ * <p>
+ * A tag is derived from the file contents with CRC32C, which the JVM computes with
+ * dedicated CPU instructions, so hashing costs far less than sending the file. The
+ * length is included as well, making a collision between two versions of the same
+ * file very unlikely. Tags are strong: equal tags mean byte-identical contents.
+ * </p>
+ * <p>
+ * Tags of files are remembered by path, size and modification time, so a file is
+ * hashed once per version whether or not the metadata cache is enabled. Files larger
+ * than {@link #MAX_HASHED_SIZE} are not hashed at all: their tag is built from the
+ * size and the modification time in microseconds, as sixteen hex digits, which can
+ * never be mistaken for an eight digit CRC.
+ * </p>
+ */
+public final class EntityTags {
+
+    /**
+     * Hashing a file this large on a request thread would stall the request for longer than sending it takes.
+     */
+    public static final long MAX_HASHED_SIZE = 64L * 1024 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_REMEMBERED_FILES = 16_384;
+    private static final ConcurrentHashMap<Path, Remembered> REMEMBERED = new ConcurrentHashMap<>();
+
+    private EntityTags() {
+    }
+
+    /**
+     * Returns the entity tag of a version of a file, hashing its contents only if that
+     * version has not been hashed before and the file is not larger than
+     * {@link #MAX_HASHED_SIZE}.
+     *
+     * @param file         the file
+     * @param size         the size of the file
+     * @param lastModified the modification time of the file
+     * @return the quoted entity tag
+     * @throws IOException if the file cannot be read
+     */
+    public static String of(Path file, long size, FileTime lastModified) throws IOException {
+        if (size > MAX_HASHED_SIZE) {
+            return "\"" + Long.toHexString(size) + "-" + String.format("%016x", lastModified.to(TimeUnit.MICROSECONDS)) + "\"";
+        }
+        Remembered remembered = REMEMBERED.get(file);
+        if (remembered != null && remembered.size == size && remembered.lastModified.equals(lastModified)) {
+            return remembered.etag;
+        }
+        String etag = compute(file, size);
+        if (remembered != null || REMEMBERED.size() < MAX_REMEMBERED_FILES) {
+            REMEMBERED.put(file, new Remembered(size, lastModified, etag));
+        }
+        return etag;
+    }
+
+    /**
+     * Computes the entity tag of a file.
+     *
+     * @param file the file
+     * @param size the size of the file
+     * @return the quoted entity tag
+     * @throws IOException if the file cannot be read
+     */
+    public static String compute(Path file, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(READ_BUFFER_SIZE, Math.max(size, 1)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return format(size, crc.getValue());
+    }
+
+    /**
+     * Computes the entity tag of in-memory contents.
+     *
+     * @param content the contents; only the remaining bytes are hashed and the buffer is not modified
+     * @return the quoted entity tag
+     */
+    public static String compute(ByteBuffer content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content.duplicate());
+        return format(content.remaining(), crc.getValue());
+    }
+
+    /**
+     * Checks a list of entity tags against the current tag using weak comparison, as
+     * RFC 9110 requires for If-None-Match.
+     *
+     * @param header the header value, a comma-separated list of tags or "*"
+     * @param etag   the current strong tag
+     * @return true if the header is "*" or lists a tag equal to the current one
+     */
+    public static boolean weakMatch(String header, String etag) {
+        return listContains(header, etag, true);
+    }
+
+    /**
+     * Checks a list of entity tags against the current tag using strong comparison,
+     * as RFC 9110 requires for If-Match and If-Range: weak tags never match.
+     *
+     * @param header the header value, a comma-separated list of tags or "*"
+     * @param etag   the current strong tag
+     * @return true if the header is "*" or lists a strong tag equal to the current one
+     */
+    public static boolean strongMatch(String header, String etag) {
+        return listContains(header, etag, false);
+    }
+
+    private static boolean listContains(String header, String etag, boolean weak) {
+        if (header.trim().equals("*")) {
+            return true;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String format(long size, long crc) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(crc) + "\"";
+    }
+
+    /**
+     * The tag of the version of a file last hashed.
+     */
+    private static final class Remembered {
+        private final long size;
+        private final FileTime lastModified;
+        private final String etag;
+
+        private Remembered(long size, FileTime lastModified, String etag) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * What the static file handler needs to know about a servable file: where it is, how
+ * large it is and when it was last modified. Instances are immutable snapshots, so a
+ * change to the file produces a new instance rather than updating an old one. The
+ * entity tag is kept with the snapshot once known, and {@link EntityTags} remembers
+ * it across snapshots of the same version. The result of looking up the gzip sidecar,
+ * including that there is none, is kept the same way, so a snapshot held by the
+ * {@link FileMetadataCache} answers it until the cache drops the entry.
+ */
+public final class FileMetadata {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMetadata.class);
+
+    private final Path file;
+    private final long size;
+    private final FileTime lastModified;
+    private volatile String etag;
+    private volatile FileMetadata sidecar;
+    private volatile boolean sidecarResolved;
+
+    /**
+     * Constructs a FileMetadata snapshot.
+     *
+     * @param file         the file to serve
+     * @param size         the file size in bytes
+     * @param lastModified the modification time of the file
+     */
+    public FileMetadata(Path file, long size, FileTime lastModified) {
+        this.file = file;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Resolves a normalized request path against the web root and reads the metadata
+     * of the file it names, using the index file for directories.
+     *
+     * @param webroot        the real path of the web root
+     * @param normalizedPath the request path, as produced by {@link StaticFileHandler#normalizePath(String)}
+     * @param indexFile      the file served for directories
+     * @return the metadata, or null if there is no regular file inside the web root for the path
+     * @throws IOException if the file system cannot be read
+     */
+    public static FileMetadata read(Path webroot, String normalizedPath, String indexFile) throws IOException {
+        Path file = normalizedPath.length() <= 1 ? webroot : webroot.resolve(normalizedPath.substring(1));
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                file = file.resolve(indexFile);
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            }
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            if (!file.toRealPath().startsWith(webroot)) {
+                LOGGER.warn("Refusing to serve {} which resolves outside the webroot", file);
+                return null;
+            }
+            return new FileMetadata(file, attributes.size(), attributes.lastModifiedTime());
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("File not found for request path: {}", normalizedPath);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the file to serve.
+     *
+     * @return the file path
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the file size.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the modification time of the file.
+     *
+     * @return the last modified time
+     */
+    public FileTime getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the strong entity tag of the file, hashing its contents the first time
+     * this version of the file is seen.
+     *
+     * @return the quoted entity tag
+     * @throws IOException if the file cannot be read
+     */
+    public String getETag() throws IOException {
+        String current = etag;
+        if (current == null) {
+            current = EntityTags.of(file, size, lastModified);
+            etag = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns whether the gzip sidecar of this version has been looked up.
+     *
+     * @return true if {@link #getSidecar()} holds the result of the lookup
+     */
+    boolean isSidecarResolved() {
+        return sidecarResolved;
+    }
+
+    /**
+     * Returns the gzip sidecar recorded for this version.
+     *
+     * @return the sidecar metadata, or null if there is no sidecar in sync or none was recorded
+     */
+    FileMetadata getSidecar() {
+        return sidecar;
+    }
+
+    /**
+     * Records the result of looking up the gzip sidecar of this version.
+     *
+     * @param sidecar the sidecar metadata, or null if there is no sidecar in sync
+     */
+    void setSidecar(FileMetadata sidecar) {
+        this.sidecar = sidecar;
+        this.sidecarResolved = true;
+    }
+
+    /**
+     * Checks whether another snapshot describes the same version of the same file.
+     *
+     * @param other the other snapshot, may be null
+     * @return true if the file, size and modification time are equal
+     */
+    public boolean isSameVersion(FileMetadata other) {
+        return other != null && file.equals(other.file) && size == other.size && lastModified.equals(other.lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return "FileMetadata{" + "file=" + file + ", size=" + size + ", lastModified=" + lastModified + '}';
+    }
+}
@@ -0,0 +1,356 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Caches the metadata of servable webroot files by request path, so requests for
+ * unchanged files are answered without any file system calls.
+ * <p>
+ * Entries are invalidated by a {@link WatchService} watching every directory of the
+ * web root: any event in a directory drops the entries for the changed name and
+ * everything below it, as well as directory entries whose index file changed and
+ * entries whose gzip sidecar changed, since they record whether it exists. An
+ * overflow drops everything. Because watch events are not delivered on every file
+ * system (network mounts in particular), a periodic reconciliation re-reads each
+ * cached entry and drops those that no longer match the disk.
+ * </p>
+ * <p>
+ * Only files that exist are cached; missing paths always go to the file system.
+ * </p>
+ */
+public class FileMetadataCache implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMetadataCache.class);
+
+    private final Path webroot;
+    private final String indexFile;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final WatchService watchService;
+    private final Thread watcherThread;
+    private final ScheduledExecutorService reconciler;
+    private final List<Consumer<Path>> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Bumped before every invalidation, so a lookup that raced with a change does not
+     * store what it read.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs a FileMetadataCache and starts watching the web root.
+     *
+     * @param webroot                  the real path of the web root
+     * @param indexFile                the file served for directories
+     * @param maxEntries               the maximum number of cached paths
+     * @param reconcileIntervalSeconds the seconds between reconciliations with the disk, or 0 to disable them
+     * @throws IOException if the watch service cannot be created
+     */
+    public FileMetadataCache(Path webroot, String indexFile, int maxEntries, long reconcileIntervalSeconds) throws IOException {
+        this.webroot = webroot;
+        this.indexFile = indexFile;
+        this.maxEntries = maxEntries;
+        this.watchService = webroot.getFileSystem().newWatchService();
+        registerTree(webroot);
+
+        this.watcherThread = new Thread(this::watch, "webroot-watcher");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+
+        if (reconcileIntervalSeconds > 0) {
+            this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webroot-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalSeconds, reconcileIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.reconciler = null;
+        }
+        LOGGER.info("FileMetadataCache watching {} directories under {}", watchedDirectories.size(), webroot);
+    }
+
+    /**
+     * Returns the metadata of the file a request path names.
+     *
+     * @param normalizedPath the normalized request path
+     * @return the metadata, or null if there is no servable file for the path
+     * @throws IOException if the file system cannot be read
+     */
+    public FileMetadata get(String normalizedPath) throws IOException {
+        Entry entry = entries.get(normalizedPath);
+        if (entry != null) {
+            hits.increment();
+            return entry.metadata;
+        }
+        misses.increment();
+        long readGeneration = generation.get();
+        FileMetadata metadata = FileMetadata.read(webroot, normalizedPath, indexFile);
+        if (metadata != null && entries.size() < maxEntries && generation.get() == readGeneration) {
+            Path requested = normalizedPath.length() <= 1 ? webroot : webroot.resolve(normalizedPath.substring(1));
+            entries.put(normalizedPath, new Entry(requested, metadata));
+        }
+        return metadata;
+    }
+
+    /**
+     * Registers a listener notified, on the watcher thread, of every change the watch
+     * service reports under the web root. When events were lost the listener is called
+     * with the web root itself, meaning anything may have changed.
+     *
+     * @param listener receives the changed file or directory
+     */
+    public void addChangeListener(Consumer<Path> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Drops every entry for the given path and the paths below it, directory entries
+     * whose index file is the path, and the entry of the file the path is the gzip
+     * sidecar of.
+     *
+     * @param changed the changed file or directory
+     */
+    public void invalidate(Path changed) {
+        generation.incrementAndGet();
+        String changedName = changed.getFileName() != null ? changed.getFileName().toString() : "";
+        Path source = changedName.endsWith(Precompressor.SIDECAR_SUFFIX)
+                ? changed.resolveSibling(changedName.substring(0, changedName.length() - Precompressor.SIDECAR_SUFFIX.length()))
+                : null;
+        entries.entrySet().removeIf(mapping -> {
+            Entry entry = mapping.getValue();
+            boolean stale = entry.requested.startsWith(changed) || entry.metadata.getFile().startsWith(changed)
+                    || entry.metadata.getFile().equals(source);
+            if (stale) {
+                invalidations.increment();
+                LOGGER.debug("Invalidated metadata for {} after change to {}", mapping.getKey(), changed);
+            }
+            return stale;
+        });
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    /**
+     * Re-reads every cached entry and drops those that no longer match the disk.
+     */
+    void reconcile() {
+        int dropped = 0;
+        for (Map.Entry<String, Entry> mapping : entries.entrySet()) {
+            FileMetadata current;
+            try {
+                current = FileMetadata.read(webroot, mapping.getKey(), indexFile);
+            } catch (IOException e) {
+                current = null;
+            }
+            FileMetadata cached = mapping.getValue().metadata;
+            if ((!cached.isSameVersion(current) || isSidecarStale(cached)) && entries.remove(mapping.getKey(), mapping.getValue())) {
+                invalidations.increment();
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            LOGGER.info("Reconciliation dropped {} stale metadata entries", dropped);
+        }
+    }
+
+    /**
+     * Checks whether the sidecar recorded in a cached snapshot still matches the disk.
+     *
+     * @param cached the cached snapshot
+     * @return true if a sidecar was recorded and has since changed, appeared or disappeared
+     */
+    private static boolean isSidecarStale(FileMetadata cached) {
+        if (!cached.isSidecarResolved()) {
+            return false;
+        }
+        FileMetadata recorded = cached.getSidecar();
+        Path sidecarFile = Precompressor.sidecarOf(cached.getFile());
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(sidecarFile, BasicFileAttributes.class);
+            FileMetadata current = new FileMetadata(sidecarFile, attributes.size(), attributes.lastModifiedTime());
+            return recorded == null ? Precompressor.isInSync(cached, current) : !recorded.isSameVersion(current);
+        } catch (IOException e) {
+            return recorded != null;
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that went to the file system.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because the file changed or might have.
+     *
+     * @return the invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns the number of cached paths.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops watching the web root and cancels reconciliation.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+        watchService.close();
+        watcherThread.interrupt();
+    }
+
+    /**
+     * Registers a directory and all directories below it with the watch service.
+     *
+     * @param root the directory to register
+     * @throws IOException if a directory cannot be registered
+     */
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Processes watch events until the watch service is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                        LOGGER.warn("Watch events lost for {}, dropping all cached metadata", directory);
+                        clear();
+                        notifyListeners(webroot);
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context());
+                    invalidate(changed);
+                    notifyListeners(changed);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        registerNewDirectory(changed);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Webroot watcher stopped");
+        }
+    }
+
+    /**
+     * Notifies the change listeners, isolating the watcher from their failures.
+     *
+     * @param changed the changed path
+     */
+    private void notifyListeners(Path changed) {
+        for (Consumer<Path> listener : changeListeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException e) {
+                LOGGER.error("Change listener failed for {}", changed, e);
+            }
+        }
+    }
+
+    /**
+     * Starts watching a directory created after startup.
+     *
+     * @param directory the new directory
+     */
+    private void registerNewDirectory(Path directory) {
+        try {
+            registerTree(directory);
+            // Files may have been created in the directory before it was registered.
+            invalidate(directory);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to watch new directory {}, relying on reconciliation", directory, e);
+        }
+    }
+
+    /**
+     * A cached lookup: the path that was requested and what it resolved to.
+     */
+    private static final class Entry {
+        private final Path requested;
+        private final FileMetadata metadata;
+
+        private Entry(Path requested, FileMetadata metadata) {
+            this.requested = requested;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of small, frequently served webroot files held in off-heap
+ * buffers, so hot assets are answered without touching the disk. This matters most
+ * over TLS, where the file cannot be handed to the socket with sendfile.
+ * <p>
+ * Files are copied into direct buffers rather than memory-mapped: a mapped file that
+ * is truncated while it is being sent faults the reading thread, whereas a copy
+ * stays valid until the entry is replaced. Entries are keyed by path and remember
+ * the size and modification time they were loaded with; a lookup with different
+ * attributes drops the stale entry.
+ * </p>
+ * <p>
+ * Admission follows TinyLFU: every lookup is counted in a {@link FrequencySketch},
+ * and when the cache is full a new file only gets in if it has been requested more
+ * often than each least-recently-used entry it would evict. A one-off download
+ * therefore cannot flush the hot set.
+ * </p>
+ */
+public class HotAssetCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotAssetCache.class);
+
+    /**
+     * Assumed average asset size, used to size the frequency sketch.
+     */
+    private static final int AVERAGE_ASSET_SIZE = 8 * 1024;
+
+    private final long maxBytes;
+    private final long maxFileSize;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Constructs a HotAssetCache.
+     *
+     * @param maxBytes    the maximum number of bytes held by all entries
+     * @param maxFileSize the largest file that is cached
+     */
+    public HotAssetCache(long maxBytes, long maxFileSize) {
+        if (maxBytes <= 0 || maxFileSize <= 0) {
+            throw new IllegalArgumentException("Cache sizes must be positive: maxBytes=" + maxBytes + ", maxFileSize=" + maxFileSize);
+        }
+        this.maxBytes = maxBytes;
+        this.maxFileSize = Math.min(maxFileSize, maxBytes);
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, Math.max(256, maxBytes / AVERAGE_ASSET_SIZE)));
+        LOGGER.debug("HotAssetCache created with maxBytes={}, maxFileSize={}", this.maxBytes, this.maxFileSize);
+    }
+
+    /**
+     * Returns the contents of a file, from the cache if an entry for this version of
+     * the file exists, otherwise loading it if the admission policy lets it in.
+     *
+     * @param file         the file
+     * @param size         the current size of the file
+     * @param lastModified the current modification time of the file
+     * @return a read-only buffer with the file contents, or null if the file is not
+     * cached and was not admitted; the caller then reads the file itself
+     * @throws IOException if the file cannot be read
+     */
+    public ByteBuffer get(Path file, long size, FileTime lastModified) throws IOException {
+        if (size > maxFileSize) {
+            return null;
+        }
+
+        synchronized (this) {
+            sketch.increment(file);
+            Entry entry = entries.get(file);
+            if (entry != null) {
+                if (entry.matches(size, lastModified)) {
+                    hits.increment();
+                    return entry.buffer.duplicate();
+                }
+                remove(file);
+            }
+            misses.increment();
+            if (!admits(file, size)) {
+                rejections.increment();
+                return null;
+            }
+        }
+
+        ByteBuffer buffer = load(file, size);
+        if (buffer == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            // Other threads may have filled the cache while the file was read.
+            if (!entries.containsKey(file) && admits(file, size)) {
+                evictFor(size);
+                entries.put(file, new Entry(buffer, size, lastModified));
+                residentBytes += size;
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Loads a file ahead of demand, such as during warm-up, bypassing admission. Files
+     * only go into free space; nothing is evicted to make room for them.
+     *
+     * @param file         the file
+     * @param size         the current size of the file
+     * @param lastModified the current modification time of the file
+     * @return true if the file was loaded
+     * @throws IOException if the file cannot be read
+     */
+    public boolean preload(Path file, long size, FileTime lastModified) throws IOException {
+        synchronized (this) {
+            if (size > maxFileSize || size > maxBytes - residentBytes || entries.containsKey(file)) {
+                return false;
+            }
+        }
+
+        ByteBuffer buffer = load(file, size);
+        if (buffer == null) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (entries.containsKey(file) || size > maxBytes - residentBytes) {
+                return false;
+            }
+            sketch.increment(file);
+            entries.put(file, new Entry(buffer, size, lastModified));
+            residentBytes += size;
+            return true;
+        }
+    }
+
+    /**
+     * Removes the entry for a file, if any.
+     *
+     * @param file the file
+     */
+    public synchronized void invalidate(Path file) {
+        remove(file);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        residentBytes = 0;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups for cacheable files that were not in the cache.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups for cacheable files answered from the cache.
+     *
+     * @return the hit ratio, 0.0 when nothing has been looked up yet
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for others.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of files refused by the admission policy.
+     *
+     * @return the rejection count
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Returns the number of bytes held by all entries.
+     *
+     * @return the resident bytes
+     */
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Returns the number of cached files.
+     *
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checks whether a file of the given size may enter the cache: either it fits,
+     * or it was requested more often than every entry that would be evicted for it.
+     * Must be called with the lock held.
+     *
+     * @param file the candidate file
+     * @param size the candidate size
+     * @return true if the file is admitted
+     */
+    private boolean admits(Path file, long size) {
+        long free = maxBytes - residentBytes;
+        if (size <= free) {
+            return true;
+        }
+        int candidateFrequency = sketch.frequency(file);
+        for (Map.Entry<Path, Entry> victim : entries.entrySet()) {
+            if (candidateFrequency <= sketch.frequency(victim.getKey())) {
+                return false;
+            }
+            free += victim.getValue().size;
+            if (size <= free) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evicts least-recently-used entries until the given number of bytes fits.
+     * Must be called with the lock held.
+     *
+     * @param size the number of bytes to make room for
+     */
+    private void evictFor(long size) {
+        Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+        while (residentBytes + size > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Entry> victim = iterator.next();
+            iterator.remove();
+            residentBytes -= victim.getValue().size;
+            evictions.increment();
+            LOGGER.debug("Evicted {} ({} bytes) from the hot asset cache", victim.getKey(), victim.getValue().size);
+        }
+    }
+
+    /**
+     * Removes an entry without counting it as an eviction. Must be called with the lock held.
+     *
+     * @param file the file
+     */
+    private void remove(Path file) {
+        Entry removed = entries.remove(file);
+        if (removed != null) {
+            residentBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Reads a file into a direct buffer.
+     *
+     * @param file the file
+     * @param size the expected size
+     * @return a read-only buffer, or null if the file no longer has the expected size
+     * @throws IOException if the file cannot be read
+     */
+    private static ByteBuffer load(Path file, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    LOGGER.debug("File {} shrank while being cached", file);
+                    return null;
+                }
+            }
+            if (channel.size() != size) {
+                LOGGER.debug("File {} changed size while being cached", file);
+                return null;
+            }
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return "HotAssetCache{" +
+                "entries=" + size() +
+                ", residentBytes=" + getResidentBytes() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+                ", evictions=" + getEvictions() +
+                ", rejections=" + getRejections() +
+                '}';
+    }
+
+    /**
+     * A cached file version.
+     */
+    private static final class Entry {
+        private final ByteBuffer buffer;
+        private final long size;
+        private final FileTime lastModified;
+
+        private Entry(ByteBuffer buffer, long size, FileTime lastModified) {
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean matches(long size, FileTime lastModified) {
+            return this.size == size && this.lastModified.equals(lastModified);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.httpserver.staticfile;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps file name extensions to Content-Type values for static files.
+ */
+public final class MimeTypes {
+
+    /**
+     * Content type for files with an unknown or missing extension.
+     */
+    public static final String DEFAULT_TYPE = "application/octet-stream";
+
+    private static final Map<String, String> TYPES = new HashMap<>();
+
+    static {
+        // Text
+        TYPES.put("html", "text/html; charset=utf-8");
+        TYPES.put("htm", "text/html; charset=utf-8");
+        TYPES.put("css", "text/css; charset=utf-8");
+        TYPES.put("txt", "text/plain; charset=utf-8");
+        TYPES.put("csv", "text/csv; charset=utf-8");
+        TYPES.put("md", "text/markdown; charset=utf-8");
+        TYPES.put("xml", "application/xml; charset=utf-8");
+
+        // Scripts and data
+        TYPES.put("js", "application/javascript; charset=utf-8");
+        TYPES.put("mjs", "application/javascript; charset=utf-8");
+        TYPES.put("json", "application/json; charset=utf-8");
+        TYPES.put("map", "application/json; charset=utf-8");
+        TYPES.put("webmanifest", "application/manifest+json; charset=utf-8");
+        TYPES.put("wasm", "application/wasm");
+        TYPES.put("pdf", "application/pdf");
+        TYPES.put("zip", "application/zip");
+        TYPES.put("gz", "application/gzip");
+
+        // Images
+        TYPES.put("png", "image/png");
+        TYPES.put("jpg", "image/jpeg");
+        TYPES.put("jpeg", "image/jpeg");
+        TYPES.put("gif", "image/gif");
+        TYPES.put("webp", "image/webp");
+        TYPES.put("avif", "image/avif");
+        TYPES.put("svg", "image/svg+xml");
+        TYPES.put("ico", "image/x-icon");
+
+        // Fonts
+        TYPES.put("woff", "font/woff");
+        TYPES.put("woff2", "font/woff2");
+        TYPES.put("ttf", "font/ttf");
+        TYPES.put("otf", "font/otf");
+
+        // Media
+        TYPES.put("mp3", "audio/mpeg");
+        TYPES.put("ogg", "audio/ogg");
+        TYPES.put("wav", "audio/wav");
+        TYPES.put("mp4", "video/mp4");
+        TYPES.put("webm", "video/webm");
+    }
+
+    private MimeTypes() {
+    }
+
+    /**
+     * Returns the Content-Type for a file name, based on its extension.
+     *
+     * @param fileName the file name or path
+     * @return the content type, {@link #DEFAULT_TYPE} if the extension is unknown
+     */
+    public static String forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1 || fileName.indexOf('/', dot) >= 0) {
+            return DEFAULT_TYPE;
+        }
+        return TYPES.getOrDefault(fileName.substring(dot + 1).toLowerCase(Locale.ROOT), DEFAULT_TYPE);
+    }
+}
@@ -0,0 +1,165 @@
+package com.httpserver.staticfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A minimal perfect hash over a fixed set of strings, built with the
+ * hash-and-displace (CHD) method: keys are spread over buckets of about four, and
+ * each bucket gets a seed that sends all its keys to free slots. Looking a key up
+ * takes one string hash, one seed read and one mix, and the n keys occupy exactly
+ * slots 0 to n-1.
+ * <p>
+ * A string that was not in the set also maps to some slot, so callers must compare
+ * the key stored there.
+ * </p>
+ */
+final class MinimalPerfectHash {
+
+    /**
+     * Average keys per bucket; fewer buckets make the table smaller but the build slower.
+     */
+    private static final int KEYS_PER_BUCKET = 4;
+
+    /**
+     * A bucket that finds no free slots within this many seeds fails the build.
+     */
+    private static final int MAX_SEED = 1 << 24;
+
+    private MinimalPerfectHash() {
+    }
+
+    /**
+     * Returns the number of buckets used for a key count.
+     *
+     * @param keyCount the number of keys
+     * @return the bucket count
+     */
+    static int bucketCount(int keyCount) {
+        return Math.max(1, (keyCount + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+    }
+
+    /**
+     * Computes the seeds that map the keys to distinct slots.
+     *
+     * @param keys the distinct keys
+     * @return the seed of each bucket, {@link #bucketCount(int)} long
+     * @throws IllegalArgumentException if two keys have the same hash and cannot be separated
+     */
+    static int[] build(List<String> keys) {
+        int n = keys.size();
+        int buckets = bucketCount(n);
+        long[] hashes = new long[n];
+        List<List<Integer>> members = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            members.add(new ArrayList<>(KEYS_PER_BUCKET));
+        }
+        for (int i = 0; i < n; i++) {
+            hashes[i] = hash(keys.get(i));
+            members.get(bucket(hashes[i], buckets)).add(i);
+        }
+
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[b] = b;
+        }
+        // Place the largest buckets first, while most slots are still free.
+        Arrays.sort(order, Comparator.comparingInt((Integer b) -> members.get(b).size()).reversed());
+
+        int[] seeds = new int[buckets];
+        boolean[] taken = new boolean[n];
+        int[] slots = new int[KEYS_PER_BUCKET * 8];
+        for (int b : order) {
+            List<Integer> bucket = members.get(b);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            if (slots.length < bucket.size()) {
+                slots = new int[bucket.size()];
+            }
+            int seed = 0;
+            while (!tryPlace(bucket, hashes, seed, n, taken, slots)) {
+                if (++seed == MAX_SEED) {
+                    throw new IllegalArgumentException("Cannot build a perfect hash: keys with colliding hashes near '"
+                            + keys.get(bucket.get(0)) + "'");
+                }
+            }
+            seeds[b] = seed;
+        }
+        return seeds;
+    }
+
+    /**
+     * Places the keys of one bucket with a seed if they all land on distinct free slots.
+     */
+    private static boolean tryPlace(List<Integer> bucket, long[] hashes, int seed, int n, boolean[] taken, int[] slots) {
+        for (int i = 0; i < bucket.size(); i++) {
+            int slot = slot(hashes[bucket.get(i)], seed, n);
+            if (taken[slot]) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[i] = slot;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            taken[slots[i]] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Hashes a key: 64-bit FNV-1a over its UTF-16 code units.
+     *
+     * @param key the key
+     * @return the hash
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the bucket of a key hash.
+     *
+     * @param hash    the key hash
+     * @param buckets the bucket count
+     * @return the bucket
+     */
+    static int bucket(long hash, int buckets) {
+        return (int) Math.floorMod(mix(hash), (long) buckets);
+    }
+
+    /**
+     * Returns the slot of a key hash for the seed of its bucket.
+     *
+     * @param hash the key hash
+     * @param seed the bucket seed
+     * @param n    the number of keys
+     * @return the slot, between 0 and n-1
+     */
+    static int slot(long hash, int seed, int n) {
+        return (int) Math.floorMod(mix(hash + (seed + 1) * 0x9e3779b97f4a7c15L), (long) n);
+    }
+
+    /**
+     * The MurmurHash3 finalizer.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
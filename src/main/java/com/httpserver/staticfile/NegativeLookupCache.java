@@ -0,0 +1,356 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "this request path names nothing" without touching the disk, so scanners
+ * and broken links probing for missing files cost no file system calls.
+ * <p>
+ * Two structures work together. A {@link BloomFilter} holds every request path that
+ * existed when the web root was last scanned, plus everything created since: a path
+ * the filter has never seen is certainly missing. Paths the filter lets through but
+ * that turned out to be missing, such as deleted files and false positives, are
+ * remembered in a small LRU of recent misses.
+ * </p>
+ * <p>
+ * The cache is kept current through {@link #onChange(Path)}, fed by the web root
+ * watcher: created files are added to the filter, and recent misses in the changed
+ * directory are forgotten. When events were lost, or the filter fills up past its
+ * design size, the web root is scanned again. Deleted files stay in the filter until
+ * the next scan; their misses are remembered by the LRU instead.
+ * </p>
+ * <p>
+ * Directories reached through a symbolic link are not watched, so paths below them
+ * always go to the disk.
+ * </p>
+ */
+public class NegativeLookupCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeLookupCache.class);
+
+    /**
+     * One in a hundred missing paths passes the filter and needs a disk lookup.
+     */
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    /**
+     * The filter is sized for at least this many paths, and twice the scanned count,
+     * so files can be added before it needs rebuilding.
+     */
+    private static final int MIN_EXPECTED_PATHS = 1024;
+
+    /**
+     * Scans racing with changes are retried this many times before the last one is kept.
+     */
+    private static final int MAX_SCAN_ATTEMPTS = 3;
+
+    private final Path webroot;
+    private final LinkedHashMap<String, Boolean> recentMisses;
+    private volatile List<String> unwatchedPrefixes = List.of();
+    private volatile BloomFilter filter;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Bumped on every change, so a miss read from the disk before the change is not remembered.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder recentMissHits = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * Constructs a NegativeLookupCache. Until {@link #rebuild()} has scanned the web
+     * root, every path is reported as possibly existing.
+     *
+     * @param webroot         the real path of the web root
+     * @param maxRecentMisses the maximum number of remembered misses
+     */
+    public NegativeLookupCache(Path webroot, int maxRecentMisses) {
+        this.webroot = webroot;
+        this.recentMisses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxRecentMisses;
+            }
+        };
+    }
+
+    /**
+     * Checks whether a request path is known to name nothing.
+     *
+     * @param normalizedPath the normalized request path
+     * @return true if the path certainly does not exist, false if the disk must be asked
+     */
+    public boolean isKnownMissing(String normalizedPath) {
+        BloomFilter current = filter;
+        if (current == null || isUnwatched(normalizedPath)) {
+            return false;
+        }
+        if (!current.mightContain(normalizedPath)) {
+            filterRejections.increment();
+            return true;
+        }
+        boolean remembered;
+        synchronized (recentMisses) {
+            remembered = recentMisses.get(normalizedPath) != null;
+        }
+        if (remembered) {
+            recentMissHits.increment();
+        }
+        return remembered;
+    }
+
+    /**
+     * Returns a stamp to take before looking a path up on disk and to pass to
+     * {@link #recordMiss(String, long)} afterwards.
+     *
+     * @return the current change generation
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Remembers that the disk had nothing for a request path, unless the web root
+     * changed since the lookup started.
+     *
+     * @param normalizedPath the normalized request path
+     * @param stamp          the value of {@link #stamp()} taken before the lookup
+     */
+    public void recordMiss(String normalizedPath, long stamp) {
+        if (isUnwatched(normalizedPath)) {
+            return;
+        }
+        synchronized (recentMisses) {
+            if (generation.get() == stamp) {
+                recentMisses.put(normalizedPath, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Updates the cache after a change under the web root.
+     *
+     * @param changed the changed file or directory, or the web root if anything may have changed
+     */
+    public void onChange(Path changed) {
+        if (changed.equals(webroot)) {
+            rebuild();
+            return;
+        }
+        generation.incrementAndGet();
+        BloomFilter current = filter;
+        if (current != null && Files.exists(changed)) {
+            try {
+                addTree(current, changed);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to scan {}, rescanning the web root", changed, e);
+                rebuild();
+                return;
+            }
+        }
+        forgetMissesUnder(requestPath(changed.getParent()));
+        if (current != null && insertions.get() > current.getExpectedInsertions()) {
+            LOGGER.info("Negative lookup filter is full, rescanning the web root");
+            rebuild();
+        }
+    }
+
+    /**
+     * Scans the web root into a new filter and forgets all recent misses.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            long scanGeneration = generation.incrementAndGet();
+            synchronized (recentMisses) {
+                recentMisses.clear();
+            }
+            try {
+                List<String> paths = new ArrayList<>();
+                List<String> prefixes = new ArrayList<>();
+                scan(webroot, paths, prefixes);
+                BloomFilter rebuilt = new BloomFilter(Math.max(MIN_EXPECTED_PATHS, 2L * paths.size()), FALSE_POSITIVE_PROBABILITY);
+                for (String path : paths) {
+                    rebuilt.add(path);
+                }
+                unwatchedPrefixes = List.copyOf(prefixes);
+                insertions.set(paths.size());
+                filter = rebuilt;
+                if (generation.get() == scanGeneration || attempt == MAX_SCAN_ATTEMPTS) {
+                    rebuilds.increment();
+                    LOGGER.info("Indexed {} paths under {} for negative lookups in {} ms",
+                            paths.size(), webroot, (System.nanoTime() - start) / 1_000_000);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to scan {}, negative lookups disabled until the next change", webroot, e);
+                filter = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lookups the filter answered as certainly missing.
+     *
+     * @return the filter rejection count
+     */
+    public long getFilterRejections() {
+        return filterRejections.sum();
+    }
+
+    /**
+     * Returns the number of lookups answered from the recent misses.
+     *
+     * @return the recent miss hit count
+     */
+    public long getRecentMissHits() {
+        return recentMissHits.sum();
+    }
+
+    /**
+     * Returns the number of completed scans of the web root.
+     *
+     * @return the rebuild count
+     */
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * Returns the number of remembered misses.
+     *
+     * @return the recent miss count
+     */
+    public int size() {
+        synchronized (recentMisses) {
+            return recentMisses.size();
+        }
+    }
+
+    /**
+     * Adds a new file, or a new directory and everything below it, to the filter.
+     */
+    private void addTree(BloomFilter target, Path root) throws IOException {
+        List<String> paths = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        scan(root, paths, prefixes);
+        if (!prefixes.isEmpty()) {
+            prefixes.addAll(unwatchedPrefixes);
+            unwatchedPrefixes = List.copyOf(prefixes);
+        }
+        for (String path : paths) {
+            target.add(path);
+        }
+        insertions.addAndGet(paths.size());
+    }
+
+    /**
+     * Collects the request paths of a file or directory tree. A directory is reachable
+     * both with and without a trailing slash. Hidden files are skipped since they are
+     * never served.
+     *
+     * @param root     the file or directory to scan
+     * @param paths    receives the request paths
+     * @param prefixes receives the request path prefixes of symbolically linked directories
+     * @throws IOException if the tree cannot be walked
+     */
+    private void scan(Path root, List<String> paths, List<String> prefixes) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(webroot) && isHidden(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                String path = requestPath(dir);
+                paths.add(path);
+                if (!path.equals("/")) {
+                    paths.add(path + "/");
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (isHidden(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String path = requestPath(file);
+                paths.add(path);
+                if (attrs.isSymbolicLink() && Files.isDirectory(file)) {
+                    paths.add(path + "/");
+                    prefixes.add(path + "/");
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Deleted while being walked; the watcher reports the deletion.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Forgets the recent misses for a directory and everything below it.
+     *
+     * @param directory the request path of the directory
+     */
+    private void forgetMissesUnder(String directory) {
+        String prefix = directory.endsWith("/") ? directory : directory + "/";
+        String bare = prefix.substring(0, prefix.length() - 1);
+        synchronized (recentMisses) {
+            Iterator<String> misses = recentMisses.keySet().iterator();
+            while (misses.hasNext()) {
+                String miss = misses.next();
+                if (miss.startsWith(prefix) || miss.equals(bare)) {
+                    misses.remove();
+                }
+            }
+        }
+    }
+
+    private boolean isUnwatched(String normalizedPath) {
+        for (String prefix : unwatchedPrefixes) {
+            if (normalizedPath.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a path under the web root to its request path, e.g. {@code /css/site.css}.
+     */
+    private String requestPath(Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path segment : webroot.relativize(file)) {
+            String name = segment.toString();
+            if (!name.isEmpty()) {
+                path.append('/').append(name);
+            }
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+}
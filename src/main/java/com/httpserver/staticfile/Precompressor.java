@@ -0,0 +1,218 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.compression.CompressibleTypes;
+import com.httpserver.config.CompressionConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip sidecars ({@code app.js.gz} next to {@code app.js}) for compressible
+ * webroot files, so the static file handler can send compressed assets without
+ * compressing them per request.
+ * <p>
+ * Sidecars are compressed at the maximum level, written to a temporary file and
+ * moved into place atomically. A sidecar gets the modification time of its source,
+ * which is how both this class and the handler tell that it is in sync: a sidecar
+ * whose time differs from its source is stale and is never served. Sources smaller
+ * than the compression minimum size, of an incompressible type, or that do not
+ * shrink, get no sidecar.
+ * </p>
+ * <p>
+ * Run offline with:
+ * {@code ./mvnw compile exec:java -Dexec.mainClass=com.httpserver.staticfile.Precompressor -Dexec.args=<webroot>}
+ * </p>
+ */
+public class Precompressor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Precompressor.class);
+
+    /**
+     * The suffix of gzip sidecars.
+     */
+    public static final String SIDECAR_SUFFIX = ".gz";
+
+    private final Path webroot;
+    private final long minimumSize;
+    private final List<String> mimeTypes;
+
+    /**
+     * Constructs a Precompressor.
+     *
+     * @param webroot       the web root
+     * @param configuration the compression configuration providing the minimum size and compressible types
+     */
+    public Precompressor(Path webroot, CompressionConfiguration configuration) {
+        this.webroot = webroot;
+        this.minimumSize = configuration.getMinimumSize();
+        this.mimeTypes = configuration.getMimeTypes();
+    }
+
+    /**
+     * Returns the sidecar path of a file.
+     *
+     * @param source the source file
+     * @return the sidecar path
+     */
+    public static Path sidecarOf(Path source) {
+        return source.resolveSibling(source.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Checks whether a sidecar belongs to the current version of its source.
+     *
+     * @param source  the metadata of the source file
+     * @param sidecar the metadata of the sidecar, may be null
+     * @return true if the sidecar exists and has the modification time of the source
+     */
+    public static boolean isInSync(FileMetadata source, FileMetadata sidecar) {
+        return sidecar != null && sidecar.getLastModified().equals(source.getLastModified());
+    }
+
+    /**
+     * Brings the sidecars of all files under the web root up to date.
+     *
+     * @return the number of sidecars written
+     * @throws IOException if the web root cannot be walked
+     */
+    public int precompressAll() throws IOException {
+        return precompressAll(webroot);
+    }
+
+    /**
+     * Brings the sidecars of all files under a directory up to date.
+     *
+     * @param root the directory, inside the web root
+     * @return the number of sidecars written
+     * @throws IOException if the directory cannot be walked
+     */
+    public int precompressAll(Path root) throws IOException {
+        long start = System.nanoTime();
+        int[] written = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                try {
+                    if (precompress(file)) {
+                        written[0]++;
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to precompress {}", file, e);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        LOGGER.info("Precompressed {} files under {} in {} ms", written[0], root, (System.nanoTime() - start) / 1_000_000);
+        return written[0];
+    }
+
+    /**
+     * Brings the sidecar of one file up to date. Files that are not eligible, and
+     * files whose sidecar is already in sync, are left alone.
+     *
+     * @param source the file
+     * @return true if a sidecar was written
+     * @throws IOException if the file cannot be read or the sidecar written
+     */
+    public boolean precompress(Path source) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!isEligible(source, attributes)) {
+            return false;
+        }
+        Path sidecar = sidecarOf(source);
+        FileTime sourceModified = attributes.lastModifiedTime();
+        if (Files.exists(sidecar) && Files.getLastModifiedTime(sidecar).equals(sourceModified)) {
+            return false;
+        }
+
+        Path temporary = sidecar.resolveSibling("." + sidecar.getFileName() + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream out = new MaxLevelGzipOutputStream(Files.newOutputStream(temporary))) {
+                in.transferTo(out);
+            }
+            if (Files.size(temporary) >= attributes.size()) {
+                LOGGER.debug("Compression does not shrink {}, no sidecar written", source);
+                Files.deleteIfExists(sidecar);
+                return false;
+            }
+            Files.setLastModifiedTime(temporary, sourceModified);
+            try {
+                Files.move(temporary, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.debug("Wrote sidecar {}", sidecar);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Checks whether a file should get a sidecar.
+     *
+     * @param file       the file
+     * @param attributes the attributes of the file
+     * @return true for regular, visible files of a compressible type and at least the minimum size
+     */
+    boolean isEligible(Path file, BasicFileAttributes attributes) {
+        if (!attributes.isRegularFile() || attributes.size() < minimumSize || isHidden(file)) {
+            return false;
+        }
+        String name = file.getFileName().toString();
+        return !name.endsWith(SIDECAR_SUFFIX) && CompressibleTypes.matches(mimeTypes, MimeTypes.forFileName(name));
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Precompresses a web root from the command line.
+     *
+     * @param args the web root directory
+     * @throws IOException if the web root cannot be processed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            LOGGER.error("Syntax: Precompressor <webroot>");
+            return;
+        }
+        new Precompressor(Path.of(args[0]).toRealPath(), new CompressionConfiguration()).precompressAll();
+    }
+
+    /**
+     * A gzip stream compressing at the best compression level.
+     */
+    private static final class MaxLevelGzipOutputStream extends GZIPOutputStream {
+        private MaxLevelGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.httpserver.staticfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * A read-only, memory-mapped archive of a whole web root written by
+ * {@link StaticBundlePacker}: file contents, gzip variants and the precomputed
+ * Content-Type, ETag and Last-Modified of every path, indexed by a
+ * {@link MinimalPerfectHash}. Opening a bundle is one {@code mmap}; a lookup is one
+ * hash, one key comparison and slices of the mapped buffer, with no file system
+ * calls and no open files.
+ * <p>
+ * Layout, all numbers big-endian:
+ * </p>
+ * <pre>
+ * header   magic "HSB1", version, entry count, bucket count     4 x int
+ * seeds    one per bucket                                         int[]
+ * entries  one 64-byte record per slot, see ENTRY_* offsets
+ * data     keys (UTF-8), header blocks and bodies, referenced by offset
+ * </pre>
+ * <p>
+ * A header block holds Content-Type, ETag, gzip ETag (empty without a gzip
+ * variant) and Last-Modified as UTF-8 lines. Bundles are limited to 2 GiB, the
+ * largest region one mapped buffer can address.
+ * </p>
+ */
+public final class StaticBundle {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticBundle.class);
+
+    static final int MAGIC = 0x48534231;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 64;
+
+    static final int ENTRY_KEY_OFFSET = 0;
+    static final int ENTRY_KEY_LENGTH = 8;
+    static final int ENTRY_META_LENGTH = 12;
+    static final int ENTRY_META_OFFSET = 16;
+    static final int ENTRY_BODY_OFFSET = 24;
+    static final int ENTRY_BODY_LENGTH = 32;
+    static final int ENTRY_GZIP_OFFSET = 40;
+    static final int ENTRY_GZIP_LENGTH = 48;
+    static final int ENTRY_LAST_MODIFIED = 56;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int bucketCount;
+    private final int entriesOffset;
+
+    private StaticBundle(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a static bundle: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported static bundle version " + buffer.getInt(4) + ": " + file);
+        }
+        this.entryCount = buffer.getInt(8);
+        this.bucketCount = buffer.getInt(12);
+        this.entriesOffset = HEADER_SIZE + 4 * bucketCount;
+        if (entryCount < 0 || bucketCount <= 0 || (long) entriesOffset + (long) entryCount * ENTRY_SIZE > buffer.capacity()) {
+            throw new IOException("Corrupt static bundle index: " + file);
+        }
+    }
+
+    /**
+     * Maps a bundle into memory.
+     *
+     * @param file the bundle file
+     * @return the bundle
+     * @throws IOException if the file cannot be mapped or is not a valid bundle
+     */
+    public static StaticBundle open(Path file) throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Static bundle larger than 2 GiB: " + file);
+            }
+            // The mapping stays valid after the channel is closed.
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        StaticBundle bundle = new StaticBundle(file, mapped);
+        LOGGER.info("Mapped static bundle {} with {} paths ({} bytes) in {} ms",
+                file, bundle.entryCount, mapped.capacity(), (System.nanoTime() - start) / 1_000_000);
+        return bundle;
+    }
+
+    /**
+     * Returns the bundle file.
+     *
+     * @return the path the bundle was mapped from
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of request paths in the bundle, including directory aliases.
+     *
+     * @return the path count
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Looks up the asset for a normalized request path.
+     *
+     * @param normalizedPath the normalized request path
+     * @return the asset, or null if the bundle has nothing for the path
+     */
+    public Asset lookup(String normalizedPath) {
+        if (entryCount == 0) {
+            return null;
+        }
+        long hash = MinimalPerfectHash.hash(normalizedPath);
+        int seed = buffer.getInt(HEADER_SIZE + 4 * MinimalPerfectHash.bucket(hash, bucketCount));
+        int entry = entriesOffset + MinimalPerfectHash.slot(hash, seed, entryCount) * ENTRY_SIZE;
+        if (!keyEquals((int) buffer.getLong(entry + ENTRY_KEY_OFFSET), buffer.getInt(entry + ENTRY_KEY_LENGTH), normalizedPath)) {
+            return null;
+        }
+        return new Asset(entry);
+    }
+
+    /**
+     * Compares a stored UTF-8 key with a path, without encoding ASCII paths.
+     */
+    private boolean keyEquals(int offset, int length, String path) {
+        int pathLength = path.length();
+        if (pathLength > length) {
+            return false;
+        }
+        for (int i = 0; i < pathLength; i++) {
+            char c = path.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = path.getBytes(StandardCharsets.UTF_8);
+                return encoded.length == length && buffer.slice(offset, length).equals(ByteBuffer.wrap(encoded));
+            }
+            if (buffer.get(offset + i) != c) {
+                return false;
+            }
+        }
+        return pathLength == length;
+    }
+
+    /**
+     * A file in the bundle with its precomputed headers.
+     */
+    public final class Asset {
+        private final int entry;
+        private final String contentType;
+        private final String etag;
+        private final String gzipETag;
+        private final String lastModified;
+
+        private Asset(int entry) {
+            this.entry = entry;
+            int metaOffset = (int) buffer.getLong(entry + ENTRY_META_OFFSET);
+            int metaLength = buffer.getInt(entry + ENTRY_META_LENGTH);
+            byte[] meta = new byte[metaLength];
+            buffer.get(metaOffset, meta);
+            String[] lines = new String(meta, StandardCharsets.UTF_8).split("\n", -1);
+            this.contentType = lines[0];
+            this.etag = lines[1];
+            this.gzipETag = lines[2].isEmpty() ? null : lines[2];
+            this.lastModified = lines[3];
+        }
+
+        /**
+         * Returns the Content-Type of the file.
+         *
+         * @return the content type
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Returns the ETag of the file contents.
+         *
+         * @return the entity tag
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * Returns the ETag of the gzip variant.
+         *
+         * @return the entity tag, or null if the file has no gzip variant
+         */
+        public String getGzipETag() {
+            return gzipETag;
+        }
+
+        /**
+         * Returns the Last-Modified value of the file.
+         *
+         * @return the HTTP date
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns the modification time of the file when it was packed.
+         *
+         * @return the modification time
+         */
+        public Instant getLastModifiedInstant() {
+            return Instant.ofEpochMilli(buffer.getLong(entry + ENTRY_LAST_MODIFIED));
+        }
+
+        /**
+         * Returns the file contents.
+         *
+         * @return a read-only slice of the mapped bundle
+         */
+        public ByteBuffer getBody() {
+            return slice(ENTRY_BODY_OFFSET, ENTRY_BODY_LENGTH);
+        }
+
+        /**
+         * Returns the gzip-compressed file contents.
+         *
+         * @return a read-only slice of the mapped bundle, or null if the file has no gzip variant
+         */
+        public ByteBuffer getGzipBody() {
+            return gzipETag != null ? slice(ENTRY_GZIP_OFFSET, ENTRY_GZIP_LENGTH) : null;
+        }
+
+        private ByteBuffer slice(int offsetField, int lengthField) {
+            return buffer.slice((int) buffer.getLong(entry + offsetField), (int) buffer.getLong(entry + lengthField))
+                    .asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.compression.ContentCoding;
+import com.httpserver.http.ByteBufferBody;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.http.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves GET and HEAD requests from a {@link StaticBundle} instead of the web root.
+ * Responses match those of the {@link StaticFileHandler} (validators, 304, ranges
+ * and gzip variants), but every header value was computed when the bundle was
+ * packed and bodies are slices of the mapped bundle, so nothing touches the file
+ * system while serving.
+ */
+public class StaticBundleHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticBundleHandler.class);
+
+    private final StaticBundle bundle;
+    private final LongAdder notModifiedResponses = new LongAdder();
+    private final LongAdder precompressedResponses = new LongAdder();
+
+    /**
+     * Constructs a StaticBundleHandler.
+     *
+     * @param bundle the bundle to serve
+     */
+    public StaticBundleHandler(StaticBundle bundle) {
+        this.bundle = bundle;
+        LOGGER.info("StaticBundleHandler serving {} paths from: {}", bundle.size(), bundle.getFile());
+    }
+
+    /**
+     * Returns the served bundle.
+     *
+     * @return the bundle
+     */
+    public StaticBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Returns the number of requests answered with 304 Not Modified.
+     *
+     * @return the not modified response count
+     */
+    public long getNotModifiedResponses() {
+        return notModifiedResponses.sum();
+    }
+
+    /**
+     * Returns the number of responses sent from a gzip variant.
+     *
+     * @return the precompressed response count
+     */
+    public long getPrecompressedResponses() {
+        return precompressedResponses.sum();
+    }
+
+    /**
+     * Builds the response for a request to a bundled file.
+     *
+     * @param request the parsed request
+     * @return the response, never null
+     */
+    public HttpResponse handle(HttpRequest request) {
+        HttpMethod method = request.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            HttpResponse response = StaticFileHandler.errorResponse(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED);
+            response.addHeader("Allow", "GET, HEAD");
+            return response;
+        }
+
+        String path;
+        try {
+            path = StaticFileHandler.normalizePath(request.getRequestTarget());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected request target '{}': {}", request.getRequestTarget(), e.getMessage());
+            return StaticFileHandler.errorResponse(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        }
+        StaticBundle.Asset asset = path != null ? bundle.lookup(path) : null;
+        if (asset == null) {
+            return StaticFileHandler.errorResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+        }
+        return assetResponse(request, asset);
+    }
+
+    /**
+     * Builds the response for a bundled file: 304 if the client's copy is current,
+     * 206 or 416 for range requests, otherwise 200.
+     *
+     * @param request the request
+     * @param asset   the bundled file
+     * @return the response
+     */
+    private HttpResponse assetResponse(HttpRequest request, StaticBundle.Asset asset) {
+        String range = request.getMethod() == HttpMethod.GET ? request.getHeader("Range") : null;
+
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+
+        ByteBuffer body = asset.getBody();
+        String etag = asset.getETag();
+        if (asset.getGzipETag() != null) {
+            response.addHeader("Vary", "Accept-Encoding");
+            if (range == null && ContentCoding.negotiate(request.getHeader("Accept-Encoding")) == ContentCoding.GZIP) {
+                body = asset.getGzipBody();
+                etag = asset.getGzipETag();
+                response.addHeader("Content-Encoding", ContentCoding.GZIP.TOKEN);
+                precompressedResponses.increment();
+            }
+        }
+        int size = body.remaining();
+
+        if (StaticFileHandler.isNotModified(request, asset.getLastModifiedInstant(), etag)) {
+            notModifiedResponses.increment();
+            response.removeHeader("Content-Encoding");
+            response.setStatusCode(HttpStatusCode.REDIRECTION_304_NOT_MODIFIED);
+            response.addHeader("ETag", etag);
+            response.addHeader("Last-Modified", asset.getLastModified());
+            return response;
+        }
+
+        if (range != null && StaticFileHandler.isRangeApplicable(request, asset.getLastModifiedInstant(), etag)) {
+            List<ByteRange> ranges = ByteRange.parse(range, size);
+            if (ranges != null && ranges.isEmpty()) {
+                HttpResponse unsatisfiable = StaticFileHandler.errorResponse(HttpStatusCode.CLIENT_ERROR_416_RANGE_NOT_SATISFIABLE);
+                unsatisfiable.addHeader("Content-Range", "bytes */" + size);
+                return unsatisfiable;
+            }
+            if (ranges != null) {
+                response.setStatusCode(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT);
+                response.addHeader("ETag", etag);
+                response.addHeader("Last-Modified", asset.getLastModified());
+                response.addHeader("Accept-Ranges", "bytes");
+                if (ranges.size() == 1) {
+                    ByteRange only = ranges.get(0);
+                    response.addHeader("Content-Type", asset.getContentType());
+                    response.addHeader("Content-Range", only.toContentRange(size));
+                    response.addHeader("Content-Length", String.valueOf(only.length()));
+                    response.setBody(StaticFileHandler.region(null, body, only.getFirst(), only.length()));
+                } else {
+                    String boundary = StaticFileHandler.multipartBoundary();
+                    ResponseBody multipart = StaticFileHandler.multipartBody(null, body, ranges, size, asset.getContentType(), boundary);
+                    response.addHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+                    response.addHeader("Content-Length", String.valueOf(multipart.length()));
+                    response.setBody(multipart);
+                }
+                return response;
+            }
+        }
+
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        response.addHeader("Content-Type", asset.getContentType());
+        response.addHeader("Content-Length", String.valueOf(size));
+        response.addHeader("ETag", etag);
+        response.addHeader("Last-Modified", asset.getLastModified());
+        response.addHeader("Accept-Ranges", "bytes");
+        if (request.getMethod() != HttpMethod.HEAD) {
+            response.setBody(new ByteBufferBody(body));
+        }
+        return response;
+    }
+}
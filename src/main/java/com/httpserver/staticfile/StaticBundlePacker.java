@@ -0,0 +1,295 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.compression.CompressibleTypes;
+import com.httpserver.config.CompressionConfiguration;
+import com.httpserver.config.ConfigurationManager;
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.utils.HttpDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Packs a web root into a {@link StaticBundle} for immutable deployments.
+ * <p>
+ * Every visible regular file becomes an entry keyed by its request path, with its
+ * content type, ETag and Last-Modified computed once here. Compressible files that
+ * shrink also get a gzip variant compressed at the maximum level. Directories with
+ * an index file are added under both {@code /dir} and {@code /dir/}, sharing the
+ * index file's data. Symbolic links and hidden files are skipped.
+ * </p>
+ * <p>
+ * Run with:
+ * {@code ./mvnw compile exec:java -Dexec.mainClass=com.httpserver.staticfile.StaticBundlePacker -Dexec.args="<webroot> <bundle>"}
+ * </p>
+ * <p>
+ * The index file and compression settings come from {@code static-files.json} and
+ * {@code compression.json} on the classpath, as they do for the server, so the bundle
+ * agrees with what the server would serve. Other files can be given as the third and
+ * fourth arguments.
+ * </p>
+ */
+public class StaticBundlePacker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticBundlePacker.class);
+
+    private final Path webroot;
+    private final String indexFile;
+    private final long minimumCompressSize;
+    private final List<String> compressibleTypes;
+
+    /**
+     * Constructs a StaticBundlePacker.
+     *
+     * @param webroot       the web root to pack
+     * @param indexFile     the file served for directories
+     * @param configuration the compression configuration providing the minimum size and compressible types
+     */
+    public StaticBundlePacker(Path webroot, String indexFile, CompressionConfiguration configuration) {
+        this.webroot = webroot;
+        this.indexFile = indexFile;
+        this.minimumCompressSize = configuration.getMinimumSize();
+        this.compressibleTypes = configuration.getMimeTypes();
+    }
+
+    /**
+     * Writes the bundle. The file is written next to the target and moved into place,
+     * so a running server never maps a half-written bundle.
+     *
+     * @param bundle the bundle file to write
+     * @return the number of request paths in the bundle
+     * @throws IOException if the web root cannot be read, the bundle cannot be written or exceeds 2 GiB
+     */
+    public int pack(Path bundle) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Path> files = collectFiles();
+        Map<String, String> aliases = collectAliases(files);
+
+        List<String> keys = new ArrayList<>(files.size() + aliases.size());
+        keys.addAll(files.keySet());
+        keys.addAll(aliases.keySet());
+        int[] seeds = MinimalPerfectHash.build(keys);
+        int n = keys.size();
+        long dataOffset = StaticBundle.HEADER_SIZE + 4L * seeds.length + (long) n * StaticBundle.ENTRY_SIZE;
+
+        ByteBuffer index = ByteBuffer.allocate((int) dataOffset);
+        index.putInt(StaticBundle.MAGIC).putInt(StaticBundle.VERSION).putInt(n).putInt(seeds.length);
+        for (int seed : seeds) {
+            index.putInt(seed);
+        }
+
+        Path temporary = bundle.resolveSibling("." + bundle.getFileName() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.position(dataOffset);
+                Map<String, ByteBuffer> records = new TreeMap<>();
+                for (Map.Entry<String, Path> file : files.entrySet()) {
+                    records.put(file.getKey(), writeFile(out, file.getValue()));
+                }
+                for (String key : keys) {
+                    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer record = ByteBuffer.allocate(StaticBundle.ENTRY_SIZE)
+                            .put(0, records.get(aliases.getOrDefault(key, key)), 0, StaticBundle.ENTRY_SIZE);
+                    record.putLong(StaticBundle.ENTRY_KEY_OFFSET, write(out, ByteBuffer.wrap(keyBytes)));
+                    record.putInt(StaticBundle.ENTRY_KEY_LENGTH, keyBytes.length);
+                    long hash = MinimalPerfectHash.hash(key);
+                    int slot = MinimalPerfectHash.slot(hash, seeds[MinimalPerfectHash.bucket(hash, seeds.length)], n);
+                    index.put(StaticBundle.HEADER_SIZE + 4 * seeds.length + slot * StaticBundle.ENTRY_SIZE,
+                            record, 0, StaticBundle.ENTRY_SIZE);
+                }
+                if (out.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Static bundle would exceed 2 GiB: " + out.size() + " bytes");
+                }
+                index.rewind();
+                while (index.hasRemaining()) {
+                    out.write(index, index.position());
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temporary, bundle, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, bundle, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        LOGGER.info("Packed {} files ({} paths) from {} into {} ({} bytes) in {} ms", files.size(), n, webroot, bundle,
+                Files.size(bundle), (System.nanoTime() - start) / 1_000_000);
+        return n;
+    }
+
+    /**
+     * Collects the visible regular files of the web root by request path.
+     */
+    private Map<String, Path> collectFiles() throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        Files.walkFileTree(webroot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(webroot) && isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !isHidden(file)) {
+                    files.put(requestPath(file), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Maps the request paths of directories with an index file to the index file's path.
+     */
+    private Map<String, String> collectAliases(Map<String, Path> files) {
+        Map<String, String> aliases = new TreeMap<>();
+        String suffix = "/" + indexFile;
+        for (String path : files.keySet()) {
+            if (path.endsWith(suffix)) {
+                String directory = path.substring(0, path.length() - indexFile.length());
+                aliases.put(directory, path);
+                if (directory.length() > 1) {
+                    aliases.put(directory.substring(0, directory.length() - 1), path);
+                }
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Appends a file's header block, contents and gzip variant to the bundle.
+     *
+     * @return the entry record for the file, without its key
+     */
+    private ByteBuffer writeFile(FileChannel out, Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String contentType = MimeTypes.forFileName(file.getFileName().toString());
+        byte[] gzip = compress(contentType, content);
+
+        String meta = contentType + "\n"
+                + EntityTags.compute(ByteBuffer.wrap(content)) + "\n"
+                + (gzip != null ? EntityTags.compute(ByteBuffer.wrap(gzip)) : "") + "\n"
+                + HttpDate.format(Instant.ofEpochMilli(lastModified));
+        byte[] metaBytes = meta.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer record = ByteBuffer.allocate(StaticBundle.ENTRY_SIZE);
+        record.putInt(StaticBundle.ENTRY_META_LENGTH, metaBytes.length);
+        record.putLong(StaticBundle.ENTRY_META_OFFSET, write(out, ByteBuffer.wrap(metaBytes)));
+        record.putLong(StaticBundle.ENTRY_BODY_OFFSET, write(out, ByteBuffer.wrap(content)));
+        record.putLong(StaticBundle.ENTRY_BODY_LENGTH, content.length);
+        record.putLong(StaticBundle.ENTRY_GZIP_OFFSET, gzip != null ? write(out, ByteBuffer.wrap(gzip)) : 0);
+        record.putLong(StaticBundle.ENTRY_GZIP_LENGTH, gzip != null ? gzip.length : 0);
+        record.putLong(StaticBundle.ENTRY_LAST_MODIFIED, lastModified);
+        return record;
+    }
+
+    /**
+     * Compresses a compressible file at the maximum level.
+     *
+     * @return the compressed contents, or null if the file is not worth compressing
+     */
+    private byte[] compress(String contentType, byte[] content) throws IOException {
+        if (content.length < minimumCompressSize || !CompressibleTypes.matches(compressibleTypes, contentType)) {
+            return null;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return compressed.size() < content.length ? compressed.toByteArray() : null;
+    }
+
+    /**
+     * Appends bytes at the channel's position.
+     *
+     * @return the offset the bytes were written at
+     */
+    private static long write(FileChannel out, ByteBuffer bytes) throws IOException {
+        long offset = out.position();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        return offset;
+    }
+
+    private String requestPath(Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path segment : webroot.relativize(file)) {
+            path.append('/').append(segment);
+        }
+        return path.toString();
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Packs a web root from the command line.
+     *
+     * @param args the web root directory, the bundle file to write, and optionally the
+     *             static file and compression configuration files to use instead of the
+     *             ones on the classpath
+     * @throws IOException if the web root cannot be packed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            LOGGER.error("Syntax: StaticBundlePacker <webroot> <bundle> [static-files.json] [compression.json]");
+            return;
+        }
+        StaticFileConfiguration staticFileConfig = loadConfiguration(args.length > 2 ? args[2] : null,
+                "static-files.json", StaticFileConfiguration.class);
+        CompressionConfiguration compressionConfig = loadConfiguration(args.length > 3 ? args[3] : null,
+                "compression.json", CompressionConfiguration.class);
+        new StaticBundlePacker(Path.of(args[0]).toRealPath(), staticFileConfig.getIndexFile(), compressionConfig)
+                .pack(Path.of(args[1]).toAbsolutePath());
+    }
+
+    /**
+     * Loads a configuration file through the {@link ConfigurationManager}, the way the
+     * server loads it.
+     *
+     * @param filePath    the configuration file, or null for the resource on the classpath
+     * @param resource    the name of the resource on the classpath
+     * @param configClass the configuration class
+     * @param <T>         the type of the configuration
+     * @return the loaded configuration
+     */
+    private static <T> T loadConfiguration(String filePath, String resource, Class<T> configClass) {
+        String path = filePath != null
+                ? filePath
+                : Objects.requireNonNull(StaticBundlePacker.class.getClassLoader().getResource(resource), resource + " not found").getFile();
+        ConfigurationManager.getInstance().loadConfiguration(path, configClass);
+        LOGGER.debug("{} loaded from path: {}", configClass.getSimpleName(), path);
+        return ConfigurationManager.getInstance().getConfiguration(configClass);
+    }
+}
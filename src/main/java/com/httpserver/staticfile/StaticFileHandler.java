@@ -0,0 +1,787 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.compression.ContentCoding;
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.http.ByteBufferBody;
+import com.httpserver.http.CompositeBody;
+import com.httpserver.http.FileRegionBody;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.http.ResponseBody;
+import com.httpserver.utils.HttpDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Serves files from the web root for GET and HEAD requests.
+ * <p>
+ * Request targets are normalized before they touch the file system: the query is
+ * dropped, percent-escapes are decoded, "." and ".." segments are resolved and any
+ * attempt to climb above the web root is rejected. Dot-files such as {@code .env}
+ * are never served, and symbolic links must resolve to a file inside the web root.
+ * Directories are answered with their index file. File metadata comes from the
+ * {@link FileMetadataCache}, so unchanged files need no file system calls, and the
+ * {@link NegativeLookupCache} answers most requests for missing files without the
+ * disk; 404 bodies are encoded once. File
+ * contents are attached as a {@link FileRegionBody}, so plain HTTP connections send
+ * them with zero-copy transfers, unless the {@link HotAssetCache} holds a copy of
+ * the file in memory.
+ * </p>
+ * <p>
+ * Responses carry a strong ETag and Last-Modified. Conditional requests are evaluated
+ * before any body bytes are read: a matching If-None-Match, or failing that an
+ * If-Modified-Since no older than the file, is answered with 304 Not Modified.
+ * </p>
+ * <p>
+ * GET requests with a Range header get 206 Partial Content with just the requested
+ * regions, as a {@code multipart/byteranges} body when several are asked for, or
+ * 416 if none can be satisfied. If-Range falls back to the whole file when the
+ * client's copy is outdated.
+ * </p>
+ * <p>
+ * When the client accepts gzip, a file with an up-to-date {@code .gz} sidecar (see
+ * {@link Precompressor}) is answered with the sidecar, so compressed assets go out
+ * with zero-copy transfers and no per-request compression.
+ * </p>
+ * <p>
+ * With fingerprinting enabled, {@code /app.3f9a1c0b.js} serves {@code /app.js} as
+ * long as the fingerprint matches its current contents (see {@link AssetFingerprints}),
+ * with a Cache-Control that lets clients keep it without revalidating; outdated
+ * fingerprints get 404. The manifest path lists the current fingerprinted URLs.
+ * </p>
+ */
+public class StaticFileHandler implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticFileHandler.class);
+
+    /**
+     * Error pages encoded once, so answering a 404 allocates nothing but the response.
+     */
+    private static final Map<HttpStatusCode, byte[]> ERROR_BODIES = new EnumMap<>(HttpStatusCode.class);
+
+    static {
+        for (HttpStatusCode statusCode : HttpStatusCode.values()) {
+            if (statusCode.STATUS_CODE >= 400) {
+                ERROR_BODIES.put(statusCode, ("<html><head><title>" + statusCode.STATUS_CODE + " " + statusCode.MESSAGE
+                        + "</title></head><body>" + statusCode.STATUS_CODE + " " + statusCode.MESSAGE + "</body></html>")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private final Path webroot;
+    private final String indexFile;
+    private final HotAssetCache hotAssetCache;
+    private final FileMetadataCache metadataCache;
+    private final NegativeLookupCache negativeCache;
+    private final boolean precompressedEnabled;
+    private final AssetFingerprints fingerprints;
+    private final String manifestPath;
+    private final ExecutorService precompressExecutor;
+    private final List<Consumer<String>> accessListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder notModifiedResponses = new LongAdder();
+    private final LongAdder precompressedResponses = new LongAdder();
+
+    /**
+     * Constructs a StaticFileHandler with default settings.
+     *
+     * @param webroot the directory to serve files from
+     * @throws IOException if the web root does not exist or cannot be resolved
+     */
+    public StaticFileHandler(String webroot) throws IOException {
+        this(webroot, new StaticFileConfiguration());
+    }
+
+    /**
+     * Constructs a StaticFileHandler.
+     *
+     * @param webroot       the directory to serve files from
+     * @param configuration the static file configuration
+     * @throws IOException if the web root does not exist or cannot be resolved
+     */
+    public StaticFileHandler(String webroot, StaticFileConfiguration configuration) throws IOException {
+        this(webroot, configuration, null);
+    }
+
+    /**
+     * Constructs a StaticFileHandler that keeps gzip sidecars in sync with their sources.
+     * When the metadata cache is enabled, every change reported by the web root watcher
+     * is handed to the precompressor on a background thread.
+     *
+     * @param webroot       the directory to serve files from
+     * @param configuration the static file configuration
+     * @param precompressor writes sidecars for changed files, or null to only serve existing ones
+     * @throws IOException if the web root does not exist or cannot be resolved
+     */
+    public StaticFileHandler(String webroot, StaticFileConfiguration configuration, Precompressor precompressor) throws IOException {
+        this.webroot = Path.of(webroot).toRealPath();
+        if (!Files.isDirectory(this.webroot)) {
+            throw new IOException("Webroot is not a directory: " + this.webroot);
+        }
+        this.indexFile = configuration.getIndexFile();
+        this.hotAssetCache = configuration.isCacheEnabled()
+                ? new HotAssetCache(configuration.getCacheMaxBytes(), configuration.getCacheMaxFileSize())
+                : null;
+        this.metadataCache = configuration.isMetadataCacheEnabled()
+                ? new FileMetadataCache(this.webroot, indexFile, configuration.getMetadataCacheMaxEntries(),
+                configuration.getMetadataReconcileIntervalSeconds())
+                : null;
+        if (metadataCache != null && configuration.isNegativeCacheEnabled()) {
+            this.negativeCache = new NegativeLookupCache(this.webroot, configuration.getNegativeCacheMaxEntries());
+            // Listen before scanning, so files created during the scan are not missed.
+            metadataCache.addChangeListener(negativeCache::onChange);
+            negativeCache.rebuild();
+        } else {
+            this.negativeCache = null;
+        }
+        this.precompressedEnabled = configuration.isPrecompressedEnabled();
+        if (configuration.isFingerprintingEnabled()) {
+            this.fingerprints = new AssetFingerprints(this.webroot, configuration.getFingerprintExtensions(), metadataCache != null);
+            this.manifestPath = configuration.getFingerprintManifestPath();
+            if (metadataCache != null) {
+                metadataCache.addChangeListener(changed -> fingerprints.invalidate());
+            }
+        } else {
+            this.fingerprints = null;
+            this.manifestPath = null;
+        }
+        if (precompressor != null && metadataCache != null) {
+            this.precompressExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webroot-precompressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metadataCache.addChangeListener(changed -> precompressExecutor.execute(() -> precompressChanged(precompressor, changed)));
+        } else {
+            this.precompressExecutor = null;
+        }
+        LOGGER.info("StaticFileHandler serving files from: {}", this.webroot);
+    }
+
+    /**
+     * Returns the resolved web root directory.
+     *
+     * @return the web root
+     */
+    public Path getWebroot() {
+        return webroot;
+    }
+
+    /**
+     * Returns the hot asset cache.
+     *
+     * @return the cache, or null if caching is disabled
+     */
+    public HotAssetCache getHotAssetCache() {
+        return hotAssetCache;
+    }
+
+    /**
+     * Returns the file metadata cache.
+     *
+     * @return the cache, or null if metadata caching is disabled
+     */
+    public FileMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Returns the negative lookup cache.
+     *
+     * @return the cache, or null if it or the metadata cache is disabled
+     */
+    public NegativeLookupCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * Returns the number of responses sent from a precompressed sidecar.
+     *
+     * @return the precompressed response count
+     */
+    public long getPrecompressedResponses() {
+        return precompressedResponses.sum();
+    }
+
+    /**
+     * Returns the number of requests answered with 304 Not Modified.
+     *
+     * @return the not modified response count
+     */
+    public long getNotModifiedResponses() {
+        return notModifiedResponses.sum();
+    }
+
+    /**
+     * Registers a listener notified, on the request thread, of the request path of
+     * every file served. Fingerprinted URLs are reported as the path of their file.
+     *
+     * @param listener receives the normalized request path
+     */
+    public void addAccessListener(Consumer<String> listener) {
+        accessListeners.add(listener);
+    }
+
+    /**
+     * Returns whether the handler has a cache that warm-up could fill.
+     *
+     * @return true if the metadata cache or the hot asset cache is enabled
+     */
+    public boolean hasCaches() {
+        return metadataCache != null || hotAssetCache != null;
+    }
+
+    /**
+     * Loads a file into the caches ahead of its first request: its metadata, its
+     * contents in the hot asset cache if there is room, and the same for its gzip
+     * sidecar. The ETag is left to the first request that needs it, since hashing a
+     * large file could take longer than the whole warm-up budget.
+     *
+     * @param path the normalized request path
+     * @return the number of bytes loaded into memory, or -1 if the path names no servable file
+     * @throws IOException if the file cannot be read
+     */
+    public long warm(String path) throws IOException {
+        FileMetadata metadata = lookup(path);
+        if (metadata == null) {
+            return -1;
+        }
+        long loaded = warm(metadata);
+        FileMetadata sidecar = precompressedEnabled ? sidecarOf(metadata) : null;
+        if (sidecar != null) {
+            loaded += warm(sidecar);
+        }
+        return loaded;
+    }
+
+    private long warm(FileMetadata metadata) throws IOException {
+        if (hotAssetCache != null && hotAssetCache.preload(metadata.getFile(), metadata.getSize(), metadata.getLastModified())) {
+            return metadata.getSize();
+        }
+        return 0;
+    }
+
+    /**
+     * Stops watching the web root.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (precompressExecutor != null) {
+            precompressExecutor.shutdownNow();
+        }
+        if (metadataCache != null) {
+            metadataCache.close();
+        }
+    }
+
+    /**
+     * Refreshes sidecars after a change under the web root.
+     *
+     * @param precompressor the precompressor
+     * @param changed       the changed path, or the web root if anything may have changed
+     */
+    private void precompressChanged(Precompressor precompressor, Path changed) {
+        try {
+            if (changed.equals(webroot) || Files.isDirectory(changed)) {
+                precompressor.precompressAll(changed);
+            } else {
+                precompressor.precompress(changed);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to refresh precompressed sidecar for {}", changed, e);
+        }
+    }
+
+    /**
+     * Builds the response for a request to a file under the web root.
+     *
+     * @param request the parsed request
+     * @return the response, never null
+     */
+    public HttpResponse handle(HttpRequest request) {
+        HttpMethod method = request.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            HttpResponse response = errorResponse(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED);
+            response.addHeader("Allow", "GET, HEAD");
+            return response;
+        }
+
+        String path;
+        try {
+            path = normalizePath(request.getRequestTarget());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected request target '{}': {}", request.getRequestTarget(), e.getMessage());
+            return errorResponse(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST);
+        }
+        if (path == null) {
+            return errorResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+        }
+
+        try {
+            if (fingerprints != null && path.equals(manifestPath)) {
+                return manifestResponse();
+            }
+            FileMetadata metadata = lookup(path);
+            if (metadata == null && fingerprints != null) {
+                return fingerprintedResponse(request, path);
+            }
+            if (metadata == null) {
+                return errorResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+            }
+            notifyAccess(path);
+            return fileResponse(request, metadata);
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("File removed while being served: {}", path);
+            return errorResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+        } catch (IOException e) {
+            LOGGER.error("Failed to read file attributes for: {}", path, e);
+            return errorResponse(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Notifies the access listeners, isolating the request from their failures.
+     *
+     * @param path the normalized request path of the served file
+     */
+    private void notifyAccess(String path) {
+        for (Consumer<String> listener : accessListeners) {
+            try {
+                listener.accept(path);
+            } catch (RuntimeException e) {
+                LOGGER.error("Access listener failed for {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * Serves a fingerprinted URL with immutable caching headers, if the fingerprint
+     * matches the current contents of the file it names.
+     *
+     * @param request the request
+     * @param path    the normalized request path, which names no file itself
+     * @return the response
+     * @throws IOException if the file cannot be read
+     */
+    private HttpResponse fingerprintedResponse(HttpRequest request, String path) throws IOException {
+        AssetFingerprints.Fingerprinted fingerprinted = fingerprints.parse(path);
+        FileMetadata metadata = fingerprinted != null ? lookup(fingerprinted.getPath()) : null;
+        if (metadata == null || !AssetFingerprints.of(metadata).equals(fingerprinted.getFingerprint())) {
+            return errorResponse(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND);
+        }
+        notifyAccess(fingerprinted.getPath());
+        HttpResponse response = fileResponse(request, metadata);
+        if (response.getStatusCode() != HttpStatusCode.CLIENT_ERROR_416_RANGE_NOT_SATISFIABLE) {
+            response.addHeader("Cache-Control", AssetFingerprints.IMMUTABLE_CACHE_CONTROL);
+        }
+        return response;
+    }
+
+    /**
+     * Serves the manifest of current fingerprinted URLs. It changes with every
+     * deploy, so clients must revalidate it.
+     *
+     * @return the response
+     * @throws IOException if the web root cannot be walked
+     */
+    private HttpResponse manifestResponse() throws IOException {
+        byte[] manifest = fingerprints.manifest(this::lookup);
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        response.setBody(manifest);
+        response.addHeader("Content-Type", "application/json; charset=utf-8");
+        response.addHeader("Content-Length", String.valueOf(manifest.length));
+        response.addHeader("Cache-Control", "no-cache");
+        return response;
+    }
+
+    /**
+     * Builds the response for a regular file: 304 if the client's copy is current,
+     * otherwise 200 with the file contents.
+     *
+     * @param request  the request
+     * @param metadata the metadata of the file to serve
+     * @return the response
+     * @throws IOException if the file cannot be read for hashing or caching
+     */
+    private HttpResponse fileResponse(HttpRequest request, FileMetadata metadata) throws IOException {
+        String contentType = MimeTypes.forFileName(metadata.getFile().getFileName().toString());
+        String range = request.getMethod() == HttpMethod.GET ? request.getHeader("Range") : null;
+        String lastModified = HttpDate.format(metadata.getLastModified().toInstant());
+
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+
+        // Pick the representation: the gzip sidecar if it is current and acceptable.
+        FileMetadata representation = metadata;
+        FileMetadata sidecar = precompressedEnabled ? sidecarOf(metadata) : null;
+        if (sidecar != null) {
+            response.addHeader("Vary", "Accept-Encoding");
+            if (range == null && ContentCoding.negotiate(request.getHeader("Accept-Encoding")) == ContentCoding.GZIP) {
+                representation = sidecar;
+                response.addHeader("Content-Encoding", ContentCoding.GZIP.TOKEN);
+                precompressedResponses.increment();
+            }
+        }
+        Path file = representation.getFile();
+        long size = representation.getSize();
+        String etag = representation.getETag();
+
+        if (isNotModified(request, metadata.getLastModified().toInstant(), etag)) {
+            notModifiedResponses.increment();
+            response.removeHeader("Content-Encoding");
+            response.setStatusCode(HttpStatusCode.REDIRECTION_304_NOT_MODIFIED);
+            response.addHeader("ETag", etag);
+            response.addHeader("Last-Modified", lastModified);
+            return response;
+        }
+
+        if (range != null && isRangeApplicable(request, metadata.getLastModified().toInstant(), etag)) {
+            List<ByteRange> ranges = ByteRange.parse(range, size);
+            if (ranges != null && ranges.isEmpty()) {
+                HttpResponse unsatisfiable = errorResponse(HttpStatusCode.CLIENT_ERROR_416_RANGE_NOT_SATISFIABLE);
+                unsatisfiable.addHeader("Content-Range", "bytes */" + size);
+                return unsatisfiable;
+            }
+            if (ranges != null) {
+                response.setStatusCode(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT);
+                response.addHeader("ETag", etag);
+                response.addHeader("Last-Modified", lastModified);
+                response.addHeader("Accept-Ranges", "bytes");
+                ByteBuffer cached = cachedContent(representation);
+                if (ranges.size() == 1) {
+                    ByteRange only = ranges.get(0);
+                    response.addHeader("Content-Type", contentType);
+                    response.addHeader("Content-Range", only.toContentRange(size));
+                    response.addHeader("Content-Length", String.valueOf(only.length()));
+                    response.setBody(region(file, cached, only.getFirst(), only.length()));
+                } else {
+                    String boundary = multipartBoundary();
+                    ResponseBody body = multipartBody(file, cached, ranges, size, contentType, boundary);
+                    response.addHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+                    response.addHeader("Content-Length", String.valueOf(body.length()));
+                    response.setBody(body);
+                }
+                return response;
+            }
+        }
+
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        response.addHeader("Content-Type", contentType);
+        response.addHeader("Content-Length", String.valueOf(size));
+        response.addHeader("ETag", etag);
+        response.addHeader("Last-Modified", lastModified);
+        response.addHeader("Accept-Ranges", "bytes");
+        if (request.getMethod() != HttpMethod.HEAD) {
+            response.setBody(region(file, cachedContent(representation), 0, size));
+        }
+        return response;
+    }
+
+    /**
+     * Looks up the gzip sidecar of a file. The result is recorded in the metadata, so
+     * while the metadata cache holds it, the sidecar is not looked up again, even when
+     * there is none.
+     *
+     * @param metadata the metadata of the source file
+     * @return the metadata of the sidecar, or null if there is none or it is out of sync
+     * @throws IOException if the file system cannot be read
+     */
+    private FileMetadata sidecarOf(FileMetadata metadata) throws IOException {
+        if (metadata.isSidecarResolved()) {
+            return metadata.getSidecar();
+        }
+        Path source = metadata.getFile();
+        FileMetadata sidecar = null;
+        if (!source.getFileName().toString().endsWith(Precompressor.SIDECAR_SUFFIX)) {
+            StringBuilder sidecarPath = new StringBuilder();
+            for (Path segment : webroot.relativize(Precompressor.sidecarOf(source))) {
+                sidecarPath.append('/').append(segment);
+            }
+            sidecar = lookup(sidecarPath.toString());
+            if (!Precompressor.isInSync(metadata, sidecar)) {
+                sidecar = null;
+            }
+        }
+        metadata.setSidecar(sidecar);
+        return sidecar;
+    }
+
+    /**
+     * Looks up the file a request path names, through the negative lookup cache and
+     * the metadata cache when they are enabled.
+     *
+     * @param path the normalized request path
+     * @return the metadata, or null if there is no servable file for the path
+     * @throws IOException if the file system cannot be read
+     */
+    private FileMetadata lookup(String path) throws IOException {
+        if (negativeCache == null) {
+            return metadataCache != null ? metadataCache.get(path) : FileMetadata.read(webroot, path, indexFile);
+        }
+        if (negativeCache.isKnownMissing(path)) {
+            return null;
+        }
+        long stamp = negativeCache.stamp();
+        FileMetadata metadata = metadataCache.get(path);
+        if (metadata == null) {
+            negativeCache.recordMiss(path, stamp);
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the contents of a file from the hot asset cache.
+     *
+     * @param metadata the metadata of the file
+     * @return the cached contents, or null if the file is not cached
+     * @throws IOException if the file cannot be read into the cache
+     */
+    private ByteBuffer cachedContent(FileMetadata metadata) throws IOException {
+        return hotAssetCache != null
+                ? hotAssetCache.get(metadata.getFile(), metadata.getSize(), metadata.getLastModified())
+                : null;
+    }
+
+    /**
+     * Builds the body for a region of a file, from the cached contents if available,
+     * otherwise as a file region sent with zero-copy transfers.
+     *
+     * @param file     the file, unused if the contents are cached
+     * @param cached   the cached contents of the file, or null
+     * @param position the offset of the first byte
+     * @param count    the number of bytes
+     * @return the body
+     */
+    static ResponseBody region(Path file, ByteBuffer cached, long position, long count) {
+        if (cached != null) {
+            return new ByteBufferBody(cached.slice((int) position, (int) count));
+        }
+        return new FileRegionBody(file, position, count);
+    }
+
+    /**
+     * Builds a multipart/byteranges body: each range preceded by a delimiter and its
+     * part headers, followed by the closing delimiter.
+     *
+     * @param file        the file, unused if the contents are cached
+     * @param cached      the cached contents of the file, or null
+     * @param ranges      the ranges, sorted and not overlapping
+     * @param size        the file size
+     * @param contentType the content type of the file
+     * @param boundary    the multipart boundary
+     * @return the body
+     */
+    static ResponseBody multipartBody(Path file, ByteBuffer cached, List<ByteRange> ranges, long size,
+                                      String contentType, String boundary) {
+        List<ResponseBody> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        String delimiter = "--" + boundary + "\r\n";
+        for (ByteRange range : ranges) {
+            String partHead = delimiter
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + range.toContentRange(size) + "\r\n\r\n";
+            parts.add(new ByteBufferBody(ByteBuffer.wrap(partHead.getBytes(StandardCharsets.US_ASCII))));
+            parts.add(region(file, cached, range.getFirst(), range.length()));
+            delimiter = "\r\n--" + boundary + "\r\n";
+        }
+        String closing = "\r\n--" + boundary + "--\r\n";
+        parts.add(new ByteBufferBody(ByteBuffer.wrap(closing.getBytes(StandardCharsets.US_ASCII))));
+        return new CompositeBody(parts);
+    }
+
+    /**
+     * Generates a random multipart boundary, which cannot occur in the part headers.
+     *
+     * @return the boundary
+     */
+    static String multipartBoundary() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+
+    /**
+     * Evaluates If-Range: the Range header only applies if the validator still
+     * matches, otherwise the whole file is sent. An entity tag must match strongly
+     * and a date must equal Last-Modified exactly.
+     *
+     * @param request      the request
+     * @param lastModified the modification time of the file
+     * @param etag         the entity tag of the file
+     * @return true if there is no If-Range or it matches the current file
+     */
+    static boolean isRangeApplicable(HttpRequest request, Instant lastModified, String etag) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(etag);
+        }
+        Instant date = HttpDate.parse(value);
+        return date != null && date.equals(lastModified.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * Evaluates If-None-Match and If-Modified-Since. If-Modified-Since is ignored when
+     * If-None-Match is present, as RFC 9110 requires.
+     *
+     * @param request      the request
+     * @param lastModified the modification time of the file
+     * @param etag         the entity tag of the file
+     * @return true if the client's cached copy is current
+     */
+    static boolean isNotModified(HttpRequest request, Instant lastModified, String etag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return EntityTags.weakMatch(ifNoneMatch, etag);
+        }
+        Instant ifModifiedSince = HttpDate.parse(request.getHeader("If-Modified-Since"));
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        // HTTP dates have one second resolution.
+        Instant modified = lastModified.truncatedTo(ChronoUnit.SECONDS);
+        return !modified.isAfter(ifModifiedSince);
+    }
+
+    /**
+     * Builds a small HTML error response around a pre-encoded body.
+     *
+     * @param statusCode the error status
+     * @return the response
+     */
+    static HttpResponse errorResponse(HttpStatusCode statusCode) {
+        byte[] body = ERROR_BODIES.get(statusCode);
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+        response.setStatusCode(statusCode);
+        response.setBody(body);
+        response.addHeader("Content-Type", "text/html; charset=utf-8");
+        response.addHeader("Content-Length", String.valueOf(body.length));
+        return response;
+    }
+
+    /**
+     * Normalizes a request target into a path relative to the web root.
+     * <p>
+     * The query and fragment are removed, percent-escapes are decoded as UTF-8,
+     * empty and "." segments are dropped and ".." removes the previous segment.
+     * </p>
+     *
+     * @param requestTarget the request target from the request line
+     * @return the normalized path starting with '/', with a trailing '/' if the target
+     * had one, or null if it names a hidden (dot) file
+     * @throws IllegalArgumentException if the target is not an absolute path, is badly
+     *                                  encoded, contains forbidden characters or climbs above the web root
+     */
+    static String normalizePath(String requestTarget) {
+        if (requestTarget == null || requestTarget.isEmpty() || requestTarget.charAt(0) != '/') {
+            throw new IllegalArgumentException("Request target must be an absolute path");
+        }
+        int end = requestTarget.length();
+        int query = requestTarget.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = requestTarget.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        String decoded = percentDecode(requestTarget.substring(0, end));
+        if (decoded.indexOf('\0') >= 0 || decoded.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Forbidden character in path");
+        }
+
+        Deque<String> segments = new ArrayDeque<>();
+        boolean hidden = false;
+        for (String segment : decoded.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.isEmpty()) {
+                    throw new IllegalArgumentException("Path escapes the webroot");
+                }
+                segments.removeLast();
+                continue;
+            }
+            if (segment.charAt(0) == '.') {
+                hidden = true;
+            }
+            segments.addLast(segment);
+        }
+        if (hidden) {
+            return null;
+        }
+
+        StringBuilder normalized = new StringBuilder(decoded.length() + 1);
+        for (String segment : segments) {
+            normalized.append('/').append(segment);
+        }
+        if (normalized.length() == 0 || decoded.endsWith("/")) {
+            normalized.append('/');
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Decodes percent-escapes in a URL path as UTF-8. Unlike URLDecoder, '+' is kept as is.
+     *
+     * @param path the encoded path
+     * @return the decoded path
+     * @throws IllegalArgumentException if an escape is malformed
+     */
+    private static String percentDecode(String path) {
+        if (path.indexOf('%') < 0) {
+            return path;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= path.length()) {
+                    throw new IllegalArgumentException("Truncated percent-escape");
+                }
+                int high = Character.digit(path.charAt(i + 1), 16);
+                int low = Character.digit(path.charAt(i + 2), 16);
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Malformed percent-escape");
+                }
+                bytes.write((high << 4) | low);
+                i += 2;
+            } else {
+                byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package com.httpserver.utils;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+
+/**
+ * Utility class for HTTP dates as used by Date, Last-Modified and If-Modified-Since.
+ * Dates are written in the IMF-fixdate format, e.g. {@code Sun, 06 Nov 1994 08:49:37 GMT},
+ * and read in any of the three formats RFC 9110 requires recipients to accept.
+ */
+public class HttpDate {
+
+    private static final DateTimeFormatter IMF_FIXDATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    /**
+     * Two-digit years are read as 1970-2069.
+     */
+    private static final DateTimeFormatter RFC_850 = new DateTimeFormatterBuilder()
+            .appendPattern("EEEE, dd-MMM-")
+            .appendValueReduced(ChronoField.YEAR, 2, 2, 1970)
+            .appendPattern(" HH:mm:ss 'GMT'")
+            .toFormatter(Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter ASCTIME =
+            DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss yyyy", Locale.US).withZone(ZoneOffset.UTC);
+
+    private HttpDate() {
+    }
+
+    /**
+     * Formats an instant as an IMF-fixdate, truncated to whole seconds.
+     *
+     * @param instant the instant to format
+     * @return the HTTP date
+     */
+    public static String format(Instant instant) {
+        return IMF_FIXDATE.format(instant);
+    }
+
+    /**
+     * Parses an HTTP date.
+     *
+     * @param value the header value, may be null
+     * @return the instant, or null if the value is missing or not a valid HTTP date
+     */
+    public static Instant parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        for (DateTimeFormatter formatter : new DateTimeFormatter[]{IMF_FIXDATE, RFC_850, ASCTIME}) {
+            try {
+                return ZonedDateTime.parse(trimmed, formatter).toInstant();
+            } catch (DateTimeParseException e) {
+                // Try the next format.
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.httpserver.benchmark;
+
+import com.httpserver.compression.Compressor;
+import com.httpserver.compression.DeflaterPool;
+import com.httpserver.compression.ParallelGzipEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares single-threaded gzip against {@link ParallelGzipEncoder} for large bodies.
+ * <p>
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="GzipBenchmark -f 0"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GzipBenchmark {
+
+    @Param({"1048576", "8388608", "33554432"})
+    private int bodySize;
+
+    @Param({"131072"})
+    private int blockSize;
+
+    private byte[] body;
+    private Compressor compressor;
+    private ParallelGzipEncoder parallelEncoder;
+    private ForkJoinPool forkJoinPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(bodySize + 64);
+        Random random = new Random(1);
+        while (builder.length() < bodySize) {
+            builder.append("{\"id\":").append(random.nextInt(1_000_000))
+                    .append(",\"email\":\"user").append(random.nextInt(50_000)).append("@example.com\"},");
+        }
+        body = builder.substring(0, bodySize).getBytes(StandardCharsets.US_ASCII);
+
+        compressor = new Compressor(6, 1);
+        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        parallelEncoder = new ParallelGzipEncoder(new DeflaterPool(6, true, forkJoinPool.getParallelism()), forkJoinPool, blockSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] singleThreaded() {
+        return compressor.gzip(body);
+    }
+
+    @Benchmark
+    public byte[] parallel() {
+        return parallelEncoder.gzip(body);
+    }
+}
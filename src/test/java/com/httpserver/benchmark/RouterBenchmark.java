@@ -0,0 +1,122 @@
+package com.httpserver.benchmark;
+
+import com.httpserver.core.Handler;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.routing.RouteMatch;
+import com.httpserver.routing.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up request paths in a {@link Router} holding a few thousand
+ * REST-style routes with path parameters, against a linear scan that compares each
+ * route's segments in turn. The radix tree's cost should stay flat as the route
+ * count grows while the scan's grows with it.
+ * <p>
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="RouterBenchmark -f 0"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouterBenchmark {
+
+    private static final int PATHS = 4096;
+
+    @Param({"100", "1000", "5000"})
+    public int routes;
+
+    private Router router;
+    private String[][] patterns;
+    private String[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Handler handler = request -> new HttpResponse();
+        router = new Router();
+        patterns = new String[routes][];
+        for (int i = 0; i < routes; i++) {
+            String pattern = pattern(i);
+            router.get(pattern, handler);
+            patterns[i] = pattern.substring(1).split("/");
+        }
+
+        Random random = new Random(42);
+        paths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            paths[i] = pattern(random.nextInt(routes))
+                    .replace(":id", String.valueOf(random.nextInt(100_000)))
+                    .replace(":item", "item-" + random.nextInt(100));
+        }
+    }
+
+    @Benchmark
+    public RouteMatch radixTree() {
+        return router.match(HttpMethod.GET, nextPath());
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String[] segments = nextPath().substring(1).split("/");
+        for (int i = 0; i < patterns.length; i++) {
+            if (matches(patterns[i], segments)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String nextPath() {
+        String path = paths[next];
+        next = (next + 1) & (PATHS - 1);
+        return path;
+    }
+
+    /**
+     * Spreads routes over resources the way a REST API does: a collection, an item,
+     * a nested collection and a nested item per resource.
+     */
+    private static String pattern(int index) {
+        String resource = "/api/v1/resource" + (index / 4);
+        switch (index % 4) {
+            case 0:
+                return resource;
+            case 1:
+                return resource + "/:id";
+            case 2:
+                return resource + "/:id/items";
+            default:
+                return resource + "/:id/items/:item";
+        }
+    }
+
+    private static boolean matches(String[] pattern, String[] segments) {
+        if (pattern.length != segments.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i].charAt(0) != ':' && !pattern[i].equals(segments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
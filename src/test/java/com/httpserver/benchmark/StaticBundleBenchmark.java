@@ -0,0 +1,157 @@
+package com.httpserver.benchmark;
+
+import com.httpserver.config.CompressionConfiguration;
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.staticfile.StaticBundle;
+import com.httpserver.staticfile.StaticBundleHandler;
+import com.httpserver.staticfile.StaticBundlePacker;
+import com.httpserver.staticfile.StaticFileHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering requests from a packed {@link StaticBundle} against the
+ * per-file {@link StaticFileHandler}, with its metadata and hot asset caches, for a
+ * web root of 2,000 small files requested at random. Each operation handles one
+ * request and writes the body to a channel that discards it.
+ * <p>
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="StaticBundleBenchmark -f 0"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticBundleBenchmark {
+
+    private static final int FILES = 2000;
+
+    @Param({"true", "false"})
+    public boolean hotCache;
+
+    private Path root;
+    private StaticFileHandler fileHandler;
+    private StaticBundleHandler bundleHandler;
+    private HttpRequest[] requests;
+    private int next;
+    private final WritableByteChannel discard = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("static-bundle-benchmark");
+        Path webroot = Files.createDirectory(root.resolve("www"));
+        Random random = new Random(42);
+        requests = new HttpRequest[FILES];
+        for (int i = 0; i < FILES; i++) {
+            Path directory = Files.createDirectories(webroot.resolve("assets/" + (i % 40)));
+            byte[] data = new byte[512 + random.nextInt(4096)];
+            random.nextBytes(data);
+            Files.write(directory.resolve("file-" + i + ".bin"), data);
+            requests[i] = request("/assets/" + (i % 40) + "/file-" + i + ".bin");
+        }
+        // Shuffle so neither handler benefits from sequential access.
+        for (int i = FILES - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            HttpRequest swap = requests[i];
+            requests[i] = requests[j];
+            requests[j] = swap;
+        }
+
+        Path bundle = root.resolve("site.bundle");
+        new StaticBundlePacker(webroot.toRealPath(), "index.html", new CompressionConfiguration()).pack(bundle);
+        bundleHandler = new StaticBundleHandler(StaticBundle.open(bundle));
+
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setCacheEnabled(hotCache);
+        fileHandler = new StaticFileHandler(webroot.toString(), configuration);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileHandler.close();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public long perFile() throws IOException {
+        return serve(fileHandler.handle(nextRequest()));
+    }
+
+    @Benchmark
+    public long bundle() throws IOException {
+        return serve(bundleHandler.handle(nextRequest()));
+    }
+
+    private HttpRequest nextRequest() {
+        HttpRequest request = requests[next];
+        next = next + 1 == FILES ? 0 : next + 1;
+        return request;
+    }
+
+    private long serve(HttpResponse response) throws IOException {
+        response.getResponseBody().writeTo(discard);
+        return response.getResponseBody().length();
+    }
+
+    private static HttpRequest request(String target) {
+        String raw = "GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.httpserver.benchmark;
+
+import com.httpserver.http.FileRegionBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sending a file over a loopback connection with zero-copy transfers
+ * ({@link FileRegionBody}, i.e. {@code FileChannel.transferTo}) against copying it
+ * through a heap buffer onto the socket stream, for a small and a large file.
+ * <p>
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="StaticFileBenchmark -f 0"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticFileBenchmark {
+
+    @Param({"4096", "16777216"})
+    public int fileSize;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private OutputStream clientStream;
+    private Thread drainThread;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("static-file-benchmark", ".bin");
+        byte[] data = new byte[fileSize];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel peer = server.accept();
+        clientStream = client.socket().getOutputStream();
+
+        // Discards everything sent, standing in for the client reading the response.
+        drainThread = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            try (peer) {
+                while (peer.read(buffer) >= 0) {
+                    buffer.clear();
+                }
+            } catch (IOException ignored) {
+                // Connection closed at tear down.
+            }
+        }, "static-file-benchmark-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        drainThread.join(1000);
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void zeroCopy() throws IOException {
+        new FileRegionBody(file, fileSize).writeTo(client);
+    }
+
+    @Benchmark
+    public void heapCopy() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            in.transferTo(clientStream);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.httpserver.benchmark;
+
+import com.httpserver.core.TimingWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures arming and cancelling a request timeout, as every request does, while
+ * tens of thousands of other timeouts are pending for open connections. The
+ * timing wheel's cost should not depend on the pending count, while the
+ * {@link ScheduledThreadPoolExecutor}'s heap grows with it and its lock is contended
+ * by the worker threads.
+ * <p>
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TimingWheelBenchmark -f 0"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class TimingWheelBenchmark {
+
+    private static final Runnable NOTHING = () -> {
+    };
+
+    @Param({"1000", "50000"})
+    public int pending;
+
+    private TimingWheel wheel;
+    private ScheduledThreadPoolExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        wheel = new TimingWheel("benchmark-timing-wheel");
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < pending; i++) {
+            // Idle connections, spread over the next ten minutes.
+            long delay = TimeUnit.SECONDS.toMillis(60) + i % 540_000;
+            wheel.schedule(NOTHING, delay, TimeUnit.MILLISECONDS);
+            executor.schedule(NOTHING, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wheel.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean timingWheel() {
+        TimingWheel.Timeout timeout = wheel.schedule(NOTHING, 30, TimeUnit.SECONDS);
+        return timeout.cancel();
+    }
+
+    @Benchmark
+    public boolean scheduledExecutor() {
+        ScheduledFuture<?> timeout = executor.schedule(NOTHING, 30, TimeUnit.SECONDS);
+        return timeout.cancel(false);
+    }
+}
@@ -0,0 +1,77 @@
+package com.httpserver.compression;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressorTest {
+
+    private Compressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        compressor = new Compressor(6, 2);
+    }
+
+    @Test
+    void testGzip_RoundTrip() throws IOException {
+        byte[] input = "{\"message\":\"hello\"}".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = compressor.gzip(input);
+
+        assertTrue(encoded.length < input.length, "Repetitive input should shrink");
+        assertArrayEquals(input, readAll(new GZIPInputStream(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    void testDeflate_RoundTrip() throws IOException {
+        byte[] input = "<p>deflate me</p>".repeat(300).getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = compressor.deflate(input);
+
+        assertArrayEquals(input, readAll(new InflaterInputStream(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    void testGzip_IncompressibleInputGrowsOutputBuffer() throws IOException {
+        byte[] input = new byte[64 * 1024];
+        new Random(42).nextBytes(input);
+
+        byte[] encoded = compressor.gzip(input);
+
+        assertArrayEquals(input, readAll(new GZIPInputStream(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    void testGzip_EmptyInput() throws IOException {
+        byte[] encoded = compressor.gzip(new byte[0]);
+        assertEquals(0, readAll(new GZIPInputStream(new ByteArrayInputStream(encoded))).length);
+    }
+
+    @Test
+    void testDeflatersAreReturnedToPool() {
+        compressor.gzip("abc".getBytes(StandardCharsets.UTF_8));
+        compressor.gzip("def".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, compressor.getRawPool().getIdleCount(), "Sequential use should reuse a single deflater");
+    }
+
+    @Test
+    void testCompress_IdentityRejected() {
+        assertThrows(IllegalArgumentException.class, () -> compressor.compress(ContentCoding.IDENTITY, new byte[1]));
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.httpserver.compression;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCodingTest {
+
+    @Test
+    void testNegotiate_NullOrEmptyHeader() {
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate(null));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate(""));
+    }
+
+    @Test
+    void testNegotiate_PrefersGzipOnTie() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("deflate, gzip, br"));
+    }
+
+    @Test
+    void testNegotiate_HonoursQualityValues() {
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate;q=0.8"));
+    }
+
+    @Test
+    void testNegotiate_ZeroQualityExcludesCoding() {
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("gzip;q=0, br"));
+    }
+
+    @Test
+    void testNegotiate_Wildcard() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0, *;q=0.1"));
+    }
+
+    @Test
+    void testNegotiate_UnsupportedCodingsOnly() {
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("br, zstd"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.httpserver.compression;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGzipEncoderTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private ForkJoinPool forkJoinPool;
+    private ParallelGzipEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        forkJoinPool = new ForkJoinPool(4);
+        encoder = new ParallelGzipEncoder(new DeflaterPool(6, true, 4), forkJoinPool, BLOCK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        forkJoinPool.shutdownNow();
+    }
+
+    @Test
+    void testMultiBlockOutputIsSingleValidGzipStream() throws IOException {
+        byte[] input = textPayload(BLOCK_SIZE * 5 + 123);
+
+        byte[] encoded = encoder.gzip(input);
+
+        assertArrayEquals(input, gunzip(encoded));
+    }
+
+    @Test
+    void testRatioCloseToSingleThreaded() {
+        byte[] input = textPayload(BLOCK_SIZE * 8);
+
+        byte[] parallel = encoder.gzip(input);
+        byte[] sequential = new Compressor(6, 1).gzip(input);
+
+        // Dictionary priming keeps back-references across blocks, so the overhead stays small.
+        assertTrue(parallel.length < sequential.length * 1.05,
+                "Parallel output " + parallel.length + " should be within 5% of " + sequential.length);
+    }
+
+    @Test
+    void testBlockBoundaryAndSmallInputs() throws IOException {
+        for (int length : new int[]{0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, BLOCK_SIZE * 2}) {
+            byte[] input = new byte[length];
+            new Random(length).nextBytes(input);
+            assertArrayEquals(input, gunzip(encoder.gzip(input)), "Round trip failed for length " + length);
+        }
+    }
+
+    @Test
+    void testCpuTimeIsAccumulated() {
+        LongAdder cpuTime = new LongAdder();
+        encoder.gzip(textPayload(BLOCK_SIZE * 4), cpuTime);
+        assertTrue(cpuTime.sum() > 0);
+    }
+
+    @Test
+    void testBlockSizeBelowWindowRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelGzipEncoder(new DeflaterPool(6, true, 1), forkJoinPool, 1024));
+    }
+
+    static byte[] textPayload(int length) {
+        StringBuilder builder = new StringBuilder(length + 64);
+        Random random = new Random(7);
+        while (builder.length() < length) {
+            builder.append("{\"id\":").append(random.nextInt(10_000))
+                    .append(",\"name\":\"user").append(random.nextInt(500)).append("\",\"active\":true},");
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gunzip(byte[] encoded) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
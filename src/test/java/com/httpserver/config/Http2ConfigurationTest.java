@@ -0,0 +1,75 @@
+package com.httpserver.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ConfigurationTest {
+
+    private Http2Configuration http2Config;
+
+    @BeforeEach
+    void setUp() {
+        http2Config = new Http2Configuration();
+    }
+
+    @Test
+    void testDefaults() {
+        assertAll("Testing HTTP/2 defaults",
+                () -> assertTrue(http2Config.isEnabled()),
+                () -> assertEquals(100, http2Config.getMaxConcurrentStreams()),
+                () -> assertEquals(65_535, http2Config.getInitialWindowSize()),
+                () -> assertEquals(16_384, http2Config.getMaxFrameSize()),
+                () -> assertEquals(4_096, http2Config.getHeaderTableSize()),
+                () -> assertEquals(16_384, http2Config.getMaxHeaderListSize()),
+                () -> assertEquals(1024 * 1024, http2Config.getMaxRequestBodySize()),
+                () -> assertEquals(60_000, http2Config.getIdleTimeoutMillis())
+        );
+    }
+
+    @Test
+    void testSetters() {
+        http2Config.setEnabled(false);
+        http2Config.setMaxConcurrentStreams(8);
+        http2Config.setInitialWindowSize(1_048_576);
+        http2Config.setMaxFrameSize(16_777_215);
+        http2Config.setHeaderTableSize(0);
+        http2Config.setMaxHeaderListSize(8_192);
+        http2Config.setMaxRequestBodySize(0);
+        http2Config.setIdleTimeoutMillis(5_000);
+
+        assertAll("Testing HTTP/2 setters",
+                () -> assertFalse(http2Config.isEnabled()),
+                () -> assertEquals(8, http2Config.getMaxConcurrentStreams()),
+                () -> assertEquals(1_048_576, http2Config.getInitialWindowSize()),
+                () -> assertEquals(16_777_215, http2Config.getMaxFrameSize()),
+                () -> assertEquals(0, http2Config.getHeaderTableSize()),
+                () -> assertEquals(8_192, http2Config.getMaxHeaderListSize()),
+                () -> assertEquals(0, http2Config.getMaxRequestBodySize()),
+                () -> assertEquals(5_000, http2Config.getIdleTimeoutMillis())
+        );
+    }
+
+    @Test
+    void testInvalidValuesThrow() {
+        assertAll("Testing HTTP/2 validation",
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setMaxConcurrentStreams(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setInitialWindowSize(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setMaxFrameSize(16_383)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setMaxFrameSize(16_777_216)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setHeaderTableSize(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setMaxHeaderListSize(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setMaxRequestBodySize(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> http2Config.setIdleTimeoutMillis(0))
+        );
+    }
+
+    @Test
+    void testToString() {
+        String expectedString = "Http2Configuration{enabled=true, maxConcurrentStreams=100, initialWindowSize=65535"
+                + ", maxFrameSize=16384, headerTableSize=4096, maxHeaderListSize=16384, maxRequestBodySize=1048576"
+                + ", idleTimeoutMillis=60000}";
+        assertEquals(expectedString, http2Config.toString(), "toString should match the expected format");
+    }
+}
@@ -83,10 +83,18 @@ class HttpServerConfigurationTest {
         assertEquals(65535, config.getHttpsPort(), "HTTPS port should be allowed to be set to 65535");
     }
 
+    @Test
+    void testSinglePort() {
+        assertFalse(config.isSinglePort(), "Single port should be off by default");
+
+        config.setSinglePort(true);
+        assertTrue(config.isSinglePort(), "Single port should be enabled");
+    }
+
     @Test
     void testToStringMethod() {
         config = new HttpServerConfiguration(8080, 8443, "/var/www");
-        String expected = "HttpServerConfiguration{httpPort=8080, httpsPort=8443, webroot='/var/www'}";
+        String expected = "HttpServerConfiguration{httpPort=8080, httpsPort=8443, webroot='/var/www', singlePort=false}";
         assertEquals(expected, config.toString(), "toString method output should match expected string");
     }
 }
@@ -0,0 +1,61 @@
+package com.httpserver.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimeoutConfigurationTest {
+
+    private RequestTimeoutConfiguration timeoutConfig;
+
+    @BeforeEach
+    void setUp() {
+        timeoutConfig = new RequestTimeoutConfiguration();
+    }
+
+    @Test
+    void testDefaults() {
+        assertAll("Testing request timeout defaults",
+                () -> assertTrue(timeoutConfig.isEnabled()),
+                () -> assertEquals(30_000, timeoutConfig.getTimeoutMillis()),
+                () -> assertEquals("X-Request-Timeout", timeoutConfig.getClientTimeoutHeader()),
+                () -> assertEquals(10_000, timeoutConfig.getHeaderTimeoutMillis())
+        );
+    }
+
+    @Test
+    void testSetters() {
+        timeoutConfig.setEnabled(false);
+        timeoutConfig.setTimeoutMillis(250);
+        timeoutConfig.setClientTimeoutHeader("Request-Timeout");
+        timeoutConfig.setHeaderTimeoutMillis(2_000);
+
+        assertAll("Testing request timeout setters",
+                () -> assertFalse(timeoutConfig.isEnabled()),
+                () -> assertEquals(250, timeoutConfig.getTimeoutMillis()),
+                () -> assertEquals("Request-Timeout", timeoutConfig.getClientTimeoutHeader()),
+                () -> assertEquals(2_000, timeoutConfig.getHeaderTimeoutMillis())
+        );
+    }
+
+    @Test
+    void testBlankClientHeaderDisablesClientDeadlines() {
+        timeoutConfig.setClientTimeoutHeader(" ");
+        assertNull(timeoutConfig.getClientTimeoutHeader());
+    }
+
+    @Test
+    void testInvalidValuesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> timeoutConfig.setTimeoutMillis(0));
+        assertThrows(IllegalArgumentException.class, () -> timeoutConfig.setTimeoutMillis(-1));
+        assertThrows(IllegalArgumentException.class, () -> timeoutConfig.setHeaderTimeoutMillis(0));
+    }
+
+    @Test
+    void testToString() {
+        String expectedString = "RequestTimeoutConfiguration{enabled=true, timeoutMillis=30000, clientTimeoutHeader='X-Request-Timeout'"
+                + ", headerTimeoutMillis=10000}";
+        assertEquals(expectedString, timeoutConfig.toString(), "toString should match the expected format");
+    }
+}
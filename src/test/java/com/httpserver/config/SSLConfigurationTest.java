@@ -3,6 +3,8 @@ package com.httpserver.config;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SSLConfigurationTest {
@@ -58,7 +60,12 @@ class SSLConfigurationTest {
         sslConfig.setKeystorePassword("keystorePass");
         sslConfig.setKeyPassword("keyPass");
 
-        String expectedString = "SSLConfiguration{keystorePath='path/to/keystore', keystorePassword=[PROTECTED], keyPassword=[PROTECTED]}";
+        String expectedString = "SSLConfiguration{keystorePath='path/to/keystore', keystorePassword=[PROTECTED], keyPassword=[PROTECTED]"
+                + ", protocols=" + SSLConfiguration.DEFAULT_PROTOCOLS
+                + ", cipherSuites=" + SSLConfiguration.DEFAULT_CIPHER_SUITES
+                + ", sessionCacheSize=20480, sessionTimeoutSeconds=86400, sessionTicketsEnabled=true"
+                + ", keystoreWatchEnabled=true, keystoreCheckIntervalSeconds=60"
+                + ", handshakeTimeoutMillis=10000, maxConcurrentHandshakes=256, handshakeQueueSize=4096}";
         assertEquals(expectedString, sslConfig.toString(), "toString should match the expected format");
     }
 
@@ -97,4 +104,71 @@ class SSLConfigurationTest {
         sslConfig.setKeyPassword("");
         assertEquals("", sslConfig.getKeyPassword(), "Key password should be empty");
     }
+
+    @Test
+    void testTlsTuningDefaults() {
+        assertAll("Testing TLS tuning defaults",
+                () -> assertEquals(List.of("TLSv1.3", "TLSv1.2"), sslConfig.getProtocols()),
+                () -> assertEquals("TLS_AES_128_GCM_SHA256", sslConfig.getCipherSuites().get(0)),
+                () -> assertEquals(20_480, sslConfig.getSessionCacheSize()),
+                () -> assertEquals(86_400, sslConfig.getSessionTimeoutSeconds()),
+                () -> assertTrue(sslConfig.isSessionTicketsEnabled())
+        );
+    }
+
+    @Test
+    void testSetTlsTuning() {
+        sslConfig.setProtocols(List.of("TLSv1.3"));
+        sslConfig.setCipherSuites(List.of("TLS_CHACHA20_POLY1305_SHA256"));
+        sslConfig.setSessionCacheSize(0);
+        sslConfig.setSessionTimeoutSeconds(3600);
+        sslConfig.setSessionTicketsEnabled(false);
+
+        assertAll("Testing TLS tuning setters",
+                () -> assertEquals(List.of("TLSv1.3"), sslConfig.getProtocols()),
+                () -> assertEquals(List.of("TLS_CHACHA20_POLY1305_SHA256"), sslConfig.getCipherSuites()),
+                () -> assertEquals(0, sslConfig.getSessionCacheSize()),
+                () -> assertEquals(3600, sslConfig.getSessionTimeoutSeconds()),
+                () -> assertFalse(sslConfig.isSessionTicketsEnabled())
+        );
+    }
+
+    @Test
+    void testInvalidTlsTuningThrows() {
+        assertAll("Testing TLS tuning validation",
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setProtocols(List.of())),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setCipherSuites(null)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setSessionCacheSize(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setSessionTimeoutSeconds(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setKeystoreCheckIntervalSeconds(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setHandshakeTimeoutMillis(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setMaxConcurrentHandshakes(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> sslConfig.setHandshakeQueueSize(-1))
+        );
+    }
+
+    @Test
+    void testKeystoreWatchSettings() {
+        assertTrue(sslConfig.isKeystoreWatchEnabled());
+        assertEquals(60, sslConfig.getKeystoreCheckIntervalSeconds());
+
+        sslConfig.setKeystoreWatchEnabled(false);
+        sslConfig.setKeystoreCheckIntervalSeconds(0);
+
+        assertFalse(sslConfig.isKeystoreWatchEnabled());
+        assertEquals(0, sslConfig.getKeystoreCheckIntervalSeconds());
+    }
+
+    @Test
+    void testHandshakeLimits() {
+        sslConfig.setHandshakeTimeoutMillis(2_000);
+        sslConfig.setMaxConcurrentHandshakes(8);
+        sslConfig.setHandshakeQueueSize(0);
+
+        assertAll("Testing handshake limits",
+                () -> assertEquals(2_000, sslConfig.getHandshakeTimeoutMillis()),
+                () -> assertEquals(8, sslConfig.getMaxConcurrentHandshakes()),
+                () -> assertEquals(0, sslConfig.getHandshakeQueueSize())
+        );
+    }
 }
@@ -0,0 +1,140 @@
+package com.httpserver.core;
+
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.Middleware;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiddlewareChainTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void testRunsBeforeHooksInOrderAndAfterHooksInReverse() throws Exception {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", false), recording("b", false)));
+
+        HttpResponse response = chain.handle(request(), this::handler);
+
+        assertEquals(List.of("before a", "before b", "handler", "after b", "after a"), calls);
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+    }
+
+    @Test
+    void testShortCircuitSkipsHandlerAndLaterMiddleware() throws Exception {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", false), recording("auth", true), recording("c", false)));
+
+        HttpResponse response = chain.handle(request(), this::handler);
+
+        assertEquals(List.of("before a", "before auth", "after a"), calls);
+        assertEquals(HttpStatusCode.CLIENT_ERROR_401_UNAUTHORIZED, response.getStatusCode());
+    }
+
+    @Test
+    void testAfterRunsEveryAfterHook() {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", true), recording("b", false)));
+
+        chain.after(null, new HttpResponse());
+
+        assertEquals(List.of("after b", "after a"), calls);
+    }
+
+    @Test
+    void testFailedBeforeHookIsAnsweredWith500() throws Exception {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", false), failing("broken", true), recording("c", false)));
+
+        HttpResponse response = chain.handle(request(), this::handler);
+
+        assertEquals(List.of("before a", "before broken", "after a"), calls);
+        assertEquals(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    void testFailedAfterHookReplacesResponseWith500() throws Exception {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", false), failing("broken", false)));
+
+        HttpResponse response = chain.handle(request(), this::handler);
+
+        assertEquals(List.of("before a", "before broken", "handler", "after broken", "after a"), calls);
+        assertEquals(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    void testFailedBeforeHookIsAnsweredWith500Asynchronously() throws Exception {
+        MiddlewareChain chain = new MiddlewareChain(List.of(recording("a", false), failing("broken", true)));
+
+        HttpResponse response = chain.handleAsync(request(), request -> CompletableFuture.completedFuture(handler(request)))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("before a", "before broken", "after a"), calls);
+        assertEquals(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    void testEmptyChainOnlyInvokesHandler() throws Exception {
+        MiddlewareChain.EMPTY.handle(request(), this::handler);
+
+        assertEquals(List.of("handler"), calls);
+        assertTrue(MiddlewareChain.EMPTY.getMiddlewares().isEmpty());
+    }
+
+    private HttpResponse handler(HttpRequest request) {
+        calls.add("handler");
+        HttpResponse response = new HttpResponse();
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        return response;
+    }
+
+    private Middleware recording(String name, boolean answers) {
+        return new Middleware() {
+            @Override
+            public HttpResponse before(HttpRequest request) {
+                calls.add("before " + name);
+                if (!answers) {
+                    return null;
+                }
+                HttpResponse response = new HttpResponse();
+                response.setStatusCode(HttpStatusCode.CLIENT_ERROR_401_UNAUTHORIZED);
+                return response;
+            }
+
+            @Override
+            public void apply(HttpResponse response) {
+                calls.add("after " + name);
+            }
+        };
+    }
+
+    private Middleware failing(String name, boolean before) {
+        return new Middleware() {
+            @Override
+            public HttpResponse before(HttpRequest request) {
+                calls.add("before " + name);
+                if (before) {
+                    throw new IllegalStateException(name);
+                }
+                return null;
+            }
+
+            @Override
+            public void apply(HttpResponse response) {
+                calls.add("after " + name);
+                throw new IllegalStateException(name);
+            }
+        };
+    }
+
+    private static HttpRequest request() throws Exception {
+        return new HttpParser().buildHttpRequest("GET", "/", HttpVersion.HTTP_1_1, Map.of(), "");
+    }
+}
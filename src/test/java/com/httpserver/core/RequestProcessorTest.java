@@ -0,0 +1,410 @@
+package com.httpserver.core;
+
+import com.httpserver.config.RequestTimeoutConfiguration;
+import com.httpserver.exception.HttpParsingException;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.middleware.Middleware;
+import com.httpserver.routing.Router;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestProcessorTest {
+
+    private static final String REQUEST = "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @Test
+    void testAsyncResponseIsWrittenWhenFutureCompletes() throws Exception {
+        CompletableFuture<HttpResponse> backend = new CompletableFuture<>();
+        RequestProcessor processor = new RequestProcessor(request -> backend, List.of(header("X-After")), RequestProcessor.DEFAULT_ASYNC_TIMEOUT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CompletableFuture<Void> served = process(processor, REQUEST, out);
+
+        assertTrue(processor.isAsync());
+        assertFalse(served.isDone());
+        assertEquals(0, out.size());
+
+        backend.complete(ok("done"));
+
+        served.get(5, TimeUnit.SECONDS);
+        String response = out.toString(StandardCharsets.US_ASCII);
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+        assertTrue(response.contains("X-After: true\r\n"), response);
+        assertTrue(response.endsWith("done"), response);
+    }
+
+    @Test
+    void testTimeoutAnswersGatewayTimeoutAndCancelsHandler() throws Exception {
+        CompletableFuture<HttpResponse> backend = new CompletableFuture<>();
+        RequestProcessor processor = new RequestProcessor(request -> backend, List.of(), Duration.ofMillis(300));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        process(processor, REQUEST, out).get(5, TimeUnit.SECONDS);
+
+        String response = out.toString(StandardCharsets.US_ASCII);
+        assertTrue(response.startsWith("HTTP/1.1 504 Gateway Timeout\r\n"), response);
+        assertTrue(backend.isCancelled());
+    }
+
+    @Test
+    void testFailuresAreAnsweredWithErrorResponses() throws Exception {
+        assertEquals(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR,
+                respond(CompletableFuture.failedFuture(new IllegalStateException("backend down"))));
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND,
+                respond(CompletableFuture.failedFuture(new HttpParsingException(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND))));
+
+        CompletableFuture<HttpResponse> cancelled = new CompletableFuture<>();
+        cancelled.cancel(true);
+        assertEquals(HttpStatusCode.SERVER_ERROR_503_SERVICE_UNAVAILABLE, respond(cancelled));
+
+        RequestProcessor throwing = new RequestProcessor(request -> {
+            throw new IllegalStateException("no future");
+        }, List.of(), RequestProcessor.DEFAULT_ASYNC_TIMEOUT);
+        assertEquals(HttpStatusCode.SERVER_ERROR_500_INTERNAL_SERVER_ERROR,
+                throwing.respondAsync(parse(REQUEST)).get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    @Test
+    void testMiddlewareCanAnswerBeforeAsyncHandler() throws Exception {
+        Middleware deny = new Middleware() {
+            @Override
+            public HttpResponse before(HttpRequest request) {
+                HttpResponse response = new HttpResponse();
+                response.setStatusCode(HttpStatusCode.CLIENT_ERROR_403_FORBIDDEN);
+                return response;
+            }
+
+            @Override
+            public void apply(HttpResponse response) {
+            }
+        };
+        RequestProcessor processor = new RequestProcessor(request -> {
+            throw new AssertionError("handler must not run");
+        }, List.of(deny), RequestProcessor.DEFAULT_ASYNC_TIMEOUT);
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_403_FORBIDDEN, processor.respondAsync(parse(REQUEST)).get().getStatusCode());
+    }
+
+    @Test
+    void testSynchronousHandlerCompletesBeforeReturning() throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> ok("sync"), List.of());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertTrue(process(processor, REQUEST, out).isDone());
+        assertFalse(processor.isAsync());
+        assertTrue(out.toString(StandardCharsets.US_ASCII).endsWith("sync"));
+    }
+
+    @Test
+    void testRejectsNonPositiveTimeout() {
+        AsyncHandler handler = request -> CompletableFuture.completedFuture(ok(""));
+
+        assertThrows(IllegalArgumentException.class, () -> new RequestProcessor(handler, List.of(), Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new RequestProcessor(handler, List.of(), null));
+    }
+
+    @Test
+    void testSynchronousHandlerPastDeadlineIsInterruptedAndAnswered() throws Exception {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        RequestProcessor processor = new RequestProcessor(request -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return ok("late");
+        }, List.of(header("X-After")), timeouts(300));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long start = System.nanoTime();
+        process(processor, REQUEST, out).get(5, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(interrupted.get());
+        assertFalse(Thread.currentThread().isInterrupted(), "The interrupt must not leak past the request");
+        String response = out.toString(StandardCharsets.US_ASCII);
+        assertTrue(response.startsWith("HTTP/1.1 504 Gateway Timeout\r\n"), response);
+        assertTrue(response.contains("X-After: true\r\n"), response);
+        assertFalse(response.contains("late"), response);
+    }
+
+    @Test
+    void testHandlerBlockedReadingBodyStillGetsTimeoutResponseOut() throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> {
+            request.getBody();
+            return ok("late");
+        }, List.of(), timeouts(300));
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+                 SocketChannel accepted = serverChannel.accept()) {
+                OutputStream out = client.getOutputStream();
+                out.write("POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\npartial".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                // The socket is backed by a channel, as the listener's are, so an interrupted read closes it.
+                Socket socket = accepted.socket();
+                assertTimeoutPreemptively(Duration.ofSeconds(5),
+                        () -> processor.processAsync(socket.getInputStream(), socket.getOutputStream(), null, null));
+
+                client.setSoTimeout(5_000);
+                String response = new String(client.getInputStream().readNBytes(30), StandardCharsets.US_ASCII);
+                assertTrue(response.startsWith("HTTP/1.1 504 Gateway Timeout\r\n"), response);
+            }
+        }
+    }
+
+    @Test
+    void testTimeoutResponseIsWrittenOffTheCommonPool() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RequestProcessor processor = new RequestProcessor(request -> {
+            // Ignores the interrupt, as a handler stuck in socket I/O would.
+            while (true) {
+                try {
+                    release.await();
+                    return ok("late");
+                } catch (InterruptedException e) {
+                    // Keep waiting.
+                }
+            }
+        }, List.of(), timeouts(200));
+        AtomicReference<String> writer = new AtomicReference<>();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writer.compareAndSet(null, Thread.currentThread().getName());
+            }
+        };
+
+        Thread worker = new Thread(() -> {
+            try {
+                processor.processAsync(new ByteArrayInputStream(REQUEST.getBytes(StandardCharsets.US_ASCII)), out, null, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        worker.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (writer.get() == null && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNotNull(writer.get(), "The timeout response should be written while the handler still runs");
+            assertTrue(writer.get().startsWith("request-timeout-"), writer.get());
+        } finally {
+            release.countDown();
+            worker.join(5_000);
+        }
+    }
+
+    @Test
+    void testExpiredClientDeadlineIsShedBeforeHandler() throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> {
+            throw new AssertionError("handler must not run");
+        }, List.of(), timeouts(10_000));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        process(processor, "GET /slow HTTP/1.1\r\nHost: localhost\r\nX-Request-Timeout: 0\r\n\r\n", out).get(5, TimeUnit.SECONDS);
+
+        assertTrue(out.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 503 Service Unavailable\r\n"));
+    }
+
+    @Test
+    void testHandlerSeesClientDeadlineAndInvalidValuesAreIgnored() {
+        RequestProcessor processor = new RequestProcessor(request -> ok(String.valueOf(request.getRemainingNanos())),
+                List.of(), timeouts(10_000));
+
+        long remaining = Long.parseLong(processor.respond(parse("GET /slow HTTP/1.1\r\nHost: localhost\r\nX-Request-Timeout: 2000\r\n\r\n")).getBody());
+        assertTrue(remaining > 0 && remaining <= TimeUnit.SECONDS.toNanos(2), String.valueOf(remaining));
+
+        remaining = Long.parseLong(processor.respond(parse("GET /slow HTTP/1.1\r\nHost: localhost\r\nX-Request-Timeout: soon\r\n\r\n")).getBody());
+        assertTrue(remaining > TimeUnit.SECONDS.toNanos(5), String.valueOf(remaining));
+    }
+
+    @Test
+    void testRouteTimeoutReplacesServerTimeout() {
+        Router router = new Router()
+                .get("/report", request -> sleepThenOk(600))
+                .get("/health", request -> sleepThenOk(10_000))
+                .timeout(route -> route.getPattern().equals("/report"), Duration.ofSeconds(10))
+                .timeout(route -> route.getPattern().equals("/health"), Duration.ofMillis(50));
+        RequestProcessor processor = new RequestProcessor(router, List.of(), timeouts(300));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK,
+                processor.respond(parse("GET /report HTTP/1.1\r\nHost: localhost\r\n\r\n")).getStatusCode());
+
+        long start = System.nanoTime();
+        assertEquals(HttpStatusCode.SERVER_ERROR_504_GATEWAY_TIMEOUT,
+                processor.respond(parse("GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n")).getStatusCode());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void testDisabledTimeoutsLeaveRequestsWithoutDeadline() {
+        RequestTimeoutConfiguration disabled = timeouts(1);
+        disabled.setEnabled(false);
+        RequestProcessor processor = new RequestProcessor(request -> ok(String.valueOf(request.hasDeadline())), List.of(), disabled);
+
+        assertEquals("false", processor.respond(parse("GET /slow HTTP/1.1\r\nHost: localhost\r\nX-Request-Timeout: 0\r\n\r\n")).getBody());
+    }
+
+    @Test
+    void testClientTooSlowToSendRequestHeadIsDisconnected() throws Exception {
+        RequestTimeoutConfiguration timeoutConfig = timeouts(10_000);
+        timeoutConfig.setHeaderTimeoutMillis(100);
+        RequestProcessor processor = new RequestProcessor(request -> {
+            throw new AssertionError("handler must not run");
+        }, List.of(), timeoutConfig);
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+             Socket accepted = serverSocket.accept()) {
+            OutputStream out = client.getOutputStream();
+            out.write("GET /slow HTTP/1.1\r\nHost: loc".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            CompletableFuture<Void> served = processor.processAsync(accepted.getInputStream(), accepted.getOutputStream(), null, null);
+
+            assertTrue(served.isDone());
+            assertTrue(accepted.isClosed());
+            client.setSoTimeout(5_000);
+            assertEquals(-1, client.getInputStream().read(), "No response is sent to a client that never finished its request");
+        }
+    }
+
+    @Test
+    void testClientThatStallsItsBodyIsDisconnected() throws Exception {
+        RequestTimeoutConfiguration timeoutConfig = timeouts(10_000);
+        timeoutConfig.setHeaderTimeoutMillis(100);
+        AtomicReference<HttpStatusCode> failure = new AtomicReference<>();
+        RequestProcessor processor = new RequestProcessor(request -> {
+            try {
+                request.getBody();
+            } catch (HttpParsingException e) {
+                failure.set(e.getStatusCode());
+                throw e;
+            }
+            throw new AssertionError("the body never arrives");
+        }, List.of(), timeoutConfig);
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+             Socket accepted = serverSocket.accept()) {
+            OutputStream out = client.getOutputStream();
+            out.write("POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\npartial".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            CompletableFuture<Void> served = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> processor.processAsync(accepted.getInputStream(), accepted.getOutputStream(), null, null));
+
+            assertTrue(served.isDone());
+            assertEquals(HttpStatusCode.CLIENT_ERROR_408_REQUEST_TIMEOUT, failure.get());
+            assertTrue(accepted.isClosed());
+        }
+    }
+
+    @Test
+    void testUnreadBodyIsDiscardedSoTheResponseArrives() throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> ok("ignored"), List.of());
+        byte[] body = new byte[32 * 1024];
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+            OutputStream out = client.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+
+            try (Socket accepted = serverSocket.accept()) {
+                processor.process(accepted.getInputStream(), accepted.getOutputStream(), null);
+                assertEquals(0, accepted.getInputStream().available(), "The body should be read before the socket is closed");
+            }
+            // Give a reset, had the unread body caused one, time to arrive before the response is read.
+            Thread.sleep(200);
+
+            client.setSoTimeout(5_000);
+            String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+            assertTrue(response.endsWith("ignored"), response);
+        }
+    }
+
+    @Test
+    void testLargeUnreadBodyClosesConnection() throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> ok("ignored"), List.of());
+        String request = "POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                + (RequestProcessor.MAX_DISCARDED_BODY_SIZE + 1) + "\r\n\r\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        process(processor, request, out).get(5, TimeUnit.SECONDS);
+
+        assertTrue(out.toString(StandardCharsets.US_ASCII).contains("Connection: close\r\n"));
+    }
+
+    private static RequestTimeoutConfiguration timeouts(long millis) {
+        RequestTimeoutConfiguration timeoutConfig = new RequestTimeoutConfiguration();
+        timeoutConfig.setTimeoutMillis(millis);
+        return timeoutConfig;
+    }
+
+    private static HttpResponse sleepThenOk(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return ok("done");
+    }
+
+    private static HttpStatusCode respond(CompletableFuture<HttpResponse> future) throws Exception {
+        RequestProcessor processor = new RequestProcessor(request -> future, List.of(), RequestProcessor.DEFAULT_ASYNC_TIMEOUT);
+        return processor.respondAsync(parse(REQUEST)).get(5, TimeUnit.SECONDS).getStatusCode();
+    }
+
+    private static CompletableFuture<Void> process(RequestProcessor processor, String request, ByteArrayOutputStream out) throws IOException {
+        return processor.processAsync(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)), out, null, null);
+    }
+
+    private static HttpRequest parse(String request) {
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static HttpResponse ok(String body) {
+        HttpResponse response = new HttpResponse();
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        response.setBody(body);
+        response.addHeader("Content-Length", String.valueOf(body.length()));
+        return response;
+    }
+
+    private static Middleware header(String name) {
+        return response -> response.addHeader(name, "true");
+    }
+}
@@ -0,0 +1,168 @@
+package com.httpserver.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private final List<TimingWheel> wheels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        wheels.forEach(TimingWheel::stop);
+    }
+
+    @Test
+    void testFiresAfterDelayAndNeverBefore() throws Exception {
+        TimingWheel wheel = wheel(Duration.ofMillis(5), 8);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] firedAt = new long[1];
+
+        TimingWheel.Timeout timeout = wheel.schedule(() -> {
+            firedAt[0] = System.nanoTime();
+            fired.countDown();
+        }, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt[0] - start >= TimeUnit.MILLISECONDS.toNanos(60), String.valueOf(firedAt[0] - start));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void testCancelledTimeoutNeverFires() throws Exception {
+        TimingWheel wheel = wheel(Duration.ofMillis(1), 8);
+        AtomicInteger runs = new AtomicInteger();
+
+        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        assertEquals(1, wheel.pendingTimeouts());
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void testTimeoutsCascadeThroughEveryLevelInOrder() throws Exception {
+        // Four slots per wheel: the levels reach 4, 16, 64 and 256 ticks.
+        TimingWheel wheel = wheel(Duration.ofMillis(1), 4);
+        ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+        int[] delays = {150, 3, 40, 90, 10, 1, 200};
+        CountDownLatch fired = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        long[] firedAfter = new long[delays.length];
+
+        for (int i = 0; i < delays.length; i++) {
+            int index = i;
+            wheel.schedule(() -> {
+                firedAfter[index] = System.nanoTime() - start;
+                order.add(delays[index]);
+                fired.countDown();
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 3, 10, 40, 90, 150, 200), new ArrayList<>(order));
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(firedAfter[i] >= TimeUnit.MILLISECONDS.toNanos(delays[i]), "Fired early: " + delays[i]);
+        }
+    }
+
+    @Test
+    void testDelaysBeyondTheTopWheelAreNotFiredEarly() throws Exception {
+        // Two slots per wheel: the top wheel reaches only 16 ticks.
+        TimingWheel wheel = wheel(Duration.ofMillis(1), 2);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] firedAfter = new long[1];
+
+        wheel.schedule(() -> {
+            firedAfter[0] = System.nanoTime() - start;
+            fired.countDown();
+        }, 80, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAfter[0] >= TimeUnit.MILLISECONDS.toNanos(80), String.valueOf(firedAfter[0]));
+    }
+
+    @Test
+    void testSchedulesAndCancelsFromManyThreads() throws Exception {
+        TimingWheel wheel = wheel(Duration.ofMillis(1), 64);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        int threads = 8;
+        int perThread = 5_000;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    if (i % 2 == 0) {
+                        // Cancel every other one well before it is due, the way most request timers end.
+                        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 1, TimeUnit.MINUTES);
+                        if (!timeout.cancel()) {
+                            failures.incrementAndGet();
+                        }
+                    } else {
+                        wheel.schedule(runs::incrementAndGet, 10 + i % 50, TimeUnit.MILLISECONDS);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (runs.get() < threads * perThread / 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(threads * perThread / 2, runs.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopTheTicker() throws Exception {
+        TimingWheel wheel = wheel(Duration.ofMillis(1), 8);
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule(() -> {
+            throw new IllegalStateException("task failed");
+        }, 1, TimeUnit.MILLISECONDS);
+        wheel.schedule(fired::countDown, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRejectsInvalidSettingsAndUseAfterStop() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel("test", Duration.ZERO, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel("test", Duration.ofMillis(1), 6));
+
+        TimingWheel wheel = new TimingWheel("test");
+        wheel.stop();
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> {
+        }, 1, TimeUnit.SECONDS));
+    }
+
+    private TimingWheel wheel(Duration tick, int wheelSize) {
+        TimingWheel wheel = new TimingWheel("test-timing-wheel", tick, wheelSize);
+        wheels.add(wheel);
+        return wheel;
+    }
+}
@@ -1,16 +1,23 @@
 package com.httpserver.core.http;
 
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
@@ -28,6 +35,8 @@ public class HttpConnectionWorkerThreadTest {
         outputStream = byteArrayOutputStream;
 
         when(socket.getOutputStream()).thenReturn(outputStream);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(
+                "GET /docs?page=2 HTTP/1.1\r\nHost: 127.0.0.1:8080\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
         when(socket.getInetAddress()).thenReturn(InetAddress.getByName("127.0.0.1"));
 
         workerThread = new HttpConnectionWorkerThread(socket);
@@ -41,7 +50,7 @@ public class HttpConnectionWorkerThreadTest {
             String response = byteArrayOutputStream.toString(StandardCharsets.UTF_8);
 
             assertTrue(response.startsWith("HTTP/1.1 301 Moved Permanently"));
-            assertTrue(response.contains("Location: https://127.0.0.1:8043/"));
+            assertTrue(response.contains("Location: https://127.0.0.1:8043/docs?page=2\r\n"));
             assertTrue(response.contains("Connection: close"));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -61,4 +70,24 @@ public class HttpConnectionWorkerThreadTest {
         }
         verify(socket, times(1)).close();
     }
+
+    @Test
+    public void asyncHandlerReleasesWorkerThread() throws Exception {
+        CompletableFuture<HttpResponse> backend = new CompletableFuture<>();
+        RequestProcessor processor = new RequestProcessor(request -> backend, List.of(), RequestProcessor.DEFAULT_ASYNC_TIMEOUT);
+
+        HttpConnectionWorkerThread asyncWorker = new HttpConnectionWorkerThread(socket, processor);
+        asyncWorker.run();
+
+        assertEquals(0, byteArrayOutputStream.size());
+        verify(socket, never()).close();
+
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        httpResponse.addHeader("Content-Length", "0");
+        backend.complete(httpResponse);
+
+        assertTrue(byteArrayOutputStream.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 200 OK\r\n"));
+        verify(socket, times(1)).close();
+    }
 }
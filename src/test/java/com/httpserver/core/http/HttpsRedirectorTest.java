@@ -0,0 +1,187 @@
+package com.httpserver.core.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HttpsRedirectorTest {
+
+    @Test
+    public void testRedirectsToConfiguredPortKeepingHostAndPath() throws IOException {
+        String response = serve(new HttpsRedirector(9443),
+                "GET /a/b.html?x=1 HTTP/1.1\r\nHost: example.com:8080\r\nConnection: close\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 301 Moved Permanently\r\nLocation: https://example.com:9443/a/b.html?x=1\r\n"), response);
+        assertTrue(response.contains("Strict-Transport-Security: max-age=31536000; includeSubDomains\r\n"), response);
+        assertTrue(response.contains("Content-Length: 0\r\n"), response);
+        assertTrue(response.endsWith("Connection: close\r\n\r\n"), response);
+    }
+
+    @Test
+    public void testOmitsDefaultHttpsPort() throws IOException {
+        String response = serve(new HttpsRedirector(443), "GET / HTTP/1.1\r\nHost: [::1]:80\r\nConnection: close\r\n\r\n");
+
+        assertTrue(response.contains("Location: https://[::1]/\r\n"), response);
+    }
+
+    @Test
+    public void testKeepsConnectionAliveAcrossRequests() throws IOException {
+        HttpsRedirector redirector = new HttpsRedirector(8043);
+
+        String response = serve(redirector, "GET /one HTTP/1.1\r\nHost: a.test\r\n\r\n"
+                + "HEAD /two HTTP/1.1\r\nhost: b.test\r\n\r\n"
+                + "GET /three HTTP/1.0\r\nHost: c.test\r\n\r\n"
+                + "GET /ignored HTTP/1.1\r\nHost: d.test\r\n\r\n");
+
+        assertEquals(3, redirector.getRedirects());
+        assertEquals(2, count(response, "Connection: keep-alive\r\n"));
+        assertEquals(1, count(response, "Connection: close\r\n"));
+        assertTrue(response.contains("Location: https://a.test:8043/one\r\n"), response);
+        assertTrue(response.contains("Location: https://b.test:8043/two\r\n"), response);
+        assertTrue(response.contains("Location: https://c.test:8043/three\r\n"), response);
+        assertFalse(response.contains("d.test"), response);
+    }
+
+    @Test
+    public void testClosesConnectionAfterRequestWithBody() throws IOException {
+        HttpsRedirector redirector = new HttpsRedirector(8043);
+
+        String response = serve(redirector, "POST /form HTTP/1.1\r\nHost: a.test\r\nContent-Length: 3\r\n\r\nabc"
+                + "GET / HTTP/1.1\r\nHost: a.test\r\n\r\n");
+
+        assertEquals(1, redirector.getRedirects());
+        assertTrue(response.endsWith("Connection: close\r\n\r\n"), response);
+    }
+
+    @Test
+    public void testUsesLocalAddressWithoutHost() throws IOException {
+        Socket socket = socket("GET /old HTTP/1.0\r\n\r\n", new ByteArrayOutputStream());
+        when(socket.getLocalAddress()).thenReturn(InetAddress.getByName("192.0.2.7"));
+        ByteArrayOutputStream out = (ByteArrayOutputStream) socket.getOutputStream();
+
+        new HttpsRedirector(8043).serve(socket);
+
+        assertTrue(out.toString(StandardCharsets.US_ASCII).contains("Location: https://192.0.2.7:8043/old\r\n"));
+    }
+
+    @Test
+    public void testAbsoluteFormTargetRedirectsToRoot() throws IOException {
+        String response = serve(new HttpsRedirector(8043),
+                "GET //evil.test/x HTTP/1.1\r\nHost: a.test\r\nConnection: close\r\n\r\n");
+
+        assertTrue(response.contains("Location: https://a.test:8043/\r\n"), response);
+    }
+
+    @Test
+    public void testRejectsInvalidRequests() throws IOException {
+        assertTrue(serve(new HttpsRedirector(8043), "GET / HTTP/1.1\r\nHost: evil.test/x\r\n\r\n")
+                .startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertTrue(serve(new HttpsRedirector(8043), "GET / HTTP/1.1\r\nHost: a.test\r\nHost: b.test\r\n\r\n")
+                .startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertTrue(serve(new HttpsRedirector(8043), "GARBAGE\r\n\r\n")
+                .startsWith("HTTP/1.1 400 Bad Request\r\n"));
+        assertTrue(serve(new HttpsRedirector(8043), "GET /" + "a".repeat(HttpsRedirector.MAX_LINE_LENGTH) + " HTTP/1.1\r\n\r\n")
+                .startsWith("HTTP/1.1 400 Bad Request\r\n"));
+    }
+
+    @Test
+    public void testIdleConnectionIsClosedQuietly() throws IOException {
+        InputStream idle = mock(InputStream.class);
+        when(idle.read(any(byte[].class), anyInt(), anyInt())).thenThrow(new SocketTimeoutException("Read timed out"));
+        Socket socket = mock(Socket.class);
+        when(socket.getInputStream()).thenReturn(idle);
+        when(socket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+        new HttpsRedirector(8043).serve(socket);
+
+        verify(socket, times(1)).close();
+    }
+
+    @Test
+    public void testClosesConnectionThatSendsNoRequestInTime() throws Exception {
+        HttpsRedirector redirector = new HttpsRedirector(8043, 100);
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+            Socket accepted = serverSocket.accept();
+            Thread server = new Thread(() -> redirector.serve(accepted));
+            server.start();
+
+            // Trickling bytes does not keep the connection open past the timeout.
+            OutputStream out = client.getOutputStream();
+            out.write("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            client.setSoTimeout(5_000);
+            assertEquals(-1, client.getInputStream().read());
+            server.join(5_000);
+            assertFalse(server.isAlive());
+            assertTrue(accepted.isClosed());
+        }
+    }
+
+    @Test
+    public void testServesOverRealSocket() throws Exception {
+        HttpsRedirector redirector = new HttpsRedirector(8043);
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try {
+                    redirector.serve(serverSocket.accept());
+                } catch (IOException e) {
+                    fail(e);
+                }
+            });
+            server.start();
+
+            try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+                OutputStream out = client.getOutputStream();
+                out.write("GET /1 HTTP/1.1\r\nHost: localhost\r\n\r\nGET /2 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+                assertEquals(2, count(response, "HTTP/1.1 301 Moved Permanently\r\n"), response);
+            }
+            server.join(5000);
+        }
+        assertEquals(2, redirector.getRedirects());
+    }
+
+    @Test
+    public void testRejectsInvalidPort() {
+        assertThrows(IllegalArgumentException.class, () -> new HttpsRedirector(0));
+        assertThrows(IllegalArgumentException.class, () -> new HttpsRedirector(65_536));
+    }
+
+    private static String serve(HttpsRedirector redirector, String request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        redirector.serve(socket(request, out));
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static Socket socket(String request, ByteArrayOutputStream out) throws IOException {
+        Socket socket = mock(Socket.class);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(request.getBytes(StandardCharsets.US_ASCII)));
+        when(socket.getOutputStream()).thenReturn(out);
+        when(socket.getInetAddress()).thenReturn(InetAddress.getLoopbackAddress());
+        return socket;
+    }
+
+    private static int count(String string, String part) {
+        int count = 0;
+        for (int i = string.indexOf(part); i >= 0; i = string.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -1,12 +1,31 @@
 package com.httpserver.core.https;
 
+import com.httpserver.config.RequestTimeoutConfiguration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.TimingWheel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocket;
 import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 class HttpsConnectionWorkerThreadTest {
@@ -79,4 +98,82 @@ class HttpsConnectionWorkerThreadTest {
 
         verify(socket).close();
     }
+
+    @Test
+    void testTimeoutOnTlsClientThatStoppedReadingLeavesTimingWheelRunning() throws Exception {
+        RequestTimeoutConfiguration timeoutConfig = new RequestTimeoutConfiguration();
+        timeoutConfig.setHeaderTimeoutMillis(200);
+        AtomicReference<TlsChannel> connection = new AtomicReference<>();
+        CountDownLatch probe = new CountDownLatch(1);
+        RequestProcessor processor = new RequestProcessor(request -> {
+            try {
+                fillUntilBlocked(connection.get());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Due after the timer of the body read below, which the stalled upload lets fire.
+            TimingWheel.shared().schedule(probe::countDown, 400, TimeUnit.MILLISECONDS);
+            request.getBody();
+            return HttpsConnectionWorkerThread.welcomePage(request);
+        }, List.of(), timeoutConfig);
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (SSLSocket client = (SSLSocket) TlsTestContexts.trustingClient().getSocketFactory().createSocket()) {
+                // Fixed buffers, which the kernel does not grow, so a client that stops reading blocks the server.
+                client.setReceiveBufferSize(16 * 1024);
+                client.connect(serverChannel.socket().getLocalSocketAddress());
+                SocketChannel accepted = serverChannel.accept();
+                accepted.setOption(StandardSocketOptions.SO_SNDBUF, 16 * 1024);
+                SSLEngine engine = TlsTestContexts.server().createSSLEngine();
+                engine.setUseClientMode(false);
+                connection.set(new TlsChannel(accepted, engine));
+                // Handshake first, so the short head timeout only covers the request.
+                CompletableFuture<Void> handshake = CompletableFuture.runAsync(() -> {
+                    try {
+                        client.startHandshake();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                assertTrue(connection.get().handshake());
+                handshake.get(5, TimeUnit.SECONDS);
+                HttpsConnectionWorkerThread workerThread = new HttpsConnectionWorkerThread(connection.get(), processor);
+                workerThread.start();
+
+                // The client sends its head and part of its body, then neither sends nor reads.
+                OutputStream out = client.getOutputStream();
+                out.write("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\npartial".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                assertTrue(probe.await(5, TimeUnit.SECONDS), "Other timeouts should fire while the client is stalled");
+                workerThread.join(5_000);
+                assertFalse(workerThread.isAlive());
+            }
+        }
+    }
+
+    /**
+     * Writes to the connection until the socket takes no more, as it does once the
+     * client stops reading, leaving records pending. Data still in flight when the
+     * socket first refuses more frees room as it is acknowledged, so the writes go on
+     * until that has settled.
+     */
+    private static void fillUntilBlocked(TlsChannel tlsChannel) throws IOException {
+        SocketChannel socketChannel = tlsChannel.getSocketChannel();
+        socketChannel.configureBlocking(false);
+        try {
+            ByteBuffer chunk = ByteBuffer.allocate(16 * 1024);
+            for (int round = 0; round < 10; round++) {
+                while (tlsChannel.write(chunk.clear()) > 0) {
+                    // Keep writing.
+                }
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            socketChannel.configureBlocking(true);
+        }
+    }
 }
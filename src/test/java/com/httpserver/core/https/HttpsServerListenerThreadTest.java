@@ -1,60 +1,83 @@
 package com.httpserver.core.https;
 
 import com.httpserver.config.ConfigurationManager;
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.config.HttpConfigurationException;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.http.HttpConnectionWorkerThread;
+import com.httpserver.core.http.HttpsRedirector;
+import com.httpserver.middleware.SecurityHeadersMiddleware;
 import com.httpserver.config.SSLConfiguration;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 
-import javax.net.ssl.SSLServerSocket;
-import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class HttpsServerListenerThreadTest {
 
+    private static final int PORT = 8443;
+
     @Mock
     private SSLConfiguration sslConfigMock;
 
     @Mock
     private ConfigurationManager configManagerMock;
 
+    @TempDir
+    Path tempDir;
+
     private HttpsServerListenerThread serverListenerThread;
-    private MockedStatic<SSLServerSocketFactory> mockedSSLFactory;
     private MockedStatic<ConfigurationManager> mockedConfigManager;
-    private SSLServerSocketFactory sslServerSocketFactoryMock;
-    private SSLServerSocket sslServerSocketMock;
 
     @BeforeEach
     public void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
 
-        when(sslConfigMock.getKeystorePath()).thenReturn("keystore.jks");
-        when(sslConfigMock.getKeystorePassword()).thenReturn("123");
-        when(sslConfigMock.getKeyPassword()).thenReturn("123");
+        when(sslConfigMock.getKeystorePath()).thenReturn(TlsTestContexts.KEYSTORE_PATH);
+        when(sslConfigMock.getKeystorePassword()).thenReturn(TlsTestContexts.KEYSTORE_PASSWORD);
+        when(sslConfigMock.getKeyPassword()).thenReturn(TlsTestContexts.KEYSTORE_PASSWORD);
+        when(sslConfigMock.getProtocols()).thenReturn(SSLConfiguration.DEFAULT_PROTOCOLS);
+        when(sslConfigMock.getCipherSuites()).thenReturn(SSLConfiguration.DEFAULT_CIPHER_SUITES);
+        when(sslConfigMock.getSessionCacheSize()).thenReturn(SSLConfiguration.DEFAULT_SESSION_CACHE_SIZE);
+        when(sslConfigMock.getSessionTimeoutSeconds()).thenReturn(SSLConfiguration.DEFAULT_SESSION_TIMEOUT_SECONDS);
+        when(sslConfigMock.getHandshakeTimeoutMillis()).thenReturn(SSLConfiguration.DEFAULT_HANDSHAKE_TIMEOUT_MILLIS);
+        when(sslConfigMock.getMaxConcurrentHandshakes()).thenReturn(SSLConfiguration.DEFAULT_MAX_CONCURRENT_HANDSHAKES);
+        when(sslConfigMock.getHandshakeQueueSize()).thenReturn(SSLConfiguration.DEFAULT_HANDSHAKE_QUEUE_SIZE);
 
         mockedConfigManager = mockStatic(ConfigurationManager.class);
         mockedConfigManager.when(ConfigurationManager::getInstance).thenReturn(configManagerMock);
         when(configManagerMock.getConfiguration(SSLConfiguration.class)).thenReturn(sslConfigMock);
 
-        sslServerSocketFactoryMock = mock(SSLServerSocketFactory.class);
-        sslServerSocketMock = mock(SSLServerSocket.class);
-        mockedSSLFactory = mockStatic(SSLServerSocketFactory.class);
-        mockedSSLFactory.when(SSLServerSocketFactory::getDefault).thenReturn(sslServerSocketFactoryMock);
-        when(sslServerSocketFactoryMock.createServerSocket(anyInt())).thenReturn(sslServerSocketMock);
-
-        serverListenerThread = new HttpsServerListenerThread(8443, "/webroot");
+        serverListenerThread = new HttpsServerListenerThread(PORT, "/webroot");
     }
 
     @AfterEach
-    public void tearDown() {
-        if (mockedSSLFactory != null) {
-            mockedSSLFactory.close();
+    public void tearDown() throws Exception {
+        if (serverListenerThread != null) {
+            serverListenerThread.close();
+            serverListenerThread.join(5000);
         }
         if (mockedConfigManager != null) {
             mockedConfigManager.close();
@@ -65,50 +88,261 @@ public class HttpsServerListenerThreadTest {
     public void testSSLConfigurationInitialization() {
         assertAll("SSL Configuration Initialization",
                 () -> assertNotNull(serverListenerThread, "Server listener should not be null"),
-                () -> assertEquals(8443, serverListenerThread.getPort(), "Port should be 8443"),
+                () -> assertEquals(PORT, serverListenerThread.getPort(), "Port should be 8443"),
                 () -> assertEquals("/webroot", serverListenerThread.getWebroot(), "Webroot should be '/webroot'")
         );
     }
 
     @Test
-    public void testSSLServerSocketCreationSuccess() throws Exception {
+    public void testSSLContextCreationSuccess() throws Exception {
+        SSLContext sslContext = serverListenerThread.createSSLContext();
 
-        try (SSLServerSocket sslServerSocket = serverListenerThread.createSSLServerSocket()) {
-            assertAll("SSL Server Socket Creation",
-                    () -> assertNotNull(sslServerSocket, "SSL server socket should be created successfully"),
-                    () -> verify(sslServerSocketFactoryMock, times(1)).createServerSocket(anyInt())
-            );
-        }
+        assertAll("SSL Context Creation",
+                () -> assertNotNull(sslContext, "SSL context should be created successfully"),
+                () -> assertFalse(serverListenerThread.createSSLEngine().getUseClientMode(), "Engines should be in server mode")
+        );
     }
 
     @Test
-    public void testSSLServerSocketCreationFailure() throws RuntimeException {
-        mockedSSLFactory.when(SSLServerSocketFactory::getDefault).thenThrow(new RuntimeException("Failed to create SSL Server Socket"));
-        RuntimeException exception = assertThrows(RuntimeException.class, serverListenerThread::createSSLServerSocket);
-        assertEquals("Failed to create SSL Server Socket", exception.getMessage());
+    public void testSSLContextCreationFailure() {
+        when(sslConfigMock.getKeystorePassword()).thenReturn("wrong");
+
+        assertThrows(IOException.class, serverListenerThread::createSSLContext);
+    }
+
+    @Test
+    public void testSSLContextAppliesSessionCacheSettings() throws Exception {
+        when(sslConfigMock.getSessionCacheSize()).thenReturn(64);
+        when(sslConfigMock.getSessionTimeoutSeconds()).thenReturn(300);
+
+        SSLContext sslContext = serverListenerThread.createSSLContext();
+
+        assertEquals(64, sslContext.getServerSessionContext().getSessionCacheSize());
+        assertEquals(300, sslContext.getServerSessionContext().getSessionTimeout());
     }
 
     @Test
-    public void testServerRunMethodStartsSuccessfully() throws Exception {
-        when(sslServerSocketMock.accept()).thenThrow(new IOException("Mocked accept termination"));
-        Thread thread = new Thread(() -> serverListenerThread.run());
-        thread.start();
-        Thread.sleep(1000);
-        thread.interrupt();
+    public void testEnginesUseConfiguredProtocolsAndCipherOrder() {
+        SSLEngine engine = serverListenerThread.createSSLEngine();
 
-        assertAll("Server Run Method",
-                () -> verify(sslServerSocketFactoryMock, times(1)).createServerSocket(anyInt()),
-                () -> assertTrue(thread.isAlive(), "Thread should be alive during execution")
+        assertAll("Engine Parameters",
+                () -> assertArrayEquals(new String[]{"TLSv1.3", "TLSv1.2"}, engine.getEnabledProtocols()),
+                () -> assertEquals("TLS_AES_128_GCM_SHA256", engine.getEnabledCipherSuites()[0]),
+                () -> assertTrue(engine.getSSLParameters().getUseCipherSuitesOrder(), "Server cipher order should be preferred")
         );
     }
 
+    @Test
+    public void testUnsupportedCipherSuitesAreSkipped() throws Exception {
+        when(sslConfigMock.getCipherSuites()).thenReturn(List.of("TLS_NOT_A_SUITE", "TLS_AES_256_GCM_SHA384"));
+
+        String[] cipherSuites = serverListenerThread.createSSLParameters(serverListenerThread.createSSLContext()).getCipherSuites();
+
+        assertArrayEquals(new String[]{"TLS_AES_256_GCM_SHA384"}, cipherSuites);
+    }
+
+    @Test
+    public void testNoSupportedProtocolFails() throws Exception {
+        when(sslConfigMock.getProtocols()).thenReturn(List.of("SSLv2"));
+        SSLContext sslContext = serverListenerThread.createSSLContext();
+
+        assertThrows(HttpConfigurationException.class, () -> serverListenerThread.createSSLParameters(sslContext));
+    }
+
+    @Test
+    public void testReloadSwapsSSLContext() {
+        SSLContext before = serverListenerThread.getSSLContext();
+
+        assertTrue(serverListenerThread.reloadSSLContext());
+
+        assertNotSame(before, serverListenerThread.getSSLContext());
+        assertEquals(1, serverListenerThread.getKeystoreReloads());
+    }
+
+    @Test
+    public void testReloadLeavesJvmWideTlsSettingsAlone() {
+        String property = "jdk.tls.server.enableSessionTicketExtension";
+        String before = System.getProperty(property);
+        System.setProperty(property, "unchanged");
+        try {
+            assertTrue(serverListenerThread.reloadSSLContext());
+
+            assertEquals("unchanged", System.getProperty(property));
+            verify(sslConfigMock, never()).isSessionTicketsEnabled();
+        } finally {
+            if (before != null) {
+                System.setProperty(property, before);
+            } else {
+                System.clearProperty(property);
+            }
+        }
+    }
+
+    @Test
+    public void testFailedReloadKeepsServing() throws Exception {
+        SSLContext before = serverListenerThread.getSSLContext();
+        when(sslConfigMock.getKeystorePassword()).thenReturn("wrong");
+
+        assertFalse(serverListenerThread.reloadSSLContext());
+
+        assertSame(before, serverListenerThread.getSSLContext());
+        assertEquals(1, serverListenerThread.getFailedKeystoreReloads());
+        serverListenerThread.start();
+        assertTrue(get().startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+
+    @Test
+    public void testKeystoreWithoutPrivateKeyIsRejected() throws Exception {
+        Path empty = tempDir.resolve("empty.p12");
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        try (OutputStream out = Files.newOutputStream(empty)) {
+            keyStore.store(out, TlsTestContexts.KEYSTORE_PASSWORD.toCharArray());
+        }
+        when(sslConfigMock.getKeystorePath()).thenReturn(empty.toString());
+
+        assertFalse(serverListenerThread.reloadSSLContext());
+    }
+
+    @Test
+    public void testRotatedKeystoreIsPickedUp() throws Exception {
+        Path keystore = tempDir.resolve("keystore.p12");
+        rewriteKeystore(keystore);
+        when(sslConfigMock.getKeystorePath()).thenReturn(keystore.toString());
+        when(sslConfigMock.isKeystoreWatchEnabled()).thenReturn(true);
+        serverListenerThread.close();
+        serverListenerThread = new HttpsServerListenerThread(PORT, "/webroot");
+        serverListenerThread.start();
+        SSLContext before = serverListenerThread.getSSLContext();
+
+        rewriteKeystore(keystore);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (serverListenerThread.getKeystoreReloads() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, serverListenerThread.getKeystoreReloads());
+        assertNotSame(before, serverListenerThread.getSSLContext());
+        assertTrue(get().startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+
+    @Test
+    public void testServesRequestAfterHandshake() throws Exception {
+        serverListenerThread.start();
+
+        try (SSLSocket socket = (SSLSocket) TlsTestContexts.trustingClient().getSocketFactory()
+                .createSocket(InetAddress.getLoopbackAddress(), PORT)) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+            assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+            assertTrue(response.trim().endsWith("This page was served using Java</body></html>"), response);
+        }
+        assertEquals(1, serverListenerThread.getHandshaker().getMetrics().getCompletedHandshakes());
+    }
+
+    @Test
+    public void testSecondConnectionResumesSession() throws Exception {
+        serverListenerThread.start();
+        SSLContext clientContext = TlsTestContexts.trustingClient();
+
+        for (int i = 0; i < 2; i++) {
+            try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory()
+                    .createSocket(InetAddress.getLoopbackAddress(), PORT)) {
+                socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                socket.getInputStream().readAllBytes();
+            }
+        }
+
+        TlsHandshakeMetrics metrics = serverListenerThread.getHandshaker().getMetrics();
+        assertEquals(1, metrics.getFullHandshakes());
+        assertEquals(1, metrics.getResumedHandshakes());
+    }
+
+    @Test
+    public void testAlpnSelectsHttp2WhenEnabled() throws Exception {
+        serverListenerThread.close();
+        serverListenerThread = new HttpsServerListenerThread(PORT, "/webroot",
+                new RequestProcessor(HttpsConnectionWorkerThread::welcomePage, List.of(new SecurityHeadersMiddleware())),
+                new Http2Configuration());
+        serverListenerThread.start();
+
+        assertEquals("h2", negotiate("h2", "http/1.1"));
+        assertEquals("http/1.1", negotiate("http/1.1"));
+    }
+
+    @Test
+    public void testAlpnIsNotOfferedWhenHttp2IsDisabled() throws Exception {
+        serverListenerThread.start();
+
+        assertEquals("", negotiate("h2", "http/1.1"));
+    }
+
+    @Test
+    public void testSinglePortServesTlsAndPlaintext() throws Exception {
+        serverListenerThread.close();
+        HttpsRedirector redirector = new HttpsRedirector(PORT);
+        serverListenerThread = new HttpsServerListenerThread(PORT, "/webroot",
+                new RequestProcessor(HttpsConnectionWorkerThread::welcomePage, List.of(new SecurityHeadersMiddleware())), null,
+                (channel, received) -> new HttpConnectionWorkerThread(channel.socket(), received, redirector).start());
+        serverListenerThread.start();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT)) {
+            socket.getOutputStream().write("GET /page HTTP/1.1\r\nHost: localhost:8443\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+            assertTrue(response.startsWith("HTTP/1.1 301 Moved Permanently\r\nLocation: https://localhost:8443/page\r\n"), response);
+        }
+        assertTrue(get().startsWith("HTTP/1.1 200 OK\r\n"));
+
+        TlsHandshakeMetrics metrics = serverListenerThread.getHandshaker().getMetrics();
+        assertEquals(1, metrics.getPlaintextConnections());
+        assertEquals(1, metrics.getCompletedHandshakes());
+        assertEquals(1, redirector.getRedirects());
+    }
+
     @Test
     public void testStopServerMethodStopsSuccessfully() throws Exception {
-        doNothing().when(sslServerSocketMock).close();
-        serverListenerThread.interrupt();
-        assertAll("Stop Server Method",
-                () -> verify(sslServerSocketMock, times(1)).close(),
-                () -> assertTrue(sslServerSocketMock.isClosed(), "Server socket should be closed")
-        );
+        serverListenerThread.start();
+
+        serverListenerThread.close();
+        serverListenerThread.join(5000);
+
+        assertFalse(serverListenerThread.isAlive(), "Listener should stop once closed");
+    }
+
+    private static String get() throws Exception {
+        try (SSLSocket socket = (SSLSocket) TlsTestContexts.trustingClient().getSocketFactory()
+                .createSocket(InetAddress.getLoopbackAddress(), PORT)) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static String negotiate(String... protocols) throws Exception {
+        try (SSLSocket socket = (SSLSocket) TlsTestContexts.trustingClient().getSocketFactory()
+                .createSocket(InetAddress.getLoopbackAddress(), PORT)) {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setApplicationProtocols(protocols);
+            socket.setSSLParameters(parameters);
+            socket.startHandshake();
+            return socket.getApplicationProtocol();
+        }
+    }
+
+    /**
+     * Stores the project key under a fresh PKCS12 salt, so the file changes but stays valid.
+     */
+    private static void rewriteKeystore(Path target) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (FileInputStream in = new FileInputStream(TlsTestContexts.KEYSTORE_PATH)) {
+            keyStore.load(in, TlsTestContexts.KEYSTORE_PASSWORD.toCharArray());
+        }
+        Path temp = Files.createTempFile(target.getParent(), "keystore", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            keyStore.store(out, TlsTestContexts.KEYSTORE_PASSWORD.toCharArray());
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 }
@@ -0,0 +1,106 @@
+package com.httpserver.core.https;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeystoreWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger reloads = new AtomicInteger();
+    private final AtomicBoolean reloadSucceeds = new AtomicBoolean(true);
+    private KeystoreWatcher watcher;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void testUnchangedKeystoreIsNotReloaded() throws Exception {
+        Path keystore = write("keystore.p12", "first");
+        watcher = newWatcher(keystore);
+
+        assertFalse(watcher.check());
+        assertEquals(0, reloads.get());
+    }
+
+    @Test
+    void testChangedContentIsReloadedOnce() throws Exception {
+        Path keystore = write("keystore.p12", "first");
+        watcher = newWatcher(keystore);
+
+        write("keystore.p12", "second");
+
+        assertTrue(watcher.check());
+        assertFalse(watcher.check());
+        assertEquals(1, reloads.get());
+    }
+
+    @Test
+    void testFailedReloadIsNotRetriedForSameContent() throws Exception {
+        Path keystore = write("keystore.p12", "first");
+        watcher = newWatcher(keystore);
+        reloadSucceeds.set(false);
+
+        write("keystore.p12", "truncated");
+        assertFalse(watcher.check());
+        assertFalse(watcher.check());
+        assertEquals(1, reloads.get());
+
+        reloadSucceeds.set(true);
+        write("keystore.p12", "complete");
+        assertTrue(watcher.check());
+        assertEquals(2, reloads.get());
+    }
+
+    @Test
+    void testMissingKeystoreIsNotReloaded() throws Exception {
+        Path keystore = write("keystore.p12", "first");
+        watcher = newWatcher(keystore);
+
+        Files.delete(keystore);
+
+        assertFalse(watcher.check());
+        assertEquals(0, reloads.get());
+    }
+
+    @Test
+    void testReplacementIsNoticedByWatchService() throws Exception {
+        Path keystore = write("keystore.p12", "first");
+        watcher = newWatcher(keystore);
+
+        Path replacement = write("keystore.p12.tmp", "second");
+        Files.move(replacement, keystore, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reloads.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, reloads.get());
+    }
+
+    private KeystoreWatcher newWatcher(Path keystore) throws Exception {
+        return new KeystoreWatcher(keystore, () -> {
+            reloads.incrementAndGet();
+            return reloadSucceeds.get();
+        }, 0);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,207 @@
+package com.httpserver.core.https;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSocket;
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsChannelTest {
+
+    private ServerSocketChannel serverChannel;
+    private SSLContext serverContext;
+    private SSLContext clientContext;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverContext = TlsTestContexts.server();
+        clientContext = TlsTestContexts.trustingClient();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        serverChannel.close();
+    }
+
+    @Test
+    void testBlockingReadAndWrite() throws Exception {
+        CompletableFuture<String> client = CompletableFuture.supplyAsync(() -> {
+            try (SSLSocket socket = connect()) {
+                socket.getOutputStream().write("ping".getBytes(StandardCharsets.US_ASCII));
+                return new String(socket.getInputStream().readNBytes(4), StandardCharsets.US_ASCII);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (TlsChannel channel = accept()) {
+            assertEquals("ping", readString(channel, 4));
+            assertTrue(channel.isHandshakeComplete());
+            channel.write(ByteBuffer.wrap("pong".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals("pong", client.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testNonBlockingHandshakeWaitsForSocket() throws Exception {
+        CompletableFuture<String> client = CompletableFuture.supplyAsync(() -> {
+            try (SSLSocket socket = connect()) {
+                socket.startHandshake();
+                String protocol = socket.getSession().getProtocol();
+                // Stay connected until the server closes.
+                socket.getInputStream().read();
+                return protocol;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (TlsChannel channel = accept(); Selector selector = Selector.open()) {
+            channel.getSocketChannel().configureBlocking(false);
+            SelectionKey key = channel.getSocketChannel().register(selector, channel.interestOps());
+            int waits = 0;
+            while (!channel.handshake()) {
+                key.interestOps(channel.interestOps());
+                assertTrue(selector.select(10_000) > 0, "Handshake stalled");
+                selector.selectedKeys().clear();
+                waits++;
+            }
+
+            // The server must at least wait for the client's hello and Finished.
+            assertTrue(waits > 0);
+            assertEquals(0, channel.read(ByteBuffer.allocate(16)));
+        }
+        assertEquals("TLSv1.3", client.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLargeWriteSpansManyRecords() throws Exception {
+        byte[] data = new byte[1024 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        CompletableFuture<byte[]> client = CompletableFuture.supplyAsync(() -> {
+            try (SSLSocket socket = connect()) {
+                socket.getOutputStream().write(1);
+                return socket.getInputStream().readNBytes(data.length);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (TlsChannel channel = accept()) {
+            readString(channel, 1);
+            ByteBuffer body = ByteBuffer.wrap(data);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            assertArrayEquals(data, client.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testCloseNotifyEndsStream() throws Exception {
+        CompletableFuture<Void> client = CompletableFuture.runAsync(() -> {
+            try (SSLSocket socket = connect()) {
+                socket.getOutputStream().write("bye".getBytes(StandardCharsets.US_ASCII));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (TlsChannel channel = accept()) {
+            assertEquals("bye", readString(channel, 3));
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+            client.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testRenegotiationIsRejected() throws Exception {
+        CompletableFuture.runAsync(() -> {
+            try (SSLSocket socket = connect()) {
+                socket.setEnabledProtocols(new String[]{"TLSv1.2"});
+                socket.getOutputStream().write(1);
+                socket.startHandshake();
+                socket.getInputStream().read();
+            } catch (Exception e) {
+                // The server closes the connection.
+            }
+        });
+
+        try (TlsChannel channel = accept()) {
+            readString(channel, 1);
+            assertEquals("TLSv1.2", channel.getSession().getProtocol());
+            SSLException e = assertThrows(SSLException.class, () -> channel.read(ByteBuffer.allocate(16)));
+            assertTrue(e.getMessage().contains("renegotiation"));
+        }
+    }
+
+    @Test
+    void testSecondHandshakeFromSameClientIsResumed() throws Exception {
+        for (boolean expectResumed : new boolean[]{false, true}) {
+            CompletableFuture<Void> client = CompletableFuture.runAsync(() -> {
+                try (SSLSocket socket = connect()) {
+                    socket.getOutputStream().write(1);
+                    socket.getInputStream().read();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            try (TlsChannel channel = accept()) {
+                readString(channel, 1);
+                assertEquals(expectResumed, channel.isSessionResumed());
+                channel.write(ByteBuffer.wrap(new byte[]{1}));
+                client.get(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void testDisconnectDuringHandshakeFails() throws Exception {
+        new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort()).close();
+
+        try (TlsChannel channel = accept()) {
+            assertThrows(EOFException.class, channel::handshake);
+        }
+    }
+
+    private SSLSocket connect() throws Exception {
+        return (SSLSocket) clientContext.getSocketFactory()
+                .createSocket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+    }
+
+    private TlsChannel accept() throws Exception {
+        SocketChannel socketChannel = serverChannel.accept();
+        SSLEngine engine = serverContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        return new TlsChannel(socketChannel, engine);
+    }
+
+    private static String readString(TlsChannel channel, int length) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            assertTrue(channel.read(buffer) >= 0, "Unexpected end of stream");
+        }
+        return new String(buffer.array(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,44 @@
+package com.httpserver.core.https;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsHandshakeMetricsTest {
+
+    @Test
+    void testCompletedHandshakesAreSplitByResumption() {
+        TlsHandshakeMetrics metrics = new TlsHandshakeMetrics();
+
+        metrics.recordCompleted(false, 4_000_000);
+        metrics.recordCompleted(true, 2_000_000);
+
+        assertAll("Completed handshakes",
+                () -> assertEquals(2, metrics.getCompletedHandshakes()),
+                () -> assertEquals(1, metrics.getFullHandshakes()),
+                () -> assertEquals(1, metrics.getResumedHandshakes()),
+                () -> assertEquals(3.0, metrics.getAverageHandshakeMillis(), 0.001),
+                () -> assertEquals(4.0, metrics.getMaxHandshakeMillis(), 0.001)
+        );
+    }
+
+    @Test
+    void testUnsuccessfulHandshakesAreCountedSeparately() {
+        TlsHandshakeMetrics metrics = new TlsHandshakeMetrics();
+
+        metrics.recordFailed();
+        metrics.recordTimedOut();
+        metrics.recordTimedOut();
+        metrics.recordRejected();
+        metrics.recordPlaintext();
+
+        assertAll("Unsuccessful handshakes",
+                () -> assertEquals(0, metrics.getCompletedHandshakes()),
+                () -> assertEquals(1, metrics.getFailedHandshakes()),
+                () -> assertEquals(2, metrics.getTimedOutHandshakes()),
+                () -> assertEquals(1, metrics.getRejectedHandshakes()),
+                () -> assertEquals(1, metrics.getPlaintextConnections()),
+                () -> assertEquals(0, metrics.getAverageHandshakeMillis())
+        );
+    }
+}
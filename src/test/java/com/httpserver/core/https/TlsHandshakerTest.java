@@ -0,0 +1,243 @@
+package com.httpserver.core.https;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsHandshakerTest {
+
+    private ServerSocketChannel serverChannel;
+    private SSLContext serverContext;
+    private final BlockingQueue<TlsChannel> handedOff = new LinkedBlockingQueue<>();
+    private TlsHandshaker handshaker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverContext = TlsTestContexts.server();
+        handshaker = new TlsHandshaker(handedOff::add);
+        handshaker.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        handshaker.close();
+        handshaker.join(5000);
+        serverChannel.close();
+        for (TlsChannel channel : handedOff) {
+            channel.close();
+        }
+    }
+
+    @Test
+    void testCompletedHandshakeIsHandedOffInBlockingMode() throws Exception {
+        try (SSLSocket client = connectTls()) {
+            handshaker.register(accept());
+            client.startHandshake();
+            client.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII));
+
+            TlsChannel channel = handedOff.poll(10, TimeUnit.SECONDS);
+            assertNotNull(channel, "Handshake was not handed off");
+            assertTrue(channel.isHandshakeComplete());
+            assertTrue(channel.getSocketChannel().isBlocking());
+
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            while (buffer.hasRemaining()) {
+                channel.read(buffer);
+            }
+            assertEquals("hello", new String(buffer.array(), StandardCharsets.US_ASCII));
+            assertEquals(1, handshaker.getMetrics().getCompletedHandshakes());
+            assertEquals(0, handshaker.getPendingHandshakes());
+        }
+    }
+
+    @Test
+    void testPlaintextClientFailsHandshake() throws Exception {
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            handshaker.register(accept());
+            client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            // The server closes the connection, possibly after an alert.
+            InputStream in = client.getInputStream();
+            client.setSoTimeout(10_000);
+            while (in.read() >= 0) {
+                // Skip the alert.
+            }
+        }
+        assertEquals(1, handshaker.getMetrics().getFailedHandshakes());
+        assertEquals(0, handshaker.getPendingHandshakes());
+        assertTrue(handedOff.isEmpty());
+    }
+
+    @Test
+    void testSilentClientDoesNotDelayOthers() throws Exception {
+        try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            handshaker.register(accept());
+            try (SSLSocket client = connectTls()) {
+                handshaker.register(accept());
+                client.startHandshake();
+
+                assertNotNull(handedOff.poll(10, TimeUnit.SECONDS), "Handshake was not handed off");
+                assertEquals(1, handshaker.getPendingHandshakes());
+            }
+        }
+    }
+
+    @Test
+    void testSilentClientTimesOut() throws Exception {
+        restart(200, 16, 16);
+        try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            handshaker.register(accept());
+
+            // The server closes the connection, possibly after an alert.
+            InputStream in = silent.getInputStream();
+            silent.setSoTimeout(10_000);
+            while (in.read() >= 0) {
+                // Skip the alert.
+            }
+        }
+        assertEquals(1, handshaker.getMetrics().getTimedOutHandshakes());
+        assertEquals(0, handshaker.getPendingHandshakes());
+    }
+
+    @Test
+    void testConnectionsBeyondLimitWaitForSlot() throws Exception {
+        restart(10_000, 1, 1);
+        try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            TlsChannel silentChannel = accept();
+            handshaker.register(silentChannel);
+            try (SSLSocket client = connectTls()) {
+                assertTrue(handshaker.register(accept()));
+                client.setSoTimeout(10_000);
+                CompletableFuture<Void> handshake = CompletableFuture.runAsync(() -> {
+                    try {
+                        client.startHandshake();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                // The only slot is taken by the silent client.
+                assertNull(handedOff.poll(300, TimeUnit.MILLISECONDS));
+                assertEquals(1, handshaker.getQueuedHandshakes());
+
+                silent.close();
+                assertNotNull(handedOff.poll(10, TimeUnit.SECONDS), "Queued handshake was not admitted");
+                handshake.get(10, TimeUnit.SECONDS);
+            }
+        }
+        assertEquals(1, handshaker.getMetrics().getFailedHandshakes());
+        assertEquals(1, handshaker.getMetrics().getCompletedHandshakes());
+    }
+
+    @Test
+    void testConnectionsBeyondQueueAreRejected() throws Exception {
+        restart(10_000, 1, 0);
+        try (Socket first = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+             Socket second = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            assertTrue(handshaker.register(accept()));
+            TlsChannel rejected = accept();
+
+            assertFalse(handshaker.register(rejected));
+
+            assertFalse(rejected.isOpen());
+            second.setSoTimeout(10_000);
+            assertEquals(-1, second.getInputStream().read());
+        }
+        assertEquals(1, handshaker.getMetrics().getRejectedHandshakes());
+    }
+
+    @Test
+    void testHandshakeLatencyIsRecorded() throws Exception {
+        try (SSLSocket client = connectTls()) {
+            handshaker.register(accept());
+            client.startHandshake();
+            assertNotNull(handedOff.poll(10, TimeUnit.SECONDS), "Handshake was not handed off");
+        }
+        TlsHandshakeMetrics metrics = handshaker.getMetrics();
+        assertTrue(metrics.getMaxHandshakeMillis() > 0);
+        assertEquals(metrics.getMaxHandshakeMillis(), metrics.getAverageHandshakeMillis(), 0.001);
+    }
+
+    @Test
+    void testInvalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TlsHandshaker(handedOff::add, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TlsHandshaker(handedOff::add, 1, 0, 1));
+    }
+
+    @Test
+    void testSniffingHandsPlaintextToPlaintextHandler() throws Exception {
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        BlockingQueue<SocketChannel> plaintext = new LinkedBlockingQueue<>();
+        handshaker.close();
+        handshaker.join(5000);
+        handshaker = new TlsHandshaker(handedOff::add, (channel, bytes) -> {
+            plaintext.add(channel);
+            received.add(bytes);
+        }, 10_000, 16, 16);
+        handshaker.start();
+
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            handshaker.register(accept());
+            client.getOutputStream().write("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            SocketChannel channel = plaintext.poll(10, TimeUnit.SECONDS);
+            assertNotNull(channel, "Plaintext connection was not handed off");
+            assertTrue(channel.isBlocking());
+            String start = new String(received.take(), StandardCharsets.US_ASCII);
+            assertTrue("GET / HTTP/1.1\r\n".startsWith(start) && !start.isEmpty(), start);
+
+            channel.write(ByteBuffer.wrap("ok".getBytes(StandardCharsets.US_ASCII)));
+            channel.close();
+            assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), client.getInputStream().readAllBytes());
+        }
+
+        try (SSLSocket client = connectTls()) {
+            handshaker.register(accept());
+            client.startHandshake();
+
+            assertNotNull(handedOff.poll(10, TimeUnit.SECONDS), "TLS connection was not handed off");
+        }
+        assertEquals(1, handshaker.getMetrics().getPlaintextConnections());
+        assertEquals(1, handshaker.getMetrics().getCompletedHandshakes());
+    }
+
+    private void restart(long timeoutMillis, int maxConcurrent, int queueSize) throws Exception {
+        handshaker.close();
+        handshaker.join(5000);
+        handshaker = new TlsHandshaker(handedOff::add, timeoutMillis, maxConcurrent, queueSize);
+        handshaker.start();
+    }
+
+    private SSLSocket connectTls() throws Exception {
+        return (SSLSocket) TlsTestContexts.trustingClient().getSocketFactory()
+                .createSocket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+    }
+
+    private TlsChannel accept() throws Exception {
+        SSLEngine engine = serverContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        return new TlsChannel(serverChannel.accept(), engine);
+    }
+}
@@ -0,0 +1,99 @@
+package com.httpserver.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRegionBodyTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWritesRegionOfFile() throws Exception {
+        byte[] content = content(10_000);
+        Path file = Files.write(dir.resolve("region.bin"), content);
+        StallingChannel channel = new StallingChannel(0);
+
+        new FileRegionBody(file, 100, 5_000).writeTo(channel);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 5_100), channel.out.toByteArray());
+    }
+
+    @Test
+    void testFallsBackToBufferedCopyWhenTransferMakesNoProgress() throws Exception {
+        byte[] content = content(300_000);
+        Path file = Files.write(dir.resolve("stalling.bin"), content);
+        // Accepts nothing on every other write, as a full non-blocking socket would.
+        StallingChannel channel = new StallingChannel(2);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> new FileRegionBody(file, content.length).writeTo(channel));
+
+        assertArrayEquals(content, channel.out.toByteArray());
+    }
+
+    @Test
+    void testFailsInsteadOfSpinningWhenChannelAcceptsNothing() throws Exception {
+        Path file = Files.write(dir.resolve("blocked.bin"), content(1_000));
+        StallingChannel channel = new StallingChannel(1);
+
+        IOException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IOException.class, () -> new FileRegionBody(file, 1_000).writeTo(channel)));
+
+        assertTrue(e.getMessage().contains("accepted no bytes"), e.getMessage());
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * A channel that accepts nothing on every {@code stallEvery}-th write, or on every
+     * write when it is 1.
+     */
+    private static final class StallingChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int stallEvery;
+        private int writes;
+
+        StallingChannel(int stallEvery) {
+            this.stallEvery = stallEvery;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            if (stallEvery > 0 && writes % stallEvery == 0) {
+                return 0;
+            }
+            int n = Math.min(src.remaining(), 8192);
+            byte[] chunk = new byte[n];
+            src.get(chunk);
+            out.write(chunk, 0, n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -4,8 +4,12 @@ import com.httpserver.exception.HttpParsingException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +96,64 @@ class HttpParserTest {
 
         assertEquals("", httpRequest.getBody());
     }
+
+    @Test
+    void testParseHttpRequest_BodyIsReadOnDemand() throws HttpParsingException {
+        String requestString = "POST /submit HTTP/1.1\r\n" +
+                "Content-Length: 11\r\n\r\n" +
+                "hello worldPRI * HTTP/2.0";
+        InputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(requestString.getBytes()));
+
+        HttpRequest httpRequest = httpParser.parseHttpRequest(inputStream);
+
+        assertEquals("hello world", httpRequest.getBody());
+        assertEquals("hello world", httpRequest.getBody());
+        // Nothing past the body was taken off the stream.
+        assertEquals("PRI * HTTP/2.0", new String(assertDoesNotThrow(() -> inputStream.readAllBytes())));
+    }
+
+    @Test
+    void testParseHttpRequest_BodyCanBeStreamed() throws HttpParsingException {
+        String requestString = "POST /upload HTTP/1.1\r\n" +
+                "Content-Length: 5\n\n" +
+                "abcde";
+        HttpRequest httpRequest = httpParser.parseHttpRequest(new ByteArrayInputStream(requestString.getBytes()));
+        StringBuilder received = new StringBuilder();
+
+        httpRequest.getBodyPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                received.append(StandardCharsets.US_ASCII.decode(item));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.append('.');
+            }
+        });
+
+        assertEquals("abcde.", received.toString());
+        assertThrows(IllegalStateException.class, httpRequest::getBody);
+    }
+
+    @Test
+    void testParseHttpRequest_ShortBodyIsRejectedWhenRead() throws HttpParsingException {
+        String requestString = "POST /submit HTTP/1.1\r\n" +
+                "Content-Length: 20\r\n\r\n" +
+                "short";
+        HttpRequest httpRequest = httpParser.parseHttpRequest(new ByteArrayInputStream(requestString.getBytes()));
+
+        HttpParsingException exception = assertThrows(HttpParsingException.class, httpRequest::getBody);
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, exception.getStatusCode());
+    }
 }
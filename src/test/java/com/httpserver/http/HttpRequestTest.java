@@ -4,6 +4,14 @@ import com.httpserver.exception.HttpParsingException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class HttpRequestTest {
@@ -99,6 +107,49 @@ class HttpRequestTest {
         assertEquals(bodyContent, httpRequest.getBody());
     }
 
+    @Test
+    void testBodyIsDecodedAndPublishedAsUtf8() {
+        httpRequest.setBody("caf\u00e9");
+
+        assertArrayEquals("caf\u00e9".getBytes(StandardCharsets.UTF_8), publishedBytes(httpRequest));
+    }
+
+    @Test
+    void testBodyReadFromConnectionIsPublishedAsReceived() {
+        byte[] received = {'c', 'a', 'f', (byte) 0xC3, (byte) 0xA9, (byte) 0xFF};
+        httpRequest.setBodySource(new ByteArrayInputStream(received), received.length);
+
+        assertTrue(httpRequest.getBody().startsWith("caf\u00e9"));
+        assertArrayEquals(received, publishedBytes(httpRequest));
+    }
+
+
+    private static byte[] publishedBytes(HttpRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        request.getBodyPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                bytes.writeBytes(chunk);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return bytes.toByteArray();
+    }
 
     @Test
     void testIsRequestAllowed_WithinLimit() {
@@ -141,4 +192,47 @@ class HttpRequestTest {
             httpRequest.addHeader("", "application/json");
         }, "Header name must not be empty");
     }
+
+    @Test
+    void testHasNoDeadlineByDefault() {
+        assertFalse(httpRequest.hasDeadline());
+        assertFalse(httpRequest.isDeadlineExceeded());
+        assertEquals(Long.MAX_VALUE, httpRequest.getRemainingNanos());
+    }
+
+    @Test
+    void testClientTimeoutOnlyShortensDeadline() {
+        httpRequest.setTimeout(Duration.ofSeconds(10));
+        httpRequest.setClientTimeout(Duration.ofHours(1));
+        assertTrue(httpRequest.getRemainingNanos() <= Duration.ofSeconds(10).toNanos());
+
+        httpRequest.setClientTimeout(Duration.ofSeconds(1));
+        assertTrue(httpRequest.getRemainingNanos() <= Duration.ofSeconds(1).toNanos());
+
+        httpRequest.setTimeout(null);
+        assertTrue(httpRequest.hasDeadline(), "The client's deadline applies on its own");
+
+        httpRequest.setClientTimeout(Duration.ZERO);
+        assertTrue(httpRequest.isDeadlineExceeded());
+    }
+
+    @Test
+    void testTimeoutReplacesEarlierTimeoutAndNotifiesListener() {
+        AtomicInteger changes = new AtomicInteger();
+        httpRequest.setDeadlineListener(changes::incrementAndGet);
+
+        httpRequest.setTimeout(Duration.ofMillis(1));
+        httpRequest.setTimeout(Duration.ofMinutes(1));
+
+        assertEquals(2, changes.get());
+        assertTrue(httpRequest.getRemainingNanos() > Duration.ofSeconds(50).toNanos());
+        assertThrows(IllegalArgumentException.class, () -> httpRequest.setTimeout(Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void testHugeTimeoutDoesNotOverflow() {
+        httpRequest.setTimeout(Duration.ofSeconds(Long.MAX_VALUE));
+        assertTrue(httpRequest.hasDeadline());
+        assertTrue(httpRequest.getRemainingNanos() > 0);
+    }
 }
@@ -0,0 +1,151 @@
+package com.httpserver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublisherBodyTest {
+
+    @Test
+    void testWritesBuffersFromAsynchronousPublisher() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>();
+        Thread producer = new Thread(() -> {
+            while (publisher.getNumberOfSubscribers() == 0) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < 100; i++) {
+                publisher.submit(ByteBuffer.wrap(("chunk" + i + ";").getBytes(StandardCharsets.US_ASCII)));
+            }
+            publisher.close();
+        });
+        producer.start();
+
+        new PublisherBody(publisher).writeTo(Channels.newChannel(out));
+
+        producer.join(5000);
+        String body = out.toString(StandardCharsets.US_ASCII);
+        assertTrue(body.startsWith("chunk0;chunk1;"), body);
+        assertTrue(body.endsWith("chunk99;"), body);
+    }
+
+    @Test
+    void testDemandFollowsWrites() throws Exception {
+        CountingPublisher publisher = new CountingPublisher(20);
+        AtomicLong writes = new AtomicLong();
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                // Never more than the prefetch ahead of what the connection has taken.
+                assertTrue(publisher.requested.get() <= writes.get() + PublisherBody.PREFETCH);
+                writes.incrementAndGet();
+                int written = src.remaining();
+                src.position(src.limit());
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        new PublisherBody(publisher, 20).writeTo(channel);
+
+        assertEquals(20, writes.get());
+    }
+
+    @Test
+    void testRejectsLengthMismatchAndCancels() {
+        CountingPublisher publisher = new CountingPublisher(3);
+
+        IOException e = assertThrows(IOException.class,
+                () -> new PublisherBody(publisher, 2).writeTo(Channels.newChannel(new ByteArrayOutputStream())));
+        assertTrue(e.getMessage().contains("more than 2"), e.getMessage());
+        assertTrue(publisher.cancelled.get());
+
+        assertThrows(IOException.class,
+                () -> new PublisherBody(new CountingPublisher(3), 5).writeTo(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    void testPublisherFailureBecomesIOException() {
+        Flow.Publisher<ByteBuffer> failing = subscriber -> {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("upstream reset"));
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> new PublisherBody(failing).writeTo(Channels.newChannel(new ByteArrayOutputStream())));
+        assertEquals("upstream reset", e.getCause().getMessage());
+    }
+
+    @Test
+    void testWritesOnce() throws IOException {
+        PublisherBody body = new PublisherBody(new CountingPublisher(1), 1);
+        body.writeTo(Channels.newChannel(new ByteArrayOutputStream()));
+
+        assertThrows(IOException.class, () -> body.writeTo(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    /**
+     * Publishes one-byte buffers synchronously as they are requested.
+     */
+    private static class CountingPublisher implements Flow.Publisher<ByteBuffer> {
+        private final int buffers;
+        final AtomicLong requested = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        CountingPublisher(int buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int sent;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && sent < buffers && !cancelled.get(); i++) {
+                        sent++;
+                        subscriber.onNext(ByteBuffer.wrap(new byte[]{'x'}));
+                    }
+                    if (sent == buffers && !cancelled.get()) {
+                        sent++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+}
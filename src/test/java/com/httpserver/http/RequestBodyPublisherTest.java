@@ -0,0 +1,205 @@
+package com.httpserver.http;
+
+import com.httpserver.exception.HttpParsingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBodyPublisherTest {
+
+    @Test
+    void testReadsOnlyWhenRequested() {
+        CountingInputStream source = new CountingInputStream(new byte[RequestBodyPublisher.CHUNK_SIZE * 3]);
+        RequestBodyPublisher publisher = new RequestBodyPublisher(source, source.size);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+        publisher.subscribe(subscriber);
+        assertEquals(0, source.read);
+
+        subscriber.subscription.request(1);
+        assertEquals(RequestBodyPublisher.CHUNK_SIZE, source.read);
+        assertEquals(1, subscriber.chunks.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, subscriber.chunks.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testRequestsFromOnNextAreServedWithoutRecursion() {
+        byte[] body = new byte[RequestBodyPublisher.CHUNK_SIZE * 100 + 7];
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(body), body.length);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(ByteBuffer item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+
+        publisher.subscribe(subscriber);
+
+        assertEquals(body.length, subscriber.bytes);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testStopsAtContentLength() {
+        byte[] stream = "hello, and the next request".getBytes();
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(stream), 5);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(subscriber);
+
+        assertEquals(5, subscriber.bytes);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testDiscardsWhatTheSubscriberLeftUnread() throws Exception {
+        CountingInputStream source = new CountingInputStream(new byte[RequestBodyPublisher.CHUNK_SIZE * 3]);
+        RequestBodyPublisher publisher = new RequestBodyPublisher(source, source.size);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        assertEquals(RequestBodyPublisher.CHUNK_SIZE * 2, publisher.unread());
+        assertFalse(publisher.discard(RequestBodyPublisher.CHUNK_SIZE));
+        assertEquals(RequestBodyPublisher.CHUNK_SIZE, source.read);
+
+        RequestBodyPublisher untouched = new RequestBodyPublisher(source, source.size - source.read);
+        assertTrue(untouched.discard(Long.MAX_VALUE));
+        assertEquals(source.size, source.read);
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.chunks.size(), "A subscriber whose body was discarded gets nothing more");
+    }
+
+    @Test
+    void testSignalsErrorWhenBodyEndsEarly() {
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(new byte[10]), 20);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(subscriber);
+
+        assertInstanceOf(EOFException.class, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void testSignalsErrorOnNonPositiveRequest() {
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(new byte[10]), 10);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    }
+
+    @Test
+    void testCancelStopsReading() {
+        CountingInputStream source = new CountingInputStream(new byte[RequestBodyPublisher.CHUNK_SIZE * 3]);
+        RequestBodyPublisher publisher = new RequestBodyPublisher(source, source.size);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertEquals(1, subscriber.chunks.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void testBodyCanBeConsumedOnce() {
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(new byte[4]), 4);
+
+        assertEquals(4, publisher.readAll().length);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertThrows(IllegalStateException.class, publisher::readAll);
+    }
+
+    @Test
+    void testReadAllRejectsShortBody() {
+        RequestBodyPublisher publisher = new RequestBodyPublisher(new ByteArrayInputStream(new byte[3]), 4);
+
+        HttpParsingException e = assertThrows(HttpParsingException.class, publisher::readAll);
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, e.getStatusCode());
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final long initialDemand;
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        Flow.Subscription subscription;
+        long bytes;
+        boolean completed;
+        Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            chunks.add(item);
+            bytes += item.remaining();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final ByteArrayInputStream delegate;
+        final int size;
+        int read;
+
+        CountingInputStream(byte[] bytes) {
+            this.delegate = new ByteArrayInputStream(bytes);
+            this.size = bytes.length;
+        }
+
+        @Override
+        public int read() {
+            int b = delegate.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+}
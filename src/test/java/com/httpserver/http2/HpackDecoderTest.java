@@ -0,0 +1,128 @@
+package com.httpserver.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HpackDecoderTest {
+
+    @Test
+    void testDecodesRequestsWithoutHuffman() throws Exception {
+        // RFC 7541, Appendix C.3.
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        assertEquals(List.of(
+                Map.entry(":method", "GET"), Map.entry(":scheme", "http"), Map.entry(":path", "/"),
+                Map.entry(":authority", "www.example.com")
+        ), decoder.decode(hex("828684410f7777772e6578616d706c652e636f6d")));
+        assertEquals(57, decoder.getTable().size());
+
+        assertEquals(List.of(
+                Map.entry(":method", "GET"), Map.entry(":scheme", "http"), Map.entry(":path", "/"),
+                Map.entry(":authority", "www.example.com"), Map.entry("cache-control", "no-cache")
+        ), decoder.decode(hex("828684be58086e6f2d6361636865")));
+        assertEquals(110, decoder.getTable().size());
+
+        assertEquals(List.of(
+                Map.entry(":method", "GET"), Map.entry(":scheme", "https"), Map.entry(":path", "/index.html"),
+                Map.entry(":authority", "www.example.com"), Map.entry("custom-key", "custom-value")
+        ), decoder.decode(hex("828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565")));
+        assertEquals(164, decoder.getTable().size());
+    }
+
+    @Test
+    void testDecodesRequestsWithHuffman() throws Exception {
+        // RFC 7541, Appendix C.4.
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        decoder.decode(hex("828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        decoder.decode(hex("828684be5886a8eb10649cbf"));
+        List<Map.Entry<String, String>> fields = decoder.decode(hex("828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+
+        assertEquals(Map.entry("custom-key", "custom-value"), fields.get(4));
+        assertEquals(3, decoder.getTable().dynamicLength());
+        assertEquals(164, decoder.getTable().size());
+    }
+
+    @Test
+    void testEvictsOldestEntries() throws Exception {
+        // RFC 7541, Appendix C.5, with a 256-byte table.
+        HpackDecoder decoder = new HpackDecoder(256, 16384);
+
+        decoder.decode(hex("4803333032580770726976617465611d4d6f6e2c203231204f637420323031332032303a31333a323120474d54"
+                + "6e1768747470733a2f2f7777772e6578616d706c652e636f6d"));
+        assertEquals(222, decoder.getTable().size());
+
+        List<Map.Entry<String, String>> fields = decoder.decode(hex("4803333037c1c0bf"));
+
+        assertEquals(List.of(
+                Map.entry(":status", "307"), Map.entry("cache-control", "private"),
+                Map.entry("date", "Mon, 21 Oct 2013 20:13:21 GMT"), Map.entry("location", "https://www.example.com")
+        ), fields);
+        assertEquals(4, decoder.getTable().dynamicLength());
+        assertEquals(222, decoder.getTable().size());
+    }
+
+    @Test
+    void testAppliesTableSizeUpdate() throws Exception {
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+        decoder.decode(hex("828684410f7777772e6578616d706c652e636f6d"));
+
+        // Size update to 0, then :method GET.
+        decoder.decode(hex("2082"));
+
+        assertEquals(0, decoder.getTable().size());
+        assertEquals(0, decoder.getTable().getMaxSize());
+    }
+
+    @Test
+    void testRejectsTableSizeAboveSetting() {
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        // Size update to 4097: 0x3f followed by 4097 - 31 = 4066 in 7-bit groups.
+        Http2Exception e = assertThrows(Http2Exception.class, () -> decoder.decode(hex("3fe21f")));
+        assertEquals(Http2ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        assertTrue(e.isConnectionError());
+    }
+
+    @Test
+    void testRejectsInvalidIndex() {
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        assertThrows(Http2Exception.class, () -> decoder.decode(hex("80")));
+        assertThrows(Http2Exception.class, () -> decoder.decode(hex("be")));
+    }
+
+    @Test
+    void testRejectsTruncatedBlock() {
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        assertThrows(Http2Exception.class, () -> decoder.decode(hex("410f7777")));
+    }
+
+    @Test
+    void testRejectsOversizedHeaderList() {
+        HpackDecoder decoder = new HpackDecoder(4096, 64);
+
+        Http2Exception e = assertThrows(Http2Exception.class,
+                () -> decoder.decode(hex("828684410f7777772e6578616d706c652e636f6d")));
+        assertEquals(Http2ErrorCode.ENHANCE_YOUR_CALM, e.getErrorCode());
+    }
+
+    @Test
+    void testDecodesMultiByteIntegers() throws Exception {
+        // RFC 7541, Appendix C.1.2: 1337 with a 5-bit prefix.
+        int[] position = {0};
+
+        assertEquals(1337, HpackDecoder.decodeInteger(hex("1f9a0a"), position, 5));
+        assertEquals(3, position[0]);
+    }
+
+    private static byte[] hex(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+}
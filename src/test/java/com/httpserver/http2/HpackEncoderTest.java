@@ -0,0 +1,102 @@
+package com.httpserver.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HpackEncoderTest {
+
+    private static final List<Map.Entry<String, String>> RESPONSE = List.of(
+            Map.entry(":status", "200"),
+            Map.entry("content-type", "text/html"),
+            Map.entry("content-length", "109"),
+            Map.entry("x-content-type-options", "nosniff"));
+
+    @Test
+    void testRoundTripsThroughDecoder() throws Exception {
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RESPONSE, decoder.decode(encoder.encode(RESPONSE)));
+        }
+    }
+
+    @Test
+    void testRepeatedHeadersShrinkToIndexes() {
+        HpackEncoder encoder = new HpackEncoder(4096);
+
+        byte[] first = encoder.encode(RESPONSE);
+        byte[] second = encoder.encode(RESPONSE);
+
+        assertTrue(second.length < first.length / 2, "Repeated headers should be sent as indexes");
+    }
+
+    @Test
+    void testStaticMatchIsOneByte() {
+        HpackEncoder encoder = new HpackEncoder(4096);
+
+        assertEquals("88", HexFormat.of().formatHex(encoder.encode(List.of(Map.entry(":status", "200")))));
+    }
+
+    @Test
+    void testChangingValuesAreNotIndexed() {
+        HpackEncoder encoder = new HpackEncoder(4096);
+
+        encoder.encode(List.of(Map.entry("content-length", "109"), Map.entry("date", "Mon, 21 Oct 2013 20:13:21 GMT")));
+
+        assertEquals(0, encoder.getTable().dynamicLength());
+    }
+
+    @Test
+    void testCredentialsAreNeverIndexed() throws Exception {
+        HpackEncoder encoder = new HpackEncoder(4096);
+
+        byte[] block = encoder.encode(List.of(Map.entry("set-cookie", "session=secret")));
+
+        // Literal never indexed, with the name from static index 55.
+        assertEquals(0x1f, block[0] & 0xff);
+        assertEquals(0, encoder.getTable().dynamicLength());
+        assertEquals(List.of(Map.entry("set-cookie", "session=secret")), new HpackDecoder(4096, 16384).decode(block));
+    }
+
+    @Test
+    void testSignalsTableSizeChange() throws Exception {
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(4096, 16384);
+        decoder.decode(encoder.encode(RESPONSE));
+
+        encoder.setMaxTableSize(0);
+        byte[] block = encoder.encode(RESPONSE);
+
+        assertEquals(0x20, block[0] & 0xff);
+        assertEquals(RESPONSE, decoder.decode(block));
+        assertEquals(0, decoder.getTable().size());
+    }
+
+    @Test
+    void testSignalsSmallestSizeWhenShrunkThenGrown() {
+        HpackEncoder encoder = new HpackEncoder(4096);
+
+        encoder.setMaxTableSize(0);
+        encoder.setMaxTableSize(1024);
+        byte[] block = encoder.encode(List.of());
+
+        // Update to 0, then update to 1024.
+        assertEquals("203fe107", HexFormat.of().formatHex(block));
+    }
+
+    @Test
+    void testEncodesMultiByteIntegers() {
+        // RFC 7541, Appendix C.1.2: 1337 with a 5-bit prefix.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HpackEncoder.encodeInteger(out, 0, 5, 1337);
+
+        assertEquals("1f9a0a", HexFormat.of().formatHex(out.toByteArray()));
+    }
+}
@@ -0,0 +1,435 @@
+package com.httpserver.http2;
+
+import com.httpserver.config.Http2Configuration;
+import com.httpserver.core.RequestProcessor;
+import com.httpserver.core.http.HttpConnectionWorkerThread;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.http.PublisherBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ConnectionTest {
+
+    private final HpackEncoder encoder = new HpackEncoder(4096);
+    private final HpackDecoder decoder = new HpackDecoder(4096, 1 << 20);
+    private final Map<Integer, String> statuses = new HashMap<>();
+    private final Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+    private final Map<Integer, Http2ErrorCode> resets = new HashMap<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ServerSocket serverSocket;
+    private Socket client;
+    private InputStream in;
+    private OutputStream out;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        if (client != null) {
+            client.close();
+        }
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    void testServesRequestWithPriorKnowledge() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeRequest(1, "GET", "/index.html", null);
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("200", statuses.get(1));
+        assertEquals("GET /index.html HTTP/2.0 host=localhost ", body(1));
+    }
+
+    @Test
+    void testMultiplexesStreams() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeRequest(1, "GET", "/slow", null);
+        writeRequest(3, "GET", "/fast", null);
+
+        // The slow stream does not hold up the fast one.
+        assertEquals(3, readUntilStreamEnds());
+        release.countDown();
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("GET /slow HTTP/2.0 host=localhost ", body(1));
+    }
+
+    @Test
+    void testPassesRequestBodyToHandler() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeRequest(1, "POST", "/echo", "hello");
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("POST /echo HTTP/2.0 host=localhost hello", body(1));
+    }
+
+    @Test
+    void testStreamsBodyOfUnknownLength() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeRequest(1, "POST", "/stream", "streamed body");
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("streamed body", body(1));
+    }
+
+    @Test
+    void testPublishesBinaryBodyAsItArrived() throws Exception {
+        byte[] binary = {(byte) 0xff, (byte) 0xfe, 0x00, (byte) 0xc3, 0x28, (byte) 0x80};
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeRequestBytes(1, "POST", "/stream", binary);
+
+        assertEquals(1, readUntilStreamEnds());
+        assertArrayEquals(binary, bodies.get(1).toByteArray());
+    }
+
+    @Test
+    void testSendsBodyWithinFlowControlWindow() throws Exception {
+        // The client allows 10 bytes per stream until it sends WINDOW_UPDATE.
+        connect(new Http2Configuration(), settings(Http2Settings.INITIAL_WINDOW_SIZE, 10));
+
+        writeRequest(1, "GET", "/window", null);
+        Http2Frame data = nextFrame(Http2Frame.DATA);
+        assertEquals(10, data.getPayload().length);
+        assertFalse(data.hasFlag(Http2Frame.FLAG_END_STREAM));
+
+        writeFrame(Http2Frame.WINDOW_UPDATE, 0, 1, intPayload(1000));
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("GET /window HTTP/2.0 host=localhost ".substring(10), body(1));
+    }
+
+    @Test
+    void testRefusesStreamsAboveLimit() throws Exception {
+        Http2Configuration config = new Http2Configuration();
+        config.setMaxConcurrentStreams(1);
+        connect(config, new byte[0]);
+
+        writeRequest(1, "GET", "/slow", null);
+        writeRequest(3, "GET", "/fast", null);
+
+        assertEquals(3, readUntilStreamEnds());
+        assertEquals(Http2ErrorCode.REFUSED_STREAM, resets.get(3));
+        release.countDown();
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("200", statuses.get(1));
+    }
+
+    @Test
+    void testAnswersOversizedBodyWith413() throws Exception {
+        Http2Configuration config = new Http2Configuration();
+        config.setMaxRequestBodySize(4);
+        connect(config, new byte[0]);
+
+        writeRequest(1, "POST", "/echo", "too large");
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("413", statuses.get(1));
+    }
+
+    @Test
+    void testAcknowledgesPing() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+        byte[] opaque = "12345678".getBytes(StandardCharsets.US_ASCII);
+
+        writeFrame(Http2Frame.PING, 0, 0, opaque);
+
+        Http2Frame ping = nextFrame(Http2Frame.PING);
+        assertTrue(ping.hasFlag(Http2Frame.FLAG_ACK));
+        assertArrayEquals(opaque, ping.getPayload());
+    }
+
+    @Test
+    void testProtocolErrorEndsConnectionWithGoAway() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        writeFrame(Http2Frame.DATA, 0, 0, new byte[1]);
+
+        Http2Frame goAway = nextFrame(Http2Frame.GOAWAY);
+        assertEquals(Http2ErrorCode.PROTOCOL_ERROR, Http2ErrorCode.of(Http2Frame.readInt(goAway.getPayload(), 4)));
+        assertNull(Http2Frame.read(in, 1 << 24), "Connection should be closed after GOAWAY");
+    }
+
+    @Test
+    void testIdleConnectionEndsWithGoAway() throws Exception {
+        Http2Configuration config = new Http2Configuration();
+        config.setIdleTimeoutMillis(200);
+        connect(config, new byte[0]);
+
+        // The client sent its preface and SETTINGS and then goes silent.
+        Http2Frame goAway = nextFrame(Http2Frame.GOAWAY);
+
+        assertEquals(Http2ErrorCode.NO_ERROR, Http2ErrorCode.of(Http2Frame.readInt(goAway.getPayload(), 4)));
+        assertNull(Http2Frame.read(in, 1 << 24), "Connection should be closed after GOAWAY");
+    }
+
+    @Test
+    void testOpenStreamKeepsConnectionFromIdling() throws Exception {
+        Http2Configuration config = new Http2Configuration();
+        config.setIdleTimeoutMillis(100);
+        connect(config, new byte[0]);
+
+        writeRequest(1, "GET", "/slow", null);
+        Thread.sleep(500);
+        release.countDown();
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals("200", statuses.get(1));
+    }
+
+    @Test
+    void testClosesConnectionThatSendsNothing() throws Exception {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Http2Configuration config = new Http2Configuration();
+        config.setIdleTimeoutMillis(200);
+        RequestProcessor processor = new RequestProcessor(this::handle, List.of());
+        Thread acceptor = new Thread(() -> {
+            try {
+                new HttpConnectionWorkerThread(serverSocket.accept(), processor, config).start();
+            } catch (IOException e) {
+                // Closed by tearDown.
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        client.setSoTimeout(10_000);
+
+        assertEquals(-1, client.getInputStream().read(), "Server should close a connection that never sends its preface");
+    }
+
+    @Test
+    void testMalformedRequestResetsOnlyItsStream() throws Exception {
+        connect(new Http2Configuration(), new byte[0]);
+
+        byte[] block = encoder.encode(List.of(Map.entry(":method", "GET"), Map.entry(":scheme", "http")));
+        writeFrame(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | Http2Frame.FLAG_END_STREAM, 1, block);
+        writeRequest(3, "GET", "/fast", null);
+
+        assertEquals(1, readUntilStreamEnds());
+        assertEquals(Http2ErrorCode.PROTOCOL_ERROR, resets.get(1));
+        assertEquals(3, readUntilStreamEnds());
+        assertEquals("200", statuses.get(3));
+    }
+
+    @Test
+    void testDetectsPreface() throws Exception {
+        BufferedInputStream preface = new BufferedInputStream(new ByteArrayInputStream(Http2Connection.PREFACE));
+        BufferedInputStream request = new BufferedInputStream(new ByteArrayInputStream(
+                "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+        assertTrue(Http2Connection.startsWithPreface(preface));
+        assertFalse(Http2Connection.startsWithPreface(request));
+        assertEquals('G', request.read(), "The input should be reset for HTTP/1.1 parsing");
+    }
+
+    @Test
+    void testUpgradesClearTextConnectionWithH2c() throws Exception {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        AtomicInteger connections = new AtomicInteger();
+        RequestProcessor processor = new RequestProcessor(this::handle, List.of());
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    new HttpConnectionWorkerThread(socket, processor, new Http2Configuration()).start();
+                }
+            } catch (IOException e) {
+                // Closed by tearDown.
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        release.countDown();
+
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        URI uri = URI.create("http://localhost:" + serverSocket.getLocalPort() + "/first");
+        java.net.http.HttpResponse<String> first = httpClient.send(
+                java.net.http.HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, first.version());
+        // The upgrade request is answered on stream 1 as it was parsed from HTTP/1.1.
+        assertTrue(first.body().startsWith("GET /first "), first.body());
+
+        List<CompletableFuture<java.net.http.HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(httpClient.sendAsync(java.net.http.HttpRequest.newBuilder(uri.resolve("/asset-" + i)).build(),
+                    BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < 6; i++) {
+            java.net.http.HttpResponse<String> response = responses.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            assertTrue(response.body().startsWith("GET /asset-" + i + " HTTP/2.0"), response.body());
+        }
+        assertEquals(1, connections.get(), "All requests should share the upgraded connection");
+    }
+
+    private HttpResponse handle(HttpRequest httpRequest) {
+        if (httpRequest.getRequestTarget().equals("/stream")) {
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+            httpResponse.setBody(new PublisherBody(httpRequest.getBodyPublisher()));
+            return httpResponse;
+        }
+        if (httpRequest.getRequestTarget().equals("/slow")) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String body = httpRequest.getMethod() + " " + httpRequest.getRequestTarget() + " "
+                + httpRequest.getOriginalHttpVersion() + " host=" + httpRequest.getHeader("Host") + " " + httpRequest.getBody();
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setHttpVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        httpResponse.setBody(body);
+        httpResponse.addHeader("Content-Type", "text/plain");
+        httpResponse.addHeader("Content-Length", String.valueOf(httpResponse.getBodyBytes().length));
+        httpResponse.addHeader("Connection", "close");
+        return httpResponse;
+    }
+
+    /**
+     * Starts a connection on the server side and sends the client preface and SETTINGS.
+     */
+    private void connect(Http2Configuration config, byte[] clientSettings) throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        RequestProcessor processor = new RequestProcessor(this::handle, List.of());
+        Thread server = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                new Http2Connection(socket.getInputStream(), socket.getOutputStream(), processor, config).serve();
+            } catch (IOException e) {
+                // The client went away.
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        client.setSoTimeout(10_000);
+        in = client.getInputStream();
+        out = client.getOutputStream();
+        out.write(Http2Connection.PREFACE);
+        writeFrame(Http2Frame.SETTINGS, 0, 0, clientSettings);
+    }
+
+    private void writeRequest(int streamId, String method, String path, String body) throws IOException {
+        writeRequestBytes(streamId, method, path, body == null ? null : body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeRequestBytes(int streamId, String method, String path, byte[] body) throws IOException {
+        byte[] block = encoder.encode(List.of(
+                Map.entry(":method", method), Map.entry(":scheme", "http"),
+                Map.entry(":path", path), Map.entry(":authority", "localhost")));
+        writeFrame(Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS | (body == null ? Http2Frame.FLAG_END_STREAM : 0), streamId, block);
+        if (body != null) {
+            writeFrame(Http2Frame.DATA, Http2Frame.FLAG_END_STREAM, streamId, body);
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+        out.write(Http2Frame.header(payload.length, type, flags, streamId));
+        out.write(payload);
+        out.flush();
+    }
+
+    /**
+     * Reads frames until a stream ends with END_STREAM or RST_STREAM, recording what
+     * each stream received.
+     *
+     * @return the stream that ended
+     */
+    private int readUntilStreamEnds() throws IOException {
+        while (true) {
+            Http2Frame frame = Http2Frame.read(in, 1 << 24);
+            assertNotNull(frame, "Connection closed before the stream ended");
+            int streamId = frame.getStreamId();
+            switch (frame.getType()) {
+                case Http2Frame.HEADERS:
+                    for (Map.Entry<String, String> field : decoder.decode(frame.getPayload())) {
+                        if (field.getKey().equals(":status")) {
+                            statuses.put(streamId, field.getValue());
+                        }
+                        assertNotEquals("connection", field.getKey(), "Connection headers must not be sent");
+                    }
+                    break;
+                case Http2Frame.DATA:
+                    bodies.computeIfAbsent(streamId, id -> new ByteArrayOutputStream()).writeBytes(frame.getPayload());
+                    break;
+                case Http2Frame.RST_STREAM:
+                    resets.put(streamId, Http2ErrorCode.of(Http2Frame.readInt(frame.getPayload(), 0)));
+                    if (statuses.containsKey(streamId)) {
+                        // NO_ERROR after a complete response.
+                        continue;
+                    }
+                    return streamId;
+                default:
+                    continue;
+            }
+            if (frame.hasFlag(Http2Frame.FLAG_END_STREAM)) {
+                return streamId;
+            }
+        }
+    }
+
+    private Http2Frame nextFrame(int type) throws IOException {
+        while (true) {
+            Http2Frame frame = Http2Frame.read(in, 1 << 24);
+            assertNotNull(frame, "Connection closed");
+            if (frame.getType() == type && !(type == Http2Frame.SETTINGS && frame.hasFlag(Http2Frame.FLAG_ACK))) {
+                return frame;
+            }
+            if (frame.getType() == Http2Frame.HEADERS) {
+                decoder.decode(frame.getPayload());
+            }
+        }
+    }
+
+    private String body(int streamId) {
+        return bodies.getOrDefault(streamId, new ByteArrayOutputStream()).toString(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] settings(int id, int value) {
+        return new Http2Settings().set(id, value).encode();
+    }
+
+    private static byte[] intPayload(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
@@ -0,0 +1,77 @@
+package com.httpserver.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2SettingsTest {
+
+    @Test
+    void testStartsWithProtocolDefaults() {
+        Http2Settings settings = new Http2Settings();
+
+        assertEquals(4096, settings.get(Http2Settings.HEADER_TABLE_SIZE));
+        assertEquals(1, settings.get(Http2Settings.ENABLE_PUSH));
+        assertEquals(65_535, settings.get(Http2Settings.INITIAL_WINDOW_SIZE));
+        assertEquals(16_384, settings.get(Http2Settings.MAX_FRAME_SIZE));
+        assertEquals(0, settings.encode().length);
+    }
+
+    @Test
+    void testEncodesOnlyExplicitSettings() {
+        Http2Settings settings = new Http2Settings()
+                .set(Http2Settings.MAX_CONCURRENT_STREAMS, 100)
+                .set(Http2Settings.ENABLE_PUSH, 0);
+
+        assertEquals("000200000000000300000064", HexFormat.of().formatHex(settings.encode()));
+    }
+
+    @Test
+    void testAppliesPayloadAndIgnoresUnknownSettings() throws Exception {
+        Http2Settings settings = new Http2Settings();
+
+        settings.apply(HexFormat.of().parseHex("000400100000" + "00ff00000001" + "000300000010"));
+
+        assertEquals(1_048_576, settings.get(Http2Settings.INITIAL_WINDOW_SIZE));
+        assertEquals(16, settings.get(Http2Settings.MAX_CONCURRENT_STREAMS));
+    }
+
+    @Test
+    void testCopyIsIndependent() throws Exception {
+        Http2Settings settings = new Http2Settings().set(Http2Settings.MAX_CONCURRENT_STREAMS, 100);
+
+        Http2Settings copy = settings.copy();
+        copy.apply(HexFormat.of().parseHex("000500008000"));
+
+        assertEquals(16_384, settings.get(Http2Settings.MAX_FRAME_SIZE));
+        assertEquals(32_768, copy.get(Http2Settings.MAX_FRAME_SIZE));
+        assertArrayEquals(settings.encode(), copy.encode());
+    }
+
+    @Test
+    void testRejectsInvalidValues() {
+        Http2Settings settings = new Http2Settings();
+
+        Http2Exception window = assertThrows(Http2Exception.class, () -> settings.apply(HexFormat.of().parseHex("000480000000")));
+        assertEquals(Http2ErrorCode.FLOW_CONTROL_ERROR, window.getErrorCode());
+        Http2Exception frameSize = assertThrows(Http2Exception.class, () -> settings.apply(HexFormat.of().parseHex("000500000100")));
+        assertEquals(Http2ErrorCode.PROTOCOL_ERROR, frameSize.getErrorCode());
+        Http2Exception push = assertThrows(Http2Exception.class, () -> settings.apply(HexFormat.of().parseHex("000200000002")));
+        assertEquals(Http2ErrorCode.PROTOCOL_ERROR, push.getErrorCode());
+        Http2Exception length = assertThrows(Http2Exception.class, () -> settings.apply(new byte[5]));
+        assertEquals(Http2ErrorCode.FRAME_SIZE_ERROR, length.getErrorCode());
+        assertThrows(IllegalArgumentException.class, () -> settings.set(7, 1));
+    }
+
+    @Test
+    void testDecodesUpgradeHeader() throws Exception {
+        byte[] payload = HexFormat.of().parseHex("000300000064000400010000");
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString(payload);
+
+        assertArrayEquals(payload, Http2Settings.decodeUpgradeHeader(header));
+        assertThrows(Http2Exception.class, () -> Http2Settings.decodeUpgradeHeader("not base64!"));
+    }
+}
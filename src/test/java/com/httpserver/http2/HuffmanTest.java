@@ -0,0 +1,66 @@
+package com.httpserver.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HuffmanTest {
+
+    @Test
+    void testEncodesRfcExamples() {
+        // RFC 7541, Appendix C.4.
+        assertEquals("f1e3c2e5f23a6ba0ab90f4ff", encode("www.example.com"));
+        assertEquals("a8eb10649cbf", encode("no-cache"));
+        assertEquals("25a849e95ba97d7f", encode("custom-key"));
+        assertEquals("25a849e95bb8e8b4bf", encode("custom-value"));
+    }
+
+    @Test
+    void testEncodedLengthMatchesEncoding() {
+        byte[] bytes = "Mon, 21 Oct 2013 20:13:21 GMT".getBytes(StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Huffman.encode(bytes, out);
+
+        assertEquals(out.size(), Huffman.encodedLength(bytes));
+    }
+
+    @Test
+    void testRoundTripsEveryByte() throws Exception {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Huffman.encode(bytes, out);
+        byte[] encoded = out.toByteArray();
+
+        assertArrayEquals(bytes, Huffman.decode(encoded, 0, encoded.length));
+    }
+
+    @Test
+    void testRejectsPaddingOfZeros() {
+        // "a" is 00011, so a final byte of 00011000 is padded with zeros instead of ones.
+        byte[] encoded = {0x18};
+
+        Http2Exception e = assertThrows(Http2Exception.class, () -> Huffman.decode(encoded, 0, 1));
+        assertEquals(Http2ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+    }
+
+    @Test
+    void testRejectsPaddingLongerThanSevenBits() {
+        // A whole byte of ones is padding longer than 7 bits.
+        byte[] encoded = {(byte) 0xf1, (byte) 0xff};
+
+        assertThrows(Http2Exception.class, () -> Huffman.decode(encoded, 0, 2));
+    }
+
+    private static String encode(String string) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Huffman.encode(string.getBytes(StandardCharsets.ISO_8859_1), out);
+        return HexFormat.of().formatHex(out.toByteArray());
+    }
+}
@@ -0,0 +1,123 @@
+package com.httpserver.middleware;
+
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionMiddlewareTest {
+
+    private static final String LARGE_BODY = "{\"items\":[" + "{\"id\":1,\"name\":\"item\"},".repeat(200) + "{}]}";
+
+    private CompressionMiddleware middleware;
+
+    @BeforeEach
+    void setUp() {
+        middleware = new CompressionMiddleware();
+    }
+
+    @Test
+    void testCompressesEligibleResponseWithGzip() throws IOException {
+        HttpResponse response = response("application/json; charset=utf-8", LARGE_BODY);
+
+        middleware.apply(request("gzip, deflate"), response);
+
+        byte[] encoded = response.getBodyBytes();
+        assertAll("Compressed response",
+                () -> assertEquals("gzip", response.getHeader("Content-Encoding")),
+                () -> assertEquals("Accept-Encoding", response.getHeader("Vary")),
+                () -> assertEquals(String.valueOf(encoded.length), response.getHeader("Content-Length")),
+                () -> assertEquals(1, middleware.getMetrics().getCompressedResponses()),
+                () -> assertTrue(middleware.getMetrics().getCompressionRatio() < 1.0)
+        );
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            assertEquals(LARGE_BODY, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testIdentityWhenClientDoesNotAcceptCompression() {
+        HttpResponse response = response("text/html", LARGE_BODY);
+
+        middleware.apply(request(null), response);
+
+        assertAll("Uncompressed response",
+                () -> assertNull(response.getHeader("Content-Encoding")),
+                () -> assertEquals("Accept-Encoding", response.getHeader("Vary")),
+                () -> assertEquals(LARGE_BODY, response.getBody()),
+                () -> assertEquals(1, middleware.getMetrics().getSkippedResponses())
+        );
+    }
+
+    @Test
+    void testSmallBodyIsNotCompressed() {
+        HttpResponse response = response("text/html", "<p>small</p>");
+
+        middleware.apply(request("gzip"), response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+    }
+
+    @Test
+    void testIncompressibleTypeIsNotCompressed() {
+        HttpResponse response = response("image/png", LARGE_BODY);
+
+        middleware.apply(request("gzip"), response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    void testExistingVaryAndEtagAreUpdated() {
+        HttpResponse response = response("text/plain", LARGE_BODY);
+        response.addHeader("Vary", "Origin");
+        response.addHeader("ETag", "\"abc\"");
+
+        middleware.apply(request("deflate"), response);
+
+        assertAll("Headers",
+                () -> assertEquals("deflate", response.getHeader("Content-Encoding")),
+                () -> assertEquals("Origin, Accept-Encoding", response.getHeader("Vary")),
+                () -> assertEquals("\"abc-deflate\"", response.getHeader("ETag"))
+        );
+    }
+
+    @Test
+    void testResponseWithoutRequestIsUnchanged() {
+        HttpResponse response = response("text/plain", LARGE_BODY);
+
+        middleware.apply(null, response);
+        middleware.apply(response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(LARGE_BODY, response.getBody());
+    }
+
+    private static HttpRequest request(String acceptEncoding) {
+        String raw = "GET / HTTP/1.1\r\nHost: localhost\r\n"
+                + (acceptEncoding != null ? "Accept-Encoding: " + acceptEncoding + "\r\n" : "")
+                + "\r\n";
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static HttpResponse response(String contentType, String body) {
+        HttpResponse response = new HttpResponse();
+        response.setHttpVersion(HttpVersion.HTTP_1_1);
+        response.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+        response.setBody(body);
+        response.addHeader("Content-Type", contentType);
+        response.addHeader("Content-Length", String.valueOf(response.getBodyBytes().length));
+        return response;
+    }
+}
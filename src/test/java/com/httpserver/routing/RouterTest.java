@@ -0,0 +1,244 @@
+package com.httpserver.routing;
+
+import com.httpserver.core.Handler;
+import com.httpserver.http.HttpMethod;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.http.HttpVersion;
+import com.httpserver.middleware.Middleware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router()
+                .get("/", named("root"))
+                .get("/users", named("users"))
+                .get("/users/new", named("new user"))
+                .get("/users/:id", named("user"))
+                .add(HttpMethod.DELETE, "/users/:id", named("delete user"))
+                .get("/users/:id/posts/:post", named("post"))
+                .get("/uploads", named("uploads"))
+                .get("/assets/*path", named("asset"))
+                .post("/search", named("search"));
+    }
+
+    @Test
+    void testMatchesStaticRoutesSharingPrefixes() {
+        assertEquals("/users", route(HttpMethod.GET, "/users"));
+        assertEquals("/uploads", route(HttpMethod.GET, "/uploads"));
+        assertEquals("/", route(HttpMethod.GET, "/"));
+        assertNull(router.match(HttpMethod.GET, "/user"));
+        assertNull(router.match(HttpMethod.GET, "/usersx"));
+    }
+
+    @Test
+    void testStaticSegmentsTakePrecedenceOverParameters() {
+        assertEquals("/users/new", route(HttpMethod.GET, "/users/new"));
+        assertEquals("/users/:id", route(HttpMethod.GET, "/users/newest"));
+    }
+
+    @Test
+    void testCapturesParameters() {
+        RouteMatch match = router.match(HttpMethod.GET, "/users/42/posts/hello%20world");
+
+        assertEquals("/users/:id/posts/:post", match.getRoute().getPattern());
+        assertEquals(Map.of("id", "42", "post", "hello world"), match.getParameters());
+        assertNull(router.match(HttpMethod.GET, "/users/42/posts/"));
+    }
+
+    @Test
+    void testWildcardCapturesRestOfPath() {
+        assertEquals(Map.of("path", "css/site.css"), router.match(HttpMethod.GET, "/assets/css/site.css").getParameters());
+        assertEquals(Map.of("path", ""), router.match(HttpMethod.GET, "/assets/").getParameters());
+        assertEquals(Map.of("path", "a+b"), router.match(HttpMethod.GET, "/assets/a+b").getParameters());
+        assertNull(router.match(HttpMethod.GET, "/assets"));
+    }
+
+    @Test
+    void testBacktracksFromStaticBranch() {
+        Router backtracking = new Router()
+                .get("/files/new/edit", named("edit new"))
+                .get("/files/:name", named("file"));
+
+        assertEquals(Map.of("name", "new"), backtracking.match(HttpMethod.GET, "/files/new").getParameters());
+        assertEquals("/files/new/edit", backtracking.match(HttpMethod.GET, "/files/new/edit").getRoute().getPattern());
+    }
+
+    @Test
+    void testMethodsAreMatchedPerRoute() {
+        assertEquals("/users/:id", route(HttpMethod.DELETE, "/users/7"));
+        assertEquals("/users/:id", route(HttpMethod.HEAD, "/users/7"));
+
+        RouteMatch match = router.match(HttpMethod.POST, "/users/7");
+        assertNull(match.getRoute());
+        assertEquals(Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.DELETE), match.getAllowedMethods());
+    }
+
+    @Test
+    void testHandlesRequests() throws Exception {
+        HttpResponse ok = router.handle(request("GET", "/users/7/posts/3?sort=asc"));
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, ok.getStatusCode());
+        assertEquals("post 7 3", ok.getBody());
+
+        HttpResponse notAllowed = router.handle(request("PUT", "/search"));
+        assertEquals(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED, notAllowed.getStatusCode());
+        assertEquals("POST", notAllowed.getHeader("Allow"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, router.handle(request("GET", "/missing")).getStatusCode());
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, router.handle(request("GET", "/users/%zz")).getStatusCode());
+    }
+
+    @Test
+    void testUnmatchedPathsGoToFallback() throws Exception {
+        Router withFallback = new Router(named("fallback")).get("/api/:version", named("api"));
+
+        assertEquals("fallback", withFallback.handle(request("GET", "/index.html")).getBody().split(" ")[0]);
+        assertEquals("api", withFallback.handle(request("GET", "/api/v1")).getBody().split(" ")[0]);
+    }
+
+    @Test
+    void testRejectsInvalidAndConflictingPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> router.get("users", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/users/:id", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/users/:name/profile", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/a:b", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/a/:/b", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/a/:x/:x", named("x")));
+        assertThrows(IllegalArgumentException.class, () -> router.get("/files/*path/more", named("x")));
+    }
+
+    @Test
+    void testManyRoutes() {
+        Router large = new Router();
+        for (int i = 0; i < 5000; i++) {
+            large.get("/api/v1/resource" + i + "/:id", named("r" + i));
+        }
+
+        for (int i = 0; i < 5000; i += 499) {
+            RouteMatch match = large.match(HttpMethod.GET, "/api/v1/resource" + i + "/x");
+            assertEquals("/api/v1/resource" + i + "/:id", match.getRoute().getPattern());
+        }
+        assertNull(large.match(HttpMethod.GET, "/api/v1/resource5000/x"));
+    }
+
+    @Test
+    void testMiddlewareIsCompiledPerRoute() throws Exception {
+        Middleware admin = header("X-Admin");
+        Middleware all = header("X-All");
+        Router scoped = new Router(named("fallback"))
+                .get("/admin/users", named("admin"))
+                .use(route -> route.getPattern().startsWith("/admin/"), admin)
+                .use(all)
+                .get("/public", named("public"));
+
+        assertEquals(List.of(admin, all), scoped.getRoutes().get(0).getMiddlewares());
+        assertEquals(List.of(all), scoped.getRoutes().get(1).getMiddlewares());
+
+        HttpResponse adminResponse = scoped.handle(request("GET", "/admin/users"));
+        assertEquals("true", adminResponse.getHeader("X-Admin"));
+        assertEquals("true", adminResponse.getHeader("X-All"));
+
+        HttpResponse publicResponse = scoped.handle(request("GET", "/public"));
+        assertNull(publicResponse.getHeader("X-Admin"));
+        assertEquals("true", publicResponse.getHeader("X-All"));
+
+        assertNull(scoped.handle(request("GET", "/other")).getHeader("X-All"));
+        assertThrows(IllegalArgumentException.class, () -> scoped.use(null));
+    }
+
+    @Test
+    void testMiddlewareCanAnswerInsteadOfRoute() throws Exception {
+        Router guarded = new Router().get("/secret", named("secret")).use(new Middleware() {
+            @Override
+            public HttpResponse before(HttpRequest request) {
+                if (request.getHeader("authorization") != null) {
+                    return null;
+                }
+                HttpResponse httpResponse = new HttpResponse();
+                httpResponse.setStatusCode(HttpStatusCode.CLIENT_ERROR_401_UNAUTHORIZED);
+                return httpResponse;
+            }
+
+            @Override
+            public void apply(HttpResponse response) {
+            }
+        });
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_401_UNAUTHORIZED, guarded.handle(request("GET", "/secret")).getStatusCode());
+        HttpRequest authorized = new HttpParser().buildHttpRequest("GET", "/secret", HttpVersion.HTTP_1_1,
+                Map.of("Authorization", "Bearer token"), "");
+        assertEquals("secret", guarded.handle(authorized).getBody());
+    }
+
+    @Test
+    void testTimeoutIsCompiledPerRouteAndSetOnRequest() throws Exception {
+        router.get("/reports/:id", request -> {
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+            httpResponse.setBody(String.valueOf(request.getRemainingNanos()));
+            return httpResponse;
+        });
+        router.timeout(route -> route.getPattern().startsWith("/reports"), Duration.ofMinutes(5))
+                .timeout(route -> route.getPattern().equals("/users"), Duration.ofSeconds(1))
+                .timeout(route -> route.getPattern().equals("/users"), Duration.ofSeconds(2));
+
+        assertEquals(Duration.ofMinutes(5), router.match(HttpMethod.GET, "/reports/1").getRoute().getTimeout());
+        assertEquals(Duration.ofSeconds(2), router.match(HttpMethod.GET, "/users").getRoute().getTimeout());
+        assertNull(router.match(HttpMethod.GET, "/users/new").getRoute().getTimeout());
+
+        long remaining = Long.parseLong(router.handle(request("GET", "/reports/1")).getBody());
+        assertTrue(remaining > Duration.ofMinutes(4).toNanos() && remaining <= Duration.ofMinutes(5).toNanos(), String.valueOf(remaining));
+        assertThrows(IllegalArgumentException.class, () -> router.timeout(route -> true, Duration.ZERO));
+    }
+
+    @Test
+    void testExpiredRouteDeadlineSkipsHandler() throws Exception {
+        Router strict = new Router().get("/health", request -> {
+            throw new AssertionError("handler must not run");
+        }).timeout(route -> true, Duration.ofNanos(1));
+
+        assertEquals(HttpStatusCode.SERVER_ERROR_503_SERVICE_UNAVAILABLE, strict.handle(request("GET", "/health")).getStatusCode());
+    }
+
+    private String route(HttpMethod method, String path) {
+        RouteMatch match = router.match(method, path);
+        assertNotNull(match, path);
+        return match.getRoute().getPattern();
+    }
+
+    private static HttpRequest request(String method, String target) throws Exception {
+        return new HttpParser().buildHttpRequest(method, target, HttpVersion.HTTP_1_1, Map.of(), "");
+    }
+
+    private static Middleware header(String name) {
+        return response -> response.addHeader(name, "true");
+    }
+
+    /**
+     * Answers with the given name followed by the path parameter values.
+     */
+    private static Handler named(String name) {
+        return request -> {
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.setStatusCode(HttpStatusCode.SUCCESS_200_OK);
+            StringBuilder body = new StringBuilder(name);
+            request.getPathParameters().values().forEach(value -> body.append(' ').append(value));
+            httpResponse.setBody(body.toString());
+            return httpResponse;
+        };
+    }
+}
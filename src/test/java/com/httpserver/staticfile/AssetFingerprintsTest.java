@@ -0,0 +1,132 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssetFingerprintsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private AssetFingerprints fingerprints;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = tempDir.toRealPath();
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(webroot.resolve("js"));
+        Files.writeString(webroot.resolve("js/app.js"), "console.log('hello');");
+        Files.writeString(webroot.resolve(".hidden.js"), "secret");
+        fingerprints = new AssetFingerprints(webroot, List.of("js", "css"), true);
+    }
+
+    @Test
+    void testFingerprintIsCrcOfContents() throws IOException {
+        FileMetadata metadata = FileMetadata.read(webroot, "/js/app.js", "index.html");
+        String etag = metadata.getETag();
+
+        String fingerprint = AssetFingerprints.of(metadata);
+
+        assertEquals(8, fingerprint.length());
+        assertTrue(etag.endsWith(fingerprint.replaceFirst("^0+", "") + "\""));
+    }
+
+    @Test
+    void testFingerprintOfFileTooLargeToHashComesFromModificationTime() throws IOException {
+        FileMetadata metadata = new FileMetadata(webroot.resolve("js/app.js"), EntityTags.MAX_HASHED_SIZE + 1,
+                FileTime.fromMillis(1_700_000_000_123L));
+
+        String fingerprint = AssetFingerprints.of(metadata);
+
+        assertEquals(8, fingerprint.length());
+        assertNotNull(fingerprints.parse(AssetFingerprints.fingerprintedPath("/js/app.js", fingerprint)));
+    }
+
+    @Test
+    void testFingerprintedPathInsertsBeforeExtension() {
+        assertEquals("/js/app.3f9a1c0b.js", AssetFingerprints.fingerprintedPath("/js/app.js", "3f9a1c0b"));
+        assertEquals("/js/app.min.3f9a1c0b.js", AssetFingerprints.fingerprintedPath("/js/app.min.js", "3f9a1c0b"));
+    }
+
+    @Test
+    void testParseSplitsFingerprint() {
+        AssetFingerprints.Fingerprinted parsed = fingerprints.parse("/js/app.min.3f9a1c0b.js");
+
+        assertEquals("/js/app.min.js", parsed.getPath());
+        assertEquals("3f9a1c0b", parsed.getFingerprint());
+    }
+
+    @Test
+    void testParseRejectsOtherPaths() {
+        assertAll("Not fingerprinted",
+                () -> assertNull(fingerprints.parse("/js/app.js")),
+                () -> assertNull(fingerprints.parse("/js/app.3f9a1c.js")),
+                () -> assertNull(fingerprints.parse("/js/app.3F9A1C0B.js")),
+                () -> assertNull(fingerprints.parse("/js/app.3f9a1c0g.js")),
+                () -> assertNull(fingerprints.parse("/js/.3f9a1c0b.js")),
+                () -> assertNull(fingerprints.parse("/page.3f9a1c0b.html")),
+                () -> assertNull(fingerprints.parse("/3f9a1c0b"))
+        );
+    }
+
+    @Test
+    void testIsFingerprintableByExtension() {
+        assertTrue(fingerprints.isFingerprintable("/css/site.CSS"));
+        assertFalse(fingerprints.isFingerprintable("/index.html"));
+        assertFalse(fingerprints.isFingerprintable("/js"));
+        assertFalse(fingerprints.isFingerprintable("/dir.js/file"));
+    }
+
+    @Test
+    void testManifestListsFingerprintableFiles() throws IOException {
+        String fingerprint = AssetFingerprints.of(FileMetadata.read(webroot, "/js/app.js", "index.html"));
+
+        String manifest = new String(fingerprints.manifest(this::read), StandardCharsets.UTF_8);
+
+        assertEquals("{\"/js/app.js\":\"/js/app." + fingerprint + ".js\"}", manifest);
+    }
+
+    @Test
+    void testManifestIsCachedUntilInvalidated() throws IOException {
+        byte[] first = fingerprints.manifest(this::read);
+        Files.writeString(webroot.resolve("js/other.js"), "2");
+
+        assertSame(first, fingerprints.manifest(this::read));
+        fingerprints.invalidate();
+        assertTrue(new String(fingerprints.manifest(this::read), StandardCharsets.UTF_8).contains("/js/other."));
+    }
+
+    @Test
+    void testUnwatchedManifestIsRebuiltOnlyWhenModificationTimesChange() throws IOException {
+        AssetFingerprints unwatched = new AssetFingerprints(webroot, List.of("js", "css"), false);
+        byte[] first = unwatched.manifest(this::read);
+        assertSame(first, unwatched.manifest(this::read));
+
+        Path app = webroot.resolve("js/app.js");
+        Files.writeString(app, "console.log('changed');");
+        Files.setLastModifiedTime(app, FileTime.fromMillis(Files.getLastModifiedTime(app).toMillis() + 10_000));
+        byte[] modified = unwatched.manifest(this::read);
+        assertNotSame(first, modified);
+        assertSame(modified, unwatched.manifest(this::read));
+
+        Path js = webroot.resolve("js");
+        Files.writeString(js.resolve("other.js"), "2");
+        Files.setLastModifiedTime(js, FileTime.fromMillis(Files.getLastModifiedTime(js).toMillis() + 10_000));
+        assertTrue(new String(unwatched.manifest(this::read), StandardCharsets.UTF_8).contains("/js/other."));
+    }
+
+    private FileMetadata read(String path) throws IOException {
+        return FileMetadata.read(webroot, path, "index.html");
+    }
+}
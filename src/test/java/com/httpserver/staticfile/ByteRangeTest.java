@@ -0,0 +1,54 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    void testParsesSingleRanges() {
+        assertAll("Single ranges",
+                () -> assertEquals(List.of(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 1000)),
+                () -> assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000)),
+                () -> assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000)),
+                () -> assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000)),
+                () -> assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("Bytes=990-2000", 1000))
+        );
+    }
+
+    @Test
+    void testMergesOverlappingAndAdjacentRanges() {
+        assertEquals(List.of(new ByteRange(0, 199), new ByteRange(500, 599)),
+                ByteRange.parse("bytes=500-599, 100-199, 0-50, 40-99", 1000));
+    }
+
+    @Test
+    void testUnsatisfiableRangesAreDropped() {
+        assertEquals(List.of(), ByteRange.parse("bytes=1000-1100", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=-0", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=0-", 0));
+        assertEquals(List.of(new ByteRange(0, 9)), ByteRange.parse("bytes=2000-, 0-9", 1000));
+    }
+
+    @Test
+    void testMalformedHeadersAreIgnored() {
+        assertAll("Ignored headers",
+                () -> assertNull(ByteRange.parse("items=0-1", 1000)),
+                () -> assertNull(ByteRange.parse("bytes=abc", 1000)),
+                () -> assertNull(ByteRange.parse("bytes=5-1", 1000)),
+                () -> assertNull(ByteRange.parse("bytes=-", 1000)),
+                () -> assertNull(ByteRange.parse("bytes=" + "0-0,".repeat(ByteRange.MAX_RANGES + 1), 1000))
+        );
+    }
+
+    @Test
+    void testContentRange() {
+        ByteRange range = new ByteRange(0, 499);
+
+        assertEquals(500, range.length());
+        assertEquals("bytes 0-499/1234", range.toContentRange(1234));
+    }
+}
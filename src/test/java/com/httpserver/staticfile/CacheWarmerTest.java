@@ -0,0 +1,157 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheWarmerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private Path hotPaths;
+    private StaticFileHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = Files.createDirectory(tempDir.resolve("www"));
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.writeString(webroot.resolve("app.js"), "console.log(1)");
+        Files.writeString(webroot.resolve("site.css"), "body{margin:0}");
+        hotPaths = tempDir.resolve("hot-paths.txt");
+        handler = new StaticFileHandler(webroot.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        handler.close();
+    }
+
+    @Test
+    void testSavesMostRequestedPathsFirst() throws IOException {
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 2);
+        for (int i = 0; i < 3; i++) {
+            handler.handle(request("/app.js"));
+        }
+        handler.handle(request("/site.css"));
+        handler.handle(request("/site.css"));
+        handler.handle(request("/"));
+        handler.handle(request("/missing.js"));
+
+        assertEquals(2, warmer.save());
+        assertEquals(List.of("/app.js", "/site.css"), Files.readAllLines(hotPaths));
+    }
+
+    @Test
+    void testSaveWithoutRequestsKeepsPreviousList() throws IOException {
+        Files.writeString(hotPaths, "/site.css\n");
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+
+        assertEquals(0, warmer.save());
+        assertEquals(List.of("/site.css"), Files.readAllLines(hotPaths));
+    }
+
+    @Test
+    void testCountsDecayBetweenSaves() throws IOException {
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+        for (int i = 0; i < 8; i++) {
+            warmer.record("/app.js");
+        }
+        warmer.save();
+        for (int i = 0; i < 6; i++) {
+            warmer.record("/site.css");
+        }
+
+        warmer.save();
+
+        // app.js decayed from 8 to 4, below site.css at 6.
+        assertEquals(List.of("/site.css", "/app.js"), Files.readAllLines(hotPaths));
+    }
+
+    @Test
+    void testWarmLoadsRecordedPathsIntoCaches() throws IOException {
+        Files.writeString(hotPaths, "/app.js\n/gone.js\n\n/\n");
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+
+        CacheWarmer.Report report = warmer.warm(Duration.ofSeconds(10));
+
+        assertAll("Warm-up report",
+                () -> assertEquals(4, report.getRecorded()),
+                () -> assertEquals(2, report.getWarmed()),
+                () -> assertEquals(14 + 13, report.getBytes()),
+                () -> assertFalse(report.isBudgetExhausted())
+        );
+        handler.handle(request("/app.js"));
+        assertEquals(1, handler.getHotAssetCache().getHits());
+        assertEquals(1, handler.getMetadataCache().getHits());
+    }
+
+    @Test
+    void testWarmStopsWhenBudgetIsSpent() throws IOException {
+        Files.writeString(hotPaths, "/app.js\n/site.css\n");
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+
+        CacheWarmer.Report report = warmer.warm(Duration.ZERO);
+
+        assertEquals(0, report.getWarmed());
+        assertTrue(report.isBudgetExhausted());
+        assertEquals(0, handler.getHotAssetCache().size());
+    }
+
+    @Test
+    void testWarmWithoutCachesDoesNothing() throws IOException {
+        Files.writeString(hotPaths, "/app.js\n/site.css\n");
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setCacheEnabled(false);
+        configuration.setMetadataCacheEnabled(false);
+        try (StaticFileHandler uncached = new StaticFileHandler(webroot.toString(), configuration)) {
+            CacheWarmer warmer = new CacheWarmer(uncached, hotPaths, 10);
+
+            CacheWarmer.Report report = warmer.warm(Duration.ofSeconds(10));
+
+            assertEquals(0, report.getWarmed());
+            assertFalse(report.isBudgetExhausted());
+        }
+    }
+
+    @Test
+    void testWarmWithoutRecordedPathsDoesNothing() {
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+
+        CacheWarmer.Report report = warmer.warm(Duration.ofSeconds(10));
+
+        assertEquals(0, report.getRecorded());
+        assertEquals(0, report.getWarmed());
+    }
+
+    @Test
+    void testCloseSavesRecordedPaths() throws IOException {
+        CacheWarmer warmer = new CacheWarmer(handler, hotPaths, 10);
+        warmer.start(3600);
+        handler.handle(request("/site.css"));
+
+        warmer.close();
+
+        assertEquals(List.of("/site.css"), Files.readAllLines(hotPaths));
+    }
+
+    private static HttpRequest request(String target) {
+        String raw = "GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,98 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityTagsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFileAndBufferTagsAgree() throws IOException {
+        byte[] content = "console.log('hello');".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(tempDir.resolve("app.js"), content);
+
+        String fromFile = EntityTags.compute(file, content.length);
+
+        assertEquals(fromFile, EntityTags.compute(ByteBuffer.wrap(content)));
+        assertTrue(fromFile.startsWith("\"" + Long.toHexString(content.length) + "-"));
+        assertTrue(fromFile.endsWith("\""));
+    }
+
+    @Test
+    void testDifferentContentsGiveDifferentTags() {
+        assertNotEquals(EntityTags.compute(ByteBuffer.wrap(new byte[]{1, 2, 3})),
+                EntityTags.compute(ByteBuffer.wrap(new byte[]{1, 2, 4})));
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        Path file = Files.createFile(tempDir.resolve("empty.txt"));
+
+        assertEquals(EntityTags.compute(ByteBuffer.allocate(0)), EntityTags.compute(file, 0));
+    }
+
+    @Test
+    void testRemembersTagOfFileVersion() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("site.css"), "body{color:red}");
+        FileTime modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(file, modified);
+        String first = EntityTags.of(file, 15, modified);
+
+        // Same size and time: the remembered tag is returned without reading the file.
+        Files.writeString(file, "body{color:red}".replace('r', 'R'));
+        Files.setLastModifiedTime(file, modified);
+        assertEquals(first, EntityTags.of(file, 15, modified));
+
+        FileTime touched = FileTime.from(Instant.parse("2024-01-02T00:00:00Z"));
+        Files.setLastModifiedTime(file, touched);
+        assertNotEquals(first, EntityTags.of(file, 15, touched));
+        assertEquals(EntityTags.compute(file, 15), EntityTags.of(file, 15, touched));
+    }
+
+    @Test
+    void testLargeFileTagComesFromSizeAndTime() throws IOException {
+        Path file = tempDir.resolve("video.bin");
+        try (RandomAccessFile sparse = new RandomAccessFile(file.toFile(), "rw")) {
+            sparse.setLength(EntityTags.MAX_HASHED_SIZE + 1);
+        }
+        FileTime modified = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+
+        String etag = EntityTags.of(file, EntityTags.MAX_HASHED_SIZE + 1, modified);
+
+        String validator = etag.substring(etag.indexOf('-') + 1, etag.length() - 1);
+        assertEquals(16, validator.length());
+        assertEquals(modified.to(TimeUnit.MICROSECONDS), Long.parseLong(validator, 16));
+        assertNotEquals(etag, EntityTags.of(file, EntityTags.MAX_HASHED_SIZE + 1, FileTime.from(Instant.parse("2024-01-02T00:00:00Z"))));
+    }
+
+    @Test
+    void testWeakMatch() {
+        assertAll("Weak comparison",
+                () -> assertTrue(EntityTags.weakMatch("\"a\"", "\"a\"")),
+                () -> assertTrue(EntityTags.weakMatch("W/\"a\"", "\"a\"")),
+                () -> assertTrue(EntityTags.weakMatch("\"b\", \"a\"", "\"a\"")),
+                () -> assertTrue(EntityTags.weakMatch(" * ", "\"a\"")),
+                () -> assertFalse(EntityTags.weakMatch("\"b\"", "\"a\""))
+        );
+    }
+
+    @Test
+    void testStrongMatch() {
+        assertTrue(EntityTags.strongMatch("\"a\"", "\"a\""));
+        assertFalse(EntityTags.strongMatch("W/\"a\"", "\"a\""));
+    }
+}
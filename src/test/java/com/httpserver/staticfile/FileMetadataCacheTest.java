@@ -0,0 +1,145 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMetadataCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private FileMetadataCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = tempDir.toRealPath();
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(webroot.resolve("js"));
+        Files.writeString(webroot.resolve("js/app.js"), "let a;");
+        cache = new FileMetadataCache(webroot, "index.html", 100, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cache.close();
+    }
+
+    @Test
+    void testRepeatedLookupIsServedFromCache() throws IOException {
+        FileMetadata first = cache.get("/js/app.js");
+        FileMetadata second = cache.get("/js/app.js");
+
+        assertSame(first, second);
+        assertEquals(6, second.getSize());
+        assertEquals(webroot.resolve("js/app.js"), second.getFile());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testDirectoryResolvesToIndexFile() throws IOException {
+        assertEquals(webroot.resolve("index.html"), cache.get("/").getFile());
+    }
+
+    @Test
+    void testMissingFilesAreNotCached() throws IOException {
+        assertNull(cache.get("/missing.css"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidateDropsPathsBelowChangedDirectory() throws IOException {
+        cache.get("/");
+        cache.get("/js/app.js");
+
+        cache.invalidate(webroot.resolve("js"));
+
+        assertEquals(1, cache.size());
+        cache.invalidate(webroot.resolve("index.html"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testWatcherInvalidatesModifiedFile() throws Exception {
+        cache.get("/js/app.js");
+
+        Files.writeString(webroot.resolve("js/app.js"), "let changed = true;");
+
+        awaitTrue(() -> cache.size() == 0);
+        assertEquals(19, cache.get("/js/app.js").getSize());
+    }
+
+    @Test
+    void testWatcherRegistersNewDirectories() throws Exception {
+        Path images = Files.createDirectory(webroot.resolve("images"));
+        Files.writeString(images.resolve("logo.svg"), "<svg/>");
+        awaitTrue(() -> {
+            try {
+                return cache.get("/images/logo.svg") != null;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+
+        Files.writeString(images.resolve("logo.svg"), "<svg></svg>");
+
+        awaitTrue(() -> cache.size() == 0);
+    }
+
+    @Test
+    void testReconcileDropsStaleEntries() throws IOException {
+        cache.close();
+        cache.get("/js/app.js");
+        cache.get("/index.html");
+
+        Files.delete(webroot.resolve("js/app.js"));
+        cache.reconcile();
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    void testSidecarChangeDropsItsSource() throws IOException {
+        cache.get("/js/app.js");
+        cache.get("/index.html");
+
+        cache.invalidate(webroot.resolve("js/app.js.gz"));
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("/index.html"));
+    }
+
+    @Test
+    void testReconcileDropsEntriesWhoseSidecarAppeared() throws IOException {
+        cache.close();
+        FileMetadata source = cache.get("/js/app.js");
+        source.setSidecar(null);
+
+        Path sidecar = Files.writeString(webroot.resolve("js/app.js.gz"), "gzip");
+        Files.setLastModifiedTime(sidecar, source.getLastModified());
+        cache.reconcile();
+
+        assertEquals(0, cache.size());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 10 seconds");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
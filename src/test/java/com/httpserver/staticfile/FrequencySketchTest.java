@@ -0,0 +1,48 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void testCountsIncrements() {
+        FrequencySketch sketch = new FrequencySketch(64);
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("/app.js");
+        }
+        sketch.increment("/other.css");
+
+        assertEquals(5, sketch.frequency("/app.js"));
+        assertEquals(1, sketch.frequency("/other.css"));
+        assertEquals(0, sketch.frequency("/never.html"));
+    }
+
+    @Test
+    void testCountersSaturate() {
+        FrequencySketch sketch = new FrequencySketch(64);
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("/app.js");
+        }
+
+        assertEquals(15, sketch.frequency("/app.js"));
+    }
+
+    @Test
+    void testCountersAgeAfterSample() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("/old.js");
+        }
+
+        // 16 slots give a sample of 160 increments, after which all counters halve.
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment("/key-" + i);
+        }
+
+        assertTrue(sketch.frequency("/old.js") < 8);
+    }
+}
@@ -0,0 +1,155 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotAssetCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSecondLookupIsAHit() throws IOException {
+        HotAssetCache cache = new HotAssetCache(1024, 1024);
+        Path file = write("app.js", 100);
+
+        ByteBuffer first = lookup(cache, file);
+        ByteBuffer second = lookup(cache, file);
+
+        assertAll("Cache statistics",
+                () -> assertEquals(100, first.remaining()),
+                () -> assertEquals(first, second),
+                () -> assertTrue(second.isReadOnly()),
+                () -> assertEquals(1, cache.getHits()),
+                () -> assertEquals(1, cache.getMisses()),
+                () -> assertEquals(0.5, cache.getHitRatio()),
+                () -> assertEquals(100, cache.getResidentBytes())
+        );
+    }
+
+    @Test
+    void testChangedFileIsReloaded() throws IOException {
+        HotAssetCache cache = new HotAssetCache(1024, 1024);
+        Path file = write("app.js", 100);
+        lookup(cache, file);
+
+        Files.writeString(file, "changed");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        ByteBuffer reloaded = lookup(cache, file);
+
+        assertEquals("changed", StandardCharsets.UTF_8.decode(reloaded).toString());
+        assertEquals(0, cache.getHits());
+        assertEquals(7, cache.getResidentBytes());
+    }
+
+    @Test
+    void testFilesAboveMaximumSizeAreNotCached() throws IOException {
+        HotAssetCache cache = new HotAssetCache(1024, 50);
+        Path file = write("video.mp4", 100);
+
+        assertNull(lookup(cache, file));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void testOneOffFileDoesNotEvictHotFiles() throws IOException {
+        HotAssetCache cache = new HotAssetCache(300, 300);
+        Path hot1 = write("hot1.css", 100);
+        Path hot2 = write("hot2.css", 100);
+        Path hot3 = write("hot3.css", 100);
+        for (int i = 0; i < 5; i++) {
+            lookup(cache, hot1);
+            lookup(cache, hot2);
+            lookup(cache, hot3);
+        }
+
+        assertNull(lookup(cache, write("once.zip", 200)));
+
+        assertAll("Hot set kept",
+                () -> assertEquals(3, cache.size()),
+                () -> assertEquals(1, cache.getRejections()),
+                () -> assertEquals(0, cache.getEvictions())
+        );
+    }
+
+    @Test
+    void testFrequentNewFileEvictsLeastRecentlyUsed() throws IOException {
+        HotAssetCache cache = new HotAssetCache(200, 200);
+        Path old1 = write("old1.css", 100);
+        Path old2 = write("old2.css", 100);
+        lookup(cache, old1);
+        lookup(cache, old2);
+        Path popular = write("popular.js", 100);
+
+        for (int i = 0; i < 4; i++) {
+            lookup(cache, popular);
+        }
+
+        // Rejected once while as rare as the victim, admitted on the second request, then hit twice.
+        assertAll("Admission after repeated requests",
+                () -> assertEquals(1, cache.getRejections()),
+                () -> assertEquals(1, cache.getEvictions()),
+                () -> assertEquals(2, cache.getHits()),
+                () -> assertEquals(200, cache.getResidentBytes())
+        );
+    }
+
+    @Test
+    void testPreloadFillsFreeSpaceWithoutEvicting() throws IOException {
+        HotAssetCache cache = new HotAssetCache(200, 200);
+        Path first = write("first.css", 100);
+        Path second = write("second.css", 100);
+        Path third = write("third.css", 100);
+
+        assertTrue(preload(cache, first));
+        assertTrue(preload(cache, second));
+        assertFalse(preload(cache, third));
+        assertFalse(preload(cache, first));
+
+        assertNotNull(lookup(cache, first));
+        assertAll("Preloaded entries",
+                () -> assertEquals(2, cache.size()),
+                () -> assertEquals(1, cache.getHits()),
+                () -> assertEquals(0, cache.getEvictions()),
+                () -> assertEquals(200, cache.getResidentBytes())
+        );
+    }
+
+    @Test
+    void testInvalidateAndClear() throws IOException {
+        HotAssetCache cache = new HotAssetCache(1024, 1024);
+        Path a = write("a.css", 10);
+        Path b = write("b.css", 20);
+        lookup(cache, a);
+        lookup(cache, b);
+
+        cache.invalidate(a);
+        assertEquals(20, cache.getResidentBytes());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getResidentBytes());
+    }
+
+    private Path write(String name, int size) throws IOException {
+        return Files.write(tempDir.resolve(name), "x".repeat(size).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean preload(HotAssetCache cache, Path file) throws IOException {
+        return cache.preload(file, Files.size(file), Files.getLastModifiedTime(file));
+    }
+
+    private static ByteBuffer lookup(HotAssetCache cache, Path file) throws IOException {
+        return cache.get(file, Files.size(file), Files.getLastModifiedTime(file));
+    }
+}
@@ -0,0 +1,45 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinimalPerfectHashTest {
+
+    @Test
+    void testKeysMapToDistinctSlots() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add("/assets/" + (i % 50) + "/file-" + i + ".js");
+        }
+
+        int[] seeds = MinimalPerfectHash.build(keys);
+
+        assertEquals(MinimalPerfectHash.bucketCount(keys.size()), seeds.length);
+        Set<Integer> slots = new HashSet<>();
+        for (String key : keys) {
+            long hash = MinimalPerfectHash.hash(key);
+            int slot = MinimalPerfectHash.slot(hash, seeds[MinimalPerfectHash.bucket(hash, seeds.length)], keys.size());
+            assertTrue(slot >= 0 && slot < keys.size());
+            assertTrue(slots.add(slot), "Slot used twice: " + slot);
+        }
+    }
+
+    @Test
+    void testSingleKey() {
+        int[] seeds = MinimalPerfectHash.build(List.of("/index.html"));
+
+        long hash = MinimalPerfectHash.hash("/index.html");
+        assertEquals(0, MinimalPerfectHash.slot(hash, seeds[MinimalPerfectHash.bucket(hash, seeds.length)], 1));
+    }
+
+    @Test
+    void testEmptyKeySet() {
+        assertEquals(1, MinimalPerfectHash.build(List.of()).length);
+    }
+}
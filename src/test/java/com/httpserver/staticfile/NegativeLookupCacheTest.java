@@ -0,0 +1,153 @@
+package com.httpserver.staticfile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NegativeLookupCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private NegativeLookupCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = Files.createDirectory(tempDir.resolve("www")).toRealPath();
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(webroot.resolve("css"));
+        Files.writeString(webroot.resolve("css/site.css"), "body{margin:0}");
+        cache = new NegativeLookupCache(webroot, 2);
+        cache.rebuild();
+    }
+
+    @Test
+    void testExistingPathsAreNeverReportedMissing() {
+        assertFalse(cache.isKnownMissing("/"));
+        assertFalse(cache.isKnownMissing("/index.html"));
+        assertFalse(cache.isKnownMissing("/css"));
+        assertFalse(cache.isKnownMissing("/css/"));
+        assertFalse(cache.isKnownMissing("/css/site.css"));
+    }
+
+    @Test
+    void testUnknownPathsAreRejectedByFilter() {
+        assertTrue(cache.isKnownMissing("/wp-login.php"));
+        assertTrue(cache.isKnownMissing("/css/site.css.gz"));
+        assertEquals(2, cache.getFilterRejections());
+    }
+
+    @Test
+    void testNothingIsMissingBeforeScan() {
+        NegativeLookupCache unscanned = new NegativeLookupCache(webroot, 2);
+
+        assertFalse(unscanned.isKnownMissing("/wp-login.php"));
+    }
+
+    @Test
+    void testRecordedMissIsRemembered() throws IOException {
+        Files.delete(webroot.resolve("index.html"));
+
+        assertFalse(cache.isKnownMissing("/index.html"));
+        cache.recordMiss("/index.html", cache.stamp());
+
+        assertTrue(cache.isKnownMissing("/index.html"));
+        assertEquals(1, cache.getRecentMissHits());
+    }
+
+    @Test
+    void testMissIsNotRecordedAfterConcurrentChange() {
+        long stamp = cache.stamp();
+        cache.onChange(webroot.resolve("css/site.css"));
+        cache.recordMiss("/index.html", stamp);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRecentMissesAreBounded() {
+        cache.recordMiss("/a", cache.stamp());
+        cache.recordMiss("/b", cache.stamp());
+        cache.recordMiss("/c", cache.stamp());
+
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testCreatedFileIsAddedToFilter() throws IOException {
+        assertTrue(cache.isKnownMissing("/css/print.css"));
+
+        Files.writeString(webroot.resolve("css/print.css"), "@page{}");
+        cache.onChange(webroot.resolve("css/print.css"));
+
+        assertFalse(cache.isKnownMissing("/css/print.css"));
+    }
+
+    @Test
+    void testCreatedDirectoryIsScanned() throws IOException {
+        Files.createDirectories(webroot.resolve("js/vendor"));
+        Files.writeString(webroot.resolve("js/vendor/lib.js"), "1");
+        cache.onChange(webroot.resolve("js"));
+
+        assertFalse(cache.isKnownMissing("/js/"));
+        assertFalse(cache.isKnownMissing("/js/vendor/lib.js"));
+    }
+
+    @Test
+    void testChangeForgetsMissesInDirectory() throws IOException {
+        Files.delete(webroot.resolve("index.html"));
+        cache.recordMiss("/index.html", cache.stamp());
+        cache.recordMiss("/", cache.stamp());
+
+        Files.writeString(webroot.resolve("index.html"), "<h1>back</h1>");
+        cache.onChange(webroot.resolve("index.html"));
+
+        assertFalse(cache.isKnownMissing("/index.html"));
+        assertFalse(cache.isKnownMissing("/"));
+    }
+
+    @Test
+    void testChangeKeepsMissesInOtherDirectories() throws IOException {
+        Files.createDirectory(webroot.resolve("img"));
+        cache.onChange(webroot.resolve("img"));
+        Files.delete(webroot.resolve("css/site.css"));
+        cache.recordMiss("/css/site.css", cache.stamp());
+
+        Files.writeString(webroot.resolve("img/logo.png"), "png");
+        cache.onChange(webroot.resolve("img/logo.png"));
+
+        assertTrue(cache.isKnownMissing("/css/site.css"));
+    }
+
+    @Test
+    void testWebrootChangeRescans() throws IOException {
+        Files.writeString(webroot.resolve("late.txt"), "late");
+
+        cache.onChange(webroot);
+
+        assertFalse(cache.isKnownMissing("/late.txt"));
+        assertEquals(2, cache.getRebuilds());
+    }
+
+    @Test
+    void testPathsBelowSymbolicLinkedDirectoryGoToDisk() throws IOException {
+        Path target = Files.createDirectory(tempDir.resolve("shared"));
+        try {
+            Files.createSymbolicLink(webroot.resolve("linked"), target);
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Symbolic links are not supported");
+        }
+        cache.rebuild();
+
+        assertFalse(cache.isKnownMissing("/linked/"));
+        assertFalse(cache.isKnownMissing("/linked/anything.txt"));
+    }
+}
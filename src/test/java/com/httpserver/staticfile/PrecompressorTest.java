@@ -0,0 +1,91 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.config.CompressionConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecompressorTest {
+
+    private static final String SCRIPT = "function hello() { return 'hello world'; }\n".repeat(100);
+
+    @TempDir
+    Path webroot;
+
+    private Precompressor precompressor;
+
+    @BeforeEach
+    void setUp() {
+        precompressor = new Precompressor(webroot, new CompressionConfiguration());
+    }
+
+    @Test
+    void testWritesSidecarWithSourceModificationTime() throws IOException {
+        Path source = Files.writeString(webroot.resolve("app.js"), SCRIPT);
+
+        assertTrue(precompressor.precompress(source));
+
+        Path sidecar = webroot.resolve("app.js.gz");
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(sidecar));
+        assertTrue(Files.size(sidecar) < Files.size(source));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(sidecar))) {
+            assertEquals(SCRIPT, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testSidecarInSyncIsNotRewritten() throws IOException {
+        Path source = Files.writeString(webroot.resolve("app.js"), SCRIPT);
+        precompressor.precompress(source);
+
+        assertFalse(precompressor.precompress(source));
+    }
+
+    @Test
+    void testChangedSourceIsRecompressed() throws IOException {
+        Path source = Files.writeString(webroot.resolve("app.js"), SCRIPT);
+        precompressor.precompress(source);
+
+        Files.writeString(source, SCRIPT + SCRIPT);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 2000));
+
+        assertTrue(precompressor.precompress(source));
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(webroot.resolve("app.js.gz")));
+    }
+
+    @Test
+    void testIneligibleFilesGetNoSidecar() throws IOException {
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        Files.write(webroot.resolve("photo.png"), random);
+        Files.writeString(webroot.resolve("tiny.css"), "a{}");
+        Files.writeString(webroot.resolve(".secret.js"), SCRIPT);
+        Files.write(webroot.resolve("noise.txt"), random);
+
+        assertEquals(0, precompressor.precompressAll());
+        try (var files = Files.list(webroot)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".gz")));
+        }
+    }
+
+    @Test
+    void testPrecompressAllWalksSubdirectories() throws IOException {
+        Files.createDirectories(webroot.resolve("js/vendor"));
+        Files.writeString(webroot.resolve("index.html"), "<p>hello</p>\n".repeat(200));
+        Files.writeString(webroot.resolve("js/vendor/lib.js"), SCRIPT);
+
+        assertEquals(2, precompressor.precompressAll());
+        assertTrue(Files.exists(webroot.resolve("js/vendor/lib.js.gz")));
+    }
+}
@@ -0,0 +1,148 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.config.CompressionConfiguration;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticBundleHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private StaticBundleHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = Files.createDirectory(tempDir.resolve("www")).toRealPath();
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(webroot.resolve("css"));
+        Files.writeString(webroot.resolve("css/site.css"), "body{margin:0}");
+        Files.writeString(webroot.resolve("app.js"), "console.log('hello');\n".repeat(200));
+        Path bundle = tempDir.resolve("site.bundle");
+        new StaticBundlePacker(webroot, "index.html", new CompressionConfiguration()).pack(bundle);
+        handler = new StaticBundleHandler(StaticBundle.open(bundle));
+    }
+
+    @Test
+    void testServesFileLikeFileHandler() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css"));
+        HttpResponse expected;
+        try (StaticFileHandler fileHandler = new StaticFileHandler(webroot.toString())) {
+            expected = fileHandler.handle(request("GET", "/css/site.css"));
+        }
+
+        assertAll("Bundle response",
+                () -> assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode()),
+                () -> assertEquals(expected.getHeader("Content-Type"), response.getHeader("Content-Type")),
+                () -> assertEquals(expected.getHeader("Content-Length"), response.getHeader("Content-Length")),
+                () -> assertEquals(expected.getHeader("ETag"), response.getHeader("ETag")),
+                () -> assertEquals(expected.getHeader("Last-Modified"), response.getHeader("Last-Modified")),
+                () -> assertEquals("bytes", response.getHeader("Accept-Ranges"))
+        );
+        assertEquals("body{margin:0}", bodyOf(response));
+    }
+
+    @Test
+    void testServesIndexFileForDirectory() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/?utm=1"));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+        assertEquals("<h1>home</h1>", bodyOf(response));
+    }
+
+    @Test
+    void testMissingAndHiddenPathsAreNotFound() {
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/missing.css")).getStatusCode());
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/.env")).getStatusCode());
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, handler.handle(request("GET", "/../etc/passwd")).getStatusCode());
+    }
+
+    @Test
+    void testUnsupportedMethodIsNotAllowed() {
+        HttpResponse response = handler.handle(request("DELETE", "/index.html"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED, response.getStatusCode());
+        assertEquals("GET, HEAD", response.getHeader("Allow"));
+    }
+
+    @Test
+    void testMatchingETagIsNotModified() {
+        String etag = handler.handle(request("GET", "/css/site.css")).getHeader("ETag");
+
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "If-None-Match: " + etag));
+
+        assertEquals(HttpStatusCode.REDIRECTION_304_NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getResponseBody());
+        assertEquals(1, handler.getNotModifiedResponses());
+    }
+
+    @Test
+    void testServesGzipVariantWhenAccepted() {
+        HttpResponse gzip = handler.handle(request("GET", "/app.js", "Accept-Encoding: gzip"));
+        HttpResponse identity = handler.handle(request("GET", "/app.js"));
+
+        assertEquals("gzip", gzip.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeader("Vary"));
+        assertNotEquals(identity.getHeader("ETag"), gzip.getHeader("ETag"));
+        assertTrue(Long.parseLong(gzip.getHeader("Content-Length")) < Long.parseLong(identity.getHeader("Content-Length")));
+        assertNull(identity.getHeader("Content-Encoding"));
+        assertEquals(1, handler.getPrecompressedResponses());
+    }
+
+    @Test
+    void testRangeRequest() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/app.js", "Accept-Encoding: gzip", "Range: bytes=0-6"));
+
+        assertEquals(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT, response.getStatusCode());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("bytes 0-6/4400", response.getHeader("Content-Range"));
+        assertEquals("console", bodyOf(response));
+    }
+
+    @Test
+    void testUnsatisfiableRange() {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "Range: bytes=100-"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_416_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */14", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testHeadHasLengthButNoBody() {
+        HttpResponse response = handler.handle(request("HEAD", "/index.html"));
+
+        assertEquals("13", response.getHeader("Content-Length"));
+        assertNull(response.getResponseBody());
+    }
+
+    private static HttpRequest request(String method, String target, String... headers) {
+        StringBuilder raw = new StringBuilder(method + " " + target + " HTTP/1.1\r\nHost: localhost\r\n");
+        for (String header : headers) {
+            raw.append(header).append("\r\n");
+        }
+        raw.append("\r\n");
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(raw.toString().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String bodyOf(HttpResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getResponseBody().writeTo(Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
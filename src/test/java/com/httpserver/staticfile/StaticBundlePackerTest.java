@@ -0,0 +1,137 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.config.CompressionConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticBundlePackerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private Path bundleFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = Files.createDirectory(tempDir.resolve("www")).toRealPath();
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectories(webroot.resolve("docs"));
+        Files.writeString(webroot.resolve("docs/index.html"), "<h1>docs</h1>");
+        Files.writeString(webroot.resolve("app.js"), "console.log('hello');\n".repeat(200));
+        Files.writeString(webroot.resolve(".env"), "SECRET=1");
+        bundleFile = tempDir.resolve("site.bundle");
+    }
+
+    @Test
+    void testPacksFilesAndDirectoryAliases() throws IOException {
+        int paths = pack();
+
+        StaticBundle bundle = StaticBundle.open(bundleFile);
+        assertEquals(6, paths);
+        assertEquals(6, bundle.size());
+        assertEquals("<h1>home</h1>", text(bundle.lookup("/").getBody()));
+        assertEquals("<h1>docs</h1>", text(bundle.lookup("/docs").getBody()));
+        assertEquals("<h1>docs</h1>", text(bundle.lookup("/docs/").getBody()));
+    }
+
+    @Test
+    void testCommandLineUsesGivenConfigurationFiles() throws IOException {
+        Files.writeString(webroot.resolve("home.html"), "<h1>other home</h1>");
+        Path staticFiles = Files.writeString(tempDir.resolve("static-files.json"), "{\"indexFile\": \"home.html\"}");
+        Path compression = Files.writeString(tempDir.resolve("compression.json"),
+                "{\"minimumSize\": 1048576, \"mimeTypes\": [\"text/\", \"application/javascript\"]}");
+
+        StaticBundlePacker.main(new String[]{webroot.toString(), bundleFile.toString(), staticFiles.toString(), compression.toString()});
+
+        StaticBundle bundle = StaticBundle.open(bundleFile);
+        assertEquals("<h1>other home</h1>", text(bundle.lookup("/").getBody()));
+        assertNull(bundle.lookup("/app.js").getGzipBody(), "File below the configured minimum size was compressed");
+    }
+
+    @Test
+    void testCommandLineDefaultsToServerConfiguration() throws IOException {
+        StaticBundlePacker.main(new String[]{webroot.toString(), bundleFile.toString()});
+
+        StaticBundle bundle = StaticBundle.open(bundleFile);
+        assertEquals("<h1>home</h1>", text(bundle.lookup("/").getBody()));
+        assertNotNull(bundle.lookup("/app.js").getGzipBody());
+    }
+
+    @Test
+    void testUnknownAndHiddenPathsAreMissing() throws IOException {
+        pack();
+
+        StaticBundle bundle = StaticBundle.open(bundleFile);
+        assertNull(bundle.lookup("/.env"));
+        assertNull(bundle.lookup("/missing.js"));
+        assertNull(bundle.lookup("/app.j"));
+        assertNull(bundle.lookup("/cafè.txt"));
+    }
+
+    @Test
+    void testPrecomputesHeaders() throws IOException {
+        pack();
+
+        StaticBundle.Asset asset = StaticBundle.open(bundleFile).lookup("/index.html");
+        assertAll("Precomputed headers",
+                () -> assertEquals("text/html; charset=utf-8", asset.getContentType()),
+                () -> assertEquals(EntityTags.compute(webroot.resolve("index.html"), 13), asset.getETag()),
+                () -> assertEquals(Files.getLastModifiedTime(webroot.resolve("index.html")).toInstant().toEpochMilli(),
+                        asset.getLastModifiedInstant().toEpochMilli()),
+                () -> assertNull(asset.getGzipBody())
+        );
+    }
+
+    @Test
+    void testCompressibleFilesGetGzipVariant() throws IOException {
+        pack();
+
+        StaticBundle.Asset asset = StaticBundle.open(bundleFile).lookup("/app.js");
+        ByteBuffer gzip = asset.getGzipBody();
+        assertNotNull(gzip);
+        assertTrue(gzip.remaining() < asset.getBody().remaining());
+        assertNotEquals(asset.getETag(), asset.getGzipETag());
+        byte[] compressed = new byte[gzip.remaining()];
+        gzip.get(compressed);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(text(asset.getBody()), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testEmptyWebroot() throws IOException {
+        Path empty = Files.createDirectory(tempDir.resolve("empty"));
+        new StaticBundlePacker(empty, "index.html", new CompressionConfiguration()).pack(bundleFile);
+
+        StaticBundle bundle = StaticBundle.open(bundleFile);
+        assertEquals(0, bundle.size());
+        assertNull(bundle.lookup("/"));
+    }
+
+    @Test
+    void testRejectsFileThatIsNotABundle() throws IOException {
+        Files.writeString(bundleFile, "not a bundle at all");
+
+        assertThrows(IOException.class, () -> StaticBundle.open(bundleFile));
+    }
+
+    private int pack() throws IOException {
+        return new StaticBundlePacker(webroot, "index.html", new CompressionConfiguration()).pack(bundleFile);
+    }
+
+    private static String text(ByteBuffer body) {
+        return StandardCharsets.UTF_8.decode(body.duplicate()).toString();
+    }
+}
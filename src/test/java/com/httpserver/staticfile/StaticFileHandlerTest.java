@@ -0,0 +1,485 @@
+package com.httpserver.staticfile;
+
+import com.httpserver.config.CompressionConfiguration;
+import com.httpserver.config.StaticFileConfiguration;
+import com.httpserver.http.ByteBufferBody;
+import com.httpserver.http.FileRegionBody;
+import com.httpserver.http.HttpParser;
+import com.httpserver.http.HttpRequest;
+import com.httpserver.http.HttpResponse;
+import com.httpserver.http.HttpStatusCode;
+import com.httpserver.utils.HttpDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class StaticFileHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path webroot;
+    private StaticFileHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webroot = Files.createDirectory(tempDir.resolve("www"));
+        Files.writeString(webroot.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(webroot.resolve("css"));
+        Files.writeString(webroot.resolve("css/site.css"), "body{margin:0}");
+        Files.writeString(webroot.resolve(".env"), "SECRET=1");
+        Files.writeString(tempDir.resolve("outside.txt"), "outside");
+        handler = new StaticFileHandler(webroot.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        handler.close();
+    }
+
+    @Test
+    void testServesFileWithTypeAndLength() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css"));
+
+        assertAll("File response",
+                () -> assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode()),
+                () -> assertEquals("text/css; charset=utf-8", response.getHeader("Content-Type")),
+                () -> assertEquals("14", response.getHeader("Content-Length")),
+                () -> assertInstanceOf(ByteBufferBody.class, response.getResponseBody())
+        );
+        assertEquals("body{margin:0}", bodyOf(response));
+    }
+
+    @Test
+    void testRepeatedRequestsAreServedFromCache() throws IOException {
+        handler.handle(request("GET", "/css/site.css"));
+        HttpResponse response = handler.handle(request("GET", "/css/site.css"));
+
+        assertEquals("body{margin:0}", bodyOf(response));
+        assertEquals(1, handler.getHotAssetCache().getHits());
+        assertEquals(14, handler.getHotAssetCache().getResidentBytes());
+        assertEquals(1, handler.getMetadataCache().getHits());
+    }
+
+    @Test
+    void testSendsFileRegionWhenCacheDisabled() throws IOException {
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setCacheEnabled(false);
+        configuration.setMetadataCacheEnabled(false);
+        try (StaticFileHandler uncached = new StaticFileHandler(webroot.toString(), configuration)) {
+            HttpResponse response = uncached.handle(request("GET", "/css/site.css"));
+
+            assertInstanceOf(FileRegionBody.class, response.getResponseBody());
+            assertNull(uncached.getHotAssetCache());
+            assertNull(uncached.getMetadataCache());
+            assertEquals("body{margin:0}", bodyOf(response));
+        }
+    }
+
+    @Test
+    void testResponseCarriesValidators() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css"));
+
+        assertEquals(EntityTags.compute(webroot.resolve("css/site.css"), 14), response.getHeader("ETag"));
+        assertEquals(HttpDate.format(Files.getLastModifiedTime(webroot.resolve("css/site.css")).toInstant()),
+                response.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void testMatchingIfNoneMatchIsNotModified() {
+        String etag = handler.handle(request("GET", "/css/site.css")).getHeader("ETag");
+
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "If-None-Match: \"other\", W/" + etag));
+
+        assertAll("Not modified response",
+                () -> assertEquals(HttpStatusCode.REDIRECTION_304_NOT_MODIFIED, response.getStatusCode()),
+                () -> assertEquals(etag, response.getHeader("ETag")),
+                () -> assertNull(response.getResponseBody()),
+                () -> assertNull(response.getHeader("Content-Length")),
+                () -> assertEquals(1, handler.getNotModifiedResponses())
+        );
+    }
+
+    @Test
+    void testIfModifiedSinceIsEvaluated() throws IOException {
+        Instant modified = Files.getLastModifiedTime(webroot.resolve("css/site.css")).toInstant();
+
+        HttpResponse current = handler.handle(request("GET", "/css/site.css", "If-Modified-Since: " + HttpDate.format(modified)));
+        HttpResponse stale = handler.handle(request("GET", "/css/site.css",
+                "If-Modified-Since: " + HttpDate.format(modified.minusSeconds(60))));
+
+        assertEquals(HttpStatusCode.REDIRECTION_304_NOT_MODIFIED, current.getStatusCode());
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, stale.getStatusCode());
+    }
+
+    @Test
+    void testIfNoneMatchTakesPrecedenceOverIfModifiedSince() throws IOException {
+        Instant modified = Files.getLastModifiedTime(webroot.resolve("css/site.css")).toInstant();
+
+        HttpResponse response = handler.handle(request("GET", "/css/site.css",
+                "If-None-Match: \"outdated\"", "If-Modified-Since: " + HttpDate.format(modified)));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+    }
+
+    @Test
+    void testSingleRangeIsPartialContent() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "Range: bytes=5-9"));
+
+        assertAll("Partial content",
+                () -> assertEquals(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT, response.getStatusCode()),
+                () -> assertEquals("bytes 5-9/14", response.getHeader("Content-Range")),
+                () -> assertEquals("5", response.getHeader("Content-Length")),
+                () -> assertEquals("text/css; charset=utf-8", response.getHeader("Content-Type"))
+        );
+        assertEquals("margi", bodyOf(response));
+    }
+
+    @Test
+    void testRangeOfUncachedFileIsFileRegion() throws IOException {
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setCacheEnabled(false);
+        try (StaticFileHandler uncached = new StaticFileHandler(webroot.toString(), configuration)) {
+            HttpResponse response = uncached.handle(request("GET", "/css/site.css", "Range: bytes=-4"));
+
+            FileRegionBody body = assertInstanceOf(FileRegionBody.class, response.getResponseBody());
+            assertEquals(10, body.getPosition());
+            assertEquals("n:0}", bodyOf(response));
+        }
+    }
+
+    @Test
+    void testMultipleRangesAreMultipart() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "Range: bytes=0-3, 10-"));
+
+        String contentType = response.getHeader("Content-Type");
+        assertEquals(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT, response.getStatusCode());
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String expected = "--" + boundary + "\r\n"
+                + "Content-Type: text/css; charset=utf-8\r\n"
+                + "Content-Range: bytes 0-3/14\r\n\r\n"
+                + "body"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/css; charset=utf-8\r\n"
+                + "Content-Range: bytes 10-13/14\r\n\r\n"
+                + "n:0}"
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, bodyOf(response));
+        assertEquals(String.valueOf(expected.length()), response.getHeader("Content-Length"));
+    }
+
+    @Test
+    void testUnsatisfiableRange() {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "Range: bytes=100-"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_416_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */14", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testIfRangeMustMatchCurrentVersion() {
+        String etag = handler.handle(request("GET", "/css/site.css")).getHeader("ETag");
+
+        HttpResponse matching = handler.handle(request("GET", "/css/site.css", "Range: bytes=0-3", "If-Range: " + etag));
+        HttpResponse outdated = handler.handle(request("GET", "/css/site.css", "Range: bytes=0-3", "If-Range: \"old\""));
+        HttpResponse weak = handler.handle(request("GET", "/css/site.css", "Range: bytes=0-3", "If-Range: W/" + etag));
+
+        assertEquals(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT, matching.getStatusCode());
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, outdated.getStatusCode());
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, weak.getStatusCode());
+    }
+
+    @Test
+    void testMalformedRangeServesWholeFile() {
+        HttpResponse response = handler.handle(request("GET", "/css/site.css", "Range: lines=1-2"));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+    }
+
+    @Test
+    void testServesSidecarWhenGzipAccepted() throws Exception {
+        String script = "console.log('hello');\n".repeat(200);
+        Path source = Files.writeString(webroot.resolve("app.js"), script);
+        new Precompressor(webroot.toRealPath(), new CompressionConfiguration()).precompress(source);
+        awaitIndexed("/app.js", "/app.js.gz");
+
+        HttpResponse gzip = handler.handle(request("GET", "/app.js", "Accept-Encoding: gzip, deflate"));
+        HttpResponse identity = handler.handle(request("GET", "/app.js"));
+
+        assertAll("Precompressed response",
+                () -> assertEquals("gzip", gzip.getHeader("Content-Encoding")),
+                () -> assertEquals("Accept-Encoding", gzip.getHeader("Vary")),
+                () -> assertEquals("application/javascript; charset=utf-8", gzip.getHeader("Content-Type")),
+                () -> assertEquals(String.valueOf(Files.size(webroot.resolve("app.js.gz"))), gzip.getHeader("Content-Length")),
+                () -> assertNotEquals(identity.getHeader("ETag"), gzip.getHeader("ETag")),
+                () -> assertNull(identity.getHeader("Content-Encoding")),
+                () -> assertEquals("Accept-Encoding", identity.getHeader("Vary")),
+                () -> assertEquals(1, handler.getPrecompressedResponses())
+        );
+        assertEquals(script, bodyOf(identity));
+    }
+
+    @Test
+    void testStaleSidecarIsNotServed() throws Exception {
+        Path source = Files.writeString(webroot.resolve("app.js"), "console.log('hello');\n".repeat(200));
+        new Precompressor(webroot.toRealPath(), new CompressionConfiguration()).precompress(source);
+        awaitIndexed("/app.js", "/app.js.gz");
+        Files.setLastModifiedTime(webroot.resolve("app.js.gz"), FileTime.fromMillis(0));
+
+        HttpResponse response = handler.handle(request("GET", "/app.js", "Accept-Encoding: gzip"));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+    }
+
+    @Test
+    void testRangeRequestsUseIdentityRepresentation() throws Exception {
+        Path source = Files.writeString(webroot.resolve("app.js"), "console.log('hello');\n".repeat(200));
+        new Precompressor(webroot.toRealPath(), new CompressionConfiguration()).precompress(source);
+        awaitIndexed("/app.js", "/app.js.gz");
+
+        HttpResponse response = handler.handle(request("GET", "/app.js", "Accept-Encoding: gzip", "Range: bytes=0-6"));
+
+        assertEquals(HttpStatusCode.SUCCESS_206_PARTIAL_CONTENT, response.getStatusCode());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("console", bodyOf(response));
+    }
+
+    @Test
+    void testMissingSidecarIsRememberedUntilOneAppears() throws Exception {
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setNegativeCacheEnabled(false);
+        Path source = Files.writeString(webroot.resolve("app.js"), "console.log('hello');\n".repeat(200));
+        try (StaticFileHandler remembering = new StaticFileHandler(webroot.toString(), configuration)) {
+            remembering.handle(request("GET", "/app.js", "Accept-Encoding: gzip"));
+            long misses = remembering.getMetadataCache().getMisses();
+
+            HttpResponse response = remembering.handle(request("GET", "/app.js", "Accept-Encoding: gzip"));
+
+            assertNull(response.getHeader("Content-Encoding"));
+            assertEquals(misses, remembering.getMetadataCache().getMisses(), "Sidecar looked up again");
+
+            new Precompressor(webroot.toRealPath(), new CompressionConfiguration()).precompress(source);
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (!"gzip".equals(remembering.handle(request("GET", "/app.js", "Accept-Encoding: gzip")).getHeader("Content-Encoding"))) {
+                assertTrue(System.nanoTime() < deadline, "New sidecar not served within 10 seconds");
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void testWatcherKeepsSidecarsInSync() throws Exception {
+        Path root = webroot.toRealPath();
+        try (StaticFileHandler syncing = new StaticFileHandler(webroot.toString(), new StaticFileConfiguration(),
+                new Precompressor(root, new CompressionConfiguration()))) {
+            Files.writeString(webroot.resolve("late.js"), "console.log('late');\n".repeat(200));
+
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (!"gzip".equals(syncing.handle(request("GET", "/late.js", "Accept-Encoding: gzip")).getHeader("Content-Encoding"))) {
+                assertTrue(System.nanoTime() < deadline, "Sidecar not written within 10 seconds");
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void testServesFingerprintedUrlWithImmutableCaching() throws IOException {
+        try (StaticFileHandler fingerprinting = new StaticFileHandler(webroot.toString(), fingerprintingConfiguration())) {
+            String fingerprint = AssetFingerprints.of(FileMetadata.read(webroot.toRealPath(), "/css/site.css", "index.html"));
+
+            HttpResponse response = fingerprinting.handle(request("GET", "/css/site." + fingerprint + ".css"));
+            HttpResponse plain = fingerprinting.handle(request("GET", "/css/site.css"));
+
+            assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+            assertEquals(AssetFingerprints.IMMUTABLE_CACHE_CONTROL, response.getHeader("Cache-Control"));
+            assertEquals("body{margin:0}", bodyOf(response));
+            assertNull(plain.getHeader("Cache-Control"));
+        }
+    }
+
+    @Test
+    void testOutdatedFingerprintIsNotFound() throws IOException {
+        try (StaticFileHandler fingerprinting = new StaticFileHandler(webroot.toString(), fingerprintingConfiguration())) {
+            HttpResponse response = fingerprinting.handle(request("GET", "/css/site.00000000.css"));
+
+            assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, response.getStatusCode());
+            assertNull(response.getHeader("Cache-Control"));
+        }
+    }
+
+    @Test
+    void testFingerprintedUrlsNeedOption() throws IOException {
+        String fingerprint = AssetFingerprints.of(FileMetadata.read(webroot.toRealPath(), "/css/site.css", "index.html"));
+
+        HttpResponse response = handler.handle(request("GET", "/css/site." + fingerprint + ".css"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testServesFingerprintManifest() throws IOException {
+        try (StaticFileHandler fingerprinting = new StaticFileHandler(webroot.toString(), fingerprintingConfiguration())) {
+            String fingerprint = AssetFingerprints.of(FileMetadata.read(webroot.toRealPath(), "/css/site.css", "index.html"));
+
+            HttpResponse response = fingerprinting.handle(request("GET", "/asset-manifest.json"));
+
+            assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+            assertEquals("application/json; charset=utf-8", response.getHeader("Content-Type"));
+            assertEquals("no-cache", response.getHeader("Cache-Control"));
+            assertEquals("{\"/css/site.css\":\"/css/site." + fingerprint + ".css\"}",
+                    new String(response.getBodyBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testServesIndexFileForDirectory() throws IOException {
+        HttpResponse response = handler.handle(request("GET", "/"));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+        assertEquals("text/html; charset=utf-8", response.getHeader("Content-Type"));
+        assertEquals("<h1>home</h1>", bodyOf(response));
+    }
+
+    @Test
+    void testHeadHasLengthButNoBody() {
+        HttpResponse response = handler.handle(request("HEAD", "/index.html"));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+        assertEquals("13", response.getHeader("Content-Length"));
+        assertNull(response.getResponseBody());
+    }
+
+    @Test
+    void testDecodesPercentEscapesAndIgnoresQuery() {
+        HttpResponse response = handler.handle(request("GET", "/css/%73ite.css?v=2"));
+
+        assertEquals(HttpStatusCode.SUCCESS_200_OK, response.getStatusCode());
+    }
+
+    @Test
+    void testMissingFileIsNotFound() {
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/missing.js")).getStatusCode());
+    }
+
+    @Test
+    void testMissingFileIsAnsweredWithoutDisk() {
+        long metadataMisses = handler.getMetadataCache().getMisses();
+
+        HttpResponse response = handler.handle(request("GET", "/wp-login.php"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, response.getStatusCode());
+        assertEquals(String.valueOf(response.getBodyBytes().length), response.getHeader("Content-Length"));
+        assertEquals(metadataMisses, handler.getMetadataCache().getMisses());
+        assertEquals(1, handler.getNegativeCache().getFilterRejections());
+    }
+
+    @Test
+    void testCreatedFileBecomesServable() throws Exception {
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/late.html")).getStatusCode());
+
+        Files.writeString(webroot.resolve("late.html"), "late");
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (handler.handle(request("GET", "/late.html")).getStatusCode() != HttpStatusCode.SUCCESS_200_OK) {
+            assertTrue(System.nanoTime() < deadline, "Created file not served within 10 seconds");
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void testDotFilesAreNotServed() {
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/.env")).getStatusCode());
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/css/../.env")).getStatusCode());
+    }
+
+    @Test
+    void testTraversalAboveWebrootIsRejected() {
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, handler.handle(request("GET", "/../outside.txt")).getStatusCode());
+        assertEquals(HttpStatusCode.CLIENT_ERROR_400_BAD_REQUEST, handler.handle(request("GET", "/css/%2e%2e/%2e%2e/outside.txt")).getStatusCode());
+    }
+
+    @Test
+    void testSymlinkLeavingWebrootIsNotServed() throws IOException {
+        try {
+            Files.createSymbolicLink(webroot.resolve("link.txt"), tempDir.resolve("outside.txt"));
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Symbolic links are not supported: " + e.getMessage());
+        }
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_404_NOT_FOUND, handler.handle(request("GET", "/link.txt")).getStatusCode());
+    }
+
+    @Test
+    void testUnsupportedMethodIsNotAllowed() {
+        HttpResponse response = handler.handle(request("POST", "/index.html"));
+
+        assertEquals(HttpStatusCode.CLIENT_ERROR_405_METHOD_NOT_ALLOWED, response.getStatusCode());
+        assertEquals("GET, HEAD", response.getHeader("Allow"));
+    }
+
+    @Test
+    void testNormalizePath() {
+        assertAll("Normalized paths",
+                () -> assertEquals("/", StaticFileHandler.normalizePath("/")),
+                () -> assertEquals("/a/c", StaticFileHandler.normalizePath("/a/./b/../c")),
+                () -> assertEquals("/a/", StaticFileHandler.normalizePath("//a//")),
+                () -> assertEquals("/a+b", StaticFileHandler.normalizePath("/a+b")),
+                () -> assertNull(StaticFileHandler.normalizePath("/.git/config")),
+                () -> assertThrows(IllegalArgumentException.class, () -> StaticFileHandler.normalizePath("/..")),
+                () -> assertThrows(IllegalArgumentException.class, () -> StaticFileHandler.normalizePath("/a%00")),
+                () -> assertThrows(IllegalArgumentException.class, () -> StaticFileHandler.normalizePath("/a%zz")),
+                () -> assertThrows(IllegalArgumentException.class, () -> StaticFileHandler.normalizePath("a"))
+        );
+    }
+
+    private static StaticFileConfiguration fingerprintingConfiguration() {
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setFingerprintingEnabled(true);
+        return configuration;
+    }
+
+    /**
+     * Waits until the web root watcher has reported files created by a test.
+     */
+    private void awaitIndexed(String... paths) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        for (String path : paths) {
+            while (handler.getNegativeCache().isKnownMissing(path)) {
+                assertTrue(System.nanoTime() < deadline, path + " not indexed within 10 seconds");
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static HttpRequest request(String method, String target, String... headers) {
+        StringBuilder raw = new StringBuilder(method + " " + target + " HTTP/1.1\r\nHost: localhost\r\n");
+        for (String header : headers) {
+            raw.append(header).append("\r\n");
+        }
+        raw.append("\r\n");
+        return new HttpParser().parseHttpRequest(new ByteArrayInputStream(raw.toString().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String bodyOf(HttpResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getResponseBody().writeTo(Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
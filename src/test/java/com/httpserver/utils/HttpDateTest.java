@@ -0,0 +1,32 @@
+package com.httpserver.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpDateTest {
+
+    private static final Instant EXAMPLE = Instant.parse("1994-11-06T08:49:37Z");
+
+    @Test
+    void testFormatsImfFixdate() {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDate.format(EXAMPLE.plusMillis(500)));
+    }
+
+    @Test
+    void testParsesAllThreeFormats() {
+        assertAll("Accepted formats",
+                () -> assertEquals(EXAMPLE, HttpDate.parse("Sun, 06 Nov 1994 08:49:37 GMT")),
+                () -> assertEquals(EXAMPLE, HttpDate.parse("Sunday, 06-Nov-94 08:49:37 GMT")),
+                () -> assertEquals(EXAMPLE, HttpDate.parse("Sun Nov  6 08:49:37 1994"))
+        );
+    }
+
+    @Test
+    void testInvalidDatesAreNull() {
+        assertNull(HttpDate.parse(null));
+        assertNull(HttpDate.parse("yesterday"));
+    }
+}